@@ -0,0 +1,80 @@
+package com.example.edgeview;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.example.edgeview.convert.ReferenceYuvConverter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks the native YUV_420_888 ingest against the Java reference conversion.
+ * OpenCV uses slightly different fixed-point BT.601 coefficients, so channels may differ by a
+ * small rounding tolerance.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NativeYuvEquivalenceTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final int ROW_PADDING = 16;
+    private static final int TOLERANCE = 3;
+
+    private final Random random = new Random(42);
+
+    @Before
+    public void loadNative() {
+        assumeTrue(NativeLib.isNativeAvailable());
+    }
+
+    @Test
+    public void semiPlanarVuMatchesReference() {
+        int uvRowStride = WIDTH + ROW_PADDING;
+        ByteBuffer vu = randomPlane(uvRowStride * HEIGHT / 2);
+        ByteBuffer v = vu.duplicate();
+        vu.position(1);
+        ByteBuffer u = vu.slice();
+        assertMatchesReference(u, v, uvRowStride, 2);
+    }
+
+    @Test
+    public void planarMatchesReference() {
+        int uvRowStride = WIDTH / 2 + ROW_PADDING;
+        assertMatchesReference(randomPlane(uvRowStride * HEIGHT / 2), randomPlane(uvRowStride * HEIGHT / 2),
+                uvRowStride, 1);
+    }
+
+    private void assertMatchesReference(ByteBuffer u, ByteBuffer v, int uvRowStride, int uvPixelStride) {
+        int yRowStride = WIDTH + ROW_PADDING;
+        ByteBuffer y = randomPlane(yRowStride * HEIGHT);
+
+        ByteBuffer nativeRgba = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4);
+        assertTrue(NativeLib.yuv420ToRgbaSafe(y, yRowStride, u, v, uvRowStride, uvPixelStride,
+                nativeRgba, WIDTH, HEIGHT));
+
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        ReferenceYuvConverter.planesToNv21(y, yRowStride, 1, u, uvRowStride, v, uvRowStride, uvPixelStride,
+                WIDTH, HEIGHT, nv21);
+        byte[] javaRgba = new byte[WIDTH * HEIGHT * 4];
+        ReferenceYuvConverter.nv21ToRgba(nv21, javaRgba, 0, 0, HEIGHT, WIDTH, HEIGHT);
+
+        for (int i = 0; i < javaRgba.length; i++) {
+            int diff = Math.abs((nativeRgba.get(i) & 0xff) - (javaRgba[i] & 0xff));
+            assertTrue("byte " + i + " differs by " + diff, diff <= TOLERANCE);
+        }
+    }
+
+    private ByteBuffer randomPlane(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        ByteBuffer plane = ByteBuffer.allocateDirect(size);
+        plane.put(bytes).position(0);
+        return plane;
+    }
+}
@@ -0,0 +1,58 @@
+#include "edge_vectorizer.h"
+
+#include <algorithm>
+
+int EdgeVectorizer::run(const cv::Mat& edges, VectorMode mode, double tolerance, double minLength) {
+    segments_.clear();
+    if (mode == VectorMode::kLines) {
+        // The vote threshold scales with the shortest accepted line so short runs do not flood it.
+        int votes = std::max(10, static_cast<int>(minLength / 2));
+        cv::HoughLinesP(edges, lines_, 1, CV_PI / 180, votes, minLength, tolerance);
+        for (const cv::Vec4i& line : lines_) {
+            add(cv::Point(line[0], line[1]), cv::Point(line[2], line[3]));
+        }
+    } else {
+        // Since OpenCV 3.2 findContours leaves its input alone, so the edge map is read in place.
+        // Every pixel is kept (CHAIN_APPROX_NONE) so that revisits can be recognized below.
+        cv::findContours(edges, contours_, cv::RETR_LIST, cv::CHAIN_APPROX_NONE);
+        visited_.create(edges.size(), CV_8UC1);
+        visited_.setTo(0);
+        for (const std::vector<cv::Point>& contour : contours_) {
+            // A one-pixel-wide edge is traced along both of its sides, and a thin ring once more as
+            // a hole, so only runs of pixels no contour has passed yet are kept.
+            run_.clear();
+            for (size_t i = 0; i < contour.size(); i++) {
+                uchar& seen = visited_.at<uchar>(contour[i]);
+                if (seen) {
+                    addRun(tolerance, minLength);
+                    continue;
+                }
+                if (run_.empty() && i > 0) {
+                    // Starts where a traced part left off, e.g. at a junction, so the two connect.
+                    run_.push_back(contour[i - 1]);
+                }
+                run_.push_back(contour[i]);
+                seen = 1;
+            }
+            addRun(tolerance, minLength);
+        }
+    }
+    return static_cast<int>(segments_.size() / 4);
+}
+
+void EdgeVectorizer::addRun(double tolerance, double minLength) {
+    if (run_.size() >= 2 && cv::arcLength(run_, false) >= minLength) {
+        cv::approxPolyDP(run_, simplified_, tolerance, false);
+        for (size_t i = 1; i < simplified_.size(); i++) {
+            add(simplified_[i - 1], simplified_[i]);
+        }
+    }
+    run_.clear();
+}
+
+void EdgeVectorizer::add(const cv::Point& from, const cv::Point& to) {
+    segments_.push_back(static_cast<float>(from.x));
+    segments_.push_back(static_cast<float>(from.y));
+    segments_.push_back(static_cast<float>(to.x));
+    segments_.push_back(static_cast<float>(to.y));
+}
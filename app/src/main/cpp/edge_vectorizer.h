@@ -0,0 +1,39 @@
+#ifndef EDGEVIEW_EDGE_VECTORIZER_H
+#define EDGEVIEW_EDGE_VECTORIZER_H
+
+#include <vector>
+#include <opencv2/opencv.hpp>
+
+// Extraction methods; the codes mirror VectorConfig.Mode on the Java side.
+enum class VectorMode : int {
+    kContours = 0,
+    kLines = 1,
+};
+
+// Reduces a GRAY8 edge map to line segments, four floats (x0, y0, x1, y1) each, in pixels. The
+// contour, line and segment vectors keep their capacity across frames, so after the first few
+// frames a run allocates only what OpenCV allocates internally. One instance per thread.
+class EdgeVectorizer {
+public:
+    // Contours: simplified to within tolerance pixels, dropped when shorter than minLength. Each
+    // edge pixel is traced once, although the contour follower passes thin edges twice.
+    // Lines: Hough segments at least minLength long, bridging gaps of up to tolerance pixels.
+    // Returns the number of segments found; they are in segments().
+    int run(const cv::Mat& edges, VectorMode mode, double tolerance, double minLength);
+
+    const float* segments() const { return segments_.data(); }
+
+private:
+    // Simplifies and emits run_ unless it is shorter than minLength, then clears it.
+    void addRun(double tolerance, double minLength);
+    void add(const cv::Point& from, const cv::Point& to);
+
+    std::vector<std::vector<cv::Point>> contours_;
+    std::vector<cv::Point> run_;
+    std::vector<cv::Point> simplified_;
+    cv::Mat visited_; // edge pixels already part of a contour run this frame
+    std::vector<cv::Vec4i> lines_;
+    std::vector<float> segments_;
+};
+
+#endif //EDGEVIEW_EDGE_VECTORIZER_H
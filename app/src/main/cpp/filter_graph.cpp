@@ -0,0 +1,151 @@
+#include "filter_graph.h"
+
+#include <chrono>
+
+namespace {
+
+int64_t elapsedNanos(std::chrono::steady_clock::time_point since) {
+    return std::chrono::duration_cast<std::chrono::nanoseconds>(std::chrono::steady_clock::now() - since).count();
+}
+
+bool isWhole(double value) {
+    return value == static_cast<double>(static_cast<int>(value));
+}
+
+// Same rules as FrameProcessor.Builder.
+bool isValid(FilterOp op, double first, double second) {
+    switch (op) {
+        case FilterOp::kBlur:
+            return isWhole(first) && first >= 3 && static_cast<int>(first) % 2 == 1 && second >= 0;
+        case FilterOp::kThreshold:
+            return first >= 0 && first <= 255;
+        case FilterOp::kCanny:
+            return first >= 0 && second >= first;
+        case FilterOp::kDilate:
+        case FilterOp::kErode:
+            return isWhole(first) && isWhole(second) && first >= 1 && second >= 1;
+        case FilterOp::kSobel:
+            return (first == 1 || first == 3 || first == 5 || first == 7) && second > 0;
+    }
+    return false;
+}
+
+// Ops whose OpenCV implementation may write over their own input.
+bool runsInPlace(FilterOp op) {
+    return op == FilterOp::kThreshold || op == FilterOp::kDilate || op == FilterOp::kErode;
+}
+
+} // namespace
+
+FilterGraph* FilterGraph::compile(const int* ops, const double* params, int count) {
+    if (count < 0 || count > kMaxNodes) {
+        return nullptr;
+    }
+    auto* graph = new FilterGraph();
+    for (int i = 0; i < count; i++) {
+        if (ops[i] < static_cast<int>(FilterOp::kBlur) || ops[i] > static_cast<int>(FilterOp::kSobel)) {
+            delete graph;
+            return nullptr;
+        }
+        Node node{static_cast<FilterOp>(ops[i]), params[2 * i], params[2 * i + 1], cv::Mat()};
+        if (!isValid(node.op, node.first, node.second)) {
+            delete graph;
+            return nullptr;
+        }
+        if (node.op == FilterOp::kDilate || node.op == FilterOp::kErode) {
+            int size = static_cast<int>(node.first);
+            node.kernel = cv::getStructuringElement(cv::MORPH_RECT, cv::Size(size, size));
+        }
+        graph->nodes_.push_back(node);
+    }
+    return graph;
+}
+
+int64_t FilterGraph::run(const cv::Mat& input, cv::Mat& output, int downscale) {
+    auto t0 = std::chrono::steady_clock::now();
+    const cv::Mat* src = &input;
+    if (input.channels() == 4) {
+        cv::cvtColor(input, gray_, cv::COLOR_RGBA2GRAY);
+        src = &gray_;
+    }
+    if (downscale > 1) {
+        cv::resize(*src, small_, cv::Size(input.cols / downscale, input.rows / downscale), 0, 0, cv::INTER_AREA);
+        src = &small_;
+    }
+    // The last node can write into the caller's buffer only when nothing follows it.
+    bool direct = output.type() == CV_8UC1 && downscale == 1;
+
+    int count = nodeCount();
+    for (int i = 0; i < count; i++) {
+        auto nodeStart = std::chrono::steady_clock::now();
+        const Node& node = nodes_[i];
+        bool ownSource = src == &ping_ || src == &pong_;
+        cv::Mat* dst;
+        if (i == count - 1 && direct) {
+            dst = &output;
+        } else if (ownSource && runsInPlace(node.op)) {
+            dst = const_cast<cv::Mat*>(src);
+        } else {
+            dst = src == &ping_ ? &pong_ : &ping_;
+        }
+        apply(node, *src, *dst);
+        src = dst;
+        nodeNanos_[i].fetch_add(elapsedNanos(nodeStart), std::memory_order_relaxed);
+    }
+
+    if (src != &output) {
+        const cv::Mat* gray = src;
+        if (downscale > 1) {
+            cv::resize(*src, result_, input.size(), 0, 0, cv::INTER_NEAREST);
+            gray = &result_;
+        }
+        if (output.type() == CV_8UC1) {
+            gray->copyTo(output);
+        } else {
+            cv::cvtColor(*gray, output, cv::COLOR_GRAY2RGBA);
+        }
+    }
+
+    frames_.fetch_add(1, std::memory_order_relaxed);
+    return elapsedNanos(t0);
+}
+
+void FilterGraph::apply(const Node& node, const cv::Mat& src, cv::Mat& dst) {
+    switch (node.op) {
+        case FilterOp::kBlur: {
+            int size = static_cast<int>(node.first);
+            cv::GaussianBlur(src, dst, cv::Size(size, size), node.second);
+            break;
+        }
+        case FilterOp::kThreshold:
+            cv::threshold(src, dst, node.first, 255, node.second != 0 ? cv::THRESH_BINARY_INV : cv::THRESH_BINARY);
+            break;
+        case FilterOp::kCanny:
+            cv::Canny(src, dst, node.first, node.second);
+            break;
+        case FilterOp::kDilate:
+            cv::dilate(src, dst, node.kernel, cv::Point(-1, -1), static_cast<int>(node.second));
+            break;
+        case FilterOp::kErode:
+            cv::erode(src, dst, node.kernel, cv::Point(-1, -1), static_cast<int>(node.second));
+            break;
+        case FilterOp::kSobel: {
+            int size = static_cast<int>(node.first);
+            cv::Sobel(src, gradX_, CV_16S, 1, 0, size, node.second);
+            cv::Sobel(src, gradY_, CV_16S, 0, 1, size, node.second);
+            // |dx| + |dy| with saturation, the same L1 magnitude Canny uses.
+            cv::convertScaleAbs(gradX_, dst);
+            cv::convertScaleAbs(gradY_, absY_);
+            cv::add(dst, absY_, dst);
+            break;
+        }
+    }
+}
+
+int64_t FilterGraph::readNodeTimings(int64_t out[kMaxNodes]) const {
+    int count = nodeCount();
+    for (int i = 0; i < count; i++) {
+        out[i] = nodeNanos_[i].load(std::memory_order_relaxed);
+    }
+    return frames_.load(std::memory_order_relaxed);
+}
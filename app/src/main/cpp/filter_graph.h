@@ -0,0 +1,66 @@
+#ifndef EDGEVIEW_FILTER_GRAPH_H
+#define EDGEVIEW_FILTER_GRAPH_H
+
+#include <atomic>
+#include <cstdint>
+#include <vector>
+#include <opencv2/opencv.hpp>
+
+// Node operations; the codes mirror FrameProcessor.Op on the Java side.
+enum class FilterOp : int {
+    kBlur = 0,
+    kThreshold = 1,
+    kCanny = 2,
+    kDilate = 3,
+    kErode = 4,
+    kSobel = 5,
+};
+
+// A FrameProcessor compiled once into a chain of grayscale filters that run back to back in one
+// call. Nodes alternate between two working Mats, except threshold and morphology, which run in
+// place; the first node reads the input luma directly and the last one writes straight into a
+// GRAY8 output. All Mats are kept across frames and only reallocated when the frame size
+// changes. run() must be called from one thread at a time; the timings may be read from any.
+class FilterGraph {
+public:
+    static constexpr int kMaxNodes = 16;
+
+    // Returns nullptr when an op code is unknown or a parameter is out of range.
+    static FilterGraph* compile(const int* ops, const double* params, int count);
+
+    // input is CV_8UC1 (luma) or CV_8UC4 (RGBA); output is a preallocated CV_8UC1 or CV_8UC4 Mat
+    // of the same size. With downscale > 1 the nodes run on a 1/downscale grid and the result is
+    // scaled back up. Returns the time taken in nanoseconds.
+    int64_t run(const cv::Mat& input, cv::Mat& output, int downscale = 1);
+
+    int nodeCount() const { return static_cast<int>(nodes_.size()); }
+    // Copies the accumulated time of each node into out (nodeCount() long) and returns the
+    // number of frames run.
+    int64_t readNodeTimings(int64_t out[kMaxNodes]) const;
+
+private:
+    struct Node {
+        FilterOp op;
+        double first;
+        double second;
+        cv::Mat kernel; // structuring element of morphology nodes
+    };
+
+    FilterGraph() = default;
+    void apply(const Node& node, const cv::Mat& src, cv::Mat& dst);
+
+    std::vector<Node> nodes_;
+    cv::Mat gray_;
+    cv::Mat small_;
+    cv::Mat ping_;
+    cv::Mat pong_;
+    cv::Mat result_;
+    cv::Mat gradX_;
+    cv::Mat gradY_;
+    cv::Mat absY_;
+
+    std::atomic<int64_t> frames_{0};
+    std::atomic<int64_t> nodeNanos_[kMaxNodes] = {};
+};
+
+#endif //EDGEVIEW_FILTER_GRAPH_H
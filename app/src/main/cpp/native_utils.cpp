@@ -1,5 +1,6 @@
 #include "native_utils.h"
 #include <android/log.h>
+#include <vector>
 
 #define LOG_TAG "native-utils"
 #define LOGI(...) __android_log_print(ANDROID_LOG_INFO, LOG_TAG, __VA_ARGS__)
@@ -39,3 +40,46 @@ jbyteArray matToJByteArray(JNIEnv* env, const cv::Mat& mat) {
 
     return result;
 }
+
+bool yuv420PlanesToRgba(const uint8_t* y, int yRowStride,
+                        const uint8_t* u, const uint8_t* v, int uvRowStride, int uvPixelStride,
+                        int width, int height, cv::Mat& rgba) {
+    if (y == nullptr || u == nullptr || v == nullptr || (width & 1) || (height & 1)) {
+        LOGE("Unsupported YUV_420_888 layout (%dx%d).", width, height);
+        return false;
+    }
+
+    cv::Mat y_mat(height, width, CV_8UC1, const_cast<uint8_t*>(y), yRowStride);
+    int chroma_width = width / 2;
+    int chroma_height = height / 2;
+
+    // Semi-planar layouts are the common case: the V and U planes are the same interleaved
+    // buffer offset by one byte, so OpenCV can read them in place with their row stride.
+    if (uvPixelStride == 2 && u == v + 1) {
+        cv::Mat vu_mat(chroma_height, chroma_width, CV_8UC2, const_cast<uint8_t*>(v), uvRowStride);
+        cv::cvtColorTwoPlane(y_mat, vu_mat, rgba, cv::COLOR_YUV2RGBA_NV21);
+        return true;
+    }
+    if (uvPixelStride == 2 && v == u + 1) {
+        cv::Mat uv_mat(chroma_height, chroma_width, CV_8UC2, const_cast<uint8_t*>(u), uvRowStride);
+        cv::cvtColorTwoPlane(y_mat, uv_mat, rgba, cv::COLOR_YUV2RGBA_NV12);
+        return true;
+    }
+
+    // Fully planar or unusual strides: gather only the chroma (a quarter of the pixels) into a
+    // reusable interleaved VU plane, then convert in a single pass.
+    thread_local std::vector<uint8_t> vu;
+    vu.resize(static_cast<size_t>(chroma_width) * chroma_height * 2);
+    uint8_t* dst = vu.data();
+    for (int row = 0; row < chroma_height; row++) {
+        const uint8_t* u_row = u + static_cast<size_t>(row) * uvRowStride;
+        const uint8_t* v_row = v + static_cast<size_t>(row) * uvRowStride;
+        for (int col = 0; col < chroma_width; col++) {
+            *dst++ = v_row[col * uvPixelStride];
+            *dst++ = u_row[col * uvPixelStride];
+        }
+    }
+    cv::Mat vu_mat(chroma_height, chroma_width, CV_8UC2, vu.data());
+    cv::cvtColorTwoPlane(y_mat, vu_mat, rgba, cv::COLOR_YUV2RGBA_NV21);
+    return true;
+}
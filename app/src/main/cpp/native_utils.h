@@ -7,4 +7,10 @@
 cv::Mat nv21ToMatRGBA(JNIEnv* env, jbyteArray nv21, int width, int height);
 jbyteArray matToJByteArray(JNIEnv* env, const cv::Mat& mat);
 
+// Converts strided YUV_420_888 planes (as delivered by CameraX) straight into an RGBA Mat.
+// The Y plane must have a pixel stride of 1; U and V share row and pixel strides.
+bool yuv420PlanesToRgba(const uint8_t* y, int yRowStride,
+                        const uint8_t* u, const uint8_t* v, int uvRowStride, int uvPixelStride,
+                        int width, int height, cv::Mat& rgba);
+
 #endif //EDGEVIEW_NATIVE_UTILS_H
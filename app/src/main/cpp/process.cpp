@@ -1,11 +1,34 @@
 #include <jni.h>
 #include <opencv2/opencv.hpp>
 #include <android/log.h>
-#include <chrono>
+#include <algorithm>
 #include <vector>
 
+#include "edge_vectorizer.h"
+#include "filter_graph.h"
+#include "native_utils.h"
+#include "processing_session.h"
+
 #define LOG_TAG "native-lib"
 
+// The stateless entry points share one default-configured session per calling thread, so they
+// also keep their working Mats between frames instead of allocating them per call.
+static ProcessingSession& defaultSession(int width, int height) {
+    thread_local ProcessingSession session(width, height, EdgeConfig());
+    return session;
+}
+
+// Runs the edge pipeline on a CV_8UC1 or CV_8UC4 frame. A preallocated CV_8UC1 output receives
+// the edge map directly; any other output gets the edges expanded to RGBA.
+static void runEdgePipeline(const cv::Mat& input_mat, cv::Mat& output_mat) {
+    defaultSession(input_mat.cols, input_mat.rows).process(input_mat, output_mat);
+}
+
+// Output channels come from PixelFormat.bytesPerPixel(): 1 for GRAY8, 4 for RGBA.
+static bool isSupportedOutput(jint output_channels) {
+    return output_channels == 1 || output_channels == 4;
+}
+
 extern "C" JNIEXPORT jbyteArray JNICALL
 Java_com_example_edgeview_NativeLib_processFrame(JNIEnv* env, jclass clazz, jbyteArray input, jint width, jint height) {
     // --- 1. Safely get input data from Java ---
@@ -30,21 +53,8 @@ Java_com_example_edgeview_NativeLib_processFrame(JNIEnv* env, jclass clazz, jbyt
     cv::Mat rgba_mat(height, width, CV_8UC4, reinterpret_cast<unsigned char*>(input_bytes));
 
     // --- 3. Process the image ---
-    auto t0 = std::chrono::steady_clock::now();
-
-    cv::Mat gray_mat;
-    cv::cvtColor(rgba_mat, gray_mat, cv::COLOR_RGBA2GRAY);
-
-    cv::Mat edges_mat;
-    cv::Canny(gray_mat, edges_mat, 50, 150);
-
-    // Convert edges back to RGBA to match the output format
-    cv::Mat processed_rgba_mat;
-    cv::cvtColor(edges_mat, processed_rgba_mat, cv::COLOR_GRAY2RGBA);
-
-    auto t1 = std::chrono::steady_clock::now();
-    long ms = std::chrono::duration_cast<std::chrono::milliseconds>(t1 - t0).count();
-    __android_log_print(ANDROID_LOG_INFO, "native-lib", "process ms: %ld", ms);
+    thread_local cv::Mat processed_rgba_mat;
+    runEdgePipeline(rgba_mat, processed_rgba_mat);
 
     // --- 4. Release the input array ---
     env->ReleaseByteArrayElements(input, input_bytes, JNI_ABORT);
@@ -62,3 +72,352 @@ Java_com_example_edgeview_NativeLib_processFrame(JNIEnv* env, jclass clazz, jbyt
 
     return output_array;
 }
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_edgeview_NativeLib_processFrameInto(JNIEnv* env, jclass clazz, jbyteArray input, jbyteArray output, jint width, jint height) {
+    if (input == nullptr || output == nullptr) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Input or output jbyteArray is null.");
+        return JNI_FALSE;
+    }
+
+    jsize frame_len = width * height * 4;
+    if (env->GetArrayLength(input) < frame_len || env->GetArrayLength(output) < frame_len) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Input or output byte array too small. Expected %d", frame_len);
+        return JNI_FALSE;
+    }
+
+    jbyte* input_bytes = env->GetByteArrayElements(input, JNI_FALSE);
+    if (input_bytes == nullptr) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Failed to get byte array elements.");
+        return JNI_FALSE;
+    }
+
+    cv::Mat rgba_mat(height, width, CV_8UC4, reinterpret_cast<unsigned char*>(input_bytes));
+    thread_local cv::Mat processed_rgba_mat;
+    runEdgePipeline(rgba_mat, processed_rgba_mat);
+
+    env->ReleaseByteArrayElements(input, input_bytes, JNI_ABORT);
+
+    // Write straight into the caller's (pooled) array instead of allocating a new one.
+    env->SetByteArrayRegion(output, 0, frame_len, reinterpret_cast<jbyte*>(processed_rgba_mat.data));
+    return JNI_TRUE;
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_edgeview_NativeLib_processFrameDirect(JNIEnv* env, jclass clazz, jobject input, jobject output, jint width, jint height, jint outputChannels) {
+    if (input == nullptr || output == nullptr || !isSupportedOutput(outputChannels)) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Invalid input, output or output format.");
+        return JNI_FALSE;
+    }
+
+    auto* input_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(input));
+    auto* output_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(output));
+    if (input_bytes == nullptr || output_bytes == nullptr) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Input and output must be direct ByteBuffers.");
+        return JNI_FALSE;
+    }
+
+    jlong pixels = static_cast<jlong>(width) * height;
+    if (env->GetDirectBufferCapacity(input) < pixels * 4 || env->GetDirectBufferCapacity(output) < pixels * outputChannels) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Direct buffer too small for %dx%d.", width, height);
+        return JNI_FALSE;
+    }
+
+    // Both Mats alias the Java buffers; the pipeline writes into the pre-sized output in place.
+    cv::Mat rgba_mat(height, width, CV_8UC4, input_bytes);
+    cv::Mat output_mat(height, width, CV_8UC(outputChannels), output_bytes);
+    runEdgePipeline(rgba_mat, output_mat);
+
+    return output_mat.data == output_bytes ? JNI_TRUE : JNI_FALSE;
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_edgeview_NativeLib_yuv420ToRgba(JNIEnv* env, jclass clazz,
+                                                 jobject yPlane, jint yRowStride,
+                                                 jobject uPlane, jobject vPlane, jint uvRowStride, jint uvPixelStride,
+                                                 jobject output, jint width, jint height) {
+    auto* y = static_cast<const uint8_t*>(env->GetDirectBufferAddress(yPlane));
+    auto* u = static_cast<const uint8_t*>(env->GetDirectBufferAddress(uPlane));
+    auto* v = static_cast<const uint8_t*>(env->GetDirectBufferAddress(vPlane));
+    auto* output_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(output));
+    if (y == nullptr || u == nullptr || v == nullptr || output_bytes == nullptr) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Planes and output must be direct ByteBuffers.");
+        return JNI_FALSE;
+    }
+    if (env->GetDirectBufferCapacity(output) < static_cast<jlong>(width) * height * 4) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "RGBA output buffer too small.");
+        return JNI_FALSE;
+    }
+
+    cv::Mat rgba_mat(height, width, CV_8UC4, output_bytes);
+    if (!yuv420PlanesToRgba(y, yRowStride, u, v, uvRowStride, uvPixelStride, width, height, rgba_mat)) {
+        return JNI_FALSE;
+    }
+    return rgba_mat.data == output_bytes ? JNI_TRUE : JNI_FALSE;
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_edgeview_NativeLib_processLumaDirect(JNIEnv* env, jclass clazz, jobject luma, jobject output, jint width, jint height, jint outputChannels) {
+    if (!isSupportedOutput(outputChannels)) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Unsupported output channel count %d.", outputChannels);
+        return JNI_FALSE;
+    }
+    auto* luma_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(luma));
+    auto* output_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(output));
+    if (luma_bytes == nullptr || output_bytes == nullptr) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Luma and output must be direct ByteBuffers.");
+        return JNI_FALSE;
+    }
+    if (env->GetDirectBufferCapacity(luma) < static_cast<jlong>(width) * height
+            || env->GetDirectBufferCapacity(output) < static_cast<jlong>(width) * height * outputChannels) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Luma or output buffer too small.");
+        return JNI_FALSE;
+    }
+
+    // The Y plane already is the grayscale image, so Canny runs on it directly.
+    cv::Mat gray_mat(height, width, CV_8UC1, luma_bytes);
+    cv::Mat output_mat(height, width, CV_8UC(outputChannels), output_bytes);
+    runEdgePipeline(gray_mat, output_mat);
+
+    return output_mat.data == output_bytes ? JNI_TRUE : JNI_FALSE;
+}
+
+extern "C" JNIEXPORT jlong JNICALL
+Java_com_example_edgeview_NativeLib_nativeCreateSession(JNIEnv* env, jclass clazz, jint width, jint height,
+                                                        jdouble lowThreshold, jdouble highThreshold, jint blurKernelSize) {
+    if (width <= 0 || height <= 0) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Invalid session size %dx%d.", width, height);
+        return 0;
+    }
+    EdgeConfig config;
+    config.lowThreshold = lowThreshold;
+    config.highThreshold = highThreshold;
+    config.blurKernelSize = blurKernelSize;
+    return reinterpret_cast<jlong>(new ProcessingSession(width, height, config));
+}
+
+// Returns the session's processing time in nanoseconds, or -1 when nothing was written.
+extern "C" JNIEXPORT jlong JNICALL
+Java_com_example_edgeview_NativeLib_nativeProcess(JNIEnv* env, jclass clazz, jlong handle,
+                                                  jobject input, jint inputChannels,
+                                                  jobject output, jint outputChannels, jint width, jint height,
+                                                  jint downscale) {
+    auto* session = reinterpret_cast<ProcessingSession*>(handle);
+    if (session == nullptr || (inputChannels != 1 && inputChannels != 4) || !isSupportedOutput(outputChannels)
+            || downscale < 1 || width / downscale == 0 || height / downscale == 0) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Invalid session, input or output format.");
+        return -1;
+    }
+    auto* input_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(input));
+    auto* output_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(output));
+    if (input_bytes == nullptr || output_bytes == nullptr) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Input and output must be direct ByteBuffers.");
+        return -1;
+    }
+    jlong pixels = static_cast<jlong>(width) * height;
+    if (env->GetDirectBufferCapacity(input) < pixels * inputChannels
+            || env->GetDirectBufferCapacity(output) < pixels * outputChannels) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Direct buffer too small for %dx%d.", width, height);
+        return -1;
+    }
+
+    cv::Mat input_mat(height, width, CV_8UC(inputChannels), input_bytes);
+    cv::Mat output_mat(height, width, CV_8UC(outputChannels), output_bytes);
+    jlong nanos = session->process(input_mat, output_mat, downscale);
+    return output_mat.data == output_bytes ? nanos : -1;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_edgeview_NativeLib_nativeReadTimings(JNIEnv* env, jclass clazz, jlong handle, jlongArray out) {
+    auto* session = reinterpret_cast<ProcessingSession*>(handle);
+    if (session == nullptr || out == nullptr || env->GetArrayLength(out) < ProcessingSession::kTimingCount) {
+        return;
+    }
+    int64_t timings[ProcessingSession::kTimingCount];
+    session->readTimings(timings);
+    jlong values[ProcessingSession::kTimingCount];
+    for (int i = 0; i < ProcessingSession::kTimingCount; i++) {
+        values[i] = static_cast<jlong>(timings[i]);
+    }
+    env->SetLongArrayRegion(out, 0, ProcessingSession::kTimingCount, values);
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_com_example_edgeview_NativeLib_nativeSetThreading(JNIEnv* env, jclass clazz, jlong handle, jint threadCount,
+                                                       jint stripHeight, jint halo, jboolean splitStrips) {
+    auto* session = reinterpret_cast<ProcessingSession*>(handle);
+    if (session == nullptr || threadCount < 0 || stripHeight < 0 || halo < 0) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Invalid session or threading config.");
+        return JNI_FALSE;
+    }
+    ThreadingConfig threading;
+    threading.threadCount = threadCount;
+    threading.stripHeight = stripHeight;
+    threading.halo = halo;
+    threading.splitStrips = splitStrips == JNI_TRUE;
+    session->setThreading(threading);
+    return JNI_TRUE;
+}
+
+// Returns the number of strips of the last split frame; their times go into out.
+extern "C" JNIEXPORT jint JNICALL
+Java_com_example_edgeview_NativeLib_nativeReadStripTimings(JNIEnv* env, jclass clazz, jlong handle, jlongArray out) {
+    auto* session = reinterpret_cast<ProcessingSession*>(handle);
+    if (session == nullptr || out == nullptr || env->GetArrayLength(out) < ProcessingSession::kMaxStrips) {
+        return 0;
+    }
+    int64_t timings[ProcessingSession::kMaxStrips];
+    int strips = session->readStripTimings(timings);
+    jlong values[ProcessingSession::kMaxStrips];
+    for (int i = 0; i < strips; i++) {
+        values[i] = static_cast<jlong>(timings[i]);
+    }
+    env->SetLongArrayRegion(out, 0, strips, values);
+    return strips;
+}
+
+// Incremental variant of nativeProcess; same return value.
+extern "C" JNIEXPORT jlong JNICALL
+Java_com_example_edgeview_NativeLib_nativeProcessIncremental(JNIEnv* env, jclass clazz, jlong handle,
+                                                             jobject input, jint inputChannels,
+                                                             jobject output, jint outputChannels, jint width, jint height,
+                                                             jint tileSize, jint halo, jint sampleStep, jint changeThreshold) {
+    auto* session = reinterpret_cast<ProcessingSession*>(handle);
+    if (session == nullptr || (inputChannels != 1 && inputChannels != 4) || !isSupportedOutput(outputChannels)
+            || tileSize <= 0 || halo < 0 || sampleStep <= 0) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Invalid session, format or tiling.");
+        return -1;
+    }
+    auto* input_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(input));
+    auto* output_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(output));
+    if (input_bytes == nullptr || output_bytes == nullptr) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Input and output must be direct ByteBuffers.");
+        return -1;
+    }
+    jlong pixels = static_cast<jlong>(width) * height;
+    if (env->GetDirectBufferCapacity(input) < pixels * inputChannels
+            || env->GetDirectBufferCapacity(output) < pixels * outputChannels) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Direct buffer too small for %dx%d.", width, height);
+        return -1;
+    }
+
+    TileConfig tiles;
+    tiles.tileSize = tileSize;
+    tiles.halo = halo;
+    tiles.sampleStep = sampleStep;
+    tiles.changeThreshold = changeThreshold;
+    cv::Mat input_mat(height, width, CV_8UC(inputChannels), input_bytes);
+    cv::Mat output_mat(height, width, CV_8UC(outputChannels), output_bytes);
+    jlong nanos = session->processIncremental(input_mat, output_mat, tiles);
+    return output_mat.data == output_bytes ? nanos : -1;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_edgeview_NativeLib_nativeDestroySession(JNIEnv* env, jclass clazz, jlong handle) {
+    delete reinterpret_cast<ProcessingSession*>(handle);
+}
+
+// Returns a graph handle, or 0 when the description is invalid.
+extern "C" JNIEXPORT jlong JNICALL
+Java_com_example_edgeview_NativeLib_nativeCompileGraph(JNIEnv* env, jclass clazz, jintArray ops, jdoubleArray params) {
+    jsize count = env->GetArrayLength(ops);
+    if (count > FilterGraph::kMaxNodes || env->GetArrayLength(params) != 2 * count) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Invalid filter graph description.");
+        return 0;
+    }
+    jint opValues[FilterGraph::kMaxNodes];
+    jdouble paramValues[2 * FilterGraph::kMaxNodes];
+    env->GetIntArrayRegion(ops, 0, count, opValues);
+    env->GetDoubleArrayRegion(params, 0, 2 * count, paramValues);
+    int opCodes[FilterGraph::kMaxNodes];
+    double nodeParams[2 * FilterGraph::kMaxNodes];
+    for (int i = 0; i < count; i++) {
+        opCodes[i] = opValues[i];
+        nodeParams[2 * i] = paramValues[2 * i];
+        nodeParams[2 * i + 1] = paramValues[2 * i + 1];
+    }
+    FilterGraph* graph = FilterGraph::compile(opCodes, nodeParams, count);
+    if (graph == nullptr) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Unknown filter or invalid parameters.");
+    }
+    return reinterpret_cast<jlong>(graph);
+}
+
+// Runs every node of the graph in this one call; same return value as nativeProcess.
+extern "C" JNIEXPORT jlong JNICALL
+Java_com_example_edgeview_NativeLib_nativeRunGraph(JNIEnv* env, jclass clazz, jlong handle,
+                                                   jobject input, jint inputChannels,
+                                                   jobject output, jint outputChannels, jint width, jint height,
+                                                   jint downscale) {
+    auto* graph = reinterpret_cast<FilterGraph*>(handle);
+    if (graph == nullptr || (inputChannels != 1 && inputChannels != 4) || !isSupportedOutput(outputChannels)
+            || downscale < 1 || width / downscale == 0 || height / downscale == 0) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Invalid graph, input or output format.");
+        return -1;
+    }
+    auto* input_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(input));
+    auto* output_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(output));
+    if (input_bytes == nullptr || output_bytes == nullptr) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Input and output must be direct ByteBuffers.");
+        return -1;
+    }
+    jlong pixels = static_cast<jlong>(width) * height;
+    if (env->GetDirectBufferCapacity(input) < pixels * inputChannels
+            || env->GetDirectBufferCapacity(output) < pixels * outputChannels) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Direct buffer too small for %dx%d.", width, height);
+        return -1;
+    }
+
+    cv::Mat input_mat(height, width, CV_8UC(inputChannels), input_bytes);
+    cv::Mat output_mat(height, width, CV_8UC(outputChannels), output_bytes);
+    jlong nanos = graph->run(input_mat, output_mat, downscale);
+    return output_mat.data == output_bytes ? nanos : -1;
+}
+
+// Returns the number of frames run; the accumulated time of each node goes into out.
+extern "C" JNIEXPORT jlong JNICALL
+Java_com_example_edgeview_NativeLib_nativeReadNodeTimings(JNIEnv* env, jclass clazz, jlong handle, jlongArray out) {
+    auto* graph = reinterpret_cast<FilterGraph*>(handle);
+    if (graph == nullptr || out == nullptr || env->GetArrayLength(out) < graph->nodeCount()) {
+        return 0;
+    }
+    int64_t timings[FilterGraph::kMaxNodes];
+    int64_t frames = graph->readNodeTimings(timings);
+    jlong values[FilterGraph::kMaxNodes];
+    for (int i = 0; i < graph->nodeCount(); i++) {
+        values[i] = static_cast<jlong>(timings[i]);
+    }
+    env->SetLongArrayRegion(out, 0, graph->nodeCount(), values);
+    return static_cast<jlong>(frames);
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_com_example_edgeview_NativeLib_nativeDestroyGraph(JNIEnv* env, jclass clazz, jlong handle) {
+    delete reinterpret_cast<FilterGraph*>(handle);
+}
+
+// Vectorizes a GRAY8 edge map into out, four floats per segment. Returns the number of segments
+// found, which exceeds what out could take when it was too small (only those that fit are
+// copied), or -1 on invalid arguments.
+extern "C" JNIEXPORT jint JNICALL
+Java_com_example_edgeview_NativeLib_nativeVectorize(JNIEnv* env, jclass clazz, jobject edges, jint width,
+                                                    jint height, jint mode, jdouble tolerance,
+                                                    jdouble minLength, jfloatArray out) {
+    if (out == nullptr || width <= 0 || height <= 0
+            || (mode != static_cast<jint>(VectorMode::kContours) && mode != static_cast<jint>(VectorMode::kLines))) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Invalid vectorize arguments.");
+        return -1;
+    }
+    auto* edge_bytes = static_cast<unsigned char*>(env->GetDirectBufferAddress(edges));
+    if (edge_bytes == nullptr || env->GetDirectBufferCapacity(edges) < static_cast<jlong>(width) * height) {
+        __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, "Edge map must be a direct ByteBuffer of %dx%d.", width, height);
+        return -1;
+    }
+    // Per thread, so its vectors keep their capacity from frame to frame.
+    thread_local EdgeVectorizer vectorizer;
+    cv::Mat edge_mat(height, width, CV_8UC1, edge_bytes);
+    int count = vectorizer.run(edge_mat, static_cast<VectorMode>(mode), tolerance, minLength);
+    jsize copied = std::min(count * 4, static_cast<int>(env->GetArrayLength(out)) / 4 * 4);
+    env->SetFloatArrayRegion(out, 0, copied, vectorizer.segments());
+    return count;
+}
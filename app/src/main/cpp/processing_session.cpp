@@ -0,0 +1,241 @@
+#include "processing_session.h"
+
+#include <algorithm>
+#include <chrono>
+
+ProcessingSession::ProcessingSession(int width, int height, const EdgeConfig& config)
+        : config_(config) {
+    ensureSize(width, height);
+}
+
+void ProcessingSession::ensureSize(int width, int height) {
+    if (width == width_ && height == height_) {
+        return;
+    }
+    width_ = width;
+    height_ = height;
+    gray_.create(height, width, CV_8UC1);
+    edges_.create(height, width, CV_8UC1);
+    if (config_.blurKernelSize > 1) {
+        blurred_.create(height, width, CV_8UC1);
+    }
+    reallocations_.fetch_add(1, std::memory_order_relaxed);
+}
+
+int64_t ProcessingSession::process(const cv::Mat& input, cv::Mat& output, int downscale) {
+    auto t0 = std::chrono::steady_clock::now();
+    ensureSize(input.cols, input.rows);
+    cacheValid_ = false;
+
+    // cvtColor, GaussianBlur and Canny reuse destination Mats of the right size and type.
+    const cv::Mat* gray = &toGray(input);
+    if (downscale > 1) {
+        cv::resize(*gray, small_, cv::Size(input.cols / downscale, input.rows / downscale), 0, 0, cv::INTER_AREA);
+        gray = &small_;
+    }
+    bool grayOutput = !output.empty() && output.type() == CV_8UC1 && output.size() == input.size();
+    cv::Mat& fullEdges = grayOutput ? output : edges_;
+    if (downscale > 1) {
+        detect(*gray, smallEdges_);
+        cv::resize(smallEdges_, fullEdges, input.size(), 0, 0, cv::INTER_NEAREST);
+    } else {
+        detect(*gray, fullEdges);
+    }
+    if (!grayOutput) {
+        cv::cvtColor(edges_, output, cv::COLOR_GRAY2RGBA);
+    }
+
+    int64_t ns = std::chrono::duration_cast<std::chrono::nanoseconds>(
+            std::chrono::steady_clock::now() - t0).count();
+    recordTiming(ns);
+    return ns;
+}
+
+void ProcessingSession::setThreading(const ThreadingConfig& threading) {
+    threading_ = threading;
+    cv::setNumThreads(threading.threadCount > 0 ? threading.threadCount : cv::getNumberOfCPUs());
+}
+
+// Same rule as ThreadingConfig.stripCount on the Java side.
+int ProcessingSession::stripRowsFor(int height) const {
+    if (!threading_.splitStrips || height <= 0) {
+        return height;
+    }
+    int threads = threading_.threadCount > 0 ? threading_.threadCount : std::max(1, cv::getNumberOfCPUs());
+    int rows = threading_.stripHeight > 0 ? threading_.stripHeight : (height + threads - 1) / threads;
+    return std::max(rows, (height + kMaxStrips - 1) / kMaxStrips);
+}
+
+// Blur and Canny of one gray image into edges, split into strips when configured.
+void ProcessingSession::detect(const cv::Mat& gray, cv::Mat& edges) {
+    int stripRows = stripRowsFor(gray.rows);
+    if (stripRows < gray.rows) {
+        detectStrips(gray, edges, stripRows);
+        return;
+    }
+    const cv::Mat* source = &gray;
+    if (config_.blurKernelSize > 1) {
+        cv::GaussianBlur(gray, blurred_, cv::Size(config_.blurKernelSize, config_.blurKernelSize), 0);
+        source = &blurred_;
+    }
+    cv::Canny(*source, edges, config_.lowThreshold, config_.highThreshold);
+}
+
+void ProcessingSession::detectStrips(const cv::Mat& gray, cv::Mat& edges, int stripRows) {
+    int height = gray.rows;
+    int strips = (height + stripRows - 1) / stripRows;
+    if (static_cast<int>(stripEdges_.size()) < strips) {
+        stripBlurred_.resize(strips);
+        stripEdges_.resize(strips);
+    }
+    edges.create(gray.size(), CV_8UC1);
+    int halo = threading_.halo;
+
+    // Each strip detects its rows plus halo rows on both sides and copies back only its own rows,
+    // so the strips write disjoint parts of edges. The Mats reused per strip keep their size as
+    // long as the frame size and strip layout stay the same.
+    cv::parallel_for_(cv::Range(0, strips), [&](const cv::Range& range) {
+        for (int i = range.start; i < range.end; i++) {
+            auto t0 = std::chrono::steady_clock::now();
+            int y0 = i * stripRows;
+            int y1 = std::min(height, y0 + stripRows);
+            int top = std::max(0, y0 - halo);
+            int bottom = std::min(height, y1 + halo);
+            cv::Mat region = gray.rowRange(top, bottom);
+            if (config_.blurKernelSize > 1) {
+                cv::GaussianBlur(region, stripBlurred_[i], cv::Size(config_.blurKernelSize, config_.blurKernelSize), 0);
+                region = stripBlurred_[i];
+            }
+            cv::Canny(region, stripEdges_[i], config_.lowThreshold, config_.highThreshold);
+            stripEdges_[i].rowRange(y0 - top, y1 - top).copyTo(edges.rowRange(y0, y1));
+            stripNanos_[i].store(std::chrono::duration_cast<std::chrono::nanoseconds>(
+                    std::chrono::steady_clock::now() - t0).count(), std::memory_order_relaxed);
+        }
+    }, strips);
+    stripCount_.store(strips, std::memory_order_release);
+}
+
+int ProcessingSession::readStripTimings(int64_t out[kMaxStrips]) const {
+    int strips = stripCount_.load(std::memory_order_acquire);
+    for (int i = 0; i < strips; i++) {
+        out[i] = stripNanos_[i].load(std::memory_order_relaxed);
+    }
+    return strips;
+}
+
+const cv::Mat& ProcessingSession::toGray(const cv::Mat& input) {
+    if (input.channels() == 4) {
+        cv::cvtColor(input, gray_, cv::COLOR_RGBA2GRAY);
+        return gray_;
+    }
+    return input;
+}
+
+void ProcessingSession::writeOutput(const cv::Mat& edges, cv::Mat& output) {
+    if (!output.empty() && output.type() == CV_8UC1 && output.size() == edges.size()) {
+        edges.copyTo(output);
+    } else {
+        cv::cvtColor(edges, output, cv::COLOR_GRAY2RGBA);
+    }
+}
+
+int64_t ProcessingSession::processIncremental(const cv::Mat& input, cv::Mat& output, const TileConfig& tiles) {
+    int width = input.cols;
+    int height = input.rows;
+    int box = tiles.tileSize + 2 * tiles.halo;
+    if (box > width || box > height || tiles.tileSize % tiles.sampleStep != 0) {
+        // Too small to tile (or unusable tiling): a plain full-frame run.
+        int64_t ns = process(input, output);
+        tilesRecomputed_.store(1, std::memory_order_relaxed);
+        tilesTotal_.store(1, std::memory_order_relaxed);
+        return ns;
+    }
+
+    auto t0 = std::chrono::steady_clock::now();
+    ensureSize(width, height);
+    const cv::Mat& gray = toGray(input);
+
+    int step = tiles.sampleStep;
+    cv::resize(gray, samples_, cv::Size(width / step, height / step), 0, 0, cv::INTER_NEAREST);
+    bool all = !cacheValid_ || cachedEdges_.size() != input.size() || referenceSamples_.size() != samples_.size();
+    if (all) {
+        cachedEdges_.create(height, width, CV_8UC1);
+        samples_.copyTo(referenceSamples_);
+    }
+
+    int columns = (width + tiles.tileSize - 1) / tiles.tileSize;
+    int rows = (height + tiles.tileSize - 1) / tiles.tileSize;
+    cv::Rect sampleBounds(0, 0, samples_.cols, samples_.rows);
+    int recomputed = 0;
+    for (int ty = 0; ty < rows; ty++) {
+        for (int tx = 0; tx < columns; tx++) {
+            cv::Rect tile(tx * tiles.tileSize, ty * tiles.tileSize,
+                          std::min(tiles.tileSize, width - tx * tiles.tileSize),
+                          std::min(tiles.tileSize, height - ty * tiles.tileSize));
+            cv::Rect sampled = cv::Rect(tile.x / step, tile.y / step,
+                                        (tile.x + tile.width) / step - tile.x / step,
+                                        (tile.y + tile.height) / step - tile.y / step) & sampleBounds;
+            // A border tile narrower or shorter than the sample step has no samples; it is
+            // recomputed every frame, as changes within it cannot be seen.
+            bool dirty = all || sampled.area() == 0;
+            if (!dirty) {
+                double diff = cv::norm(samples_(sampled), referenceSamples_(sampled), cv::NORM_L1);
+                dirty = diff > static_cast<double>(tiles.changeThreshold) * sampled.area();
+                if (dirty) {
+                    samples_(sampled).copyTo(referenceSamples_(sampled));
+                }
+            }
+            if (!dirty) {
+                continue;
+            }
+            recomputed++;
+
+            // Same-sized box for every tile, shifted inwards at the frame border.
+            int bx = std::max(0, std::min(tile.x - tiles.halo, width - box));
+            int by = std::max(0, std::min(tile.y - tiles.halo, height - box));
+            cv::Mat region = gray(cv::Rect(bx, by, box, box));
+            if (config_.blurKernelSize > 1) {
+                cv::GaussianBlur(region, tileBlurred_, cv::Size(config_.blurKernelSize, config_.blurKernelSize), 0);
+                region = tileBlurred_;
+            }
+            cv::Canny(region, tileEdges_, config_.lowThreshold, config_.highThreshold);
+            tileEdges_(cv::Rect(tile.x - bx, tile.y - by, tile.width, tile.height)).copyTo(cachedEdges_(tile));
+        }
+    }
+    cacheValid_ = true;
+    writeOutput(cachedEdges_, output);
+
+    tilesRecomputed_.store(recomputed, std::memory_order_relaxed);
+    tilesTotal_.store(columns * rows, std::memory_order_relaxed);
+    int64_t ns = std::chrono::duration_cast<std::chrono::nanoseconds>(
+            std::chrono::steady_clock::now() - t0).count();
+    recordTiming(ns);
+    return ns;
+}
+
+void ProcessingSession::recordTiming(int64_t ns) {
+    frames_.fetch_add(1, std::memory_order_relaxed);
+    totalNanos_.fetch_add(ns, std::memory_order_relaxed);
+    lastNanos_.store(ns, std::memory_order_relaxed);
+    // Single writer, so a plain compare is enough to keep the maximum.
+    if (ns > maxNanos_.load(std::memory_order_relaxed)) {
+        maxNanos_.store(ns, std::memory_order_relaxed);
+    }
+}
+
+void ProcessingSession::readTimings(int64_t out[kTimingCount]) const {
+    out[0] = frames_.load(std::memory_order_relaxed);
+    out[1] = totalNanos_.load(std::memory_order_relaxed);
+    out[2] = maxNanos_.load(std::memory_order_relaxed);
+    out[3] = lastNanos_.load(std::memory_order_relaxed);
+    out[4] = reallocations_.load(std::memory_order_relaxed);
+    out[5] = tilesRecomputed_.load(std::memory_order_relaxed);
+    out[6] = tilesTotal_.load(std::memory_order_relaxed);
+}
+
+void ProcessingSession::resetTimings() {
+    frames_.store(0, std::memory_order_relaxed);
+    totalNanos_.store(0, std::memory_order_relaxed);
+    maxNanos_.store(0, std::memory_order_relaxed);
+    lastNanos_.store(0, std::memory_order_relaxed);
+}
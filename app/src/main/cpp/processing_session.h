@@ -0,0 +1,106 @@
+#ifndef EDGEVIEW_PROCESSING_SESSION_H
+#define EDGEVIEW_PROCESSING_SESSION_H
+
+#include <atomic>
+#include <cstdint>
+#include <vector>
+#include <opencv2/opencv.hpp>
+
+// Tunables fixed for the lifetime of a session (mirrors EdgeConfig on the Java side).
+struct EdgeConfig {
+    double lowThreshold = 50;
+    double highThreshold = 150;
+    int blurKernelSize = 0; // odd size > 1 enables a Gaussian pre-blur
+};
+
+// Incremental mode tiling (mirrors TileConfig on the Java side).
+struct TileConfig {
+    int tileSize = 64;
+    int halo = 8;
+    int sampleStep = 4;
+    int changeThreshold = 6;
+};
+
+// Strip-parallel detection (mirrors ThreadingConfig on the Java side). threadCount 0 means one
+// per core, stripHeight 0 one strip per thread.
+struct ThreadingConfig {
+    int threadCount = 0;
+    int stripHeight = 0;
+    int halo = 8;
+    bool splitStrips = false;
+};
+
+// Long-lived edge detection state. Working Mats are kept across frames and only reallocated
+// when the frame size changes; per-frame timings are accumulated instead of logged.
+// process() must be called from one thread at a time; the counters may be read from any thread.
+class ProcessingSession {
+public:
+    ProcessingSession(int width, int height, const EdgeConfig& config);
+
+    // input is CV_8UC1 (luma) or CV_8UC4 (RGBA). A preallocated CV_8UC1 output of the same size
+    // receives the edge map directly; anything else gets the edges expanded to RGBA. With
+    // downscale > 1 edges are found on a 1/downscale grid and scaled back up. Returns the time
+    // taken in nanoseconds.
+    int64_t process(const cv::Mat& input, cv::Mat& output, int downscale = 1);
+
+    // For mostly static scenes: only tiles whose sampled luma changed since they were last
+    // computed are re-detected (tile plus halo); the rest come from the cached edge map.
+    // Returns the time taken in nanoseconds; tile counts are available through readTimings.
+    int64_t processIncremental(const cv::Mat& input, cv::Mat& output, const TileConfig& tiles);
+
+    // Takes effect from the next frame. The thread count is applied to OpenCV's pool, which is
+    // process-wide.
+    void setThreading(const ThreadingConfig& threading);
+
+    static constexpr int kMaxStrips = 32;
+    // Copies the per-strip times of the last strip-parallel frame into out (kMaxStrips long) and
+    // returns the number of strips, 0 if no frame was split yet.
+    int readStripTimings(int64_t out[kMaxStrips]) const;
+
+    static constexpr int kTimingCount = 7;
+    // frames, total ns, max ns, last ns, reallocations, tiles recomputed and total in the last
+    // incremental frame
+    void readTimings(int64_t out[kTimingCount]) const;
+    void resetTimings();
+
+private:
+    void ensureSize(int width, int height);
+    const cv::Mat& toGray(const cv::Mat& input);
+    void recordTiming(int64_t ns);
+    void writeOutput(const cv::Mat& edges, cv::Mat& output);
+    int stripRowsFor(int height) const;
+    void detect(const cv::Mat& gray, cv::Mat& edges);
+    void detectStrips(const cv::Mat& gray, cv::Mat& edges, int stripRows);
+
+    const EdgeConfig config_;
+    ThreadingConfig threading_;
+    int width_ = 0;
+    int height_ = 0;
+    cv::Mat gray_;
+    cv::Mat blurred_;
+    cv::Mat edges_;
+    cv::Mat small_;      // downscaled gray; sized on first use of a downscale factor
+    cv::Mat smallEdges_;
+    // Incremental mode state; cacheValid_ is cleared by every full-frame process() call.
+    cv::Mat cachedEdges_;
+    cv::Mat samples_;
+    cv::Mat referenceSamples_;
+    cv::Mat tileBlurred_;
+    cv::Mat tileEdges_;
+    bool cacheValid_ = false;
+    // One pair of working Mats per strip, written only by the worker that owns the strip.
+    std::vector<cv::Mat> stripBlurred_;
+    std::vector<cv::Mat> stripEdges_;
+
+    std::atomic<int64_t> frames_{0};
+    std::atomic<int64_t> totalNanos_{0};
+    std::atomic<int64_t> maxNanos_{0};
+    std::atomic<int64_t> lastNanos_{0};
+    std::atomic<int64_t> reallocations_{0};
+    std::atomic<int64_t> tilesRecomputed_{0};
+    std::atomic<int64_t> tilesTotal_{0};
+    std::atomic<int> stripCount_{0};
+    std::atomic<int64_t> stripNanos_[kMaxStrips] = {};
+};
+
+#endif //EDGEVIEW_PROCESSING_SESSION_H
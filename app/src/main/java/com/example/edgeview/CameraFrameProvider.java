@@ -1,6 +1,7 @@
 package com.example.edgeview;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.Size;
 
@@ -14,6 +15,16 @@ import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.LifecycleOwner;
 
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.convert.LumaExtractor;
+import com.example.edgeview.convert.ParallelNv21Converter;
+import com.example.edgeview.convert.ReferenceYuvConverter;
+import com.example.edgeview.metrics.PipelineMetrics;
+import com.example.edgeview.metrics.StartupTimings;
+import com.example.edgeview.pipeline.FramePipeline;
+import com.example.edgeview.source.FrameCallback;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.nio.ByteBuffer;
@@ -24,15 +35,31 @@ import java.util.concurrent.Executors;
  * Manages the camera lifecycle and provides frames for processing.
  */
 public class CameraFrameProvider {
+    public static final Size DEFAULT_TARGET_RESOLUTION = new Size(1280, 720);
+
     private final Context context;
+    private final FrameBufferPool bufferPool;
+    private final PipelineMetrics metrics;
     private ProcessCameraProvider cameraProvider;
+    private volatile ProcessingMode mode = ProcessingMode.RAW;
+    private volatile Size targetResolution = DEFAULT_TARGET_RESOLUTION;
+    private volatile FramePipeline<?> deadline;
+    private volatile StartupTimings startupTimings;
+    // Java fallback conversion; only used on the analysis thread.
+    private final ParallelNv21Converter nv21Converter = new ParallelNv21Converter();
     private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
 
-    public CameraFrameProvider(Context context) {
+    public CameraFrameProvider(Context context, FrameBufferPool bufferPool, PipelineMetrics metrics) {
         this.context = context;
+        this.bufferPool = bufferPool;
+        this.metrics = metrics;
     }
 
     public void start(LifecycleOwner lifecycleOwner, FrameCallback callback) {
+        StartupTimings timings = startupTimings;
+        if (timings != null) {
+            timings.begin(StartupTimings.Phase.CAMERA_BIND);
+        }
         ListenableFuture<ProcessCameraProvider> cameraProviderFuture = ProcessCameraProvider.getInstance(context);
 
         cameraProviderFuture.addListener(() -> {
@@ -49,6 +76,35 @@ public class CameraFrameProvider {
         }, ContextCompat.getMainExecutor(context));
     }
 
+    /**
+     * Selects what the analyzer delivers: RGBA when the mode needs color, otherwise only the
+     * Y plane as a GRAY8 frame. Takes effect from the next analyzed frame.
+     */
+    public void setProcessingMode(ProcessingMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Analysis resolution requested from CameraX; takes effect the next time the camera is
+     * bound. Per-frame load is adapted by the governor instead, since rebinding stalls the stream.
+     */
+    public void setTargetResolution(Size targetResolution) {
+        this.targetResolution = targetResolution;
+    }
+
+    /**
+     * Frames that {@code pipeline} would expire on arrival ({@link FramePipeline#expireEarly}) are
+     * skipped before conversion and counted as expired; null disables the check.
+     */
+    public void setDeadline(FramePipeline<?> pipeline) {
+        this.deadline = pipeline;
+    }
+
+    /** Receives the CAMERA_BIND phase, from {@link #start} until the use cases are bound. */
+    public void setStartupTimings(StartupTimings startupTimings) {
+        this.startupTimings = startupTimings;
+    }
+
     private void bindCamera(LifecycleOwner lifecycleOwner, FrameCallback callback) {
         Preview preview = new Preview.Builder().build();
         CameraSelector cameraSelector = new CameraSelector.Builder()
@@ -56,25 +112,58 @@ public class CameraFrameProvider {
                 .build();
 
         ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                .setTargetResolution(new Size(1280, 720)) // Example resolution
+                .setTargetResolution(targetResolution)
                 .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
                 .build();
 
         // As per instructions, set the robust analyzer with try-finally block.
         imageAnalysis.setAnalyzer(analysisExecutor, imageProxy -> {
+            long analyzeStart = System.nanoTime();
+            FrameBuffer frame = null;
             try {
-                byte[] nv21 = yuv420888ToNv21(imageProxy);
-                callback.onFrame(nv21, imageProxy.getWidth(), imageProxy.getHeight());
+                long captureNanos = toNanoTime(imageProxy.getImageInfo().getTimestamp());
+                FramePipeline<?> pipeline = deadline;
+                if (pipeline != null && pipeline.expireEarly(captureNanos)) {
+                    metrics.frameExpired();
+                    return;
+                }
+                int width = imageProxy.getWidth();
+                int height = imageProxy.getHeight();
+                PixelFormat format = mode.inputFormat();
+                frame = bufferPool.acquireDirect(format.frameSize(width, height));
+                frame.setDimensions(width, height);
+                frame.setFormat(format);
+                frame.setTimestampNanos(captureNanos);
+                if (format == PixelFormat.GRAY8) {
+                    long copyStart = System.nanoTime();
+                    ImageProxy.PlaneProxy yPlane = imageProxy.getPlanes()[0];
+                    LumaExtractor.copyLuma(yPlane.getBuffer(), yPlane.getRowStride(), yPlane.getPixelStride(),
+                            width, height, frame.buffer());
+                    metrics.recordSince(PipelineMetrics.Stage.LUMA_COPY, copyStart);
+                } else {
+                    yuv420888ToRgba(imageProxy, frame);
+                }
+                metrics.frameProduced();
+                callback.onFrame(frame, width, height);
             } catch (Throwable t) {
                 Log.e("EdgeView", "Analyzer conversion error", t);
             } finally {
+                // Consumers that keep the frame past onFrame() retain it themselves.
+                if (frame != null) {
+                    frame.release();
+                }
                 imageProxy.close();
+                metrics.recordSince(PipelineMetrics.Stage.ANALYZE, analyzeStart);
             }
         });
 
         try {
             cameraProvider.unbindAll();
             cameraProvider.bindToLifecycle(lifecycleOwner, cameraSelector, preview, imageAnalysis);
+            StartupTimings timings = startupTimings;
+            if (timings != null) {
+                timings.end(StartupTimings.Phase.CAMERA_BIND);
+            }
             // Note: We don't set a SurfaceProvider for Preview, as we are using GLSurfaceView for rendering.
         } catch (Exception e) {
             Log.e("CameraFrameProvider", "Use case binding failed", e);
@@ -85,69 +174,64 @@ public class CameraFrameProvider {
      * As per instructions, this is the robust YUV_420_888 to NV21 conversion method.
      */
     public static byte[] yuv420888ToNv21(ImageProxy image) {
+        byte[] nv21 = new byte[image.getWidth() * image.getHeight() * 3 / 2];
+        yuv420888ToNv21(image, nv21);
+        return nv21;
+    }
+
+    /**
+     * Same conversion as {@link #yuv420888ToNv21(ImageProxy)}, but writes into a caller-owned
+     * array of at least {@code width * height * 3 / 2} bytes and needs no scratch rows.
+     */
+    public static void yuv420888ToNv21(ImageProxy image, byte[] nv21) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        ReferenceYuvConverter.planesToNv21(
+                planes[0].getBuffer(), planes[0].getRowStride(), planes[0].getPixelStride(),
+                planes[1].getBuffer(), planes[1].getRowStride(),
+                planes[2].getBuffer(), planes[2].getRowStride(), planes[1].getPixelStride(),
+                image.getWidth(), image.getHeight(), nv21);
+    }
+
+    /**
+     * Converts the image straight from its planes into an RGBA frame in one native pass.
+     * Falls back to the Java NV21 repack plus the parallel Java RGBA conversion when native-lib
+     * is unavailable.
+     */
+    private void yuv420888ToRgba(ImageProxy image, FrameBuffer rgba) {
         ImageProxy.PlaneProxy[] planes = image.getPlanes();
         int width = image.getWidth();
         int height = image.getHeight();
-        int ySize = width * height;
-        int uvSize = width * height / 2;
-        byte[] nv21 = new byte[ySize + uvSize];
-
-        // Y plane
-        ByteBuffer yBuffer = planes[0].getBuffer();
-        int yRowStride = planes[0].getRowStride();
-        int yPixelStride = planes[0].getPixelStride();
-        byte[] row = new byte[yRowStride];
-        int pos = 0;
-        for (int rowIndex = 0; rowIndex < height; rowIndex++) {
-            yBuffer.position(rowIndex * yRowStride);
-            int length = Math.min(yRowStride, yBuffer.remaining());
-            yBuffer.get(row, 0, length);
-            if (yPixelStride == 1) {
-                System.arraycopy(row, 0, nv21, pos, width);
-                pos += width;
-            } else {
-                int p = 0;
-                for (int col = 0; col < width; col++) {
-                    nv21[pos++] = row[p];
-                    p += yPixelStride;
-                }
-            }
+        long start = System.nanoTime();
+        if (planes[0].getPixelStride() == 1 && NativeLib.yuv420ToRgbaSafe(
+                planes[0].getBuffer(), planes[0].getRowStride(),
+                planes[1].getBuffer(), planes[2].getBuffer(),
+                planes[1].getRowStride(), planes[1].getPixelStride(),
+                rgba.buffer(), width, height)) {
+            metrics.recordSince(PipelineMetrics.Stage.YUV_TO_RGBA_NATIVE, start);
+            return;
         }
-
-        // UV planes (chroma)
-        ByteBuffer uBuffer = planes[1].getBuffer();
-        ByteBuffer vBuffer = planes[2].getBuffer();
-        int uRowStride = planes[1].getRowStride();
-        int vRowStride = planes[2].getRowStride();
-        int uPixelStride = planes[1].getPixelStride();
-        int chromaHeight = height / 2;
-        int chromaWidth = width / 2;
-        byte[] uRow = new byte[uRowStride];
-        byte[] vRow = new byte[vRowStride];
-        int uvPos = ySize;
-
-        for (int rowIndex = 0; rowIndex < chromaHeight; rowIndex++) {
-            uBuffer.position(rowIndex * uRowStride);
-            vBuffer.position(rowIndex * vRowStride);
-            int uLength = Math.min(uRowStride, uBuffer.remaining());
-            int vLength = Math.min(vRowStride, vBuffer.remaining());
-            uBuffer.get(uRow, 0, uLength);
-            vBuffer.get(vRow, 0, vLength);
-
-            int uIndex = 0;
-            int vIndex = 0;
-            for (int col = 0; col < chromaWidth; col++) {
-                byte u = uRow[uIndex];
-                byte v = vRow[vIndex];
-                // NV21 expects V then U
-                nv21[uvPos++] = v;
-                nv21[uvPos++] = u;
-                uIndex += uPixelStride;
-                vIndex += uPixelStride;
-            }
+        FrameBuffer nv21 = bufferPool.acquire(width * height * 3 / 2);
+        try {
+            start = System.nanoTime();
+            yuv420888ToNv21(image, nv21.data());
+            long repacked = System.nanoTime();
+            metrics.record(PipelineMetrics.Stage.YUV_TO_NV21, repacked - start);
+            nv21Converter.convert(nv21.data(), rgba.buffer(), width, height);
+            metrics.recordSince(PipelineMetrics.Stage.NV21_TO_RGBA, repacked);
+        } finally {
+            nv21.release();
         }
+    }
 
-        return nv21;
+    // Sensor timestamps are on CLOCK_BOOTTIME or CLOCK_MONOTONIC depending on the device; pick
+    // whichever clock the timestamp is closer to and map it onto System.nanoTime().
+    private static long toNanoTime(long sensorTimestamp) {
+        long now = System.nanoTime();
+        long bootOffset = SystemClock.elapsedRealtimeNanos() - now;
+        if (Math.abs(now - sensorTimestamp) <= Math.abs(now + bootOffset - sensorTimestamp)) {
+            return sensorTimestamp;
+        }
+        return sensorTimestamp - bootOffset;
     }
 
     public void stop() {
@@ -156,8 +240,4 @@ public class CameraFrameProvider {
         }
         analysisExecutor.shutdown();
     }
-
-    public interface FrameCallback {
-        void onFrame(byte[] nv21, int width, int height);
-    }
 }
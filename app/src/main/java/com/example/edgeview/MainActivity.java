@@ -2,12 +2,17 @@ package com.example.edgeview;
 
 import android.Manifest;
 import android.content.pm.PackageManager;
+import android.graphics.Color;
 import android.opengl.GLSurfaceView;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.Gravity;
+import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
+import android.widget.TextView;
 import android.widget.ToggleButton;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -16,11 +21,36 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 
+import com.example.edgeview.adaptive.QualityGovernor;
+import com.example.edgeview.adaptive.QualityLevel;
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
 import com.example.edgeview.gl.GLRenderer;
+import com.example.edgeview.metrics.PipelineMetrics;
+import com.example.edgeview.metrics.StartupTimings;
+import com.example.edgeview.pipeline.BackpressurePolicy;
+import com.example.edgeview.pipeline.FrameBus;
+import com.example.edgeview.pipeline.FramePipeline;
+import com.example.edgeview.pipeline.TripleBuffer;
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.processing.EdgeSegments;
+import com.example.edgeview.processing.FrameProcessor;
+import com.example.edgeview.processing.ThreadingConfig;
+import com.example.edgeview.processing.TileConfig;
+import com.example.edgeview.processing.VectorConfig;
+import com.example.edgeview.record.FrameRecorder;
+import com.example.edgeview.record.FrameRecording;
+import com.example.edgeview.record.ReplayFrameSource;
+import com.example.edgeview.source.FrameCallback;
+import com.example.edgeview.stream.EdgeFrameEncoder;
+import com.example.edgeview.stream.FrameStreamServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  * Main activity that displays a camera preview, a GLSurfaceView for rendering,
@@ -29,15 +59,83 @@ import java.util.concurrent.Executors;
  */
 public class MainActivity extends AppCompatActivity {
 
+    private static final PixelFormat EDGE_OUTPUT_FORMAT = PixelFormat.GRAY8;
+    private static final long METRICS_OVERLAY_INTERVAL_MS = 500;
+    private static final double TARGET_FPS = 30;
+    // Launch with --ez incremental true for fixed cameras: only changed tiles are re-detected.
+    private static final String EXTRA_INCREMENTAL = "incremental";
+    // Launch with --ez stream true to serve processed frames to web/ on FrameStreamServer.DEFAULT_PORT.
+    private static final String EXTRA_STREAM = "stream";
+    // --ez record true appends every camera frame to a recording in the app's files dir;
+    // --es replay <name> plays such a recording (at its original pace) instead of the camera.
+    private static final String EXTRA_RECORD = "record";
+    private static final String EXTRA_REPLAY = "replay";
+    // --ez record_processed true records the processed frames, as shown, from the frame bus.
+    private static final String EXTRA_RECORD_PROCESSED = "record_processed";
+    // --ei max_frame_age_ms <n>: frames that cannot be on screen within n ms of capture are
+    // dropped before the next expensive step; 0 shows every frame however late.
+    private static final String EXTRA_MAX_FRAME_AGE_MS = "max_frame_age_ms";
+    private static final int DEFAULT_MAX_FRAME_AGE_MS = 150;
+    // --es graph "<filters>" replaces the processed view's Canny with a filter chain, e.g.
+    // "blur:5,canny:40:120,dilate:3" (see FrameProcessor.parse).
+    private static final String EXTRA_GRAPH = "graph";
+    // --es vector contours|lines shows processed frames as line segments drawn from a vertex
+    // buffer instead of uploading the edge bitmap (see VectorConfig).
+    private static final String EXTRA_VECTOR = "vector";
+
     private CameraFrameProvider cameraFrameProvider;
     // Fields are present as required by instructions.
     private GLSurfaceView glSurfaceView;
     private com.example.edgeview.gl.GLRenderer renderer;
 
     private ToggleButton modeToggle;
+    // Live metrics text; shown and hidden by long-pressing the mode toggle.
+    private TextView metricsOverlay;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable metricsOverlayUpdater = new Runnable() {
+        @Override
+        public void run() {
+            metricsOverlay.setText(metrics.snapshot() + "\n" + startupTimings);
+            mainHandler.postDelayed(this, METRICS_OVERLAY_INTERVAL_MS);
+        }
+    };
+
+    // Processing and presentation stages, each on its own thread (see initCameraAndGL).
+    private FramePipeline<FrameBuffer> framePipeline;
+    // Native edge session; created and used on the "process" stage thread, destroyed after the
+    // pipeline has stopped.
+    private long edgeSession;
+    private final long[] sessionTimings = new long[NativeLib.TIMING_COUNT];
+    private boolean incrementalEdges;
+    // The toggle chooses between FrameProcessor.RAW and this graph. Blur plus Canny runs on the
+    // edge session (with its downscaling, strip and incremental modes) using sessionConfig; any
+    // other chain runs as a compiled filter graph, which sessionConfig null selects.
+    private FrameProcessor processedGraph = FrameProcessor.EDGES;
+    private EdgeConfig sessionConfig = EdgeConfig.DEFAULT;
+    // Compiled processedGraph; created and used on the "process" stage thread like edgeSession.
+    private long filterGraph;
+    // Vector output mode; null shows edge maps as bitmaps.
+    private VectorConfig vectorConfig;
+    // Fans processed frames out from the "present" stage to the stream server and the
+    // processed-frame recorder, each with its own queue and drop policy.
+    private final FrameBus frameBus = new FrameBus();
+    // Subscribed to frameBus; null unless streaming was requested.
+    private FrameStreamServer streamServer;
+    private FrameRecorder frameRecorder;
+    private FrameRecorder processedRecorder;
+    private FrameRecording replayRecording;
+    private ReplayFrameSource replaySource;
 
-    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
-    private final ConcurrentLinkedQueue<byte[]> glQueue = new ConcurrentLinkedQueue<>();
+    // Startup phases from onCreate; the warm-up loads native-lib and prepares the edge session
+    // (or filter graph) while the camera binds, and the process stage takes it over.
+    private StartupTimings startupTimings;
+    private NativeWarmup nativeWarmup;
+
+    // Shared by the analyzer (NV21), the converter (RGBA) and native processing (output).
+    private final FrameBufferPool framePool = new FrameBufferPool(4, 48L * 1024 * 1024);
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    // Trades edge resolution and frame rate for keeping up with the camera; process stage only.
+    private final QualityGovernor governor = new QualityGovernor(TARGET_FPS);
 
     private final ActivityResultLauncher<String> requestPermissionLauncher =
             registerForActivityResult(new ActivityResultContracts.RequestPermission(), isGranted -> {
@@ -51,6 +149,30 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        startupTimings = new StartupTimings(System.nanoTime());
+        incrementalEdges = getIntent().getBooleanExtra(EXTRA_INCREMENTAL, false);
+        String graphSpec = getIntent().getStringExtra(EXTRA_GRAPH);
+        if (graphSpec != null) {
+            try {
+                processedGraph = FrameProcessor.parse(graphSpec);
+                sessionConfig = processedGraph.edgeConfig();
+                Log.i("EdgeView", "processing graph: " + processedGraph);
+            } catch (IllegalArgumentException e) {
+                Log.e("EdgeView", "ignoring graph \"" + graphSpec + "\": " + e.getMessage());
+            }
+        }
+        String vectorMode = getIntent().getStringExtra(EXTRA_VECTOR);
+        if (vectorMode != null) {
+            try {
+                vectorConfig = VectorConfig.forName(vectorMode);
+            } catch (IllegalArgumentException e) {
+                Log.e("EdgeView", "ignoring vector mode: " + e.getMessage());
+            }
+        }
+
+        nativeWarmup = new NativeWarmup(startupTimings, framePool);
+        nativeWarmup.start(CameraFrameProvider.DEFAULT_TARGET_RESOLUTION.getWidth(),
+                CameraFrameProvider.DEFAULT_TARGET_RESOLUTION.getHeight(), processedGraph, sessionConfig);
 
         FrameLayout mainLayout = new FrameLayout(this);
         PreviewView previewView = new PreviewView(this);
@@ -59,13 +181,25 @@ public class MainActivity extends AppCompatActivity {
         // Per instructions, create and configure GLSurfaceView and renderer early.
         glSurfaceView = new GLSurfaceView(this);
         glSurfaceView.setEGLContextClientVersion(2);
-        renderer = new com.example.edgeview.gl.GLRenderer();
+        renderer = new com.example.edgeview.gl.GLRenderer(metrics);
+        renderer.setStartupTimings(startupTimings);
         glSurfaceView.setRenderer(renderer);
         glSurfaceView.setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
 
         modeToggle.setTextOn("Processed");
         modeToggle.setTextOff("Raw");
         modeToggle.setChecked(true);
+        modeToggle.setOnCheckedChangeListener((button, isChecked) -> applyProcessingMode());
+        modeToggle.setOnLongClickListener(view -> {
+            setMetricsOverlayVisible(metricsOverlay.getVisibility() != View.VISIBLE);
+            return true;
+        });
+
+        metricsOverlay = new TextView(this);
+        metricsOverlay.setTextColor(Color.WHITE);
+        metricsOverlay.setBackgroundColor(0x99000000);
+        metricsOverlay.setTextSize(10);
+        metricsOverlay.setVisibility(View.GONE);
 
         FrameLayout.LayoutParams glParams = new FrameLayout.LayoutParams(
                 ViewGroup.LayoutParams.MATCH_PARENT,
@@ -80,6 +214,11 @@ public class MainActivity extends AppCompatActivity {
         mainLayout.addView(previewView);
         mainLayout.addView(glSurfaceView, glParams);
         mainLayout.addView(modeToggle, toggleParams);
+        mainLayout.addView(metricsOverlay, new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT,
+                Gravity.TOP | Gravity.START
+        ));
 
         setContentView(mainLayout);
 
@@ -92,69 +231,293 @@ public class MainActivity extends AppCompatActivity {
 
     private void initCameraAndGL() {
         // GL view setup is now in onCreate.
-        cameraFrameProvider = new CameraFrameProvider(this);
-        cameraFrameProvider.start(this, (nv21, width, height) -> {
-            backgroundExecutor.execute(() -> {
-                byte[] rgba = convertNV21ToRGBA(nv21, width, height);
-                byte[] bytesToRender;
-
-                if (modeToggle.isChecked()) {
-                    bytesToRender = NativeLib.processFrameSafe(rgba, width, height);
-                } else {
-                    bytesToRender = rgba;
-                }
+        long maxFrameAgeNanos = TimeUnit.MILLISECONDS.toNanos(
+                getIntent().getIntExtra(EXTRA_MAX_FRAME_AGE_MS, DEFAULT_MAX_FRAME_AGE_MS));
+        framePipeline = new FramePipeline.Builder<FrameBuffer>()
+                .onDrop(frame -> {
+                    metrics.frameDropped();
+                    frame.release();
+                })
+                .deadline(maxFrameAgeNanos, FrameBuffer::timestampNanos)
+                .onExpire(frame -> {
+                    metrics.frameExpired();
+                    frame.release();
+                })
+                .addStage("process", 2, BackpressurePolicy.DROP_OLDEST, this::processFrame)
+                .addStage("present", 1, BackpressurePolicy.DROP_OLDEST, this::presentFrame)
+                .build();
+        framePipeline.start();
+        if (getIntent().getBooleanExtra(EXTRA_STREAM, false)) {
+            startStreamServer();
+        }
+        if (getIntent().getBooleanExtra(EXTRA_RECORD_PROCESSED, false)) {
+            startProcessedRecording();
+        }
 
-                if (bytesToRender != null && glQueue.isEmpty()) {
-                    glQueue.offer(bytesToRender);
-                    // Guard against NPE as per instructions
-                    if (glSurfaceView != null) {
-                        glSurfaceView.queueEvent(() -> {
-                            byte[] frameBytes = glQueue.poll();
-                            if (frameBytes != null && renderer != null) {
-                                renderer.updateFrame(frameBytes, width, height);
-                                glSurfaceView.requestRender();
-                            }
-                        });
-                    }
-                }
-            });
+        FrameCallback submit = (frame, width, height) -> framePipeline.submit(frame.retain());
+        String replayName = getIntent().getStringExtra(EXTRA_REPLAY);
+        if (replayName != null && startReplay(new File(recordingDir(), replayName), submit)) {
+            return;
+        }
+
+        cameraFrameProvider = new CameraFrameProvider(this, framePool, metrics);
+        cameraFrameProvider.setDeadline(framePipeline);
+        cameraFrameProvider.setStartupTimings(startupTimings);
+        applyProcessingMode();
+        FrameCallback callback = submit;
+        if (getIntent().getBooleanExtra(EXTRA_RECORD, false)) {
+            callback = startRecording(submit);
+        }
+        // Conversion runs on the analyzer thread. Frames arrive already converted (RGBA, or GRAY8
+        // luma in edge mode) in direct buffers, which go to native code and GL without copies.
+        cameraFrameProvider.start(this, callback);
+    }
+
+    private File recordingDir() {
+        File dir = getExternalFilesDir(null);
+        return dir != null ? dir : getFilesDir();
+    }
+
+    // Records on the analyzer thread in front of the pipeline; returns the chained callback.
+    private FrameCallback startRecording(FrameCallback next) {
+        File file = new File(recordingDir(), "recording-" + System.currentTimeMillis() + ".evrec");
+        try {
+            frameRecorder = new FrameRecorder(file);
+            Log.i("EdgeView", "recording frames to " + file);
+        } catch (IOException e) {
+            Log.e("EdgeView", "failed to start recording " + file, e);
+            return next;
+        }
+        FrameRecorder recorder = frameRecorder;
+        return (frame, width, height) -> {
+            recorder.onFrame(frame, width, height);
+            next.onFrame(frame, width, height);
+        };
+    }
+
+    // Records on its own bus thread; a slow disk drops recorded frames, never displayed ones.
+    private void startProcessedRecording() {
+        File file = new File(recordingDir(), "processed-" + System.currentTimeMillis() + ".evrec");
+        try {
+            processedRecorder = new FrameRecorder(file);
+            Log.i("EdgeView", "recording processed frames to " + file);
+        } catch (IOException e) {
+            Log.e("EdgeView", "failed to start recording " + file, e);
+            return;
+        }
+        frameBus.subscribe("recorder", 4, BackpressurePolicy.DROP_OLDEST, processedRecorder::record);
+    }
+
+    private boolean startReplay(File file, FrameCallback callback) {
+        try {
+            replayRecording = FrameRecording.open(file);
+        } catch (IOException e) {
+            Log.e("EdgeView", "failed to open recording " + file + ", using the camera", e);
+            return false;
+        }
+        Log.i("EdgeView", "replaying " + replayRecording.frameCount() + " frames from " + file);
+        replaySource = new ReplayFrameSource(replayRecording, framePool, ReplayFrameSource.Pacing.ORIGINAL, 0);
+        replaySource.start((frame, width, height) -> {
+            metrics.frameProduced();
+            callback.onFrame(frame, width, height);
         });
+        return true;
     }
 
-    // Basic NV21 to RGBA conversion
-    private byte[] convertNV21ToRGBA(byte[] nv21, int width, int height) {
-        byte[] rgba = new byte[width * height * 4];
-        int frameSize = width * height;
+    private void startStreamServer() {
+        FrameStreamServer server = new FrameStreamServer(new EdgeFrameEncoder());
+        try {
+            server.start();
+            streamServer = server;
+            // Inline: publish only swaps the frame into the server's mailbox.
+            frameBus.subscribeInline("stream", server::publish);
+            Log.i("EdgeView", "streaming frames on port " + server.port());
+        } catch (IOException e) {
+            Log.e("EdgeView", "failed to start frame stream server: " + e.getMessage());
+        }
+    }
 
-        for (int j = 0, yp = 0; j < height; j++) {
-            int uvp = frameSize + (j >> 1) * width, u = 0, v = 0;
-            for (int i = 0; i < width; i++, yp++) {
-                int y = (0xff & nv21[yp]) - 16;
-                if (y < 0) y = 0;
-                if ((i & 1) == 0) {
-                    v = (0xff & nv21[uvp++]) - 128;
-                    u = (0xff & nv21[uvp++]) - 128;
-                }
+    // "process" stage: runs on its own pipeline thread.
+    private FrameBuffer processFrame(FrameBuffer frame) {
+        long start = System.nanoTime();
+        try {
+            return processFrameTimed(frame);
+        } finally {
+            metrics.recordSince(PipelineMetrics.Stage.PROCESS, start);
+        }
+    }
 
-                int y1192 = 1192 * y;
-                int r = (y1192 + 1634 * v);
-                int g = (y1192 - 833 * v - 400 * u);
-                int b = (y1192 + 2066 * u);
+    private FrameBuffer processFrameTimed(FrameBuffer frame) {
+        int width = frame.width();
+        int height = frame.height();
 
-                if (r < 0) r = 0; else if (r > 262143) r = 262143;
-                if (g < 0) g = 0; else if (g > 262143) g = 262143;
-                if (b < 0) b = 0; else if (b > 262143) b = 262143;
+        FrameProcessor graph = frame.format() == PixelFormat.GRAY8 || modeToggle.isChecked()
+                ? processedGraph : FrameProcessor.RAW;
+        if (!graph.isEmpty()) {
+            if (!governor.shouldProcess()) {
+                metrics.frameDropped();
+                frame.release();
+                return null;
+            }
+            QualityLevel level = governor.level();
+            long start = System.nanoTime();
+            FrameBuffer processed = acquireOutput(width, height);
+            processed.setTimestampNanos(frame.timestampNanos());
+            boolean ok = runProcessing(frame, processed, level.downscale());
+            if (governor.onFrameProcessed(System.nanoTime() - start)) {
+                Log.i("EdgeView", "quality level -> " + governor.level());
+            }
+            if (ok) {
+                frame.release();
+                return processed;
+            }
+            processed.release();
+            if (frame.format() == PixelFormat.GRAY8) {
+                // Luma alone cannot be shown as a raw frame.
+                frame.release();
+                return null;
+            }
+        }
+        return frame;
+    }
 
-                int ri = (j * width + i) * 4;
-                rgba[ri] = (byte) ((r >> 10) & 0xff);
-                rgba[ri + 1] = (byte) ((g >> 10) & 0xff);
-                rgba[ri + 2] = (byte) ((b >> 10) & 0xff);
-                rgba[ri + 3] = (byte) 0xff;
+    // Runs processedGraph: all of its nodes in one native call, or the edge session for Canny.
+    private boolean runProcessing(FrameBuffer input, FrameBuffer output, int downscale) {
+        if (sessionConfig != null) {
+            return runEdgeDetection(input, output, downscale);
+        }
+        if (filterGraph == 0) {
+            filterGraph = nativeWarmup.takeGraph();
+        }
+        if (filterGraph == 0) {
+            filterGraph = NativeLib.compileGraph(processedGraph);
+            if (filterGraph == 0) {
+                Log.e("EdgeView", "cannot run graph " + processedGraph + ", falling back to Canny");
+                sessionConfig = EdgeConfig.DEFAULT;
+                return runEdgeDetection(input, output, downscale);
             }
         }
-        return rgba;
+        long nanos = NativeLib.runGraph(filterGraph, input.buffer(), input.format(), output.buffer(),
+                output.format(), input.width(), input.height(), downscale);
+        metrics.record(PipelineMetrics.Stage.NATIVE_PROCESS, nanos);
+        return nanos >= 0;
     }
 
+    private boolean runEdgeDetection(FrameBuffer input, FrameBuffer output, int downscale) {
+        int width = input.width();
+        int height = input.height();
+        if (edgeSession == 0) {
+            edgeSession = nativeWarmup.takeSession();
+        }
+        if (edgeSession == 0) {
+            edgeSession = NativeLib.createSession(width, height, sessionConfig);
+            NativeLib.setThreading(edgeSession, ThreadingConfig.DEFAULT);
+        }
+        if (edgeSession != 0 && incrementalEdges && downscale == 1) {
+            long nanos = NativeLib.processIncremental(edgeSession, input.buffer(), input.format(),
+                    output.buffer(), output.format(), width, height, TileConfig.DEFAULT);
+            metrics.record(PipelineMetrics.Stage.NATIVE_PROCESS, nanos);
+            NativeLib.readTimings(edgeSession, sessionTimings);
+            metrics.recordTiles(sessionTimings[NativeLib.TIMING_TILES_RECOMPUTED],
+                    sessionTimings[NativeLib.TIMING_TILES_TOTAL]);
+            return nanos >= 0;
+        }
+        if (edgeSession != 0) {
+            // The session reports its own processing time, excluding the JNI transition.
+            long nanos = NativeLib.process(edgeSession, input.buffer(), input.format(), output.buffer(),
+                    output.format(), width, height, downscale);
+            metrics.record(PipelineMetrics.Stage.NATIVE_PROCESS, nanos);
+            return nanos >= 0;
+        }
+        long start = System.nanoTime();
+        if (!NativeLib.isNativeAvailable()) {
+            boolean ok = NativeLib.processInJavaSafe(input.buffer(), input.format(), output.buffer(),
+                    output.format(), width, height, downscale);
+            metrics.recordSince(PipelineMetrics.Stage.JAVA_PROCESS, start);
+            return ok;
+        }
+        // Native without a session: the stateless entry points only work at full resolution.
+        boolean ok = input.format() == PixelFormat.GRAY8
+                ? NativeLib.processLumaSafe(input.buffer(), output.buffer(), width, height, output.format())
+                : NativeLib.processFrameSafe(input.buffer(), output.buffer(), width, height, output.format());
+        metrics.recordSince(PipelineMetrics.Stage.NATIVE_PROCESS, start);
+        return ok;
+    }
+
+    // "present" stage: hands the newest processed frame to the GL thread.
+    private FrameBuffer presentFrame(FrameBuffer frame) {
+        // Every subscriber takes its own reference and none of them blocks this thread.
+        frameBus.publish(frame);
+        // Guard against NPE as per instructions
+        if (glSurfaceView == null || renderer == null) {
+            frame.release();
+            return null;
+        }
+        if (vectorConfig != null && frame.format() == EDGE_OUTPUT_FORMAT && !processedGraph.isEmpty()
+                && presentSegments(frame)) {
+            frame.release();
+            glSurfaceView.requestRender();
+            return null;
+        }
+        // Lock-free handoff: no Runnable per frame, and frames the GL thread did not get to
+        // in time are released by the renderer's triple buffer.
+        renderer.updateFrame(frame);
+        glSurfaceView.requestRender();
+        return null;
+    }
+
+    // Vector output: the edge map becomes a few thousand floats for the GL thread. Returns false
+    // (show the bitmap instead) when vectorization is unavailable.
+    private boolean presentSegments(FrameBuffer frame) {
+        long start = System.nanoTime();
+        EdgeSegments segments = renderer.obtainSegments();
+        int count = NativeLib.vectorize(frame.buffer(), frame.width(), frame.height(), frame.timestampNanos(),
+                vectorConfig, segments);
+        metrics.recordSince(PipelineMetrics.Stage.VECTORIZE, start);
+        if (count < 0) {
+            Log.e("EdgeView", "vector output unavailable, showing edge bitmaps");
+            vectorConfig = null;
+            renderer.recycleSegments(segments);
+            return false;
+        }
+        renderer.updateSegments(segments);
+        return true;
+    }
+
+    // Edge maps are one byte per pixel, so they stay GRAY8 all the way to the texture upload.
+    private FrameBuffer acquireOutput(int width, int height) {
+        FrameBuffer output = framePool.acquireDirect(EDGE_OUTPUT_FORMAT.frameSize(width, height));
+        output.setDimensions(width, height);
+        output.setFormat(EDGE_OUTPUT_FORMAT);
+        return output;
+    }
+
+    // The luma-only edge path works with or without native-lib (the Java detector covers it).
+    private void applyProcessingMode() {
+        if (cameraFrameProvider == null) {
+            return;
+        }
+        boolean edges = modeToggle.isChecked();
+        cameraFrameProvider.setProcessingMode(edges ? ProcessingMode.EDGES : ProcessingMode.RAW);
+    }
+
+    private void setMetricsOverlayVisible(boolean visible) {
+        mainHandler.removeCallbacks(metricsOverlayUpdater);
+        metricsOverlay.setVisibility(visible ? View.VISIBLE : View.GONE);
+        if (visible) {
+            metricsOverlayUpdater.run();
+        }
+    }
+
+    // Leaves a snapshot in the app's files dir, e.g. for adb pull after a test run.
+    private void dumpMetrics() {
+        File file = new File(recordingDir(), "pipeline-metrics.txt");
+        try {
+            metrics.dumpTo(file);
+        } catch (IOException e) {
+            Log.e("EdgeView", "Failed to write " + file, e);
+        }
+    }
 
     @Override
     protected void onResume() {
@@ -167,10 +530,15 @@ public class MainActivity extends AppCompatActivity {
             }
         }
         // keep existing code that starts camera / other resume tasks after GL onResume
+        if (metricsOverlay.getVisibility() == View.VISIBLE) {
+            setMetricsOverlayVisible(true);
+        }
     }
 
     @Override
     protected void onPause() {
+        mainHandler.removeCallbacks(metricsOverlayUpdater);
+        dumpMetrics();
         if (glSurfaceView != null) {
             try {
                 glSurfaceView.onPause();
@@ -181,12 +549,108 @@ public class MainActivity extends AppCompatActivity {
         super.onPause();
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            framePool.clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            framePool.trimTo(1);
+        }
+        Log.d("EdgeView", "onTrimMemory(" + level + "): " + framePool);
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
         if (cameraFrameProvider != null) {
             cameraFrameProvider.stop();
         }
-        backgroundExecutor.shutdown();
+        if (replaySource != null) {
+            replaySource.stop();
+            replaySource = null;
+        }
+        if (frameRecorder != null) {
+            // The analyzer may still be finishing a frame; the recorder serializes with it.
+            try {
+                frameRecorder.close();
+                Log.i("EdgeView", "recorded " + frameRecorder.frameCount() + " frames"
+                        + (frameRecorder.failed() ? " (stopped early: write failed)" : ""));
+            } catch (IOException e) {
+                Log.e("EdgeView", "failed to finish recording", e);
+            }
+            frameRecorder = null;
+        }
+        if (framePipeline != null) {
+            framePipeline.stop();
+            Log.i("EdgeView", "pipeline " + framePipeline.stats());
+        }
+        if (nativeWarmup != null) {
+            nativeWarmup.close();
+        }
+        Log.i("EdgeView", startupTimings.toString());
+        // The pipeline has stopped, so nothing publishes any more.
+        Log.i("EdgeView", "frame bus " + frameBus.stats());
+        frameBus.close();
+        if (processedRecorder != null) {
+            try {
+                processedRecorder.close();
+                Log.i("EdgeView", "recorded " + processedRecorder.frameCount() + " processed frames");
+            } catch (IOException e) {
+                Log.e("EdgeView", "failed to finish recording", e);
+            }
+            processedRecorder = null;
+        }
+        if (replayRecording != null) {
+            try {
+                replayRecording.close();
+            } catch (IOException e) {
+                Log.e("EdgeView", "failed to close recording", e);
+            }
+            replayRecording = null;
+        }
+        if (streamServer != null) {
+            Log.i("EdgeView", "stream " + streamServer.stats());
+            streamServer.stop();
+            streamServer = null;
+        }
+        if (edgeSession != 0) {
+            long[] timings = new long[NativeLib.TIMING_COUNT];
+            NativeLib.readTimings(edgeSession, timings);
+            long frames = timings[NativeLib.TIMING_FRAMES];
+            Log.i("EdgeView", "native session frames=" + frames
+                    + " avgUs=" + (frames > 0 ? timings[NativeLib.TIMING_TOTAL_NANOS] / frames / 1000 : 0)
+                    + " maxUs=" + timings[NativeLib.TIMING_MAX_NANOS] / 1000
+                    + " reallocations=" + timings[NativeLib.TIMING_REALLOCATIONS]);
+            long[] strips = new long[ThreadingConfig.MAX_STRIPS];
+            int stripCount = NativeLib.readStripTimings(edgeSession, strips);
+            if (stripCount > 0) {
+                StringBuilder stripLog = new StringBuilder("native last frame strip us:");
+                for (int i = 0; i < stripCount; i++) {
+                    stripLog.append(' ').append(strips[i] / 1000);
+                }
+                Log.i("EdgeView", stripLog.toString());
+            }
+            NativeLib.destroy(edgeSession);
+            edgeSession = 0;
+        }
+        if (filterGraph != 0) {
+            long[] nodeNanos = new long[FrameProcessor.MAX_NODES];
+            long frames = NativeLib.readNodeTimings(filterGraph, nodeNanos);
+            StringBuilder nodeLog = new StringBuilder("filter graph frames=").append(frames).append(" avg us:");
+            List<FrameProcessor.Node> nodes = processedGraph.nodes();
+            for (int i = 0; i < nodes.size(); i++) {
+                nodeLog.append(' ').append(nodes.get(i)).append('=')
+                        .append(frames > 0 ? nodeNanos[i] / frames / 1000 : 0);
+            }
+            Log.i("EdgeView", nodeLog.toString());
+            NativeLib.destroyGraph(filterGraph);
+            filterGraph = 0;
+        }
+        if (renderer != null) {
+            TripleBuffer<FrameBuffer> frames = renderer.frameExchanger();
+            Log.i("EdgeView", "render frames produced=" + frames.getProduced()
+                    + " presented=" + frames.getPresented() + " skipped=" + frames.getSkipped());
+        }
     }
 }
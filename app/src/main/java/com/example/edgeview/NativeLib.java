@@ -1,15 +1,29 @@
 package com.example.edgeview;
 
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.processing.EdgeSegments;
+import com.example.edgeview.processing.FrameProcessor;
+import com.example.edgeview.processing.JavaCannyDetector;
+import com.example.edgeview.processing.ThreadingConfig;
+import com.example.edgeview.processing.TileConfig;
+import com.example.edgeview.processing.VectorConfig;
+
+import java.nio.ByteBuffer;
+
 public final class NativeLib {
     private NativeLib() {}
 
-    private static boolean nativeAvailable = false;
+    // attemptedLoad is set only once the load attempt has finished, so callers arriving during the
+    // load (from the warm-up thread) wait for it in initNative instead of seeing native-lib missing.
+    private static volatile boolean nativeAvailable = false;
     private static volatile boolean attemptedLoad = false;
+    // Used by the *Safe wrappers when native-lib cannot be loaded; guarded by its own monitor.
+    private static JavaCannyDetector javaFallback;
 
     // call at startup to try load; safe to call multiple times
     public static synchronized void initNative() {
         if (attemptedLoad) return;
-        attemptedLoad = true;
         try {
             System.loadLibrary("native-lib");
             nativeAvailable = true;
@@ -17,20 +31,309 @@ public final class NativeLib {
             nativeAvailable = false;
             t.printStackTrace();
             android.util.Log.e("EdgeView", "Failed to load native-lib: " + t.getMessage());
+        } finally {
+            attemptedLoad = true;
+        }
+    }
+
+    public static boolean isNativeAvailable() {
+        if (!attemptedLoad) initNative();
+        return nativeAvailable;
+    }
+
+    private static synchronized JavaCannyDetector javaFallback() {
+        if (javaFallback == null) {
+            javaFallback = new JavaCannyDetector(EdgeConfig.DEFAULT);
+        }
+        return javaFallback;
+    }
+
+    // Runs the Java detector; returns false only if it throws (e.g. undersized buffers).
+    private static boolean detectInJava(ByteBuffer input, PixelFormat inputFormat, ByteBuffer output,
+                                        PixelFormat outputFormat, int width, int height) {
+        return detectInJava(input, inputFormat, output, outputFormat, width, height, 1);
+    }
+
+    private static boolean detectInJava(ByteBuffer input, PixelFormat inputFormat, ByteBuffer output,
+                                        PixelFormat outputFormat, int width, int height, int downscale) {
+        JavaCannyDetector detector = javaFallback();
+        try {
+            synchronized (detector) {
+                detector.detect(input, inputFormat, output, outputFormat, width, height, downscale);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            android.util.Log.e("EdgeView", "java edge detection failed: " + e.getMessage());
+            return false;
         }
     }
 
     // native declaration (kept for when native is available)
     public static native byte[] processFrame(byte[] input, int width, int height);
 
+    // Writes the processed RGBA frame into a caller-owned array; returns false on failure.
+    public static native boolean processFrameInto(byte[] input, byte[] output, int width, int height);
+
+    // Zero-copy variant: both buffers must be direct; the result is written into output in place.
+    // outputChannels is PixelFormat.bytesPerPixel() of the output: 1 (GRAY8) or 4 (RGBA).
+    public static native boolean processFrameDirect(ByteBuffer input, ByteBuffer output, int width, int height,
+                                                    int outputChannels);
+
+    // Runs edge detection on a width * height luma buffer (direct), writing outputChannels per pixel.
+    public static native boolean processLumaDirect(ByteBuffer luma, ByteBuffer output, int width, int height,
+                                                   int outputChannels);
+
+    // Converts YUV_420_888 planes (direct buffers, Y pixel stride 1) into RGBA in one native pass.
+    public static native boolean yuv420ToRgba(ByteBuffer yPlane, int yRowStride,
+                                              ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                                              ByteBuffer output, int width, int height);
+
+    // Session API: a native handle that keeps its working Mats across frames (reallocated only
+    // when the frame size changes) and accumulates per-frame timings instead of logging them.
+    private static native long nativeCreateSession(int width, int height, double lowThreshold,
+                                                   double highThreshold, int blurKernelSize);
+
+    private static native long nativeProcess(long handle, ByteBuffer input, int inputChannels,
+                                                ByteBuffer output, int outputChannels, int width, int height,
+                                                int downscale);
+
+    private static native long nativeProcessIncremental(long handle, ByteBuffer input, int inputChannels,
+                                                       ByteBuffer output, int outputChannels, int width, int height,
+                                                       int tileSize, int halo, int sampleStep, int changeThreshold);
+
+    private static native void nativeReadTimings(long handle, long[] out);
+
+    private static native boolean nativeSetThreading(long handle, int threadCount, int stripHeight, int halo,
+                                                     boolean splitStrips);
+
+    private static native int nativeReadStripTimings(long handle, long[] out);
+
+    private static native void nativeDestroySession(long handle);
+
+    // Filter graph API: a FrameProcessor compiled into a native chain that runs in one call.
+    private static native long nativeCompileGraph(int[] ops, double[] params);
+
+    private static native long nativeRunGraph(long handle, ByteBuffer input, int inputChannels,
+                                              ByteBuffer output, int outputChannels, int width, int height,
+                                              int downscale);
+
+    private static native long nativeReadNodeTimings(long handle, long[] out);
+
+    private static native void nativeDestroyGraph(long handle);
+
+    // Vector output: an edge map reduced to line segments (see VectorConfig).
+    private static native int nativeVectorize(ByteBuffer edges, int width, int height, int mode,
+                                              double tolerance, double minLength, float[] out);
+
+    // Indices into the array filled by readTimings.
+    public static final int TIMING_FRAMES = 0;
+    public static final int TIMING_TOTAL_NANOS = 1;
+    public static final int TIMING_MAX_NANOS = 2;
+    public static final int TIMING_LAST_NANOS = 3;
+    public static final int TIMING_REALLOCATIONS = 4;
+    // Tiles recomputed and tiles in total for the last incremental frame.
+    public static final int TIMING_TILES_RECOMPUTED = 5;
+    public static final int TIMING_TILES_TOTAL = 6;
+    public static final int TIMING_COUNT = 7;
+
+    // Returns a session handle, or 0 when native-lib is unavailable or the session could not be created.
+    public static long createSession(int width, int height, EdgeConfig config) {
+        if (!attemptedLoad) initNative();
+
+        if (!nativeAvailable) {
+            return 0;
+        }
+        try {
+            return nativeCreateSession(width, height, config.lowThreshold(), config.highThreshold(),
+                    config.blurKernelSize());
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native createSession failed: " + t.getMessage());
+            return 0;
+        }
+    }
+
+    // Runs edge detection through a session. Input is GRAY8 (luma) or RGBA, both buffers direct.
+    // A session must not be used by several threads at once. Returns the native processing time
+    // in nanoseconds (for PipelineMetrics), or -1 when nothing was written.
+    public static long process(long handle, ByteBuffer input, PixelFormat inputFormat,
+                               ByteBuffer output, PixelFormat outputFormat, int width, int height) {
+        return process(handle, input, inputFormat, output, outputFormat, width, height, 1);
+    }
+
+    // Same, but edges are found on a frame downscaled by downscale in each direction and scaled
+    // back up to width x height (see QualityGovernor).
+    public static long process(long handle, ByteBuffer input, PixelFormat inputFormat,
+                               ByteBuffer output, PixelFormat outputFormat, int width, int height,
+                               int downscale) {
+        if (handle == 0 || !input.isDirect() || !output.isDirect()) {
+            return -1;
+        }
+        try {
+            return nativeProcess(handle, input, inputFormat.bytesPerPixel(), output,
+                    outputFormat.bytesPerPixel(), width, height, downscale);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native process failed: " + t.getMessage());
+            return -1;
+        }
+    }
+
+    // Incremental variant for mostly static scenes: only tiles that changed since they were last
+    // computed are re-detected, the rest come from the session's cached edge map (see
+    // IncrementalEdgeDetector for the Java reference). Same return value as process; the tile
+    // counts of the frame are available through readTimings.
+    public static long processIncremental(long handle, ByteBuffer input, PixelFormat inputFormat,
+                                          ByteBuffer output, PixelFormat outputFormat, int width, int height,
+                                          TileConfig tiles) {
+        if (handle == 0 || !input.isDirect() || !output.isDirect()) {
+            return -1;
+        }
+        try {
+            return nativeProcessIncremental(handle, input, inputFormat.bytesPerPixel(), output,
+                    outputFormat.bytesPerPixel(), width, height,
+                    tiles.tileSize(), tiles.halo(), tiles.sampleStep(), tiles.changeThreshold());
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native processIncremental failed: " + t.getMessage());
+            return -1;
+        }
+    }
+
+    // Copies the session counters into out (at least TIMING_COUNT long); safe from any thread.
+    public static void readTimings(long handle, long[] out) {
+        if (handle == 0 || out.length < TIMING_COUNT) {
+            return;
+        }
+        nativeReadTimings(handle, out);
+    }
+
+    // Sets how the session spreads a frame over cores, from its next frame on. OpenCV's thread
+    // count is process-wide, so the last session configured wins. Returns false on failure.
+    public static boolean setThreading(long handle, ThreadingConfig threading) {
+        if (handle == 0) {
+            return false;
+        }
+        try {
+            return nativeSetThreading(handle, threading.threadCount(), threading.stripHeight(),
+                    threading.halo(), threading.splitStrips());
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native setThreading failed: " + t.getMessage());
+            return false;
+        }
+    }
+
+    // Copies the per-strip nanoseconds of the last strip-parallel frame into out (at least
+    // ThreadingConfig.MAX_STRIPS long) and returns the strip count; 0 when no frame was split.
+    public static int readStripTimings(long handle, long[] out) {
+        if (handle == 0 || out.length < ThreadingConfig.MAX_STRIPS) {
+            return 0;
+        }
+        return nativeReadStripTimings(handle, out);
+    }
+
+    // Frees the session; the handle must not be used afterwards. Ignores 0.
+    public static void destroy(long handle) {
+        if (handle != 0) {
+            nativeDestroySession(handle);
+        }
+    }
+
+    // Compiles processor into a native filter graph. Returns a graph handle, or 0 when native-lib
+    // is unavailable or the graph could not be compiled.
+    public static long compileGraph(FrameProcessor processor) {
+        if (!attemptedLoad) initNative();
+
+        if (!nativeAvailable) {
+            return 0;
+        }
+        try {
+            return nativeCompileGraph(processor.opCodes(), processor.params());
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native compileGraph failed: " + t.getMessage());
+            return 0;
+        }
+    }
+
+    // Runs all nodes of a graph over one frame in a single native call; on a 1/downscale grid
+    // when downscale > 1. Same buffers, threading rule and return value as process.
+    public static long runGraph(long handle, ByteBuffer input, PixelFormat inputFormat,
+                                ByteBuffer output, PixelFormat outputFormat, int width, int height,
+                                int downscale) {
+        if (handle == 0 || !input.isDirect() || !output.isDirect()) {
+            return -1;
+        }
+        try {
+            return nativeRunGraph(handle, input, inputFormat.bytesPerPixel(), output,
+                    outputFormat.bytesPerPixel(), width, height, downscale);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native runGraph failed: " + t.getMessage());
+            return -1;
+        }
+    }
+
+    // Copies the accumulated nanoseconds of each node into out (at least FrameProcessor.MAX_NODES
+    // long, in node order) and returns the number of frames run; safe from any thread.
+    public static long readNodeTimings(long handle, long[] out) {
+        if (handle == 0 || out.length < FrameProcessor.MAX_NODES) {
+            return 0;
+        }
+        return nativeReadNodeTimings(handle, out);
+    }
+
+    // Frees the graph; the handle must not be used afterwards. Ignores 0.
+    public static void destroyGraph(long handle) {
+        if (handle != 0) {
+            nativeDestroyGraph(handle);
+        }
+    }
+
+    // Reduces a GRAY8 edge map (a direct buffer) to line segments in out, which is reset to the
+    // map's size and timestamp. out grows when a frame has more segments than it can hold, so a
+    // reused container stops allocating once it fits the scene. Returns the segment count, or -1
+    // when native-lib is unavailable or the arguments are invalid (out is then left empty).
+    public static int vectorize(ByteBuffer edges, int width, int height, long timestampNanos,
+                                VectorConfig config, EdgeSegments out) {
+        out.reset(width, height, timestampNanos);
+        if (!attemptedLoad) initNative();
+
+        if (!nativeAvailable || !edges.isDirect()) {
+            return -1;
+        }
+        try {
+            int count = nativeVectorize(edges, width, height, config.mode().code(), config.tolerance(),
+                    config.minLength(), out.coords());
+            if (count > out.capacity()) {
+                // Rare once warmed up: grow and extract again rather than keep a truncated frame.
+                out.ensureCapacity(count);
+                count = nativeVectorize(edges, width, height, config.mode().code(), config.tolerance(),
+                        config.minLength(), out.coords());
+            }
+            if (count < 0) {
+                return -1;
+            }
+            out.setCount(Math.min(count, out.capacity()));
+            return out.count();
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native vectorize failed: " + t.getMessage());
+            return -1;
+        }
+    }
+
     // Safe wrapper used by app code everywhere
     public static byte[] processFrameSafe(byte[] input, int width, int height) {
         // ensure we attempted load at least once
         if (!attemptedLoad) initNative();
 
         if (!nativeAvailable) {
-            // native not available: return input unchanged (or convert in Java if needed)
-            return input;
+            // native not available: run the Java detector into a new RGBA array
+            byte[] output = new byte[width * height * 4];
+            return detectInJava(ByteBuffer.wrap(input), PixelFormat.RGBA, ByteBuffer.wrap(output),
+                    PixelFormat.RGBA, width, height) ? output : input;
         }
         try {
             return processFrame(input, width, height);
@@ -40,4 +343,98 @@ public final class NativeLib {
             return input;
         }
     }
+
+    // Allocation-free variant: fills output (e.g. a pooled buffer), using the Java detector when
+    // native-lib is unavailable. Returns false on failure; the caller should then use the input as-is.
+    public static boolean processFrameSafe(byte[] input, byte[] output, int width, int height) {
+        if (!attemptedLoad) initNative();
+
+        if (!nativeAvailable) {
+            return detectInJava(ByteBuffer.wrap(input), PixelFormat.RGBA, ByteBuffer.wrap(output),
+                    PixelFormat.RGBA, width, height);
+        }
+        try {
+            return processFrameInto(input, output, width, height);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native processFrameInto failed: " + t.getMessage());
+            return false;
+        }
+    }
+
+    // ByteBuffer variant: uses the zero-copy entry point when both buffers are direct and falls
+    // back to the array entry point for heap RGBA buffers, or to the Java detector without
+    // native-lib. Returns false when nothing was written.
+    public static boolean processFrameSafe(ByteBuffer input, ByteBuffer output, int width, int height,
+                                           PixelFormat outputFormat) {
+        if (!attemptedLoad) initNative();
+
+        if (!nativeAvailable) {
+            return detectInJava(input, PixelFormat.RGBA, output, outputFormat, width, height);
+        }
+        try {
+            if (input.isDirect() && output.isDirect()) {
+                return processFrameDirect(input, output, width, height, outputFormat.bytesPerPixel());
+            }
+            if (outputFormat == PixelFormat.RGBA && input.hasArray() && output.hasArray()
+                    && input.arrayOffset() == 0 && output.arrayOffset() == 0) {
+                return processFrameInto(input.array(), output.array(), width, height);
+            }
+            return false;
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native processFrameDirect failed: " + t.getMessage());
+            return false;
+        }
+    }
+
+    // Returns false when the planes could not be converted natively; callers then use the
+    // Java reference conversion.
+    public static boolean yuv420ToRgbaSafe(ByteBuffer yPlane, int yRowStride,
+                                           ByteBuffer uPlane, ByteBuffer vPlane, int uvRowStride, int uvPixelStride,
+                                           ByteBuffer output, int width, int height) {
+        if (!attemptedLoad) initNative();
+
+        if (!nativeAvailable || !output.isDirect()) {
+            return false;
+        }
+        try {
+            return yuv420ToRgba(yPlane, yRowStride, uPlane, vPlane, uvRowStride, uvPixelStride,
+                    output, width, height);
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native yuv420ToRgba failed: " + t.getMessage());
+            return false;
+        }
+    }
+
+    // Java detector on a 1/downscale grid, for callers without a native session. Returns false
+    // when native-lib is loaded (use a session instead) or when detection fails.
+    public static boolean processInJavaSafe(ByteBuffer input, PixelFormat inputFormat, ByteBuffer output,
+                                            PixelFormat outputFormat, int width, int height, int downscale) {
+        if (!attemptedLoad) initNative();
+
+        return !nativeAvailable
+                && detectInJava(input, inputFormat, output, outputFormat, width, height, downscale);
+    }
+
+    // Luma-only edge path (Java detector without native-lib); returns false when processing fails.
+    public static boolean processLumaSafe(ByteBuffer luma, ByteBuffer output, int width, int height,
+                                          PixelFormat outputFormat) {
+        if (!attemptedLoad) initNative();
+
+        if (!nativeAvailable) {
+            return detectInJava(luma, PixelFormat.GRAY8, output, outputFormat, width, height);
+        }
+        if (!luma.isDirect() || !output.isDirect()) {
+            return false;
+        }
+        try {
+            return processLumaDirect(luma, output, width, height, outputFormat.bytesPerPixel());
+        } catch (Throwable t) {
+            t.printStackTrace();
+            android.util.Log.e("EdgeView", "native processLumaDirect failed: " + t.getMessage());
+            return false;
+        }
+    }
 }
@@ -0,0 +1,213 @@
+package com.example.edgeview;
+
+import android.util.Log;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.convert.LumaExtractor;
+import com.example.edgeview.convert.ParallelNv21Converter;
+import com.example.edgeview.metrics.StartupTimings;
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.processing.FrameProcessor;
+import com.example.edgeview.processing.ThreadingConfig;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads native-lib and runs synthetic frames through the processing paths on a background thread
+ * while the camera binds, so the first camera frame does not pay for library loading, OpenCV
+ * initialization, the first Mat allocations or JIT compilation of the conversion code.
+ * <p>
+ * The edge session (or compiled filter graph) it warms up is handed to the "process" stage with
+ * {@link #takeSession()} / {@link #takeGraph()}, Mats already allocated at the camera's
+ * resolution. The frame buffers it used go back to the pool, where the analyzer finds them.
+ * Phases are recorded in {@link StartupTimings}.
+ */
+public final class NativeWarmup {
+    private static final int WARM_UP_FRAMES = 3;
+    // How long the process stage waits for a warm-up still in progress before building its own
+    // session; finishing the warm-up is nearly always quicker.
+    private static final long TAKE_TIMEOUT_MILLIS = 1000;
+
+    private final StartupTimings timings;
+    private final FrameBufferPool pool;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private Thread thread;
+    // Set by the warm-up thread before done counts down; cleared when taken.
+    private long session;
+    private long graph;
+
+    public NativeWarmup(StartupTimings timings, FrameBufferPool pool) {
+        this.timings = timings;
+        this.pool = pool;
+    }
+
+    /**
+     * Starts warming up for width x height frames run through {@code processor}: on an edge
+     * session with {@code sessionConfig}, or as a compiled graph when that is null.
+     */
+    public void start(int width, int height, FrameProcessor processor, EdgeConfig sessionConfig) {
+        thread = new Thread(() -> run(width, height, processor, sessionConfig), "EdgeView-warmup");
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        thread.start();
+    }
+
+    /** The warmed-up session, once; 0 if there is none (the caller then creates its own). */
+    public long takeSession() {
+        if (!awaitDone()) {
+            return 0;
+        }
+        synchronized (this) {
+            long handle = session;
+            session = 0;
+            return handle;
+        }
+    }
+
+    /** The warmed-up filter graph, once; 0 if there is none. */
+    public long takeGraph() {
+        if (!awaitDone()) {
+            return 0;
+        }
+        synchronized (this) {
+            long handle = graph;
+            graph = 0;
+            return handle;
+        }
+    }
+
+    /** Waits for the warm-up to end and frees whatever was not taken. */
+    public void close() {
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        synchronized (this) {
+            NativeLib.destroy(session);
+            NativeLib.destroyGraph(graph);
+            session = 0;
+            graph = 0;
+        }
+    }
+
+    private boolean awaitDone() {
+        try {
+            return done.await(TAKE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void run(int width, int height, FrameProcessor processor, EdgeConfig sessionConfig) {
+        try {
+            timings.begin(StartupTimings.Phase.LIBRARY_LOAD);
+            boolean nativeAvailable = NativeLib.isNativeAvailable();
+            timings.end(StartupTimings.Phase.LIBRARY_LOAD);
+
+            timings.begin(StartupTimings.Phase.WARM_UP);
+            warmUp(width, height, processor, sessionConfig, nativeAvailable);
+            timings.end(StartupTimings.Phase.WARM_UP);
+            Log.i("EdgeView", "warm-up done: " + timings);
+        } catch (RuntimeException e) {
+            Log.e("EdgeView", "warm-up failed", e);
+        } finally {
+            done.countDown();
+        }
+    }
+
+    private void warmUp(int width, int height, FrameProcessor processor, EdgeConfig sessionConfig,
+                        boolean nativeAvailable) {
+        int pixels = width * height;
+        FrameBuffer camera = pool.acquireDirect(pixels);
+        FrameBuffer luma = pool.acquireDirect(pixels);
+        FrameBuffer chroma = pool.acquireDirect(pixels / 2);
+        FrameBuffer rgba = pool.acquireDirect(pixels * 4);
+        FrameBuffer output = pool.acquireDirect(pixels);
+        try {
+            fillPattern(camera.buffer(), width, height);
+            for (int i = 0; i < pixels / 2; i++) {
+                chroma.buffer().put(i, (byte) 128);
+            }
+            // Kept for the whole run, as the analyzer keeps one, so its band tasks are reused.
+            ParallelNv21Converter converter = nativeAvailable ? null : new ParallelNv21Converter();
+            for (int i = 0; i < WARM_UP_FRAMES; i++) {
+                // The analyzer's two conversions: luma copy in edge mode, YUV to RGBA in raw mode.
+                LumaExtractor.copyLuma(camera.buffer(), width, 1, width, height, luma.buffer());
+                convertToRgba(camera.buffer(), chroma.buffer(), rgba, width, height, converter);
+                process(luma.buffer(), output.buffer(), width, height, processor, sessionConfig, nativeAvailable);
+            }
+        } finally {
+            camera.release();
+            luma.release();
+            chroma.release();
+            rgba.release();
+            output.release();
+        }
+    }
+
+    // A null converter means the native conversion is available.
+    private void convertToRgba(ByteBuffer yPlane, ByteBuffer chroma, FrameBuffer rgba, int width, int height,
+                               ParallelNv21Converter converter) {
+        if (converter == null) {
+            // Interleaved VU, the usual CameraX layout: V first, U one byte later, pixel stride 2.
+            ByteBuffer vPlane = chroma.duplicate();
+            ByteBuffer uPlane = chroma.duplicate();
+            uPlane.position(1);
+            NativeLib.yuv420ToRgbaSafe(yPlane, width, uPlane.slice(), vPlane, width, 2,
+                    rgba.buffer(), width, height);
+            return;
+        }
+        FrameBuffer nv21 = pool.acquire(width * height * 3 / 2);
+        try {
+            byte[] data = nv21.data();
+            yPlane.duplicate().get(data, 0, width * height);
+            chroma.duplicate().get(data, width * height, width * height / 2);
+            converter.convert(data, rgba.buffer(), width, height);
+        } finally {
+            nv21.release();
+        }
+    }
+
+    private void process(ByteBuffer luma, ByteBuffer output, int width, int height, FrameProcessor processor,
+                         EdgeConfig sessionConfig, boolean nativeAvailable) {
+        if (!nativeAvailable) {
+            NativeLib.processInJavaSafe(luma, PixelFormat.GRAY8, output, PixelFormat.GRAY8, width, height, 1);
+            return;
+        }
+        if (sessionConfig != null) {
+            synchronized (this) {
+                if (session == 0) {
+                    session = NativeLib.createSession(width, height, sessionConfig);
+                    NativeLib.setThreading(session, ThreadingConfig.DEFAULT);
+                }
+            }
+            NativeLib.process(session, luma, PixelFormat.GRAY8, output, PixelFormat.GRAY8, width, height);
+        } else if (!processor.isEmpty()) {
+            synchronized (this) {
+                if (graph == 0) {
+                    graph = NativeLib.compileGraph(processor);
+                }
+            }
+            NativeLib.runGraph(graph, luma, PixelFormat.GRAY8, output, PixelFormat.GRAY8, width, height, 1);
+        }
+    }
+
+    // A diagonal gradient with a grid of bright squares: enough structure for every stage of
+    // Canny, including hysteresis, to do real work.
+    private static void fillPattern(ByteBuffer luma, int width, int height) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int value = ((x >> 5) + (y >> 5)) % 2 == 0 ? 220 : (x + y) * 96 / (width + height);
+                luma.put(y * width + x, (byte) value);
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.edgeview;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+/**
+ * What the pipeline does with each camera frame, and therefore what the analyzer has to deliver.
+ */
+public enum ProcessingMode {
+    /** Show the camera image; needs full color. */
+    RAW(PixelFormat.RGBA),
+    /** Canny edges; only the Y plane is needed, so chroma is never touched. */
+    EDGES(PixelFormat.GRAY8);
+
+    private final PixelFormat inputFormat;
+
+    ProcessingMode(PixelFormat inputFormat) {
+        this.inputFormat = inputFormat;
+    }
+
+    public PixelFormat inputFormat() {
+        return inputFormat;
+    }
+}
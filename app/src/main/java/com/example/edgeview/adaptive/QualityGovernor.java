@@ -0,0 +1,126 @@
+package com.example.edgeview.adaptive;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Picks a {@link QualityLevel} from measured processing times so the pipeline keeps up with a
+ * target frame rate.
+ * <p>
+ * Each processed frame reports its cost. The governor smooths the costs (EWMA) and compares them
+ * with the budget of the current level, which is the frame period times the level's frame
+ * interval. It steps down after {@code degradeAfter} consecutive samples over budget. It steps
+ * back up only when the predicted cost at the better level, scaled by pixel count, stays below
+ * {@link #UPGRADE_HEADROOM} of that level's budget for {@code upgradeAfter} consecutive samples.
+ * This gap between the two thresholds is the hysteresis that keeps it from oscillating.
+ * <p>
+ * The decision logic has no clock and no Android dependencies, so it is deterministic for a
+ * given sequence of samples. It is meant to be driven from a single thread (the process
+ * stage); {@link #level()} may be read from any thread.
+ */
+public final class QualityGovernor {
+    /** Full resolution first, then coarser pyramid levels, then frame skipping. */
+    public static final List<QualityLevel> DEFAULT_LEVELS = Collections.unmodifiableList(Arrays.asList(
+            new QualityLevel(1, 1),
+            new QualityLevel(2, 1),
+            new QualityLevel(2, 2),
+            new QualityLevel(4, 2),
+            new QualityLevel(4, 3)));
+
+    static final double EWMA_WEIGHT = 0.2;
+    static final double UPGRADE_HEADROOM = 0.6;
+
+    private final long frameBudgetNanos;
+    private final List<QualityLevel> levels;
+    private final int degradeAfter;
+    private final int upgradeAfter;
+
+    private volatile int levelIndex;
+    private double averageNanos = -1;
+    private int overBudget;
+    private int underBudget;
+    private long frameCounter;
+    private long changes;
+
+    public QualityGovernor(double targetFps) {
+        this(targetFps, DEFAULT_LEVELS, 8, 90);
+    }
+
+    public QualityGovernor(double targetFps, List<QualityLevel> levels, int degradeAfter, int upgradeAfter) {
+        if (targetFps <= 0 || levels.isEmpty() || degradeAfter < 1 || upgradeAfter < 1) {
+            throw new IllegalArgumentException("Invalid governor settings");
+        }
+        this.frameBudgetNanos = (long) (1_000_000_000L / targetFps);
+        this.levels = levels;
+        this.degradeAfter = degradeAfter;
+        this.upgradeAfter = upgradeAfter;
+    }
+
+    public QualityLevel level() {
+        return levels.get(levelIndex);
+    }
+
+    public int levelIndex() {
+        return levelIndex;
+    }
+
+    /** Number of level changes so far. */
+    public long changes() {
+        return changes;
+    }
+
+    /**
+     * Call once per camera frame before processing it. Returns false when the current level
+     * skips this frame.
+     */
+    public boolean shouldProcess() {
+        return frameCounter++ % level().frameInterval() == 0;
+    }
+
+    /**
+     * Reports the processing time of a frame processed at the current level. Returns true when
+     * the level changed as a result.
+     */
+    public boolean onFrameProcessed(long nanos) {
+        averageNanos = averageNanos < 0 ? nanos : averageNanos + EWMA_WEIGHT * (nanos - averageNanos);
+        int current = levelIndex;
+
+        if (averageNanos > budgetFor(current)) {
+            underBudget = 0;
+            if (++overBudget >= degradeAfter && current + 1 < levels.size()) {
+                moveTo(current + 1);
+                return true;
+            }
+            return false;
+        }
+        overBudget = 0;
+        if (current > 0 && predictedCost(current - 1) < UPGRADE_HEADROOM * budgetFor(current - 1)) {
+            if (++underBudget >= upgradeAfter) {
+                moveTo(current - 1);
+                return true;
+            }
+        } else {
+            underBudget = 0;
+        }
+        return false;
+    }
+
+    private double budgetFor(int index) {
+        return (double) frameBudgetNanos * levels.get(index).frameInterval();
+    }
+
+    private double predictedCost(int index) {
+        return averageNanos * levels.get(index).relativeCost() / levels.get(levelIndex).relativeCost();
+    }
+
+    private void moveTo(int index) {
+        // Carry the estimate over so the next decision starts from the expected cost.
+        averageNanos = predictedCost(index);
+        levelIndex = index;
+        overBudget = 0;
+        underBudget = 0;
+        frameCounter = 0;
+        changes++;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.edgeview.adaptive;
+
+/**
+ * One step of the governor's quality ladder: edge detection runs on a frame downscaled by
+ * {@code downscale} in each direction, and only every {@code frameInterval}-th frame is processed.
+ */
+public final class QualityLevel {
+    private final int downscale;
+    private final int frameInterval;
+
+    public QualityLevel(int downscale, int frameInterval) {
+        if (downscale < 1 || frameInterval < 1) {
+            throw new IllegalArgumentException("downscale and frameInterval must be >= 1");
+        }
+        this.downscale = downscale;
+        this.frameInterval = frameInterval;
+    }
+
+    public int downscale() {
+        return downscale;
+    }
+
+    public int frameInterval() {
+        return frameInterval;
+    }
+
+    /** Work per processed frame relative to full resolution. */
+    double relativeCost() {
+        return 1.0 / (downscale * downscale);
+    }
+
+    @Override
+    public String toString() {
+        return "1/" + downscale + " every " + frameInterval;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.metrics.LatencyHistogram;
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.processing.JavaCannyDetector;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the Java edge pipeline over a {@link BatchInput} without any UI, camera or GL: each frame
+ * is loaded, run through {@link JavaCannyDetector} and handed to a {@link ResultSink}, all on one
+ * worker thread.
+ * <p>
+ * Parallelism is across frames rather than within one, so every worker has its own single-band
+ * detector and no fork-join hops. At most {@code maxInFlight} frames are submitted and not yet
+ * written at any time, so the task queue stays small however large the input is; pixel memory is
+ * bounded by one input and one GRAY8 output buffer per worker, recycled through a shared pool.
+ * A frame that fails to load, process or write is counted and skipped.
+ */
+public final class BatchEngine {
+    private final EdgeConfig config;
+    private final int workers;
+    private final int maxInFlight;
+
+    /**
+     * @param workers     worker threads; 0 uses one per available processor
+     * @param maxInFlight frames submitted but not yet written; 0 uses twice the worker count
+     */
+    public BatchEngine(EdgeConfig config, int workers, int maxInFlight) {
+        if (workers < 0 || maxInFlight < 0) {
+            throw new IllegalArgumentException("workers and maxInFlight must not be negative");
+        }
+        this.config = config;
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.maxInFlight = Math.max(maxInFlight > 0 ? maxInFlight : this.workers * 2, this.workers);
+    }
+
+    public int workers() {
+        return workers;
+    }
+
+    public int maxInFlight() {
+        return maxInFlight;
+    }
+
+    /** Processes every frame of {@code input} and blocks until all results are written. */
+    public BatchReport run(BatchInput input, ResultSink sink) throws InterruptedException {
+        FrameBufferPool pool = new FrameBufferPool(workers * 2, Long.MAX_VALUE);
+        ThreadLocal<JavaCannyDetector> detectors = new ThreadLocal<JavaCannyDetector>() {
+            @Override
+            protected JavaCannyDetector initialValue() {
+                return new JavaCannyDetector(config, ForkJoinPool.commonPool(), 1);
+            }
+        };
+        LatencyHistogram load = new LatencyHistogram();
+        LatencyHistogram detect = new LatencyHistogram();
+        LatencyHistogram write = new LatencyHistogram();
+        LatencyHistogram total = new LatencyHistogram();
+        AtomicInteger processed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong pixels = new AtomicLong();
+        AtomicReference<String> firstFailure = new AtomicReference<>();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "BatchWorker-" + threadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        try {
+            int count = input.size();
+            for (int i = 0; i < count; i++) {
+                inFlight.acquire();
+                int index = i;
+                executor.execute(() -> {
+                    long frameStart = System.nanoTime();
+                    FrameBuffer frame = null;
+                    FrameBuffer edges = null;
+                    try {
+                        frame = input.load(index, pool);
+                        long loaded = System.nanoTime();
+                        load.recordNanos(loaded - frameStart);
+                        int width = frame.width();
+                        int height = frame.height();
+                        edges = pool.acquire(PixelFormat.GRAY8.frameSize(width, height));
+                        edges.setDimensions(width, height);
+                        edges.setFormat(PixelFormat.GRAY8);
+                        edges.setTimestampNanos(frame.timestampNanos());
+                        detectors.get().detect(frame.buffer(), frame.format(), edges.buffer(), PixelFormat.GRAY8,
+                                width, height);
+                        long detected = System.nanoTime();
+                        detect.recordNanos(detected - loaded);
+                        // The input is no longer needed; give it back before the (possibly slow) write.
+                        frame.release();
+                        frame = null;
+                        sink.write(index, input.name(index), edges);
+                        write.recordSince(detected);
+                        total.recordSince(frameStart);
+                        pixels.addAndGet((long) width * height);
+                        processed.incrementAndGet();
+                    } catch (Throwable t) {
+                        failed.incrementAndGet();
+                        firstFailure.compareAndSet(null, input.name(index) + ": " + t);
+                    } finally {
+                        if (frame != null) {
+                            frame.release();
+                        }
+                        if (edges != null) {
+                            edges.release();
+                        }
+                        inFlight.release();
+                    }
+                });
+            }
+            inFlight.acquire(maxInFlight);
+        } finally {
+            executor.shutdownNow();
+        }
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        return new BatchReport(input.size(), processed.get(), failed.get(), pixels.get(), elapsed,
+                pool.getAllocatedBytes(), firstFailure.get(), load.snapshot(), detect.snapshot(),
+                write.snapshot(), total.snapshot());
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+
+import java.io.IOException;
+
+/**
+ * An indexed set of frames for {@link BatchEngine}. {@link #load} is called from several worker
+ * threads at once, each with a different index.
+ */
+public interface BatchInput {
+
+    int size();
+
+    /** Stable name of the frame, used to name its result. */
+    String name(int index);
+
+    /**
+     * Loads a frame into a buffer acquired from {@code pool}, with dimensions, format and
+     * timestamp set. The caller releases it.
+     */
+    FrameBuffer load(int index, FrameBufferPool pool) throws IOException;
+}
@@ -0,0 +1,65 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.metrics.LatencyHistogram;
+
+import java.util.Locale;
+
+/** Outcome of one {@link BatchEngine#run}: counts, throughput and per-stage latency. */
+public final class BatchReport {
+    public final int inputs;
+    public final int processed;
+    public final int failed;
+    public final long pixels;
+    public final long elapsedNanos;
+    /** Bytes of frame buffers the run had to allocate; bounded by the worker count, not the input. */
+    public final long allocatedBytes;
+    /** Name and error of the first frame that failed, or null. */
+    public final String firstFailure;
+    public final LatencyHistogram.Snapshot load;
+    public final LatencyHistogram.Snapshot detect;
+    public final LatencyHistogram.Snapshot write;
+    /** Load to written, per frame; excludes time queued behind other frames. */
+    public final LatencyHistogram.Snapshot total;
+
+    BatchReport(int inputs, int processed, int failed, long pixels, long elapsedNanos, long allocatedBytes,
+                String firstFailure, LatencyHistogram.Snapshot load, LatencyHistogram.Snapshot detect,
+                LatencyHistogram.Snapshot write, LatencyHistogram.Snapshot total) {
+        this.inputs = inputs;
+        this.processed = processed;
+        this.failed = failed;
+        this.pixels = pixels;
+        this.elapsedNanos = elapsedNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.firstFailure = firstFailure;
+        this.load = load;
+        this.detect = detect;
+        this.write = write;
+        this.total = total;
+    }
+
+    public double framesPerSecond() {
+        return elapsedNanos == 0 ? 0 : processed * 1e9 / elapsedNanos;
+    }
+
+    public double megapixelsPerSecond() {
+        return elapsedNanos == 0 ? 0 : pixels * 1e3 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, "frames: %d processed, %d failed of %d in %.2f s\n",
+                processed, failed, inputs, elapsedNanos / 1e9));
+        sb.append(String.format(Locale.US, "throughput: %.1f fps, %.1f MP/s\n",
+                framesPerSecond(), megapixelsPerSecond()));
+        sb.append(String.format(Locale.US, "buffers allocated: %.1f MB\n", allocatedBytes / 1e6));
+        sb.append("load: ").append(load).append('\n');
+        sb.append("detect: ").append(detect).append('\n');
+        sb.append("write: ").append(write).append('\n');
+        sb.append("total: ").append(total).append('\n');
+        if (firstFailure != null) {
+            sb.append("first failure: ").append(firstFailure).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.record.FrameRecording;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Command line front end for {@link BatchEngine}:
+ * <pre>
+ * BatchRunner [--workers N] [--in-flight N] [--low T] [--high T] [--blur K] [--out DIR] INPUT...
+ * </pre>
+ * An input is a directory of PGM/PPM images, a single image, or a {@code .evrec} recording. Edge
+ * maps go to {@code DIR/<input name>/} as PGM files; without {@code --out} they are discarded and
+ * only the report is printed. Exits with status 1 if any frame failed.
+ */
+public final class BatchRunner {
+
+    private BatchRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int workers = 0;
+        int inFlight = 0;
+        double low = EdgeConfig.DEFAULT.lowThreshold();
+        double high = EdgeConfig.DEFAULT.highThreshold();
+        int blur = EdgeConfig.DEFAULT.blurKernelSize();
+        File out = null;
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            boolean hasValue = i + 1 < args.length;
+            if (arg.equals("--workers") && hasValue) {
+                workers = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--in-flight") && hasValue) {
+                inFlight = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--low") && hasValue) {
+                low = Double.parseDouble(args[++i]);
+            } else if (arg.equals("--high") && hasValue) {
+                high = Double.parseDouble(args[++i]);
+            } else if (arg.equals("--blur") && hasValue) {
+                blur = Integer.parseInt(args[++i]);
+            } else if (arg.equals("--out") && hasValue) {
+                out = new File(args[++i]);
+            } else if (arg.startsWith("--")) {
+                usage("Unknown option " + arg);
+            } else {
+                inputs.add(new File(arg));
+            }
+        }
+        if (inputs.isEmpty()) {
+            usage("No inputs");
+        }
+
+        BatchEngine engine = new BatchEngine(new EdgeConfig(low, high, blur), workers, inFlight);
+        System.out.println("workers=" + engine.workers() + " in-flight=" + engine.maxInFlight()
+                + " low=" + low + " high=" + high + " blur=" + blur);
+        boolean failed = false;
+        for (File file : inputs) {
+            String name = baseName(file);
+            ResultSink sink = out != null ? new PgmDirectorySink(new File(out, name)) : ResultSink.NONE;
+            BatchReport report;
+            if (file.isDirectory()) {
+                report = engine.run(ImageSetInput.fromDirectory(file), sink);
+            } else if (file.getName().endsWith(".evrec")) {
+                try (FrameRecording recording = FrameRecording.open(file)) {
+                    report = engine.run(new RecordingInput(recording, name), sink);
+                }
+            } else {
+                report = engine.run(new ImageSetInput(Collections.singletonList(file)), sink);
+            }
+            System.out.println("== " + file);
+            System.out.print(report);
+            failed |= report.failed > 0;
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 && !file.isDirectory() ? name.substring(0, dot) : name;
+    }
+
+    private static void usage(String message) {
+        System.err.println(message);
+        System.err.println("usage: BatchRunner [--workers N] [--in-flight N] [--low T] [--high T] [--blur K]"
+                + " [--out DIR] INPUT...");
+        System.exit(2);
+    }
+}
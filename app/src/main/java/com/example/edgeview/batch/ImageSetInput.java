@@ -0,0 +1,67 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of binary PGM/PPM files; see {@link Netpbm} for what is accepted. Frames are named after
+ * their file without the extension, unless that would give two files the same name (such as
+ * {@code a.pgm} and {@code a.ppm}); those keep their full file name.
+ */
+public final class ImageSetInput implements BatchInput {
+    private final List<File> files;
+    private final String[] names;
+
+    public ImageSetInput(List<File> files) {
+        this.files = Collections.unmodifiableList(new ArrayList<>(files));
+        Map<String, Integer> baseNames = new HashMap<>();
+        for (File file : this.files) {
+            baseNames.merge(baseName(file.getName()), 1, Integer::sum);
+        }
+        names = new String[this.files.size()];
+        for (int i = 0; i < names.length; i++) {
+            String name = this.files.get(i).getName();
+            String base = baseName(name);
+            names[i] = baseNames.get(base) > 1 ? name : base;
+        }
+    }
+
+    /** Every .pgm and .ppm file directly inside {@code directory}, sorted by name. */
+    public static ImageSetInput fromDirectory(File directory) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> Netpbm.isImage(name));
+        if (files == null) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+        return new ImageSetInput(Arrays.asList(files));
+    }
+
+    @Override
+    public int size() {
+        return files.size();
+    }
+
+    @Override
+    public String name(int index) {
+        return names[index];
+    }
+
+    @Override
+    public FrameBuffer load(int index, FrameBufferPool pool) throws IOException {
+        return Netpbm.read(files.get(index), pool);
+    }
+
+    private static String baseName(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
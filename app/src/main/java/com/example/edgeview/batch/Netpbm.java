@@ -0,0 +1,130 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+/**
+ * Binary PGM (P5) and PPM (P6) reading and PGM writing. Netpbm needs no image library, so the
+ * same files work on a device and on a desktop JVM; any other format converts to it with one
+ * ImageMagick or ffmpeg call. Only 8-bit images are supported.
+ */
+final class Netpbm {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private Netpbm() {
+    }
+
+    static boolean isImage(String fileName) {
+        String lower = fileName.toLowerCase(Locale.US);
+        return lower.endsWith(".pgm") || lower.endsWith(".ppm");
+    }
+
+    /** Reads a P5 image as GRAY8 or a P6 image as RGBA (opaque) into a pooled heap buffer. */
+    static FrameBuffer read(File file, FrameBufferPool pool) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            if (in.read() != 'P') {
+                throw new IOException("Not a Netpbm image: " + file);
+            }
+            int type = in.read();
+            if (type != '5' && type != '6') {
+                throw new IOException("Unsupported Netpbm type P" + (char) type + ": " + file);
+            }
+            int width = readHeaderInt(in);
+            int height = readHeaderInt(in);
+            int maxValue = readHeaderInt(in);
+            if (width <= 0 || height <= 0 || maxValue <= 0 || maxValue > 255) {
+                throw new IOException("Unsupported Netpbm header " + width + "x" + height + " max " + maxValue
+                        + ": " + file);
+            }
+            PixelFormat format = type == '5' ? PixelFormat.GRAY8 : PixelFormat.RGBA;
+            FrameBuffer frame = pool.acquire(format.frameSize(width, height));
+            try {
+                frame.setDimensions(width, height);
+                frame.setFormat(format);
+                frame.setTimestampNanos(file.lastModified() * 1_000_000L);
+                ByteBuffer out = frame.buffer();
+                out.clear();
+                byte[] row = new byte[width * (type == '5' ? 1 : 3)];
+                for (int y = 0; y < height; y++) {
+                    readFully(in, row);
+                    if (type == '5') {
+                        out.put(row);
+                    } else {
+                        for (int i = 0; i < row.length; i += 3) {
+                            out.put(row[i]).put(row[i + 1]).put(row[i + 2]).put((byte) 0xFF);
+                        }
+                    }
+                }
+                out.clear();
+                return frame;
+            } catch (IOException | RuntimeException e) {
+                frame.release();
+                throw e;
+            }
+        }
+    }
+
+    /** Writes the first {@code width * height} bytes of a GRAY8 buffer as a P5 image. */
+    static void writeGray(File file, ByteBuffer pixels, int width, int height) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            out.write(("P5\n" + width + " " + height + "\n255\n").getBytes(ASCII));
+            byte[] row = new byte[width];
+            ByteBuffer source = pixels.duplicate();
+            source.clear();
+            for (int y = 0; y < height; y++) {
+                source.get(row);
+                out.write(row);
+            }
+        }
+    }
+
+    // Skips whitespace and # comments, then reads one decimal header field and its terminator.
+    private static int readHeaderInt(InputStream in) throws IOException {
+        int c = in.read();
+        while (c == '#' || Character.isWhitespace(c)) {
+            if (c == '#') {
+                while (c != '\n' && c != -1) {
+                    c = in.read();
+                }
+            }
+            c = in.read();
+        }
+        if (c < '0' || c > '9') {
+            throw new IOException("Malformed Netpbm header");
+        }
+        int value = 0;
+        while (c >= '0' && c <= '9') {
+            if (value > (Integer.MAX_VALUE - 9) / 10) {
+                throw new IOException("Netpbm header value too large");
+            }
+            value = value * 10 + (c - '0');
+            c = in.read();
+        }
+        return value;
+    }
+
+    private static void readFully(InputStream in, byte[] buffer) throws IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int n = in.read(buffer, read, buffer.length - read);
+            if (n < 0) {
+                throw new EOFException("Truncated Netpbm image");
+            }
+            read += n;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.buffer.FrameBuffer;
+
+import java.io.File;
+import java.io.IOException;
+
+/** Writes every edge map to {@code <name>.pgm} in a directory, which is created if needed. */
+public final class PgmDirectorySink implements ResultSink {
+    private final File directory;
+
+    public PgmDirectorySink(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        this.directory = directory;
+    }
+
+    @Override
+    public void write(int index, String name, FrameBuffer edges) throws IOException {
+        Netpbm.writeGray(new File(directory, name + ".pgm"), edges.buffer(), edges.width(), edges.height());
+    }
+}
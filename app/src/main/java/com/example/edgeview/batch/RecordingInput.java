@@ -0,0 +1,49 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.record.FrameRecording;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * The frames of a {@link FrameRecording}, named by frame number. The recording stays owned by
+ * the caller.
+ */
+public final class RecordingInput implements BatchInput {
+    private final FrameRecording recording;
+    private final String prefix;
+
+    public RecordingInput(FrameRecording recording, String prefix) {
+        this.recording = recording;
+        this.prefix = prefix;
+    }
+
+    @Override
+    public int size() {
+        return recording.frameCount();
+    }
+
+    @Override
+    public String name(int index) {
+        return String.format(Locale.US, "%s-%06d", prefix, index);
+    }
+
+    @Override
+    public FrameBuffer load(int index, FrameBufferPool pool) {
+        PixelFormat format = recording.format(index);
+        int width = recording.width(index);
+        int height = recording.height(index);
+        ByteBuffer pixels = recording.pixels(index);
+        FrameBuffer frame = pool.acquire(format.frameSize(width, height));
+        frame.setDimensions(width, height);
+        frame.setFormat(format);
+        frame.setTimestampNanos(recording.timestampNanos(index));
+        ByteBuffer out = frame.buffer();
+        out.clear();
+        out.put(pixels).clear();
+        return frame;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.buffer.FrameBuffer;
+
+import java.io.IOException;
+
+/**
+ * Receives edge maps from {@link BatchEngine} as they complete, on the worker threads and in no
+ * particular order. The frame is only valid for the duration of the call.
+ */
+public interface ResultSink {
+
+    void write(int index, String name, FrameBuffer edges) throws IOException;
+
+    /** Discards every result; for timing runs. */
+    ResultSink NONE = (index, name, edges) -> { };
+}
@@ -0,0 +1,138 @@
+package com.example.edgeview.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pooled, reference-counted frame buffer.
+ * A buffer starts with a reference count of one when it is handed out by
+ * {@link FrameBufferPool#acquire(int)}. Every additional consumer calls {@link #retain()},
+ * and every consumer calls {@link #release()} when it is done. The buffer goes back to its
+ * pool when the last reference is released.
+ * <p>
+ * Heap buffers expose their backing array through {@link #data()}. Direct buffers (see
+ * {@link FrameBufferPool#acquireDirect(int)}) can be handed to native code and to GL
+ * without copying; both kinds are available as a {@link ByteBuffer} through {@link #buffer()}.
+ * Consumers that must not write get the {@link #view()} instead.
+ */
+public final class FrameBuffer {
+    private final FrameBufferPool pool;
+    private final byte[] data;
+    private final ByteBuffer buffer;
+    private final FrameView view;
+    private final AtomicInteger refCount = new AtomicInteger();
+
+    private int width;
+    private int height;
+    private PixelFormat format;
+    private long timestampNanos;
+
+    FrameBuffer(FrameBufferPool pool, int size, boolean direct) {
+        this.pool = pool;
+        if (direct) {
+            this.data = null;
+            this.buffer = ByteBuffer.allocateDirect(size);
+        } else {
+            this.data = new byte[size];
+            this.buffer = ByteBuffer.wrap(data);
+        }
+        this.view = new FrameView(this);
+    }
+
+    /** Backing array of a heap buffer. Direct buffers have no portable backing array. */
+    public byte[] data() {
+        if (data == null) {
+            throw new IllegalStateException("data() on a direct FrameBuffer");
+        }
+        return data;
+    }
+
+    /**
+     * The whole buffer, created once and shared by every user. Consumers should use absolute
+     * access or {@link ByteBuffer#duplicate()} rather than relying on its position.
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    /** Read-only view of this frame, created once and shared by every user. */
+    public FrameView view() {
+        return view;
+    }
+
+    public boolean isDirect() {
+        return data == null;
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /** Pixel layout of the contents, or null for untyped scratch data such as NV21. */
+    public PixelFormat format() {
+        return format;
+    }
+
+    public void setDimensions(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Capture time of the camera image this frame came from, on the {@link System#nanoTime()}
+     * clock, or 0 when unknown. Derived frames copy it from their source.
+     */
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    public void setTimestampNanos(long timestampNanos) {
+        this.timestampNanos = timestampNanos;
+    }
+
+    public void setFormat(PixelFormat format) {
+        this.format = format;
+    }
+
+    public FrameBuffer retain() {
+        int count;
+        do {
+            count = refCount.get();
+            if (count <= 0) {
+                throw new IllegalStateException("retain() on a released FrameBuffer");
+            }
+        } while (!refCount.compareAndSet(count, count + 1));
+        return this;
+    }
+
+    public void release() {
+        int count = refCount.decrementAndGet();
+        if (count == 0) {
+            pool.recycle(this);
+        } else if (count < 0) {
+            refCount.incrementAndGet();
+            throw new IllegalStateException("release() on a released FrameBuffer");
+        }
+    }
+
+    public int refCount() {
+        return refCount.get();
+    }
+
+    // Called by the pool while handing the buffer out.
+    void onAcquire() {
+        width = 0;
+        height = 0;
+        format = null;
+        timestampNanos = 0;
+        refCount.set(1);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.edgeview.buffer;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-keyed, bounded pool of {@link FrameBuffer}s shared by every stage of the frame pipeline
+ * (NV21, RGBA and processed output buffers).
+ * Buffers are keyed by their exact byte size, with heap and direct buffers kept apart.
+ * At most {@code maxPerSize} idle buffers are kept for each size and at most
+ * {@code maxRetainedBytes} are kept in total; anything beyond that is left to the
+ * garbage collector.
+ */
+public final class FrameBufferPool {
+    private final int maxPerSize;
+    private final long maxRetainedBytes;
+
+    private final Map<Integer, ArrayDeque<FrameBuffer>> freeHeap = new HashMap<>();
+    private final Map<Integer, ArrayDeque<FrameBuffer>> freeDirect = new HashMap<>();
+    private long retainedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    public FrameBufferPool(int maxPerSize, long maxRetainedBytes) {
+        if (maxPerSize < 0 || maxRetainedBytes < 0) {
+            throw new IllegalArgumentException("Pool limits must not be negative");
+        }
+        this.maxPerSize = maxPerSize;
+        this.maxRetainedBytes = maxRetainedBytes;
+    }
+
+    /**
+     * Returns a buffer of exactly {@code size} bytes with a reference count of one.
+     * The contents are whatever the previous user left behind.
+     */
+    public FrameBuffer acquire(int size) {
+        return acquire(size, false);
+    }
+
+    /**
+     * Like {@link #acquire(int)}, but the buffer is a direct {@link java.nio.ByteBuffer} that
+     * native code can address with {@code GetDirectBufferAddress}.
+     */
+    public FrameBuffer acquireDirect(int size) {
+        return acquire(size, true);
+    }
+
+    private FrameBuffer acquire(int size, boolean direct) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive: " + size);
+        }
+        FrameBuffer buffer = null;
+        synchronized (this) {
+            ArrayDeque<FrameBuffer> queue = (direct ? freeDirect : freeHeap).get(size);
+            if (queue != null) {
+                buffer = queue.pollFirst();
+                if (buffer != null) {
+                    retainedBytes -= size;
+                }
+            }
+        }
+        if (buffer != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            allocatedBytes.addAndGet(size);
+            buffer = new FrameBuffer(this, size, direct);
+        }
+        buffer.onAcquire();
+        return buffer;
+    }
+
+    void recycle(FrameBuffer buffer) {
+        int size = buffer.capacity();
+        synchronized (this) {
+            Map<Integer, ArrayDeque<FrameBuffer>> free = buffer.isDirect() ? freeDirect : freeHeap;
+            ArrayDeque<FrameBuffer> queue = free.get(size);
+            if (queue == null) {
+                queue = new ArrayDeque<>(maxPerSize);
+                free.put(size, queue);
+            }
+            if (queue.size() < maxPerSize && retainedBytes + size <= maxRetainedBytes) {
+                queue.addFirst(buffer);
+                retainedBytes += size;
+                return;
+            }
+        }
+        discarded.incrementAndGet();
+    }
+
+    /**
+     * Drops idle buffers until at most {@code keepPerSize} remain for each size.
+     * Buffers that are currently in use are not affected.
+     */
+    public synchronized void trimTo(int keepPerSize) {
+        trimTo(freeHeap, keepPerSize);
+        trimTo(freeDirect, keepPerSize);
+    }
+
+    private void trimTo(Map<Integer, ArrayDeque<FrameBuffer>> free, int keepPerSize) {
+        Iterator<Map.Entry<Integer, ArrayDeque<FrameBuffer>>> it = free.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, ArrayDeque<FrameBuffer>> entry = it.next();
+            ArrayDeque<FrameBuffer> queue = entry.getValue();
+            while (queue.size() > keepPerSize) {
+                queue.pollLast();
+                retainedBytes -= entry.getKey();
+            }
+            if (queue.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    public void clear() {
+        trimTo(0);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** Total bytes allocated by this pool since it was created. */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /** Released buffers that were not kept because the pool was full. */
+    public long getDiscarded() {
+        return discarded.get();
+    }
+
+    public synchronized long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameBufferPool{hits=" + getHits()
+                + ", misses=" + getMisses()
+                + ", allocatedBytes=" + getAllocatedBytes()
+                + ", retainedBytes=" + getRetainedBytes()
+                + ", discarded=" + getDiscarded() + "}";
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.edgeview.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only face of a {@link FrameBuffer}, for consumers that share a frame with others. It
+ * exposes the frame's metadata and its pixels through a read-only {@link ByteBuffer}, and takes
+ * part in the frame's reference counting. Every buffer has exactly one view, created with it, so
+ * handing out views allocates nothing.
+ */
+public final class FrameView {
+    private final FrameBuffer frame;
+    private final ByteBuffer pixels;
+
+    FrameView(FrameBuffer frame) {
+        this.frame = frame;
+        this.pixels = frame.buffer().asReadOnlyBuffer();
+    }
+
+    /**
+     * The whole buffer, read-only, shared by every holder of the view. Use absolute access or
+     * {@link ByteBuffer#duplicate()} rather than relying on its position.
+     */
+    public ByteBuffer pixels() {
+        return pixels;
+    }
+
+    public boolean isDirect() {
+        return frame.isDirect();
+    }
+
+    public int width() {
+        return frame.width();
+    }
+
+    public int height() {
+        return frame.height();
+    }
+
+    public PixelFormat format() {
+        return frame.format();
+    }
+
+    public long timestampNanos() {
+        return frame.timestampNanos();
+    }
+
+    /** Takes another reference to the underlying frame; see {@link FrameBuffer#retain()}. */
+    public FrameView retain() {
+        frame.retain();
+        return this;
+    }
+
+    public void release() {
+        frame.release();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.edgeview.buffer;
+
+/**
+ * Pixel layouts carried by {@link FrameBuffer}s between pipeline stages.
+ */
+public enum PixelFormat {
+    /** One byte of luma (or edge intensity) per pixel. */
+    GRAY8(1),
+    /** Four bytes per pixel, R, G, B, A. */
+    RGBA(4);
+
+    private final int bytesPerPixel;
+
+    PixelFormat(int bytesPerPixel) {
+        this.bytesPerPixel = bytesPerPixel;
+    }
+
+    public int bytesPerPixel() {
+        return bytesPerPixel;
+    }
+
+    public int frameSize(int width, int height) {
+        return width * height * bytesPerPixel;
+    }
+}
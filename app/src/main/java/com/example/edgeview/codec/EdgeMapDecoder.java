@@ -0,0 +1,140 @@
+package com.example.edgeview.codec;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+import java.util.Arrays;
+
+/**
+ * Decodes {@link EdgeMapEncoder} output back into 0/255 GRAY8 or opaque white-on-black RGBA
+ * pixels. Keeps the previous frame's bits for delta frames; scratch memory only grows with the
+ * frame size. Not thread-safe.
+ */
+public final class EdgeMapDecoder {
+    private byte[] current = new byte[0];
+    private byte[] previous = new byte[0];
+    private int previousWidth;
+    private int previousHeight;
+
+    /** Forgets the previous frame; the next frame must then be a keyframe. */
+    public void reset() {
+        previousWidth = 0;
+        previousHeight = 0;
+    }
+
+    /**
+     * Decodes {@code length} bytes at {@code offset} into {@code out} (width * height pixels of
+     * {@code outFormat}). Throws IllegalArgumentException for malformed input and
+     * IllegalStateException for a delta frame without its reference frame.
+     */
+    public void decode(byte[] in, int offset, int length, byte[] out, PixelFormat outFormat, int width, int height) {
+        if (length < 1 || offset + length > in.length || out.length < outFormat.frameSize(width, height)) {
+            throw new IllegalArgumentException("Buffers too small for " + width + "x" + height);
+        }
+        int rowBytes = EdgeMapFormat.rowBytes(width);
+        int frameBits = rowBytes * height;
+        if (current.length < frameBits) {
+            current = new byte[frameBits];
+            previous = new byte[frameBits];
+            previousWidth = 0;
+        }
+        int end = offset + length;
+        int pos = offset;
+        boolean delta = (in[pos++] & EdgeMapFormat.FLAG_DELTA) != 0;
+        if (delta && (width != previousWidth || height != previousHeight)) {
+            throw new IllegalStateException("Delta frame without a reference frame");
+        }
+
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * rowBytes;
+            if (pos >= end) {
+                throw new IllegalArgumentException("Truncated edge map at row " + y);
+            }
+            int tag = in[pos++];
+            if (tag == EdgeMapFormat.ROW_PACKED) {
+                if (pos + rowBytes > end) {
+                    throw new IllegalArgumentException("Truncated edge map at row " + y);
+                }
+                System.arraycopy(in, pos, current, rowStart, rowBytes);
+                pos += rowBytes;
+            } else if (tag == EdgeMapFormat.ROW_RUNS) {
+                pos = readRuns(in, pos, end, current, rowStart, width, rowBytes);
+            } else {
+                throw new IllegalArgumentException("Unknown row tag " + tag + " at row " + y);
+            }
+            if (delta) {
+                for (int i = rowStart; i < rowStart + rowBytes; i++) {
+                    current[i] ^= previous[i];
+                }
+            }
+            expand(current, rowStart, width, out, y * width, outFormat);
+        }
+
+        byte[] swap = previous;
+        previous = current;
+        current = swap;
+        previousWidth = width;
+        previousHeight = height;
+    }
+
+    private static int readRuns(byte[] in, int pos, int end, byte[] bits, int rowStart, int width, int rowBytes) {
+        Arrays.fill(bits, rowStart, rowStart + rowBytes, (byte) 0);
+        int x = 0;
+        int value = 0;
+        while (x < width) {
+            int run = 0;
+            int shift = 0;
+            int b;
+            do {
+                if (pos >= end || shift > 28) {
+                    throw new IllegalArgumentException("Malformed run length");
+                }
+                b = in[pos++];
+                run |= (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            if (run < 0 || run > width - x) {
+                throw new IllegalArgumentException("Run of " + run + " overflows the row");
+            }
+            if (value == 1) {
+                setBits(bits, rowStart, x, x + run);
+            }
+            x += run;
+            value ^= 1;
+        }
+        return pos;
+    }
+
+    private static void setBits(byte[] bits, int rowStart, int from, int to) {
+        int x = from;
+        while (x < to && (x & 7) != 0) {
+            bits[rowStart + (x >>> 3)] |= (byte) (0x80 >>> (x & 7));
+            x++;
+        }
+        while (x + 8 <= to) {
+            bits[rowStart + (x >>> 3)] = (byte) 0xff;
+            x += 8;
+        }
+        while (x < to) {
+            bits[rowStart + (x >>> 3)] |= (byte) (0x80 >>> (x & 7));
+            x++;
+        }
+    }
+
+    private static void expand(byte[] bits, int rowStart, int width, byte[] out, int pixelStart, PixelFormat format) {
+        if (format == PixelFormat.GRAY8) {
+            for (int x = 0; x < width; x++) {
+                // Sign-extending the bit to all ones gives 0xff for edges and 0 otherwise.
+                out[pixelStart + x] = (byte) -(bits[rowStart + (x >>> 3)] >>> (7 - (x & 7)) & 1);
+            }
+            return;
+        }
+        int o = pixelStart * 4;
+        for (int x = 0; x < width; x++, o += 4) {
+            byte value = (byte) -(bits[rowStart + (x >>> 3)] >>> (7 - (x & 7)) & 1);
+            out[o] = value;
+            out[o + 1] = value;
+            out[o + 2] = value;
+            out[o + 3] = (byte) 0xff;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.edgeview.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes binary edge maps (GRAY8, 0 or 255 per pixel as produced by Canny) at one bit per
+ * pixel, with per-row run-length coding and, optionally, XOR deltas against the previous frame
+ * (see {@link EdgeMapFormat}). Scratch rows are kept between frames and only grow when the frame
+ * size does, so steady-state encoding does not allocate.
+ * <p>
+ * Delta frames can only be decoded by a decoder that saw every earlier frame since the last
+ * keyframe, so they suit recordings; for lossy transports such as the stream server's drop-oldest
+ * queues use an encoder without deltas. Not thread-safe.
+ */
+public final class EdgeMapEncoder {
+    private final int keyframeInterval;
+    private byte[] current = new byte[0];
+    private byte[] previous = new byte[0];
+    private byte[] delta = new byte[0];
+    private int previousWidth;
+    private int previousHeight;
+    private int framesSinceKeyframe;
+
+    /** Encoder without deltas: every frame is a keyframe. */
+    public EdgeMapEncoder() {
+        this(1);
+    }
+
+    /**
+     * @param keyframeInterval every how many frames a frame is encoded without a delta; 1
+     *                         disables deltas
+     */
+    public EdgeMapEncoder(int keyframeInterval) {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("keyframeInterval must be positive: " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /** Upper bound of {@link #encode} output for a frame of this size. */
+    public static int maxEncodedSize(int width, int height) {
+        return 1 + height * (1 + EdgeMapFormat.rowBytes(width));
+    }
+
+    /** Makes the next frame a keyframe, e.g. when a new reader starts. */
+    public void reset() {
+        previousWidth = 0;
+        previousHeight = 0;
+    }
+
+    /**
+     * Encodes a width x height GRAY8 edge map read with absolute gets from {@code source} into
+     * {@code out} at {@code offset}, which needs {@link #maxEncodedSize} bytes. Returns the number
+     * of bytes written.
+     */
+    public int encode(ByteBuffer source, int width, int height, byte[] out, int offset) {
+        if (source.capacity() < width * height || out.length - offset < maxEncodedSize(width, height)) {
+            throw new IllegalArgumentException("Buffers too small for " + width + "x" + height);
+        }
+        int rowBytes = EdgeMapFormat.rowBytes(width);
+        int frameBits = rowBytes * height;
+        if (current.length < frameBits) {
+            current = new byte[frameBits];
+            previous = new byte[frameBits];
+            previousWidth = 0;
+        }
+        // Sized on its own: a wider but shorter frame can fit the frame arrays with longer rows.
+        if (delta.length < rowBytes) {
+            delta = new byte[rowBytes];
+        }
+        boolean useDelta = keyframeInterval > 1 && width == previousWidth && height == previousHeight
+                && framesSinceKeyframe + 1 < keyframeInterval;
+        framesSinceKeyframe = useDelta ? framesSinceKeyframe + 1 : 0;
+
+        int pos = offset;
+        out[pos++] = (byte) (useDelta ? EdgeMapFormat.FLAG_DELTA : 0);
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * rowBytes;
+            pack(source, y * width, width, current, rowStart);
+            byte[] bits = current;
+            int bitsStart = rowStart;
+            if (useDelta) {
+                for (int i = 0; i < rowBytes; i++) {
+                    delta[i] = (byte) (current[rowStart + i] ^ previous[rowStart + i]);
+                }
+                bits = delta;
+                bitsStart = 0;
+            }
+            pos = writeRow(bits, bitsStart, width, rowBytes, out, pos);
+        }
+
+        byte[] swap = previous;
+        previous = current;
+        current = swap;
+        previousWidth = width;
+        previousHeight = height;
+        return pos - offset;
+    }
+
+    // Packs one row, MSB first; the padding bits of the last byte stay zero.
+    private static void pack(ByteBuffer source, int sourceStart, int width, byte[] bits, int bitsStart) {
+        int full = width & ~7;
+        int s = sourceStart;
+        int b = bitsStart;
+        for (int x = 0; x < full; x += 8, s += 8) {
+            int packed = (source.get(s) & 0x80)
+                    | (source.get(s + 1) & 0x80) >>> 1
+                    | (source.get(s + 2) & 0x80) >>> 2
+                    | (source.get(s + 3) & 0x80) >>> 3
+                    | (source.get(s + 4) & 0x80) >>> 4
+                    | (source.get(s + 5) & 0x80) >>> 5
+                    | (source.get(s + 6) & 0x80) >>> 6
+                    | (source.get(s + 7) & 0x80) >>> 7;
+            bits[b++] = (byte) packed;
+        }
+        if (full < width) {
+            int packed = 0;
+            for (int x = full; x < width; x++, s++) {
+                packed |= (source.get(s) & 0x80) >>> (x - full);
+            }
+            bits[b] = (byte) packed;
+        }
+    }
+
+    // Writes the row as runs while that stays smaller than packing, otherwise packed.
+    private static int writeRow(byte[] bits, int start, int width, int rowBytes, byte[] out, int pos) {
+        int tagPos = pos;
+        int limit = pos + 1 + rowBytes;
+        int p = pos + 1;
+        int x = 0;
+        int value = 0;
+        while (x < width) {
+            int end = runEnd(bits, start, x, width, value);
+            int run = end - x;
+            if (p + varintSize(run) >= limit) {
+                out[tagPos] = EdgeMapFormat.ROW_PACKED;
+                System.arraycopy(bits, start, out, tagPos + 1, rowBytes);
+                return limit;
+            }
+            p = writeVarint(run, out, p);
+            x = end;
+            value ^= 1;
+        }
+        out[tagPos] = EdgeMapFormat.ROW_RUNS;
+        return p;
+    }
+
+    // First x' >= x whose bit differs from value, or width. Skips whole bytes of equal bits.
+    static int runEnd(byte[] bits, int start, int x, int width, int value) {
+        int same = value == 0 ? 0 : 0xff;
+        while (x < width) {
+            int b = bits[start + (x >>> 3)] & 0xff;
+            if ((x & 7) == 0 && b == same) {
+                x += 8;
+                continue;
+            }
+            if ((b >>> (7 - (x & 7)) & 1) != value) {
+                return x;
+            }
+            x++;
+        }
+        return width;
+    }
+
+    static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarint(int value, byte[] out, int pos) {
+        while ((value & ~0x7f) != 0) {
+            out[pos++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+}
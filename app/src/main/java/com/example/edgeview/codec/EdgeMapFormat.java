@@ -0,0 +1,25 @@
+package com.example.edgeview.codec;
+
+/**
+ * Wire format of an encoded edge map, shared by {@link EdgeMapEncoder}, {@link EdgeMapDecoder}
+ * and the decoder in web/main.ts. Pixels are binary: a source byte with its top bit set is an
+ * edge. After one flags byte every row is stored as a tag byte followed by either
+ * <ul>
+ *   <li>{@link #ROW_PACKED}: {@code ceil(width / 8)} bytes, one bit per pixel, MSB first, or</li>
+ *   <li>{@link #ROW_RUNS}: run lengths of alternating values as unsigned LEB128 varints,
+ *       starting with a (possibly empty) run of zeros and ending when the row is full,</li>
+ * </ul>
+ * whichever is smaller. With {@link #FLAG_DELTA} the stored bits are the XOR of the frame with
+ * the previous one, which turns a static scene into rows of a single empty run.
+ */
+final class EdgeMapFormat {
+    static final int FLAG_DELTA = 0x1;
+    static final int ROW_PACKED = 0;
+    static final int ROW_RUNS = 1;
+
+    private EdgeMapFormat() {}
+
+    static int rowBytes(int width) {
+        return (width + 7) >>> 3;
+    }
+}
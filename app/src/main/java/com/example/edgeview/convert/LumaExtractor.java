@@ -0,0 +1,47 @@
+package com.example.edgeview.convert;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copies the Y plane of a YUV_420_888 image into a tightly packed {@code width * height} buffer.
+ */
+public final class LumaExtractor {
+    private LumaExtractor() {}
+
+    /**
+     * Rows are copied with bulk buffer-to-buffer transfers when the pixel stride is 1, which is
+     * always the case for CameraX Y planes. The source buffer's position and limit are restored.
+     */
+    public static void copyLuma(ByteBuffer yPlane, int rowStride, int pixelStride,
+                                int width, int height, ByteBuffer luma) {
+        int savedPosition = yPlane.position();
+        int savedLimit = yPlane.limit();
+        try {
+            luma.clear();
+            if (pixelStride == 1 && rowStride == width) {
+                yPlane.limit(width * height);
+                yPlane.position(0);
+                luma.put(yPlane);
+            } else if (pixelStride == 1) {
+                for (int row = 0; row < height; row++) {
+                    int rowStart = row * rowStride;
+                    yPlane.limit(rowStart + width);
+                    yPlane.position(rowStart);
+                    luma.put(yPlane);
+                }
+            } else {
+                for (int row = 0; row < height; row++) {
+                    int p = row * rowStride;
+                    for (int col = 0; col < width; col++) {
+                        luma.put(yPlane.get(p));
+                        p += pixelStride;
+                    }
+                }
+            }
+            luma.clear();
+        } finally {
+            yPlane.limit(savedLimit);
+            yPlane.position(savedPosition);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.edgeview.convert;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * NV21 to RGBA converter for the Java path (raw mode without native-lib). The frame is split
+ * into row bands that are converted in parallel on a fork-join pool. The per-pixel math uses
+ * precomputed coefficient tables and branch-free clamping. Output is bit-exact with
+ * {@link ReferenceYuvConverter#nv21ToRgba(byte[], byte[], int, int, int, int, int)}.
+ * <p>
+ * Band tasks are reused from frame to frame, so a converter must not be used by several
+ * threads at once.
+ */
+public final class ParallelNv21Converter {
+    private static final int MAX_RGB = 262143; // 2^18 - 1, the clamp limit before >> 10
+
+    // Coefficient tables indexed by the unsigned byte value.
+    private static final int[] Y_1192 = new int[256];
+    private static final int[] V_R = new int[256];
+    private static final int[] V_G = new int[256];
+    private static final int[] U_G = new int[256];
+    private static final int[] U_B = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            Y_1192[i] = 1192 * Math.max(i - 16, 0);
+            V_R[i] = 1634 * (i - 128);
+            V_G[i] = 833 * (i - 128);
+            U_G[i] = 400 * (i - 128);
+            U_B[i] = 2066 * (i - 128);
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int bandCount;
+    private final FrameTask frameTask = new FrameTask();
+    private BandTask[] bands = new BandTask[0];
+
+    public ParallelNv21Converter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelNv21Converter(ForkJoinPool pool) {
+        this(pool, pool.getParallelism() * 2);
+    }
+
+    public ParallelNv21Converter(ForkJoinPool pool, int bandCount) {
+        if (bandCount <= 0) {
+            throw new IllegalArgumentException("bandCount must be positive: " + bandCount);
+        }
+        this.pool = pool;
+        this.bandCount = bandCount;
+    }
+
+    /** Converts into {@code rgba} starting at {@code offset}; needs {@code width * height * 4} bytes. */
+    public void convert(byte[] nv21, byte[] rgba, int offset, int width, int height) {
+        if (nv21.length < width * height * 3 / 2 || rgba.length - offset < width * height * 4) {
+            throw new IllegalArgumentException("Buffers too small for " + width + "x" + height);
+        }
+        int count = Math.min(bandCount, height);
+        if (count <= 1) {
+            convertRows(nv21, rgba, offset, 0, height, width, height);
+            return;
+        }
+        if (bands.length != count) {
+            bands = new BandTask[count];
+            for (int i = 0; i < count; i++) {
+                bands[i] = new BandTask();
+            }
+        }
+        int rowsPerBand = height / count;
+        int extraRows = height % count;
+        int row = 0;
+        for (int i = 0; i < count; i++) {
+            int rows = rowsPerBand + (i < extraRows ? 1 : 0);
+            bands[i].set(nv21, rgba, offset, row, row + rows, width, height);
+            row += rows;
+        }
+        frameTask.reinitialize();
+        pool.invoke(frameTask);
+        for (BandTask band : bands) {
+            band.clear();
+        }
+    }
+
+    /** Writes through the buffer's backing array when it has one (always true on ART). */
+    public void convert(byte[] nv21, ByteBuffer rgba, int width, int height) {
+        if (rgba.hasArray()) {
+            convert(nv21, rgba.array(), rgba.arrayOffset(), width, height);
+        } else {
+            ReferenceYuvConverter.nv21ToRgba(nv21, rgba, width, height);
+        }
+    }
+
+    static void convertRows(byte[] nv21, byte[] rgba, int offset, int startRow, int endRow,
+                            int width, int height) {
+        int frameSize = width * height;
+        int[] y1192 = Y_1192;
+        int[] vr = V_R;
+        int[] vg = V_G;
+        int[] ug = U_G;
+        int[] ub = U_B;
+
+        for (int j = startRow; j < endRow; j++) {
+            int yp = j * width;
+            int uvp = frameSize + (j >> 1) * width;
+            int ri = offset + yp * 4;
+            int rv = 0, gvu = 0, bu = 0;
+            for (int i = 0; i < width; i++, yp++, ri += 4) {
+                if ((i & 1) == 0) {
+                    int v = nv21[uvp++] & 0xff;
+                    int u = nv21[uvp++] & 0xff;
+                    rv = vr[v];
+                    gvu = vg[v] + ug[u];
+                    bu = ub[u];
+                }
+                int y = y1192[nv21[yp] & 0xff];
+                rgba[ri] = (byte) (clamp(y + rv) >> 10);
+                rgba[ri + 1] = (byte) (clamp(y - gvu) >> 10);
+                rgba[ri + 2] = (byte) (clamp(y + bu) >> 10);
+                rgba[ri + 3] = (byte) 0xff;
+            }
+        }
+    }
+
+    // Clamps to [0, MAX_RGB] without branches: negatives are masked to zero, values above the
+    // limit are forced to all ones and then masked down to MAX_RGB.
+    private static int clamp(int x) {
+        x &= ~(x >> 31);
+        return (x | ((MAX_RGB - x) >> 31)) & MAX_RGB;
+    }
+
+    private final class FrameTask extends RecursiveAction {
+        @Override
+        protected void compute() {
+            invokeAll(bands);
+        }
+    }
+
+    private static final class BandTask extends RecursiveAction {
+        private byte[] nv21;
+        private byte[] rgba;
+        private int offset;
+        private int startRow;
+        private int endRow;
+        private int width;
+        private int height;
+
+        void set(byte[] nv21, byte[] rgba, int offset, int startRow, int endRow, int width, int height) {
+            this.nv21 = nv21;
+            this.rgba = rgba;
+            this.offset = offset;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.width = width;
+            this.height = height;
+            reinitialize();
+        }
+
+        void clear() {
+            nv21 = null;
+            rgba = null;
+        }
+
+        @Override
+        protected void compute() {
+            convertRows(nv21, rgba, offset, startRow, endRow, width, height);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.edgeview.convert;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pure-Java YUV conversions. These are the original per-pixel implementations; the camera path
+ * uses the native converter and only falls back to these when native-lib is unavailable.
+ * They also serve as the reference that native and optimized converters are tested against.
+ */
+public final class ReferenceYuvConverter {
+    private ReferenceYuvConverter() {}
+
+    /**
+     * Repacks strided YUV_420_888 planes into NV21 ({@code width * height * 3 / 2} bytes).
+     * U and V share {@code uvPixelStride}, as guaranteed for YUV_420_888.
+     */
+    public static void planesToNv21(ByteBuffer yBuffer, int yRowStride, int yPixelStride,
+                                    ByteBuffer uBuffer, int uRowStride,
+                                    ByteBuffer vBuffer, int vRowStride, int uvPixelStride,
+                                    int width, int height, byte[] nv21) {
+        int ySize = width * height;
+
+        // Y plane
+        int pos = 0;
+        for (int rowIndex = 0; rowIndex < height; rowIndex++) {
+            int rowStart = rowIndex * yRowStride;
+            if (yPixelStride == 1) {
+                yBuffer.position(rowStart);
+                yBuffer.get(nv21, pos, width);
+                pos += width;
+            } else {
+                int p = rowStart;
+                for (int col = 0; col < width; col++) {
+                    nv21[pos++] = yBuffer.get(p);
+                    p += yPixelStride;
+                }
+            }
+        }
+
+        // UV planes (chroma)
+        int chromaHeight = height / 2;
+        int chromaWidth = width / 2;
+        int uvPos = ySize;
+
+        for (int rowIndex = 0; rowIndex < chromaHeight; rowIndex++) {
+            int uIndex = rowIndex * uRowStride;
+            int vIndex = rowIndex * vRowStride;
+            for (int col = 0; col < chromaWidth; col++) {
+                // NV21 expects V then U
+                nv21[uvPos++] = vBuffer.get(vIndex);
+                nv21[uvPos++] = uBuffer.get(uIndex);
+                uIndex += uvPixelStride;
+                vIndex += uvPixelStride;
+            }
+        }
+    }
+
+    /** Converts a whole NV21 frame into RGBA, writing through the buffer's array when it has one. */
+    public static void nv21ToRgba(byte[] nv21, ByteBuffer rgba, int width, int height) {
+        if (rgba.hasArray()) {
+            nv21ToRgba(nv21, rgba.array(), rgba.arrayOffset(), 0, height, width, height);
+            return;
+        }
+        // Direct buffers on ART are array-backed; this row-by-row path is for other JVMs.
+        int rowBytes = width * 4;
+        byte[] row = new byte[rowBytes];
+        for (int j = 0; j < height; j++) {
+            nv21ToRgba(nv21, row, -j * rowBytes, j, j + 1, width, height);
+            rgba.position(j * rowBytes);
+            rgba.put(row, 0, rowBytes);
+        }
+        rgba.position(0);
+    }
+
+    // Basic NV21 to RGBA conversion of rows [startRow, endRow) into rgba at the given offset
+    public static void nv21ToRgba(byte[] nv21, byte[] rgba, int offset, int startRow, int endRow, int width, int height) {
+        int frameSize = width * height;
+
+        for (int j = startRow, yp = startRow * width; j < endRow; j++) {
+            int uvp = frameSize + (j >> 1) * width, u = 0, v = 0;
+            for (int i = 0; i < width; i++, yp++) {
+                int y = (0xff & nv21[yp]) - 16;
+                if (y < 0) y = 0;
+                if ((i & 1) == 0) {
+                    v = (0xff & nv21[uvp++]) - 128;
+                    u = (0xff & nv21[uvp++]) - 128;
+                }
+
+                int y1192 = 1192 * y;
+                int r = (y1192 + 1634 * v);
+                int g = (y1192 - 833 * v - 400 * u);
+                int b = (y1192 + 2066 * u);
+
+                if (r < 0) r = 0; else if (r > 262143) r = 262143;
+                if (g < 0) g = 0; else if (g > 262143) g = 262143;
+                if (b < 0) b = 0; else if (b > 262143) b = 262143;
+
+                int ri = offset + (j * width + i) * 4;
+                rgba[ri] = (byte) ((r >> 10) & 0xff);
+                rgba[ri + 1] = (byte) ((g >> 10) & 0xff);
+                rgba[ri + 2] = (byte) ((b >> 10) & 0xff);
+                rgba[ri + 3] = (byte) 0xff;
+            }
+        }
+    }
+}
@@ -4,9 +4,17 @@ import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
 import android.util.Log;
 
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.metrics.PipelineMetrics;
+import com.example.edgeview.metrics.StartupTimings;
+import com.example.edgeview.pipeline.TripleBuffer;
+import com.example.edgeview.processing.EdgeSegments;
+
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -32,6 +40,20 @@ public class GLRenderer implements GLSurfaceView.Renderer {
             "  gl_FragColor = texture2D(s_Texture, v_TexCoord);" +
             "}";
 
+    // Edge segments: clip-space GL_LINES vertices in a single colour.
+    private final String lineVertexShaderCode =
+            "attribute vec2 a_Position;" +
+            "void main() {" +
+            "  gl_Position = vec4(a_Position, 0.0, 1.0);" +
+            "}";
+
+    private final String lineFragmentShaderCode =
+            "precision mediump float;" +
+            "uniform vec4 u_Color;" +
+            "void main() {" +
+            "  gl_FragColor = u_Color;" +
+            "}";
+
     private final FloatBuffer vertexBuffer;
     private final FloatBuffer texCoordBuffer;
 
@@ -40,12 +62,33 @@ public class GLRenderer implements GLSurfaceView.Renderer {
     private int texCoordHandle;
     private int textureUniformHandle;
     private int textureId;
+    private int lineProgramHandle;
+    private int linePositionHandle;
+    private int lineColorHandle;
+    private int lineVbo;
 
-    private volatile byte[] latestBuffer;
+    private final PipelineMetrics metrics;
+    private volatile StartupTimings startupTimings;
+
+    // Producer thread -> GL thread handoff; frame size and format travel with the frame.
+    private final TripleBuffer<FrameBuffer> frames = new TripleBuffer<>(FrameBuffer::release);
+    // GL thread only.
     private int frameWidth;
     private int frameHeight;
+    private int textureFormat = GLES20.GL_RGBA;
     private boolean textureSizeChanged = true;
 
+    // Producer thread -> GL thread handoff of vector frames. Containers the GL thread is done
+    // with go back to freeSegments, so a steady stream of vector frames allocates nothing.
+    private final ConcurrentLinkedQueue<EdgeSegments> freeSegments = new ConcurrentLinkedQueue<>();
+    private final TripleBuffer<EdgeSegments> segmentFrames = new TripleBuffer<>(freeSegments::offer);
+    // GL thread only. The newest of the two kinds of frame is the one drawn.
+    private FloatBuffer lineVertices = allocateFloats(1024);
+    private int lineVboBytes;
+    private int lineVertexCount;
+    private long textureTimestampNanos;
+    private boolean showSegments;
+
     // Full-screen quad vertices
     private final float[] vertices = {
             -1.0f, -1.0f,  // Bottom Left
@@ -63,7 +106,8 @@ public class GLRenderer implements GLSurfaceView.Renderer {
     };
 
 
-    public GLRenderer() {
+    public GLRenderer(PipelineMetrics metrics) {
+        this.metrics = metrics;
         vertexBuffer = ByteBuffer.allocateDirect(vertices.length * 4)
                 .order(ByteOrder.nativeOrder()).asFloatBuffer();
         vertexBuffer.put(vertices).position(0);
@@ -96,26 +140,8 @@ public class GLRenderer implements GLSurfaceView.Renderer {
     public void onSurfaceCreated(GL10 unused, EGLConfig config) {
         GLES20.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
 
-        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
-        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
-
-        programHandle = GLES20.glCreateProgram();
+        programHandle = createProgram(vertexShaderCode, fragmentShaderCode);
         if (programHandle == 0) {
-            Log.e(TAG, "Could not create GL program.");
-            return;
-        }
-
-        GLES20.glAttachShader(programHandle, vertexShader);
-        GLES20.glAttachShader(programHandle, fragmentShader);
-        GLES20.glLinkProgram(programHandle);
-
-        int[] linkStatus = new int[1];
-        GLES20.glGetProgramiv(programHandle, GLES20.GL_LINK_STATUS, linkStatus, 0);
-        if (linkStatus[0] != GLES20.GL_TRUE) {
-            Log.e(TAG, "Could not link program: ");
-            Log.e(TAG, GLES20.glGetProgramInfoLog(programHandle));
-            GLES20.glDeleteProgram(programHandle);
-            programHandle = 0;
             return;
         }
 
@@ -123,6 +149,16 @@ public class GLRenderer implements GLSurfaceView.Renderer {
         texCoordHandle = GLES20.glGetAttribLocation(programHandle, "a_TexCoord");
         textureUniformHandle = GLES20.glGetUniformLocation(programHandle, "s_Texture");
 
+        lineProgramHandle = createProgram(lineVertexShaderCode, lineFragmentShaderCode);
+        if (lineProgramHandle != 0) {
+            linePositionHandle = GLES20.glGetAttribLocation(lineProgramHandle, "a_Position");
+            lineColorHandle = GLES20.glGetUniformLocation(lineProgramHandle, "u_Color");
+        }
+        int[] buffers = new int[1];
+        GLES20.glGenBuffers(1, buffers, 0);
+        lineVbo = buffers[0];
+        lineVboBytes = 0;
+
         // Create and configure texture
         int[] textures = new int[1];
         GLES20.glGenTextures(1, textures, 0);
@@ -133,6 +169,45 @@ public class GLRenderer implements GLSurfaceView.Renderer {
         GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
         GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
         GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+        // Single-byte luminance rows are not 4-byte aligned for arbitrary widths.
+        GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 1);
+        textureSizeChanged = true;
+    }
+
+    // Returns 0 (after logging why) when the shaders do not compile or link.
+    private int createProgram(String vertexCode, String fragmentCode) {
+        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, vertexCode);
+        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentCode);
+
+        int program = GLES20.glCreateProgram();
+        if (program == 0) {
+            Log.e(TAG, "Could not create GL program.");
+            return 0;
+        }
+
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+
+        int[] linkStatus = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] != GLES20.GL_TRUE) {
+            Log.e(TAG, "Could not link program: ");
+            Log.e(TAG, GLES20.glGetProgramInfoLog(program));
+            GLES20.glDeleteProgram(program);
+            return 0;
+        }
+        return program;
+    }
+
+    private static FloatBuffer allocateFloats(int count) {
+        return ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    // Frames without an explicit format are treated as RGBA.
+    private static int glFormatFor(PixelFormat format) {
+        return format == PixelFormat.GRAY8 ? GLES20.GL_LUMINANCE : GLES20.GL_RGBA;
     }
 
     @Override
@@ -140,35 +215,109 @@ public class GLRenderer implements GLSurfaceView.Renderer {
         GLES20.glViewport(0, 0, width, height);
     }
 
-    public void updateFrame(byte[] rgbaBytes, int width, int height) {
-        if (this.frameWidth != width || this.frameHeight != height) {
-            this.frameWidth = width;
-            this.frameHeight = height;
-            textureSizeChanged = true;
-        }
-        this.latestBuffer = rgbaBytes;
+    /**
+     * Hands a finished frame to the renderer from the (single) producer thread; call
+     * {@code requestRender()} afterwards. The renderer takes over the caller's reference.
+     * If several frames arrive between draws only the newest is uploaded; the others are
+     * released. GRAY8 frames are uploaded as {@code GL_LUMINANCE}, a quarter of the bytes of RGBA.
+     */
+    public void updateFrame(FrameBuffer frame) {
+        frames.publish(frame);
+    }
+
+    public TripleBuffer<FrameBuffer> frameExchanger() {
+        return frames;
+    }
+
+    /** Receives the FIRST_FRAME phase, ended by the first draw of a camera frame. */
+    public void setStartupTimings(StartupTimings startupTimings) {
+        this.startupTimings = startupTimings;
+    }
+
+    /**
+     * Returns a segment container for the producer to fill and pass to {@link #updateSegments},
+     * reusing one the renderer is done with when there is one.
+     */
+    public EdgeSegments obtainSegments() {
+        EdgeSegments segments = freeSegments.poll();
+        return segments != null ? segments : new EdgeSegments();
+    }
+
+    /** Takes back a container from {@link #obtainSegments} that the producer will not publish. */
+    public void recycleSegments(EdgeSegments segments) {
+        freeSegments.offer(segments);
+    }
+
+    /**
+     * Hands a vector frame to the renderer, with the same threading rules as
+     * {@link #updateFrame}. Until a newer bitmap frame arrives, the segments are drawn as lines
+     * from a small vertex buffer instead of the full-screen texture.
+     */
+    public void updateSegments(EdgeSegments segments) {
+        segmentFrames.publish(segments);
+    }
+
+    public TripleBuffer<EdgeSegments> segmentExchanger() {
+        return segmentFrames;
     }
 
     @Override
     public void onDrawFrame(GL10 unused) {
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
 
-        byte[] buffer = this.latestBuffer;
-        if (buffer != null && frameWidth > 0 && frameHeight > 0) {
-            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        FrameBuffer frame = frames.acquireLatest();
+        long captureNanos = 0;
+        if (frame != null) {
+            int format = glFormatFor(frame.format());
+            if (frameWidth != frame.width() || frameHeight != frame.height() || textureFormat != format) {
+                frameWidth = frame.width();
+                frameHeight = frame.height();
+                textureFormat = format;
+                textureSizeChanged = true;
+            }
+        }
+        if (frame != null && frameWidth > 0 && frameHeight > 0) {
+            // Heap and direct frames both carry a ready-made ByteBuffer; no per-frame wrapping.
+            long uploadStart = System.nanoTime();
+            ByteBuffer byteBuffer = frame.buffer();
+            byteBuffer.position(0);
             GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
             GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
 
             if (textureSizeChanged) {
-                 GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, frameWidth, frameHeight, 0, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, byteBuffer);
+                 GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, textureFormat, frameWidth, frameHeight, 0, textureFormat, GLES20.GL_UNSIGNED_BYTE, byteBuffer);
                  textureSizeChanged = false;
             } else {
-                 GLES20.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, frameWidth, frameHeight, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, byteBuffer);
+                 GLES20.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, 0, frameWidth, frameHeight, textureFormat, GLES20.GL_UNSIGNED_BYTE, byteBuffer);
             }
-            this.latestBuffer = null;
+            long uploaded = System.nanoTime();
+            metrics.record(PipelineMetrics.Stage.GL_UPLOAD, uploaded - uploadStart);
+            captureNanos = frame.timestampNanos();
+            if (captureNanos > 0) {
+                metrics.record(PipelineMetrics.Stage.FRAME_AGE, uploaded - captureNanos);
+            }
+            metrics.framePresented();
+            textureTimestampNanos = captureNanos;
+            showSegments = false;
         }
 
-        if (programHandle != 0) {
+        EdgeSegments segments = segmentFrames.acquireLatest();
+        if (segments != null && segments.timestampNanos() >= textureTimestampNanos) {
+            long uploadStart = System.nanoTime();
+            uploadSegments(segments);
+            long uploaded = System.nanoTime();
+            metrics.record(PipelineMetrics.Stage.GL_UPLOAD, uploaded - uploadStart);
+            captureNanos = segments.timestampNanos();
+            if (captureNanos > 0) {
+                metrics.record(PipelineMetrics.Stage.FRAME_AGE, uploaded - captureNanos);
+            }
+            metrics.framePresented();
+            showSegments = true;
+        }
+
+        if (showSegments) {
+            drawSegments(captureNanos);
+        } else if (programHandle != 0) {
             GLES20.glUseProgram(programHandle);
 
             vertexBuffer.position(0);
@@ -182,9 +331,63 @@ public class GLRenderer implements GLSurfaceView.Renderer {
             GLES20.glUniform1i(textureUniformHandle, 0); // Use texture unit 0
 
             GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+            if (captureNanos > 0) {
+                metrics.record(PipelineMetrics.Stage.GLASS_TO_GLASS, System.nanoTime() - captureNanos);
+                firstFrameDrawn();
+            }
 
             GLES20.glDisableVertexAttribArray(positionHandle);
             GLES20.glDisableVertexAttribArray(texCoordHandle);
         }
     }
+
+    private void firstFrameDrawn() {
+        StartupTimings timings = startupTimings;
+        if (timings != null && !timings.isDone(StartupTimings.Phase.FIRST_FRAME)) {
+            timings.end(StartupTimings.Phase.FIRST_FRAME);
+            Log.i(TAG, "first frame drawn, " + timings);
+        }
+    }
+
+    // Vertices go through a client-side buffer that, like the VBO, only grows.
+    private void uploadSegments(EdgeSegments segments) {
+        int floats = segments.count() * EdgeSegments.FLOATS_PER_SEGMENT;
+        if (lineVertices.capacity() < floats) {
+            lineVertices = allocateFloats(Math.max(floats, lineVertices.capacity() * 2));
+        }
+        lineVertices.clear();
+        lineVertexCount = segments.writeClipSpace(lineVertices);
+        lineVertices.flip();
+        if (lineVbo == 0 || lineVertexCount == 0) {
+            return;
+        }
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, lineVbo);
+        if (lineVboBytes < floats * 4) {
+            lineVboBytes = lineVertices.capacity() * 4;
+            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, lineVboBytes, null, GLES20.GL_DYNAMIC_DRAW);
+        }
+        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, floats * 4, lineVertices);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
+
+    private void drawSegments(long captureNanos) {
+        if (lineProgramHandle == 0 || lineVbo == 0 || lineVertexCount == 0) {
+            return;
+        }
+        GLES20.glUseProgram(lineProgramHandle);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, lineVbo);
+        GLES20.glVertexAttribPointer(linePositionHandle, 2, GLES20.GL_FLOAT, false, 0, 0);
+        GLES20.glEnableVertexAttribArray(linePositionHandle);
+        GLES20.glUniform4f(lineColorHandle, 1f, 1f, 1f, 1f);
+        GLES20.glLineWidth(2f);
+
+        GLES20.glDrawArrays(GLES20.GL_LINES, 0, lineVertexCount);
+        if (captureNanos > 0) {
+            metrics.record(PipelineMetrics.Stage.GLASS_TO_GLASS, System.nanoTime() - captureNanos);
+            firstFrameDrawn();
+        }
+
+        GLES20.glDisableVertexAttribArray(linePositionHandle);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
 }
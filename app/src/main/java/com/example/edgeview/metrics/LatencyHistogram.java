@@ -0,0 +1,135 @@
+package com.example.edgeview.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram that any number of threads can record into without locks or
+ * allocation.
+ * <p>
+ * Buckets are log-linear over microseconds: values below 4 us get a bucket each, and every
+ * power of two above that is split into four sub-buckets, so a bucket is at most 25% wide.
+ * Values beyond about a minute land in the last bucket. Percentiles therefore come back as
+ * bucket upper bounds, which is plenty for telling 8 ms from 12 ms.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 26; // 2^26 us ~ 67 s
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        buckets.incrementAndGet(bucketFor(nanos / 1000));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // retry until our value is stored or a larger one is
+        }
+    }
+
+    /** Records the time since {@code startNanos} (a {@link System#nanoTime()} reading). */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /** Copies the current state; concurrent recordings may be partly included. */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return new Snapshot(counts, count.get(), totalNanos.get(), maxNanos.get());
+    }
+
+    static int bucketFor(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + sub;
+    }
+
+    /** Largest microsecond value that falls into {@code bucket}. */
+    static long upperBoundMicros(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS | sub) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /** Immutable copy of a histogram. */
+    public static final class Snapshot {
+        private final long[] counts;
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+
+        Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public double meanMillis() {
+            return count == 0 ? 0 : totalNanos / 1e6 / count;
+        }
+
+        public double maxMillis() {
+            return maxNanos / 1e6;
+        }
+
+        /** Upper bound of the bucket holding the given quantile (0..1), in milliseconds. */
+        public double percentileMillis(double quantile) {
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return Math.min(upperBoundMicros(i) / 1000.0, maxMillis());
+                }
+            }
+            return maxMillis();
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "n=%d mean=%.2f p50=%.2f p95=%.2f p99=%.2f max=%.2f ms",
+                    count, meanMillis(), percentileMillis(0.5), percentileMillis(0.95),
+                    percentileMillis(0.99), maxMillis());
+        }
+    }
+}
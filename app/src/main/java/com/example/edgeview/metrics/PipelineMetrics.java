@@ -0,0 +1,178 @@
+package com.example.edgeview.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms per pipeline stage plus frame counters. Recording is lock-free and
+ * allocation-free, so it can stay on in release builds; {@link #snapshot()} is the only part
+ * that allocates.
+ */
+public final class PipelineMetrics {
+
+    /** Measured steps, in the order a frame passes through them. */
+    public enum Stage {
+        /** Whole analyzer callback, from receiving the ImageProxy to handing the frame on. */
+        ANALYZE,
+        LUMA_COPY,
+        YUV_TO_NV21,
+        NV21_TO_RGBA,
+        /** Native one-pass YUV_420_888 to RGBA conversion. */
+        YUV_TO_RGBA_NATIVE,
+        /** Whole "process" pipeline stage. */
+        PROCESS,
+        /** Time spent inside native edge detection, as reported by the native session. */
+        NATIVE_PROCESS,
+        /** Time spent in the Java fallback edge detector. */
+        JAVA_PROCESS,
+        /** Edge map to line segments (vector output mode), in the "present" stage. */
+        VECTORIZE,
+        /** Texture or segment vertex upload in GLRenderer.onDrawFrame. */
+        GL_UPLOAD,
+        /** Capture timestamp to the end of the texture upload. */
+        FRAME_AGE,
+        /**
+         * Capture timestamp to the frame's draw call being issued, i.e. everything but the buffer
+         * swap and composition, which add up to one more display refresh.
+         */
+        GLASS_TO_GLASS
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final LatencyHistogram[] byOrdinal = new LatencyHistogram[STAGES.length];
+    private final AtomicLong produced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong presented = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong tilesRecomputed = new AtomicLong();
+    private final AtomicLong tilesTotal = new AtomicLong();
+
+    public PipelineMetrics() {
+        for (int i = 0; i < byOrdinal.length; i++) {
+            byOrdinal[i] = new LatencyHistogram();
+        }
+    }
+
+    public LatencyHistogram histogram(Stage stage) {
+        return byOrdinal[stage.ordinal()];
+    }
+
+    public void record(Stage stage, long nanos) {
+        byOrdinal[stage.ordinal()].recordNanos(nanos);
+    }
+
+    /** Records the time since {@code startNanos} (a {@link System#nanoTime()} reading). */
+    public void recordSince(Stage stage, long startNanos) {
+        byOrdinal[stage.ordinal()].recordSince(startNanos);
+    }
+
+    public void frameProduced() {
+        produced.incrementAndGet();
+    }
+
+    public void frameDropped() {
+        dropped.incrementAndGet();
+    }
+
+    /** A frame dropped because it could not be shown within the maximum frame age. */
+    public void frameExpired() {
+        expired.incrementAndGet();
+    }
+
+    public void framePresented() {
+        presented.incrementAndGet();
+    }
+
+    /** Incremental processing: tiles recomputed out of the frame's total. */
+    public void recordTiles(long recomputed, long total) {
+        tilesRecomputed.addAndGet(recomputed);
+        tilesTotal.addAndGet(total);
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : byOrdinal) {
+            histogram.reset();
+        }
+        produced.set(0);
+        dropped.set(0);
+        presented.set(0);
+        expired.set(0);
+        tilesRecomputed.set(0);
+        tilesTotal.set(0);
+    }
+
+    public Snapshot snapshot() {
+        Map<Stage, LatencyHistogram.Snapshot> stages = new EnumMap<>(Stage.class);
+        for (Stage stage : STAGES) {
+            stages.put(stage, byOrdinal[stage.ordinal()].snapshot());
+        }
+        return new Snapshot(stages, produced.get(), dropped.get(), expired.get(), presented.get(),
+                tilesRecomputed.get(), tilesTotal.get());
+    }
+
+    /** Writes a text snapshot to {@code file}, replacing its contents. */
+    public void dumpTo(File file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(snapshot().toString());
+        }
+    }
+
+    /** Point-in-time copy of all histograms and counters. */
+    public static final class Snapshot {
+        public final Map<Stage, LatencyHistogram.Snapshot> stages;
+        public final long produced;
+        public final long dropped;
+        public final long expired;
+        public final long presented;
+        public final long tilesRecomputed;
+        public final long tilesTotal;
+
+        Snapshot(Map<Stage, LatencyHistogram.Snapshot> stages, long produced, long dropped, long expired,
+                 long presented, long tilesRecomputed, long tilesTotal) {
+            this.stages = stages;
+            this.produced = produced;
+            this.dropped = dropped;
+            this.expired = expired;
+            this.presented = presented;
+            this.tilesRecomputed = tilesRecomputed;
+            this.tilesTotal = tilesTotal;
+        }
+
+        /** Share of tiles recomputed over all incremental frames, or 1 without incremental frames. */
+        public double recomputedTileFraction() {
+            return tilesTotal == 0 ? 1 : (double) tilesRecomputed / tilesTotal;
+        }
+
+        public LatencyHistogram.Snapshot stage(Stage stage) {
+            return stages.get(stage);
+        }
+
+        /** One line per stage that has samples, after a counter line. */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append("frames produced=").append(produced)
+                    .append(" dropped=").append(dropped)
+                    .append(" expired=").append(expired)
+                    .append(" presented=").append(presented).append('\n');
+            if (tilesTotal > 0) {
+                text.append(String.format(Locale.US, "tiles recomputed=%.1f%%\n", recomputedTileFraction() * 100));
+            }
+            for (Map.Entry<Stage, LatencyHistogram.Snapshot> entry : stages.entrySet()) {
+                if (entry.getValue().count > 0) {
+                    text.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+                }
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.edgeview.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * When each startup phase began and ended, relative to an origin such as the activity's
+ * creation. Phases overlap: the native warm-up runs while the camera binds. Each phase is
+ * recorded once; later calls for a finished phase are ignored, so "first frame" callers need no
+ * bookkeeping of their own. Safe to use from any thread.
+ */
+public final class StartupTimings {
+
+    public enum Phase {
+        /** {@code System.loadLibrary} of native-lib and OpenCV. */
+        LIBRARY_LOAD,
+        /** Synthetic frames through the native session and the Java converters. */
+        WARM_UP,
+        /** Requesting the camera provider up to the use cases being bound. */
+        CAMERA_BIND,
+        /** Origin to the first frame's draw call. */
+        FIRST_FRAME
+    }
+
+    private static final long UNSET = Long.MIN_VALUE;
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long originNanos;
+    private final AtomicLongArray starts = new AtomicLongArray(PHASES.length);
+    private final AtomicLongArray ends = new AtomicLongArray(PHASES.length);
+
+    /** @param originNanos a {@link System#nanoTime()} reading that offsets are measured from */
+    public StartupTimings(long originNanos) {
+        this.originNanos = originNanos;
+        for (int i = 0; i < PHASES.length; i++) {
+            starts.set(i, UNSET);
+            ends.set(i, UNSET);
+        }
+    }
+
+    public void begin(Phase phase) {
+        begin(phase, System.nanoTime());
+    }
+
+    public void begin(Phase phase, long nanos) {
+        starts.compareAndSet(phase.ordinal(), UNSET, nanos);
+    }
+
+    /** Ends the phase; a phase that was never begun counts from the origin. */
+    public void end(Phase phase) {
+        end(phase, System.nanoTime());
+    }
+
+    public void end(Phase phase, long nanos) {
+        if (ends.compareAndSet(phase.ordinal(), UNSET, nanos)) {
+            starts.compareAndSet(phase.ordinal(), UNSET, originNanos);
+        }
+    }
+
+    public boolean isDone(Phase phase) {
+        return ends.get(phase.ordinal()) != UNSET;
+    }
+
+    /** Time the phase took, or -1 while it has not ended. */
+    public long durationNanos(Phase phase) {
+        long end = ends.get(phase.ordinal());
+        return end == UNSET ? -1 : end - starts.get(phase.ordinal());
+    }
+
+    /** Origin to the end of the phase, or -1 while it has not ended. */
+    public long completedAtNanos(Phase phase) {
+        long end = ends.get(phase.ordinal());
+        return end == UNSET ? -1 : end - originNanos;
+    }
+
+    /** E.g. {@code "startup LIBRARY_LOAD=18.2ms@21.0ms WARM_UP=95.7ms@117.3ms CAMERA_BIND=pending ..."}. */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("startup");
+        for (Phase phase : PHASES) {
+            text.append(' ').append(phase).append('=');
+            if (isDone(phase)) {
+                text.append(String.format(Locale.US, "%.1fms@%.1fms",
+                        durationNanos(phase) / 1e6, completedAtNanos(phase) / 1e6));
+            } else {
+                text.append("pending");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.edgeview.pipeline;
+
+/**
+ * What a stage does with an incoming frame when its input queue is full.
+ */
+public enum BackpressurePolicy {
+    /** Evict the oldest queued frame so the newest one always gets through (lowest latency). */
+    DROP_OLDEST,
+    /** Reject the incoming frame and keep what is already queued. */
+    DROP_NEWEST
+}
@@ -0,0 +1,220 @@
+package com.example.edgeview.pipeline;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameView;
+import com.example.edgeview.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fans each published frame out to any number of subscribers without copying it. Every
+ * subscriber gets the frame's read-only {@link FrameView} and holds its own reference, so the
+ * buffer returns to its pool only after the last subscriber is done with it.
+ * <p>
+ * A queued subscriber runs on a thread of its own behind a bounded {@link SpscRing} with its own
+ * {@link BackpressurePolicy}; when it falls behind, only its own frames are dropped and
+ * {@link #publish} never waits for it. An inline subscriber is called on the publishing thread
+ * and suits consumers that only hand the frame on without blocking (a triple buffer, a mailbox).
+ * <p>
+ * {@link #publish} must always be called from the same thread; subscribing and unsubscribing
+ * may happen from any thread.
+ */
+public final class FrameBus {
+
+    /**
+     * Receives frames. The view is valid until {@code onFrame} returns; a subscriber that keeps it
+     * longer calls {@link FrameView#retain()} and later releases it.
+     */
+    public interface Subscriber {
+        void onFrame(FrameView frame) throws Exception;
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /** Adds a subscriber with its own thread and a queue of {@code capacity} frames. */
+    public Subscription subscribe(String name, int capacity, BackpressurePolicy policy, Subscriber subscriber) {
+        Subscription subscription = new Subscription(name, new SpscRing<FrameBuffer>(capacity), policy, subscriber);
+        subscriptions.add(subscription);
+        subscription.thread = new Thread(subscription::loop, "FrameBus-" + name);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /** Adds a subscriber that is called on the publishing thread. */
+    public Subscription subscribeInline(String name, Subscriber subscriber) {
+        Subscription subscription = new Subscription(name, null, null, subscriber);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Offers the frame to every subscriber, each taking its own reference. The caller keeps its
+     * reference and releases it as usual. Single publisher only.
+     */
+    public void publish(FrameBuffer frame) {
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(frame);
+        }
+    }
+
+    /** Stops the subscriber, waits for its thread and releases the frames still queued for it. */
+    public void unsubscribe(Subscription subscription) {
+        if (!subscriptions.remove(subscription)) {
+            return;
+        }
+        subscription.closed = true;
+        if (subscription.thread != null) {
+            subscription.thread.interrupt();
+            try {
+                subscription.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            subscription.drain();
+        }
+    }
+
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            unsubscribe(subscription);
+        }
+    }
+
+    public List<SubscriberStats> stats() {
+        List<SubscriberStats> result = new ArrayList<>();
+        for (Subscription subscription : subscriptions) {
+            result.add(subscription.stats());
+        }
+        return result;
+    }
+
+    /** Point-in-time counters of one subscriber. */
+    public static final class SubscriberStats {
+        public final String name;
+        public final long delivered;
+        public final long dropped;
+        public final long failed;
+        /** Frames waiting for the subscriber: how far it is behind the publisher. */
+        public final int queued;
+        /** Capture-to-delivery age of the frames it received. */
+        public final LatencyHistogram.Snapshot lag;
+
+        SubscriberStats(String name, long delivered, long dropped, long failed, int queued,
+                        LatencyHistogram.Snapshot lag) {
+            this.name = name;
+            this.delivered = delivered;
+            this.dropped = dropped;
+            this.failed = failed;
+            this.queued = queued;
+            this.lag = lag;
+        }
+
+        @Override
+        public String toString() {
+            return name + "{delivered=" + delivered + ", dropped=" + dropped + ", failed=" + failed
+                    + ", queued=" + queued + ", lag " + lag + "}";
+        }
+    }
+
+    /** Handle of one subscriber, for {@link #unsubscribe} and its stats. */
+    public static final class Subscription {
+        final String name;
+        final SpscRing<FrameBuffer> queue; // null for inline subscribers
+        final BackpressurePolicy policy;
+        final Subscriber subscriber;
+        Thread thread;
+        volatile boolean closed;
+
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final LatencyHistogram lag = new LatencyHistogram();
+
+        Subscription(String name, SpscRing<FrameBuffer> queue, BackpressurePolicy policy, Subscriber subscriber) {
+            this.name = name;
+            this.queue = queue;
+            this.policy = policy;
+            this.subscriber = subscriber;
+        }
+
+        public SubscriberStats stats() {
+            return new SubscriberStats(name, delivered.get(), dropped.get(), failed.get(),
+                    queue != null ? queue.size() : 0, lag.snapshot());
+        }
+
+        // Publisher thread.
+        void offer(FrameBuffer frame) {
+            if (queue == null) {
+                deliver(frame);
+                return;
+            }
+            frame.retain();
+            if (!queue.offer(frame)) {
+                if (policy == BackpressurePolicy.DROP_NEWEST) {
+                    drop(frame);
+                    return;
+                }
+                FrameBuffer oldest = queue.poll();
+                if (oldest != null) {
+                    drop(oldest);
+                }
+                if (!queue.offer(frame)) {
+                    drop(frame);
+                    return;
+                }
+            }
+            LockSupport.unpark(thread);
+            if (closed) {
+                // Unsubscribed while offering: the subscriber's drain may already have run.
+                drain();
+            }
+        }
+
+        void loop() {
+            while (!closed) {
+                FrameBuffer frame = queue.poll();
+                if (frame == null) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                try {
+                    deliver(frame);
+                } finally {
+                    frame.release();
+                }
+            }
+        }
+
+        private void deliver(FrameBuffer frame) {
+            long timestamp = frame.timestampNanos();
+            if (timestamp > 0) {
+                lag.recordSince(timestamp);
+            }
+            try {
+                subscriber.onFrame(frame.view());
+                delivered.incrementAndGet();
+            } catch (Throwable t) {
+                failed.incrementAndGet();
+            }
+        }
+
+        private void drop(FrameBuffer frame) {
+            dropped.incrementAndGet();
+            frame.release();
+        }
+
+        void drain() {
+            FrameBuffer frame;
+            while ((frame = queue.poll()) != null) {
+                frame.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.example.edgeview.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A chain of stages, each running on its own thread and fed by a bounded {@link SpscRing}.
+ * While stage N works on frame k, stage N-1 can already work on frame k+1.
+ * <p>
+ * Frames enter through {@link #submit(Object)}, which must always be called from the same
+ * thread (for the camera that is the analyzer thread, where conversion happens). Every frame
+ * that is evicted or rejected by a full queue, or left behind on {@link #stop()}, is passed
+ * to the drop handler so pooled buffers can be released.
+ * <p>
+ * With a {@link Builder#deadline deadline}, every stage checks a frame's capture time before
+ * working on it and expires the frame if it is already too old, or would be by the time the
+ * remaining stages are done with it (going by their recent processing times). Late frames are thus
+ * dropped before the expensive stages rather than after them, and the newer frame queued behind
+ * gets the stage instead. If the stages together take longer than the maximum age, no frame could
+ * meet it and nothing is expired, so a slow device shows late frames rather than none. Nor is
+ * anything expired once {@value #MAX_EXPIRED_IN_A_ROW} frames have expired in a row, until a frame
+ * gets through the last stage: processing times are only measured on frames that are processed,
+ * so a stale estimate could otherwise expire every frame for good.
+ */
+public final class FramePipeline<T> {
+
+    /**
+     * One step of the pipeline. Returns the frame to pass on to the next stage, or null when the
+     * frame has been consumed (for the last stage, or when the stage decided to drop it). A stage
+     * that returns a different object is responsible for releasing its input. If it throws, the
+     * input is handed to the drop handler, so it must not have been released yet.
+     */
+    public interface Stage<T> {
+        T process(T frame) throws Exception;
+    }
+
+    /** Receives frames the pipeline gives up on. */
+    public interface DropHandler<T> {
+        void onDrop(T frame);
+    }
+
+    /** Capture time of a frame on the {@link System#nanoTime()} clock, or 0 or less if unknown. */
+    public interface CaptureClock<T> {
+        long captureNanos(T frame);
+    }
+
+    /** The {@link System#nanoTime()} clock, which tests replace to control frame ages and costs. */
+    interface Ticker {
+        long nanoTime();
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // Weight of a new sample in a stage's processing time estimate, as a shift: 1/8.
+    private static final int COST_SMOOTHING_SHIFT = 3;
+    static final int MAX_EXPIRED_IN_A_ROW = 4;
+
+    private final List<StageRunner> stages;
+    private final DropHandler<T> dropHandler;
+    private final DropHandler<T> expiryHandler;
+    private final long maxAgeNanos;
+    private final CaptureClock<T> clock;
+    private final Ticker ticker;
+    // Frames expired since a frame last got through the last stage.
+    private final AtomicInteger expiredInARow = new AtomicInteger();
+    private volatile boolean running;
+
+    private FramePipeline(Builder<T> builder) {
+        this.dropHandler = builder.dropHandler;
+        this.expiryHandler = builder.expiryHandler != null ? builder.expiryHandler : builder.dropHandler;
+        this.maxAgeNanos = builder.maxAgeNanos;
+        this.clock = builder.clock;
+        this.ticker = builder.ticker;
+        List<StageRunner> runners = new ArrayList<>(builder.stages.size());
+        for (int i = 0; i < builder.stages.size(); i++) {
+            StageRunner runner = new StageRunner(builder.names.get(i), builder.capacities.get(i),
+                    builder.policies.get(i), builder.stages.get(i));
+            if (i > 0) {
+                runners.get(i - 1).next = runner;
+            }
+            runners.add(runner);
+        }
+        this.stages = Collections.unmodifiableList(runners);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (StageRunner stage : stages) {
+            stage.start();
+        }
+    }
+
+    /** Stops all stage threads, waits for them to exit and drops any frames still queued. */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (StageRunner stage : stages) {
+            stage.thread.interrupt();
+        }
+        for (StageRunner stage : stages) {
+            try {
+                stage.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stage.drain();
+        }
+    }
+
+    /**
+     * Offers a frame to the first stage, applying that stage's backpressure policy.
+     * Returns false when the frame itself was dropped (it has already been handed to the drop
+     * handler). Single producer only.
+     */
+    public boolean submit(T frame) {
+        if (!running) {
+            dropHandler.onDrop(frame);
+            return false;
+        }
+        return stages.get(0).enqueue(frame);
+    }
+
+    /**
+     * For a source about to submit a frame captured at {@code captureNanos}: whether to expire it
+     * now, before the work of producing it, by the rules the stages apply. A true result counts
+     * towards {@value #MAX_EXPIRED_IN_A_ROW} expiries in a row; the caller drops the frame.
+     */
+    public boolean expireEarly(long captureNanos) {
+        if (!isLate(captureNanos, stages.get(0))) {
+            return false;
+        }
+        expiredInARow.incrementAndGet();
+        return true;
+    }
+
+    /** Sum of the stages' recent processing times; stages that have not run yet count as 0. */
+    public long estimatedLatencyNanos() {
+        long total = 0;
+        for (StageRunner stage : stages) {
+            total += stage.costNanos;
+        }
+        return total;
+    }
+
+    // Too old already, or will be after the stages from first on at their recent pace. Never when
+    // no frame could meet the deadline, or after too many expiries in a row.
+    private boolean isLate(long captureNanos, StageRunner first) {
+        if (maxAgeNanos <= 0 || captureNanos <= 0 || expiredInARow.get() >= MAX_EXPIRED_IN_A_ROW
+                || estimatedLatencyNanos() > maxAgeNanos) {
+            return false;
+        }
+        long remaining = 0;
+        for (StageRunner stage = first; stage != null; stage = stage.next) {
+            remaining += stage.costNanos;
+        }
+        return ticker.nanoTime() - captureNanos + remaining > maxAgeNanos;
+    }
+
+    public List<StageStats> stats() {
+        List<StageStats> result = new ArrayList<>(stages.size());
+        for (StageRunner stage : stages) {
+            result.add(stage.stats());
+        }
+        return result;
+    }
+
+    /** Point-in-time counters of one stage. */
+    public static final class StageStats {
+        public final String name;
+        public final long processed;
+        public final long dropped;
+        public final long failed;
+        /** Frames this stage expired because they could not meet the deadline. */
+        public final long expired;
+        public final int queued;
+        /** Recent processing time per frame. */
+        public final long costNanos;
+
+        StageStats(String name, long processed, long dropped, long failed, long expired, int queued,
+                   long costNanos) {
+            this.name = name;
+            this.processed = processed;
+            this.dropped = dropped;
+            this.failed = failed;
+            this.expired = expired;
+            this.queued = queued;
+            this.costNanos = costNanos;
+        }
+
+        @Override
+        public String toString() {
+            return name + "{processed=" + processed + ", dropped=" + dropped
+                    + ", failed=" + failed + ", expired=" + expired + ", queued=" + queued
+                    + ", cost=" + costNanos / 1000 + "us}";
+        }
+    }
+
+    private final class StageRunner {
+        final String name;
+        final SpscRing<T> input;
+        final BackpressurePolicy policy;
+        final Stage<T> stage;
+        Thread thread;
+        StageRunner next;
+
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong expired = new AtomicLong();
+        // Smoothed processing time; written by this stage's thread only, read by any.
+        volatile long costNanos;
+
+        StageRunner(String name, int capacity, BackpressurePolicy policy, Stage<T> stage) {
+            this.name = name;
+            this.input = new SpscRing<>(capacity);
+            this.policy = policy;
+            this.stage = stage;
+        }
+
+        void start() {
+            thread = new Thread(this::loop, "FramePipeline-" + name);
+            thread.start();
+        }
+
+        // Called by the single producer of this stage: the submitter or the previous stage.
+        boolean enqueue(T frame) {
+            if (input.offer(frame)) {
+                LockSupport.unpark(thread);
+                return true;
+            }
+            if (policy == BackpressurePolicy.DROP_NEWEST) {
+                drop(frame);
+                return false;
+            }
+            T oldest = input.poll();
+            if (oldest != null) {
+                drop(oldest);
+            }
+            if (!input.offer(frame)) {
+                drop(frame);
+                return false;
+            }
+            LockSupport.unpark(thread);
+            return true;
+        }
+
+        void loop() {
+            while (running) {
+                T frame = input.poll();
+                if (frame == null) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    continue;
+                }
+                if (maxAgeNanos > 0 && isLate(clock.captureNanos(frame), this)) {
+                    expiredInARow.incrementAndGet();
+                    expired.incrementAndGet();
+                    expiryHandler.onDrop(frame);
+                    continue;
+                }
+                long start = ticker.nanoTime();
+                T output;
+                try {
+                    output = stage.process(frame);
+                } catch (Throwable t) {
+                    failed.incrementAndGet();
+                    dropHandler.onDrop(frame);
+                    continue;
+                } finally {
+                    updateCost(ticker.nanoTime() - start);
+                }
+                if (next == null) {
+                    expiredInARow.set(0);
+                }
+                processed.incrementAndGet();
+                if (output != null) {
+                    if (next != null) {
+                        next.enqueue(output);
+                    } else {
+                        dropHandler.onDrop(output);
+                    }
+                }
+            }
+        }
+
+        void updateCost(long nanos) {
+            long cost = costNanos;
+            costNanos = cost == 0 ? nanos : cost + ((nanos - cost) >> COST_SMOOTHING_SHIFT);
+        }
+
+        void drop(T frame) {
+            dropped.incrementAndGet();
+            dropHandler.onDrop(frame);
+        }
+
+        void drain() {
+            T frame;
+            while ((frame = input.poll()) != null) {
+                dropHandler.onDrop(frame);
+            }
+        }
+
+        StageStats stats() {
+            return new StageStats(name, processed.get(), dropped.get(), failed.get(), expired.get(), input.size(),
+                    costNanos);
+        }
+    }
+
+    public static final class Builder<T> {
+        private final List<String> names = new ArrayList<>();
+        private final List<Integer> capacities = new ArrayList<>();
+        private final List<BackpressurePolicy> policies = new ArrayList<>();
+        private final List<Stage<T>> stages = new ArrayList<>();
+        private DropHandler<T> dropHandler = frame -> { };
+        private DropHandler<T> expiryHandler;
+        private long maxAgeNanos;
+        private CaptureClock<T> clock;
+        private Ticker ticker = System::nanoTime;
+
+        /** Adds a stage with its own thread and an input queue of {@code capacity} frames. */
+        public Builder<T> addStage(String name, int capacity, BackpressurePolicy policy, Stage<T> stage) {
+            names.add(name);
+            capacities.add(capacity);
+            policies.add(policy);
+            stages.add(stage);
+            return this;
+        }
+
+        public Builder<T> onDrop(DropHandler<T> dropHandler) {
+            this.dropHandler = dropHandler;
+            return this;
+        }
+
+        /**
+         * Expires frames older than {@code maxAgeNanos} (measured from {@code clock}) instead of
+         * processing them; 0 disables the deadline. Frames without a capture time never expire.
+         */
+        public Builder<T> deadline(long maxAgeNanos, CaptureClock<T> clock) {
+            if (maxAgeNanos < 0) {
+                throw new IllegalArgumentException("maxAgeNanos must not be negative: " + maxAgeNanos);
+            }
+            this.maxAgeNanos = maxAgeNanos;
+            this.clock = clock;
+            return this;
+        }
+
+        /** Receives expired frames; defaults to the drop handler. */
+        public Builder<T> onExpire(DropHandler<T> expiryHandler) {
+            this.expiryHandler = expiryHandler;
+            return this;
+        }
+
+        Builder<T> ticker(Ticker ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        public FramePipeline<T> build() {
+            if (stages.isEmpty()) {
+                throw new IllegalStateException("A pipeline needs at least one stage");
+            }
+            return new FramePipeline<>(this);
+        }
+    }
+}
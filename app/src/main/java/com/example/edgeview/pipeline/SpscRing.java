@@ -0,0 +1,75 @@
+package com.example.edgeview.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free single-producer/single-consumer ring buffer.
+ * Only one thread may call {@link #offer(Object)}. {@link #poll()} is normally called by the
+ * consumer, but the producer may also poll to evict the oldest element (drop-oldest
+ * backpressure): the read index is advanced with a CAS, so the two never hand out the same slot.
+ * Slots are not cleared on poll; a slot keeps its last element until it is overwritten.
+ */
+public final class SpscRing<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next index to read
+    private final AtomicLong tail = new AtomicLong(); // next index to write
+
+    public SpscRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.slots = new AtomicReferenceArray<>(size);
+        this.capacity = capacity;
+        this.mask = size - 1;
+    }
+
+    /** Producer only. Returns false without blocking when the ring is full. */
+    public boolean offer(T item) {
+        if (item == null) {
+            throw new NullPointerException("item");
+        }
+        long t = tail.get();
+        if (t - head.get() >= capacity) {
+            return false;
+        }
+        slots.lazySet((int) t & mask, item);
+        // Release store: the slot write above is visible before the new tail.
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /** Returns the oldest element, or null when the ring is empty. Never blocks. */
+    public T poll() {
+        while (true) {
+            long h = head.get();
+            if (h >= tail.get()) {
+                return null;
+            }
+            T item = slots.get((int) h & mask);
+            if (head.compareAndSet(h, h + 1)) {
+                return item;
+            }
+        }
+    }
+
+    public int size() {
+        long h = head.get();
+        long t = tail.get();
+        return (int) Math.max(0, t - h);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
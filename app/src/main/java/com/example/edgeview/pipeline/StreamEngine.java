@@ -0,0 +1,369 @@
+package com.example.edgeview.pipeline;
+
+import com.example.edgeview.metrics.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs any number of independent frame streams (cameras, replays, batch inputs) on one shared
+ * work-stealing pool, instead of a thread per stage per stream as {@link FramePipeline} does, so
+ * adding streams does not oversubscribe the cores.
+ * <p>
+ * Each stream is a chain of {@link FramePipeline.Stage stages} with bounded queues and
+ * backpressure policies, like a {@code FramePipeline}. A stage never runs on two workers at once,
+ * so every stage sees its stream's frames in order and may keep per-stream state (a native
+ * session, say) without locking; different stages of a stream, and different streams, run in
+ * parallel. A stage with queued frames joins the engine's run queue, and each turn a worker takes
+ * the stage at its head and processes up to the stream's weight in frames; a stage with frames
+ * left goes to the back. Busy streams thus share the workers round-robin in proportion to their
+ * weights (for frames of similar cost; the stats show the pool time each stream actually got).
+ * The run queue is shared rather than per worker because the pool's own queues run a worker's
+ * local tasks first, which would let a busy stream starve the others.
+ * <p>
+ * Frames enter through {@link FrameStream#submit}, which for each stream must always be called
+ * from the same thread. Dropped, failed and finished frames go to the drop handler, as in
+ * {@code FramePipeline}.
+ */
+public final class StreamEngine<T> {
+
+    private final ForkJoinPool pool;
+    private final FramePipeline.DropHandler<T> dropHandler;
+    private final FramePipeline.CaptureClock<T> clock;
+    private final List<FrameStream<T>> streams = new CopyOnWriteArrayList<>();
+    // Stages with frames to process, in turn order. Every entry is paired with one runNext task
+    // in the pool, so a task always finds a stage to run.
+    private final ConcurrentLinkedQueue<StageTask<T>> runQueue = new ConcurrentLinkedQueue<>();
+    private final Runnable runNext = () -> {
+        StageTask<T> stage = runQueue.poll();
+        if (stage != null) {
+            stage.runTurn();
+        }
+    };
+    private volatile boolean running = true;
+
+    /** An engine on one worker per core. */
+    public StreamEngine(FramePipeline.DropHandler<T> dropHandler, FramePipeline.CaptureClock<T> clock) {
+        this(Runtime.getRuntime().availableProcessors(), dropHandler, clock);
+    }
+
+    /**
+     * @param clock capture time of a frame, for the per-stream latency; null to measure none
+     */
+    public StreamEngine(int parallelism, FramePipeline.DropHandler<T> dropHandler,
+                        FramePipeline.CaptureClock<T> clock) {
+        this.pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.dropHandler = dropHandler;
+        this.clock = clock;
+    }
+
+    public StreamBuilder newStream(String name) {
+        return new StreamBuilder(name);
+    }
+
+    /** Stops the stream and hands its queued frames to the drop handler. */
+    public void remove(FrameStream<T> stream) {
+        if (streams.remove(stream)) {
+            stream.close();
+        }
+    }
+
+    /** Stops every stream, waits for frames being processed and drops the queued ones. */
+    public void shutdown() {
+        running = false;
+        pool.shutdown();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (FrameStream<T> stream : streams) {
+            remove(stream);
+        }
+    }
+
+    public int parallelism() {
+        return pool.getParallelism();
+    }
+
+    public List<StreamStats> stats() {
+        List<StreamStats> result = new ArrayList<>();
+        for (FrameStream<T> stream : streams) {
+            result.add(stream.stats());
+        }
+        return result;
+    }
+
+    /** Point-in-time counters of one stream. */
+    public static final class StreamStats {
+        public final String name;
+        public final int weight;
+        public final long submitted;
+        /** Frames the last stage has processed. */
+        public final long completed;
+        public final long dropped;
+        public final long failed;
+        /** Frames waiting in the stream's queues. */
+        public final int queued;
+        /** Pool time spent in the stream's stages. */
+        public final long busyNanos;
+        /** Completed frames per second since the stream was added. */
+        public final double framesPerSecond;
+        /** Capture to the end of the last stage; empty without a capture clock. */
+        public final LatencyHistogram.Snapshot latency;
+
+        StreamStats(String name, int weight, long submitted, long completed, long dropped, long failed,
+                    int queued, long busyNanos, double framesPerSecond, LatencyHistogram.Snapshot latency) {
+            this.name = name;
+            this.weight = weight;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.dropped = dropped;
+            this.failed = failed;
+            this.queued = queued;
+            this.busyNanos = busyNanos;
+            this.framesPerSecond = framesPerSecond;
+            this.latency = latency;
+        }
+
+        @Override
+        public String toString() {
+            return name + "{weight=" + weight + ", submitted=" + submitted + ", completed=" + completed
+                    + ", dropped=" + dropped + ", failed=" + failed + ", queued=" + queued
+                    + ", busyMs=" + busyNanos / 1_000_000 + ", fps=" + Math.round(framesPerSecond)
+                    + ", latency " + latency + "}";
+        }
+    }
+
+    /** One stream of the engine. */
+    public static final class FrameStream<T> {
+        private final StreamEngine<T> engine;
+        private final String name;
+        private final int weight;
+        private final List<StageTask<T>> stages = new ArrayList<>();
+        private final long startNanos = System.nanoTime();
+        private volatile boolean closed;
+
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        FrameStream(StreamEngine<T> engine, String name, int weight) {
+            this.engine = engine;
+            this.name = name;
+            this.weight = weight;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Queues a frame for the first stage; ownership passes to the stream. Returns false if the
+         * frame was rejected (it has then been handed to the drop handler). Single thread per stream.
+         */
+        public boolean submit(T frame) {
+            if (closed || !engine.running) {
+                engine.dropHandler.onDrop(frame);
+                return false;
+            }
+            submitted.incrementAndGet();
+            return stages.get(0).enqueue(frame);
+        }
+
+        public StreamStats stats() {
+            int queued = 0;
+            for (StageTask<T> stage : stages) {
+                queued += stage.input.size();
+            }
+            long completedFrames = completed.get();
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            return new StreamStats(name, weight, submitted.get(), completedFrames, dropped.get(), failed.get(),
+                    queued, busyNanos.get(), seconds > 0 ? completedFrames / seconds : 0, latency.snapshot());
+        }
+
+        void close() {
+            closed = true;
+            for (StageTask<T> stage : stages) {
+                stage.drain();
+            }
+        }
+
+        // The last stage may release the frame, so its capture time is read beforehand.
+        long captureNanos(T frame) {
+            return engine.clock != null ? engine.clock.captureNanos(frame) : 0;
+        }
+
+        void finished(long captureNanos) {
+            completed.incrementAndGet();
+            if (captureNanos > 0) {
+                latency.recordSince(captureNanos);
+            }
+        }
+    }
+
+    // One stage of one stream. In the run queue while it has queued frames; the scheduled flag
+    // keeps it on at most one worker at a time, which is what orders the stream's frames.
+    private static final class StageTask<T> {
+        final FrameStream<T> stream;
+        final SpscRing<T> input;
+        final BackpressurePolicy policy;
+        final FramePipeline.Stage<T> stage;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        StageTask<T> next;
+
+        StageTask(FrameStream<T> stream, int capacity, BackpressurePolicy policy, FramePipeline.Stage<T> stage) {
+            this.stream = stream;
+            this.input = new SpscRing<>(capacity);
+            this.policy = policy;
+            this.stage = stage;
+        }
+
+        // Called by the single producer of this stage: the submitter or the previous stage.
+        boolean enqueue(T frame) {
+            boolean accepted = true;
+            if (!input.offer(frame)) {
+                if (policy == BackpressurePolicy.DROP_NEWEST) {
+                    drop(frame);
+                    return false;
+                }
+                T oldest = input.poll();
+                if (oldest != null) {
+                    drop(oldest);
+                }
+                if (!input.offer(frame)) {
+                    drop(frame);
+                    accepted = false;
+                }
+            }
+            schedule();
+            if (stream.closed) {
+                // Closed while offering: the stream's drain may already have run.
+                drain();
+            }
+            return accepted;
+        }
+
+        void schedule() {
+            StreamEngine<T> engine = stream.engine;
+            if (engine.running && scheduled.compareAndSet(false, true)) {
+                engine.runQueue.offer(this);
+                try {
+                    engine.pool.execute(engine.runNext);
+                } catch (RuntimeException e) {
+                    // Pool already shut down; shutdown() drops what is queued.
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        void runTurn() {
+            long start = System.nanoTime();
+            try {
+                for (int i = 0; i < stream.weight && !stream.closed && stream.engine.running; i++) {
+                    T frame = input.poll();
+                    if (frame == null) {
+                        break;
+                    }
+                    process(frame);
+                }
+            } finally {
+                stream.busyNanos.addAndGet(System.nanoTime() - start);
+                scheduled.set(false);
+            }
+            // A frame offered while the flag was still set would otherwise wait for the next one.
+            if (input.size() > 0 && !stream.closed) {
+                schedule();
+            }
+        }
+
+        private void process(T frame) {
+            long capture = next == null ? stream.captureNanos(frame) : 0;
+            T output;
+            try {
+                output = stage.process(frame);
+            } catch (Throwable t) {
+                stream.failed.incrementAndGet();
+                stream.engine.dropHandler.onDrop(frame);
+                return;
+            }
+            if (next == null) {
+                stream.finished(capture);
+                if (output != null) {
+                    stream.engine.dropHandler.onDrop(output);
+                }
+            } else if (output != null) {
+                next.enqueue(output);
+            }
+        }
+
+        void drop(T frame) {
+            stream.dropped.incrementAndGet();
+            stream.engine.dropHandler.onDrop(frame);
+        }
+
+        void drain() {
+            T frame;
+            while ((frame = input.poll()) != null) {
+                stream.engine.dropHandler.onDrop(frame);
+            }
+        }
+    }
+
+    public final class StreamBuilder {
+        private final String name;
+        private int weight = 1;
+        private final List<Integer> capacities = new ArrayList<>();
+        private final List<BackpressurePolicy> policies = new ArrayList<>();
+        private final List<FramePipeline.Stage<T>> stages = new ArrayList<>();
+
+        StreamBuilder(String name) {
+            this.name = name;
+        }
+
+        /** Relative share of the pool when streams compete for it; 1 by default. */
+        public StreamBuilder weight(int weight) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Weight must be at least 1: " + weight);
+            }
+            this.weight = weight;
+            return this;
+        }
+
+        /** Adds a stage with an input queue of {@code capacity} frames. */
+        public StreamBuilder addStage(int capacity, BackpressurePolicy policy, FramePipeline.Stage<T> stage) {
+            capacities.add(capacity);
+            policies.add(policy);
+            stages.add(stage);
+            return this;
+        }
+
+        /** Adds the stream to the engine; frames can be submitted from now on. */
+        public FrameStream<T> build() {
+            if (stages.isEmpty()) {
+                throw new IllegalStateException("Stream " + name + " has no stages");
+            }
+            FrameStream<T> stream = new FrameStream<>(StreamEngine.this, name, weight);
+            StageTask<T> previous = null;
+            for (int i = 0; i < stages.size(); i++) {
+                StageTask<T> task = new StageTask<>(stream, capacities.get(i), policies.get(i), stages.get(i));
+                if (previous != null) {
+                    previous.next = task;
+                }
+                stream.stages.add(task);
+                previous = task;
+            }
+            streams.add(stream);
+            return stream;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.edgeview.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free triple-buffer exchanger between one producer and one consumer (the renderer).
+ * <p>
+ * The three slots are owned by the producer (back), the consumer (front) and neither (middle).
+ * {@link #publish(Object)} puts a finished frame into the back slot and swaps it with the
+ * middle; {@link #acquireLatest()} swaps the middle into the front when it holds something new.
+ * Both swaps are a single atomic exchange, so a frame and everything written to it before
+ * {@code publish} (its size and format) become visible to the consumer together. Neither side
+ * blocks or allocates.
+ * <p>
+ * Frames that come back to the producer after a swap are handed to the {@link Recycler}: either
+ * frames the consumer has moved past, or frames that were replaced before anyone presented them
+ * (counted as skipped). The consumer's current frame stays valid until its next swap.
+ */
+public final class TripleBuffer<T> {
+
+    /** Takes back frames the exchanger no longer needs, e.g. to release pooled buffers. */
+    public interface Recycler<T> {
+        void recycle(T frame);
+    }
+
+    private static final int INDEX_MASK = 0x3;
+    private static final int DIRTY = 0x4;
+
+    private final Object[] slots = new Object[3];
+    private final Recycler<T> recycler;
+    // Index of the middle slot, plus DIRTY when it holds a frame the consumer has not seen.
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0;  // producer only
+    private int front = 2; // consumer only
+
+    private final AtomicLong produced = new AtomicLong();
+    private final AtomicLong presented = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+
+    public TripleBuffer(Recycler<T> recycler) {
+        this.recycler = recycler;
+    }
+
+    /** Producer only. Publishes a complete frame; ownership passes to the exchanger. */
+    public void publish(T frame) {
+        slots[back] = frame;
+        int previous = middle.getAndSet(back | DIRTY);
+        back = previous & INDEX_MASK;
+        produced.incrementAndGet();
+
+        @SuppressWarnings("unchecked")
+        T stale = (T) slots[back];
+        slots[back] = null;
+        if (stale != null) {
+            if ((previous & DIRTY) != 0) {
+                skipped.incrementAndGet();
+            }
+            recycler.recycle(stale);
+        }
+    }
+
+    /**
+     * Consumer only. Returns the newest published frame if one arrived since the last call, or
+     * null if nothing new is available. The returned frame stays valid until the next call
+     * that returns non-null.
+     */
+    @SuppressWarnings("unchecked")
+    public T acquireLatest() {
+        if ((middle.get() & DIRTY) == 0) {
+            return null;
+        }
+        int previous = middle.getAndSet(front);
+        front = previous & INDEX_MASK;
+        presented.incrementAndGet();
+        return (T) slots[front];
+    }
+
+    public long getProduced() {
+        return produced.get();
+    }
+
+    public long getPresented() {
+        return presented.get();
+    }
+
+    /** Frames that were replaced by a newer one before the consumer picked them up. */
+    public long getSkipped() {
+        return skipped.get();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.edgeview.processing;
+
+/**
+ * Edge detection parameters, fixed for the lifetime of a processing session.
+ * Defaults match the thresholds the native pipeline has always used (Canny 50/150, no blur).
+ */
+public final class EdgeConfig {
+    public static final EdgeConfig DEFAULT = new EdgeConfig(50, 150, 0);
+
+    private final double lowThreshold;
+    private final double highThreshold;
+    private final int blurKernelSize;
+
+    /**
+     * @param blurKernelSize size of the Gaussian pre-blur; 0 or 1 disables it, otherwise it must be odd
+     */
+    public EdgeConfig(double lowThreshold, double highThreshold, int blurKernelSize) {
+        if (lowThreshold < 0 || highThreshold < lowThreshold) {
+            throw new IllegalArgumentException("Invalid thresholds: " + lowThreshold + "/" + highThreshold);
+        }
+        if (blurKernelSize < 0 || (blurKernelSize > 1 && blurKernelSize % 2 == 0)) {
+            throw new IllegalArgumentException("Blur kernel size must be 0, 1 or odd: " + blurKernelSize);
+        }
+        this.lowThreshold = lowThreshold;
+        this.highThreshold = highThreshold;
+        this.blurKernelSize = blurKernelSize;
+    }
+
+    public double lowThreshold() {
+        return lowThreshold;
+    }
+
+    public double highThreshold() {
+        return highThreshold;
+    }
+
+    public int blurKernelSize() {
+        return blurKernelSize;
+    }
+
+    @Override
+    public String toString() {
+        return "EdgeConfig{low=" + lowThreshold + ", high=" + highThreshold + ", blur=" + blurKernelSize + "}";
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.edgeview.processing;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Edges of one frame as line segments, the compact alternative to an edge bitmap: a few thousand
+ * floats instead of width * height bytes. Coordinates are in frame pixels, four per segment
+ * ({@code x0, y0, x1, y1}), with the origin at the top left.
+ * <p>
+ * Containers are meant to be reused: the backing array only grows, so once it has reached the
+ * scene's usual segment count, filling it again allocates nothing. Not thread-safe; hand a
+ * container between threads through a safe publication point such as a {@code TripleBuffer}.
+ */
+public final class EdgeSegments {
+    public static final int FLOATS_PER_SEGMENT = 4;
+
+    private float[] coords;
+    private int count;
+    private int width;
+    private int height;
+    private long timestampNanos;
+
+    public EdgeSegments() {
+        this(256);
+    }
+
+    public EdgeSegments(int initialSegments) {
+        coords = new float[Math.max(1, initialSegments) * FLOATS_PER_SEGMENT];
+    }
+
+    /** Empties the container and sets the frame the segments will belong to. */
+    public void reset(int width, int height, long timestampNanos) {
+        this.width = width;
+        this.height = height;
+        this.timestampNanos = timestampNanos;
+        count = 0;
+    }
+
+    public void add(float x0, float y0, float x1, float y1) {
+        ensureCapacity(count + 1);
+        int offset = count * FLOATS_PER_SEGMENT;
+        coords[offset] = x0;
+        coords[offset + 1] = y0;
+        coords[offset + 2] = x1;
+        coords[offset + 3] = y1;
+        count++;
+    }
+
+    /**
+     * Makes room for {@code segments} segments, keeping the current ones, and returns the backing
+     * array for bulk writers such as native code; they report what they wrote with
+     * {@link #setCount}.
+     */
+    public float[] ensureCapacity(int segments) {
+        if (segments * FLOATS_PER_SEGMENT > coords.length) {
+            float[] grown = new float[Math.max(segments, coords.length / FLOATS_PER_SEGMENT * 2) * FLOATS_PER_SEGMENT];
+            System.arraycopy(coords, 0, grown, 0, count * FLOATS_PER_SEGMENT);
+            coords = grown;
+        }
+        return coords;
+    }
+
+    public void setCount(int count) {
+        if (count < 0 || count * FLOATS_PER_SEGMENT > coords.length) {
+            throw new IllegalArgumentException("Invalid segment count: " + count);
+        }
+        this.count = count;
+    }
+
+    /** Backing array; the first {@code count() * FLOATS_PER_SEGMENT} floats are valid. */
+    public float[] coords() {
+        return coords;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /** Segments that fit in the backing array without growing it. */
+    public int capacity() {
+        return coords.length / FLOATS_PER_SEGMENT;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    /** Sum of the segment lengths in pixels. */
+    public double totalLength() {
+        double total = 0;
+        for (int i = 0; i < count * FLOATS_PER_SEGMENT; i += FLOATS_PER_SEGMENT) {
+            total += Math.hypot(coords[i + 2] - coords[i], coords[i + 3] - coords[i + 1]);
+        }
+        return total;
+    }
+
+    /**
+     * Writes the segments as {@code GL_LINES} vertices in clip space (x and y in -1..1, y up),
+     * two vertices of two floats per segment, from {@code out}'s position on, and returns the
+     * number of vertices written. {@code out} needs {@code count() * 4} floats remaining.
+     */
+    public int writeClipSpace(FloatBuffer out) {
+        if (width <= 0 || height <= 0) {
+            return 0;
+        }
+        float scaleX = 2f / width;
+        float scaleY = 2f / height;
+        for (int i = 0; i < count * FLOATS_PER_SEGMENT; i += 2) {
+            out.put(coords[i] * scaleX - 1f);
+            out.put(1f - coords[i + 1] * scaleY);
+        }
+        return count * 2;
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.edgeview.processing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Description of a chain of grayscale filters, compiled once into a native filter graph (see
+ * {@code NativeLib.compileGraph}) that runs every node in one call. The input is converted to
+ * luma first; each node reads the previous node's output, and the last one's output is the
+ * processed frame. An empty processor means no processing at all: frames are shown as captured.
+ * <p>
+ * Processors can be written as text, one {@code op:param:param} per node separated by commas,
+ * e.g. {@code "blur:5,canny:40:120,dilate:3"}; see {@link #parse(String)}.
+ */
+public final class FrameProcessor {
+    /** Upper bound on nodes per processor (mirrors kMaxNodes); also the size of the node timings. */
+    public static final int MAX_NODES = 16;
+
+    /** No processing: frames pass through unchanged. */
+    public static final FrameProcessor RAW = new Builder().build();
+    /** The edge map the app has always shown: Canny 50/150 without blur. */
+    public static final FrameProcessor EDGES = new Builder().canny(50, 150).build();
+
+    /** Node operations; codes are shared with the native graph. */
+    public enum Op {
+        /** Gaussian blur; first = odd kernel size, second = sigma (0 derives it from the size). */
+        BLUR(0, "blur"),
+        /** Binary threshold to 0/255; first = threshold, second = 1 to invert. */
+        THRESHOLD(1, "threshold"),
+        /** Canny edges; first = low threshold, second = high threshold. */
+        CANNY(2, "canny"),
+        /** Dilation with a square kernel; first = kernel size, second = iterations. */
+        DILATE(3, "dilate"),
+        /** Erosion with a square kernel; first = kernel size, second = iterations. */
+        ERODE(4, "erode"),
+        /** Sobel gradient magnitude, |dx| + |dy| saturated to 8 bits; first = kernel size, second = scale. */
+        SOBEL(5, "sobel");
+
+        final int code;
+        final String label;
+
+        Op(int code, String label) {
+            this.code = code;
+            this.label = label;
+        }
+
+        public int code() {
+            return code;
+        }
+    }
+
+    /** One filter with its two parameters. */
+    public static final class Node {
+        private final Op op;
+        private final double first;
+        private final double second;
+
+        Node(Op op, double first, double second) {
+            this.op = op;
+            this.first = first;
+            this.second = second;
+        }
+
+        public Op op() {
+            return op;
+        }
+
+        public double first() {
+            return first;
+        }
+
+        public double second() {
+            return second;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Node)) {
+                return false;
+            }
+            Node node = (Node) other;
+            return op == node.op && first == node.first && second == node.second;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(new double[] {op.code, first, second});
+        }
+
+        /** The node in {@link #parse} syntax. */
+        @Override
+        public String toString() {
+            return op.label + ":" + format(first) + ":" + format(second);
+        }
+    }
+
+    private final List<Node> nodes;
+
+    private FrameProcessor(List<Node> nodes) {
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+    }
+
+    public List<Node> nodes() {
+        return nodes;
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    /**
+     * The equivalent session config when this processor is an optional blur followed by Canny,
+     * which the native session runs with its downscaling, strip and incremental modes; null
+     * for any other chain.
+     */
+    public EdgeConfig edgeConfig() {
+        if (nodes.size() == 1 && nodes.get(0).op == Op.CANNY) {
+            return new EdgeConfig(nodes.get(0).first, nodes.get(0).second, 0);
+        }
+        if (nodes.size() == 2 && nodes.get(0).op == Op.BLUR && nodes.get(0).second == 0
+                && nodes.get(1).op == Op.CANNY) {
+            return new EdgeConfig(nodes.get(1).first, nodes.get(1).second, (int) nodes.get(0).first);
+        }
+        return null;
+    }
+
+    /** Operation codes, one per node, in the layout the native compiler takes. */
+    public int[] opCodes() {
+        int[] codes = new int[nodes.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = nodes.get(i).op.code;
+        }
+        return codes;
+    }
+
+    /** Parameters, two per node, in the layout the native compiler takes. */
+    public double[] params() {
+        double[] params = new double[nodes.size() * 2];
+        for (int i = 0; i < nodes.size(); i++) {
+            params[2 * i] = nodes.get(i).first;
+            params[2 * i + 1] = nodes.get(i).second;
+        }
+        return params;
+    }
+
+    /**
+     * Parses the text form, e.g. {@code "blur:5,canny:40:120,dilate:3"}. Omitted parameters take
+     * the builder defaults; an empty string is {@link #RAW}.
+     *
+     * @throws IllegalArgumentException for unknown operations or invalid parameters
+     */
+    public static FrameProcessor parse(String spec) {
+        Builder builder = new Builder();
+        for (String part : spec.split(",")) {
+            String trimmed = part.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String[] fields = trimmed.split(":");
+            if (fields.length > 3) {
+                throw new IllegalArgumentException("Too many parameters: " + trimmed);
+            }
+            Op op = null;
+            for (Op candidate : Op.values()) {
+                if (candidate.label.equals(fields[0].trim().toLowerCase(Locale.US))) {
+                    op = candidate;
+                }
+            }
+            if (op == null) {
+                throw new IllegalArgumentException("Unknown filter: " + fields[0]);
+            }
+            double first = fields.length > 1 ? parseParam(fields[1], trimmed) : Double.NaN;
+            double second = fields.length > 2 ? parseParam(fields[2], trimmed) : Double.NaN;
+            builder.add(op, first, second);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FrameProcessor && nodes.equals(((FrameProcessor) other).nodes);
+    }
+
+    @Override
+    public int hashCode() {
+        return nodes.hashCode();
+    }
+
+    /** The processor in {@link #parse} syntax. */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Node node : nodes) {
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(node);
+        }
+        return text.toString();
+    }
+
+    private static double parseParam(String field, String node) {
+        try {
+            return Double.parseDouble(field.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid parameter in " + node);
+        }
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    public static final class Builder {
+        private final List<Node> nodes = new ArrayList<>();
+
+        /** Gaussian blur with an odd kernel size; sigma 0 derives it from the size. */
+        public Builder blur(int kernelSize, double sigma) {
+            if (kernelSize < 3 || kernelSize % 2 == 0 || sigma < 0) {
+                throw new IllegalArgumentException("Blur needs an odd kernel size >= 3 and sigma >= 0");
+            }
+            return add(new Node(Op.BLUR, kernelSize, sigma));
+        }
+
+        public Builder blur(int kernelSize) {
+            return blur(kernelSize, 0);
+        }
+
+        /** Pixels above {@code value} become 255 and the rest 0, or the other way round if inverted. */
+        public Builder threshold(double value, boolean inverted) {
+            if (value < 0 || value > 255) {
+                throw new IllegalArgumentException("Threshold must be within 0..255: " + value);
+            }
+            return add(new Node(Op.THRESHOLD, value, inverted ? 1 : 0));
+        }
+
+        public Builder canny(double lowThreshold, double highThreshold) {
+            if (lowThreshold < 0 || highThreshold < lowThreshold) {
+                throw new IllegalArgumentException("Invalid thresholds: " + lowThreshold + "/" + highThreshold);
+            }
+            return add(new Node(Op.CANNY, lowThreshold, highThreshold));
+        }
+
+        public Builder dilate(int kernelSize, int iterations) {
+            return add(morphology(Op.DILATE, kernelSize, iterations));
+        }
+
+        public Builder dilate(int kernelSize) {
+            return dilate(kernelSize, 1);
+        }
+
+        public Builder erode(int kernelSize, int iterations) {
+            return add(morphology(Op.ERODE, kernelSize, iterations));
+        }
+
+        public Builder erode(int kernelSize) {
+            return erode(kernelSize, 1);
+        }
+
+        /** Gradient magnitude with a 1, 3, 5 or 7 wide Sobel kernel, multiplied by {@code scale}. */
+        public Builder sobel(int kernelSize, double scale) {
+            if (kernelSize != 1 && kernelSize != 3 && kernelSize != 5 && kernelSize != 7) {
+                throw new IllegalArgumentException("Sobel kernel size must be 1, 3, 5 or 7: " + kernelSize);
+            }
+            if (!(scale > 0)) {
+                throw new IllegalArgumentException("Sobel scale must be positive: " + scale);
+            }
+            return add(new Node(Op.SOBEL, kernelSize, scale));
+        }
+
+        public Builder sobel() {
+            return sobel(3, 1);
+        }
+
+        public FrameProcessor build() {
+            return new FrameProcessor(nodes);
+        }
+
+        // Used by parse(); NaN stands for an omitted parameter.
+        Builder add(Op op, double first, double second) {
+            switch (op) {
+                case BLUR:
+                    return blur(integer(first, 5), orDefault(second, 0));
+                case THRESHOLD:
+                    return threshold(orDefault(first, 128), orDefault(second, 0) != 0);
+                case CANNY:
+                    return canny(orDefault(first, 50), orDefault(second, 150));
+                case DILATE:
+                    return dilate(integer(first, 3), integer(second, 1));
+                case ERODE:
+                    return erode(integer(first, 3), integer(second, 1));
+                default:
+                    return sobel(integer(first, 3), orDefault(second, 1));
+            }
+        }
+
+        private Builder add(Node node) {
+            if (nodes.size() == MAX_NODES) {
+                throw new IllegalArgumentException("At most " + MAX_NODES + " nodes");
+            }
+            nodes.add(node);
+            return this;
+        }
+
+        private static Node morphology(Op op, int kernelSize, int iterations) {
+            if (kernelSize < 1 || iterations < 1) {
+                throw new IllegalArgumentException("Morphology needs a kernel size and iterations of at least 1");
+            }
+            return new Node(op, kernelSize, iterations);
+        }
+
+        private static double orDefault(double value, double fallback) {
+            return Double.isNaN(value) ? fallback : value;
+        }
+
+        private static int integer(double value, int fallback) {
+            if (Double.isNaN(value)) {
+                return fallback;
+            }
+            if (value != Math.rint(value)) {
+                throw new IllegalArgumentException("Expected a whole number: " + value);
+            }
+            return (int) value;
+        }
+    }
+}
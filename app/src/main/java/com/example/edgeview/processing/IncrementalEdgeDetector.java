@@ -0,0 +1,139 @@
+package com.example.edgeview.processing;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+/**
+ * Java reference for incremental edge detection on mostly static scenes. Each frame, the
+ * {@link TileChangeDetector} picks the tiles that changed. Only those are re-detected, over the
+ * tile plus its halo, and written into a cached full-frame edge map. Every other tile keeps its
+ * cached edges. The native session implements the same scheme (see NativeLib.processIncremental).
+ * <p>
+ * Every tile is detected over a box of the same size, shifted inwards at the frame border, so
+ * the underlying {@link JavaCannyDetector} never reallocates. Hysteresis cannot follow an edge
+ * further than the halo into a neighbouring tile, so results can differ slightly from a
+ * full-frame run near tile borders.
+ * <p>
+ * Not thread-safe.
+ */
+public final class IncrementalEdgeDetector {
+    private final TileConfig tiles;
+    private final TileChangeDetector changes;
+    private final JavaCannyDetector detector;
+
+    private int width;
+    private int height;
+    private byte[] gray = new byte[0];
+    private byte[] cache = new byte[0];
+    private final byte[] box;
+    private final byte[] boxEdges;
+    private int lastRecomputed;
+
+    public IncrementalEdgeDetector(EdgeConfig edges, TileConfig tiles) {
+        this(tiles, new JavaCannyDetector(edges));
+    }
+
+    IncrementalEdgeDetector(TileConfig tiles, JavaCannyDetector detector) {
+        this.tiles = tiles;
+        this.changes = new TileChangeDetector(tiles);
+        this.detector = detector;
+        int boxSize = tiles.boxSize();
+        this.box = new byte[boxSize * boxSize];
+        this.boxEdges = new byte[boxSize * boxSize];
+    }
+
+    /**
+     * Detects edges in a GRAY8 or RGBA frame into a GRAY8 or RGBA output, recomputing only
+     * changed tiles. Returns the number of tiles recomputed.
+     */
+    public int detect(byte[] input, PixelFormat inputFormat, byte[] output, PixelFormat outputFormat,
+                      int width, int height) {
+        int boxSize = tiles.boxSize();
+        if (width < boxSize || height < boxSize) {
+            // Too small to tile; nothing to save either.
+            changes.invalidate();
+            detector.detect(input, inputFormat, output, outputFormat, width, height);
+            lastRecomputed = 1;
+            return lastRecomputed;
+        }
+        if (width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            gray = new byte[width * height];
+            cache = new byte[width * height];
+        }
+        toGray(input, inputFormat);
+
+        int recomputed = changes.detect(gray, width, height);
+        int tile = tiles.tileSize();
+        for (int ty = 0; ty < changes.rows(); ty++) {
+            for (int tx = 0; tx < changes.columns(); tx++) {
+                if (changes.isDirty(ty * changes.columns() + tx)) {
+                    recomputeTile(tx * tile, ty * tile);
+                }
+            }
+        }
+        writeOutput(output, outputFormat);
+        lastRecomputed = recomputed;
+        return recomputed;
+    }
+
+    public int lastRecomputed() {
+        return lastRecomputed;
+    }
+
+    /** Fraction of tiles recomputed by the last {@link #detect} call (1 for untiled frames). */
+    public double lastRecomputedFraction() {
+        int total = changes.tileCount();
+        return total == 0 ? 1 : (double) lastRecomputed / total;
+    }
+
+    public void invalidate() {
+        changes.invalidate();
+    }
+
+    private void recomputeTile(int x0, int y0) {
+        int boxSize = tiles.boxSize();
+        int halo = tiles.halo();
+        int bx = Math.max(0, Math.min(x0 - halo, width - boxSize));
+        int by = Math.max(0, Math.min(y0 - halo, height - boxSize));
+        for (int row = 0; row < boxSize; row++) {
+            System.arraycopy(gray, (by + row) * width + bx, box, row * boxSize, boxSize);
+        }
+        detector.detect(box, PixelFormat.GRAY8, boxEdges, PixelFormat.GRAY8, boxSize, boxSize);
+
+        int tileWidth = Math.min(tiles.tileSize(), width - x0);
+        int tileHeight = Math.min(tiles.tileSize(), height - y0);
+        for (int row = 0; row < tileHeight; row++) {
+            System.arraycopy(boxEdges, (y0 - by + row) * boxSize + (x0 - bx),
+                    cache, (y0 + row) * width + x0, tileWidth);
+        }
+    }
+
+    private void toGray(byte[] input, PixelFormat format) {
+        int pixels = width * height;
+        if (format == PixelFormat.GRAY8) {
+            System.arraycopy(input, 0, gray, 0, pixels);
+            return;
+        }
+        for (int i = 0, p = 0; i < pixels; i++, p += 4) {
+            int r = input[p] & 0xff;
+            int g = input[p + 1] & 0xff;
+            int b = input[p + 2] & 0xff;
+            gray[i] = (byte) ((r * 4899 + g * 9617 + b * 1868 + 8192) >> 14);
+        }
+    }
+
+    private void writeOutput(byte[] output, PixelFormat format) {
+        int pixels = width * height;
+        if (format == PixelFormat.GRAY8) {
+            System.arraycopy(cache, 0, output, 0, pixels);
+            return;
+        }
+        for (int i = 0, p = 0; i < pixels; i++, p += 4) {
+            output[p] = cache[i];
+            output[p + 1] = cache[i];
+            output[p + 2] = cache[i];
+            output[p + 3] = (byte) 0xff;
+        }
+    }
+}
@@ -0,0 +1,540 @@
+package com.example.edgeview.processing;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Canny edge detector in plain Java, used when native-lib is not available. It produces the same
+ * kind of output as the native pipeline: 255 for edge pixels and 0 elsewhere, as GRAY8 or RGBA.
+ * <p>
+ * The steps are luma extraction, an optional separable Gaussian blur, 3x3 Sobel gradients with
+ * L1 magnitude, non-maximum suppression and hysteresis. Every step except hysteresis runs over
+ * row bands in parallel on a fork-join pool. Hysteresis is a flood fill that can cross any band
+ * boundary, so it runs on the calling thread. All working arrays are kept between frames and
+ * reallocated only when the frame size changes.
+ * <p>
+ * With a downscale factor above one, the detector works on block-averaged luma (a coarser
+ * pyramid level) and scales the edge map back up to the frame size with nearest-neighbour
+ * sampling, which cuts the work by the square of the factor.
+ * <p>
+ * Band tasks and working arrays are reused, so a detector must not be used by several threads
+ * at once.
+ */
+public final class JavaCannyDetector {
+    // tan(22.5 deg) in Q15, as used by OpenCV to bin gradient directions without atan2.
+    private static final int TG22 = 13573;
+    private static final int KERNEL_ONE = 256; // Q8 Gaussian weights sum to this
+
+    // Suppression map values.
+    private static final byte NONE = 0;
+    private static final byte WEAK = 1;
+    private static final byte STRONG = 2;
+    private static final byte EDGE = 3;
+
+    private static final int PHASE_LUMA = 0;
+    private static final int PHASE_BLUR_H = 1;
+    private static final int PHASE_BLUR_V = 2;
+    private static final int PHASE_GRADIENT = 3;
+    private static final int PHASE_SUPPRESS = 4;
+    private static final int PHASE_EMIT = 5;
+
+    private final int lowThreshold;
+    private final int highThreshold;
+    private final int[] kernel;
+    private final ForkJoinPool pool;
+    private final int bandCount;
+    private final FrameTask frameTask = new FrameTask();
+    private BandTask[] bands = new BandTask[0];
+
+    // Working (possibly downscaled) size; all arrays below are this big.
+    private int width;
+    private int height;
+    private byte[] gray = new byte[0];
+    private int[] blurRows = new int[0];
+    private byte[] smooth = new byte[0];
+    private short[] dx = new short[0];
+    private short[] dy = new short[0];
+    private int[] magnitude = new int[0];
+    private byte[] map = new byte[0];
+    private int[] stack = new int[0];
+    private final int[] neighbours = new int[8]; // index offsets of the 8-connected neighbours
+
+    // The frame being processed; only one of array and buffer is set on each side.
+    private byte[] inArray;
+    private int inOffset;
+    private ByteBuffer inBuffer;
+    private int inChannels;
+    private int frameWidth;
+    private int frameHeight;
+    private int scale;
+    private byte[] outArray;
+    private int outOffset;
+    private ByteBuffer outBuffer;
+    private int outChannels;
+
+    public JavaCannyDetector(EdgeConfig config) {
+        this(config, ForkJoinPool.commonPool());
+    }
+
+    public JavaCannyDetector(EdgeConfig config, ForkJoinPool pool) {
+        this(config, pool, pool.getParallelism() * 2);
+    }
+
+    public JavaCannyDetector(EdgeConfig config, ForkJoinPool pool, int bandCount) {
+        if (bandCount <= 0) {
+            throw new IllegalArgumentException("bandCount must be positive: " + bandCount);
+        }
+        // Thresholds apply to the integer L1 magnitude, like cv::Canny.
+        this.lowThreshold = (int) Math.floor(config.lowThreshold());
+        this.highThreshold = (int) Math.floor(config.highThreshold());
+        this.kernel = config.blurKernelSize() > 1 ? gaussianKernel(config.blurKernelSize()) : null;
+        this.pool = pool;
+        this.bandCount = bandCount;
+    }
+
+    /** Detects edges in a heap frame; both arrays start at offset 0. */
+    public void detect(byte[] input, PixelFormat inputFormat, byte[] output, PixelFormat outputFormat,
+                       int width, int height) {
+        checkSize(input.length, inputFormat, width, height);
+        checkSize(output.length, outputFormat, width, height);
+        inArray = input;
+        inOffset = 0;
+        outArray = output;
+        outOffset = 0;
+        run(inputFormat, outputFormat, width, height, 1);
+    }
+
+    /**
+     * Detects edges between buffers, reading and writing from index 0 regardless of position.
+     * Backing arrays are used when present; otherwise pixels go through absolute get/put.
+     */
+    public void detect(ByteBuffer input, PixelFormat inputFormat, ByteBuffer output, PixelFormat outputFormat,
+                       int width, int height) {
+        detect(input, inputFormat, output, outputFormat, width, height, 1);
+    }
+
+    /** Like {@link #detect(ByteBuffer, PixelFormat, ByteBuffer, PixelFormat, int, int)} on a 1/downscale grid. */
+    public void detect(ByteBuffer input, PixelFormat inputFormat, ByteBuffer output, PixelFormat outputFormat,
+                       int width, int height, int downscale) {
+        checkSize(input.capacity(), inputFormat, width, height);
+        checkSize(output.capacity(), outputFormat, width, height);
+        if (output.isReadOnly()) {
+            throw new IllegalArgumentException("Output buffer is read-only");
+        }
+        if (input.hasArray()) {
+            inArray = input.array();
+            inOffset = input.arrayOffset();
+        } else {
+            inBuffer = input;
+        }
+        if (output.hasArray()) {
+            outArray = output.array();
+            outOffset = output.arrayOffset();
+        } else {
+            outBuffer = output;
+        }
+        run(inputFormat, outputFormat, width, height, downscale);
+    }
+
+    private void run(PixelFormat inputFormat, PixelFormat outputFormat, int width, int height, int downscale) {
+        try {
+            if (downscale < 1 || width / downscale == 0 || height / downscale == 0) {
+                throw new IllegalArgumentException("Invalid downscale " + downscale + " for " + width + "x" + height);
+            }
+            frameWidth = width;
+            frameHeight = height;
+            scale = downscale;
+            ensureSize(width / downscale, height / downscale);
+            inChannels = inputFormat.bytesPerPixel();
+            outChannels = outputFormat.bytesPerPixel();
+            if (inputFormat == PixelFormat.GRAY8 && downscale == 1) {
+                copyGray();
+            } else {
+                runPhase(PHASE_LUMA);
+            }
+            if (kernel != null) {
+                runPhase(PHASE_BLUR_H);
+                runPhase(PHASE_BLUR_V);
+            }
+            runPhase(PHASE_GRADIENT);
+            runPhase(PHASE_SUPPRESS);
+            hysteresis();
+            runPhase(PHASE_EMIT);
+        } finally {
+            inArray = null;
+            inBuffer = null;
+            outArray = null;
+            outBuffer = null;
+        }
+    }
+
+    private static void checkSize(int capacity, PixelFormat format, int width, int height) {
+        if (width <= 0 || height <= 0 || capacity < format.frameSize(width, height)) {
+            throw new IllegalArgumentException("Buffer too small for " + width + "x" + height + " " + format);
+        }
+    }
+
+    private void ensureSize(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return;
+        }
+        int pixels = width * height;
+        gray = new byte[pixels];
+        smooth = kernel != null ? new byte[pixels] : gray;
+        blurRows = kernel != null ? new int[pixels] : new int[0];
+        dx = new short[pixels];
+        dy = new short[pixels];
+        magnitude = new int[pixels];
+        map = new byte[pixels];
+        stack = new int[pixels];
+        int[] offsets = {-width - 1, -width, -width + 1, -1, 1, width - 1, width, width + 1};
+        System.arraycopy(offsets, 0, neighbours, 0, offsets.length);
+        this.width = width;
+        this.height = height;
+    }
+
+    private void copyGray() {
+        int pixels = width * height;
+        if (inArray != null) {
+            System.arraycopy(inArray, inOffset, gray, 0, pixels);
+        } else {
+            int position = inBuffer.position();
+            int limit = inBuffer.limit();
+            inBuffer.limit(pixels).position(0);
+            inBuffer.get(gray, 0, pixels);
+            inBuffer.limit(limit).position(position);
+        }
+    }
+
+    private void runPhase(int phase) {
+        int count = Math.min(bandCount, height);
+        if (count <= 1) {
+            runRows(phase, 0, height);
+            return;
+        }
+        if (bands.length != count) {
+            bands = new BandTask[count];
+            for (int i = 0; i < count; i++) {
+                bands[i] = new BandTask();
+            }
+        }
+        int rowsPerBand = height / count;
+        int extraRows = height % count;
+        int row = 0;
+        for (int i = 0; i < count; i++) {
+            int rows = rowsPerBand + (i < extraRows ? 1 : 0);
+            bands[i].set(phase, row, row + rows);
+            row += rows;
+        }
+        frameTask.reinitialize();
+        pool.invoke(frameTask);
+    }
+
+    private void runRows(int phase, int startRow, int endRow) {
+        switch (phase) {
+            case PHASE_LUMA:
+                lumaRows(startRow, endRow);
+                break;
+            case PHASE_BLUR_H:
+                blurHorizontalRows(startRow, endRow);
+                break;
+            case PHASE_BLUR_V:
+                blurVerticalRows(startRow, endRow);
+                break;
+            case PHASE_GRADIENT:
+                gradientRows(startRow, endRow);
+                break;
+            case PHASE_SUPPRESS:
+                suppressRows(startRow, endRow);
+                break;
+            case PHASE_EMIT:
+                emitRows(startRow, endRow);
+                break;
+            default:
+                throw new IllegalStateException("Unknown phase " + phase);
+        }
+    }
+
+    // BT.601 luma with the same Q14 weights as cv::cvtColor(RGBA2GRAY).
+    private void lumaRows(int startRow, int endRow) {
+        if (scale > 1) {
+            downscaleRows(startRow, endRow);
+            return;
+        }
+        byte[] gray = this.gray;
+        byte[] in = inArray;
+        for (int i = startRow * width, end = endRow * width; i < end; i++) {
+            int r, g, b;
+            if (in != null) {
+                int p = inOffset + i * 4;
+                r = in[p] & 0xff;
+                g = in[p + 1] & 0xff;
+                b = in[p + 2] & 0xff;
+            } else {
+                int p = i * 4;
+                r = inBuffer.get(p) & 0xff;
+                g = inBuffer.get(p + 1) & 0xff;
+                b = inBuffer.get(p + 2) & 0xff;
+            }
+            gray[i] = (byte) ((r * 4899 + g * 9617 + b * 1868 + 8192) >> 14);
+        }
+    }
+
+    // Box-averages scale x scale blocks of the frame into the working grid (like INTER_AREA).
+    private void downscaleRows(int startRow, int endRow) {
+        int area = scale * scale;
+        for (int y = startRow; y < endRow; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                for (int sy = y * scale, yEnd = sy + scale; sy < yEnd; sy++) {
+                    for (int sx = x * scale, xEnd = sx + scale; sx < xEnd; sx++) {
+                        sum += sourceLuma(sy * frameWidth + sx);
+                    }
+                }
+                gray[y * width + x] = (byte) ((sum + area / 2) / area);
+            }
+        }
+    }
+
+    private int sourceLuma(int pixel) {
+        int p = pixel * inChannels;
+        if (inChannels == 1) {
+            return (inArray != null ? inArray[inOffset + p] : inBuffer.get(p)) & 0xff;
+        }
+        int r, g, b;
+        if (inArray != null) {
+            p += inOffset;
+            r = inArray[p] & 0xff;
+            g = inArray[p + 1] & 0xff;
+            b = inArray[p + 2] & 0xff;
+        } else {
+            r = inBuffer.get(p) & 0xff;
+            g = inBuffer.get(p + 1) & 0xff;
+            b = inBuffer.get(p + 2) & 0xff;
+        }
+        return (r * 4899 + g * 9617 + b * 1868 + 8192) >> 14;
+    }
+
+    // Horizontal pass, replicated borders; results stay in Q8.
+    private void blurHorizontalRows(int startRow, int endRow) {
+        int[] k = kernel;
+        int radius = k.length / 2;
+        int last = width - 1;
+        for (int y = startRow; y < endRow; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                for (int i = 0; i < k.length; i++) {
+                    int sx = x + i - radius;
+                    sx = sx < 0 ? 0 : (sx > last ? last : sx);
+                    sum += k[i] * (gray[row + sx] & 0xff);
+                }
+                blurRows[row + x] = sum;
+            }
+        }
+    }
+
+    // Vertical pass over the horizontal results, rounding Q16 back to 8 bits.
+    private void blurVerticalRows(int startRow, int endRow) {
+        int[] k = kernel;
+        int radius = k.length / 2;
+        int last = height - 1;
+        for (int y = startRow; y < endRow; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                for (int i = 0; i < k.length; i++) {
+                    int sy = y + i - radius;
+                    sy = sy < 0 ? 0 : (sy > last ? last : sy);
+                    sum += k[i] * blurRows[sy * width + x];
+                }
+                smooth[row + x] = (byte) ((sum + (1 << 15)) >> 16);
+            }
+        }
+    }
+
+    // 3x3 Sobel with replicated borders and L1 magnitude.
+    private void gradientRows(int startRow, int endRow) {
+        byte[] src = smooth;
+        int last = width - 1;
+        for (int y = startRow; y < endRow; y++) {
+            int above = Math.max(y - 1, 0) * width;
+            int row = y * width;
+            int below = Math.min(y + 1, height - 1) * width;
+            for (int x = 0; x < width; x++) {
+                int l = x > 0 ? x - 1 : 0;
+                int r = x < last ? x + 1 : last;
+                int tl = src[above + l] & 0xff, tc = src[above + x] & 0xff, tr = src[above + r] & 0xff;
+                int ml = src[row + l] & 0xff, mr = src[row + r] & 0xff;
+                int bl = src[below + l] & 0xff, bc = src[below + x] & 0xff, br = src[below + r] & 0xff;
+                int gx = (tr + 2 * mr + br) - (tl + 2 * ml + bl);
+                int gy = (bl + 2 * bc + br) - (tl + 2 * tc + tr);
+                int i = row + x;
+                dx[i] = (short) gx;
+                dy[i] = (short) gy;
+                magnitude[i] = Math.abs(gx) + Math.abs(gy);
+            }
+        }
+    }
+
+    // Keeps local maxima along the gradient direction, classified against both thresholds.
+    // The one-pixel frame is never an edge.
+    private void suppressRows(int startRow, int endRow) {
+        int[] mag = magnitude;
+        for (int y = startRow; y < endRow; y++) {
+            int row = y * width;
+            if (y == 0 || y == height - 1) {
+                Arrays.fill(map, row, row + width, NONE);
+                continue;
+            }
+            map[row] = NONE;
+            map[row + width - 1] = NONE;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                int m = mag[i];
+                byte state = NONE;
+                if (m > lowThreshold) {
+                    int gx = dx[i];
+                    int gy = dy[i];
+                    int xs = Math.abs(gx);
+                    int ys = Math.abs(gy) << 15;
+                    int tg22x = xs * TG22;
+                    boolean max;
+                    if (ys < tg22x) {
+                        max = m > mag[i - 1] && m >= mag[i + 1];
+                    } else if (ys > tg22x + (xs << 16)) {
+                        max = m > mag[i - width] && m >= mag[i + width];
+                    } else {
+                        int s = (gx ^ gy) < 0 ? -1 : 1;
+                        max = m > mag[i - width - s] && m > mag[i + width + s];
+                    }
+                    if (max) {
+                        state = m > highThreshold ? STRONG : WEAK;
+                    }
+                }
+                map[i] = state;
+            }
+        }
+    }
+
+    // Grows edges from strong pixels through 8-connected weak ones.
+    private void hysteresis() {
+        byte[] map = this.map;
+        int[] stack = this.stack;
+        int[] neighbours = this.neighbours;
+        int pixels = width * height;
+        for (int start = 0; start < pixels; start++) {
+            if (map[start] != STRONG) {
+                continue;
+            }
+            map[start] = EDGE;
+            int top = 0;
+            stack[top++] = start;
+            while (top > 0) {
+                int i = stack[--top];
+                // Border pixels are NONE, so neighbours of any queued pixel are in range.
+                for (int offset : neighbours) {
+                    int n = i + offset;
+                    if (map[n] == WEAK || map[n] == STRONG) {
+                        map[n] = EDGE;
+                        stack[top++] = n;
+                    }
+                }
+            }
+        }
+    }
+
+    private void emitRows(int startRow, int endRow) {
+        if (scale > 1) {
+            upscaleRows(startRow, endRow);
+            return;
+        }
+        for (int i = startRow * width, end = endRow * width; i < end; i++) {
+            writeOutput(i, map[i] == EDGE ? (byte) 0xff : 0);
+        }
+    }
+
+    // Nearest-neighbour upscale of working rows; the last row and column also cover the
+    // remainder when the frame size is not a multiple of the scale.
+    private void upscaleRows(int startRow, int endRow) {
+        int outStart = startRow * scale;
+        int outEnd = endRow == height ? frameHeight : endRow * scale;
+        for (int y = outStart; y < outEnd; y++) {
+            int row = Math.min(y / scale, height - 1) * width;
+            for (int x = 0; x < frameWidth; x++) {
+                byte value = map[row + Math.min(x / scale, width - 1)] == EDGE ? (byte) 0xff : 0;
+                writeOutput(y * frameWidth + x, value);
+            }
+        }
+    }
+
+    private void writeOutput(int pixel, byte value) {
+        int channels = outChannels;
+        int p = pixel * channels;
+        if (outArray != null) {
+            p += outOffset;
+            outArray[p] = value;
+            if (channels == 4) {
+                outArray[p + 1] = value;
+                outArray[p + 2] = value;
+                outArray[p + 3] = (byte) 0xff;
+            }
+        } else {
+            outBuffer.put(p, value);
+            if (channels == 4) {
+                outBuffer.put(p + 1, value);
+                outBuffer.put(p + 2, value);
+                outBuffer.put(p + 3, (byte) 0xff);
+            }
+        }
+    }
+
+    // Q8 Gaussian weights with OpenCV's default sigma for the size; the centre absorbs rounding.
+    static int[] gaussianKernel(int size) {
+        double sigma = 0.3 * ((size - 1) * 0.5 - 1) + 0.8;
+        double[] weights = new double[size];
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            double d = i - (size - 1) / 2.0;
+            weights[i] = Math.exp(-(d * d) / (2 * sigma * sigma));
+            total += weights[i];
+        }
+        int[] kernel = new int[size];
+        int sum = 0;
+        for (int i = 0; i < size; i++) {
+            kernel[i] = (int) Math.round(weights[i] / total * KERNEL_ONE);
+            sum += kernel[i];
+        }
+        kernel[size / 2] += KERNEL_ONE - sum;
+        return kernel;
+    }
+
+    private final class FrameTask extends RecursiveAction {
+        @Override
+        protected void compute() {
+            invokeAll(bands);
+        }
+    }
+
+    private final class BandTask extends RecursiveAction {
+        private int phase;
+        private int startRow;
+        private int endRow;
+
+        void set(int phase, int startRow, int endRow) {
+            this.phase = phase;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            reinitialize();
+        }
+
+        @Override
+        protected void compute() {
+            runRows(phase, startRow, endRow);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.edgeview.processing;
+
+/**
+ * Native threading for a processing session. With {@code splitStrips} the frame is cut into
+ * horizontal strips of {@code stripHeight} rows that are detected in parallel; each strip reads
+ * {@code halo} extra rows above and below so that blur, gradients and suppression at the seams
+ * match a full-frame run. Hysteresis still stops at the halo, so an edge chain that only reaches
+ * strong pixels more than {@code halo} rows away can come out slightly differently.
+ * <p>
+ * {@code threadCount} 0 uses one thread per core; {@code stripHeight} 0 uses one strip per thread.
+ * The thread count is set on OpenCV's pool, which is process-wide, whether or not frames are split.
+ */
+public final class ThreadingConfig {
+    public static final ThreadingConfig DEFAULT = new ThreadingConfig(0, 0, 8, true);
+    /**
+     * No strips, with OpenCV's pool at one thread per core (its default): the behaviour before
+     * sessions had a config. Like every config, it is applied through {@code cv::setNumThreads}.
+     */
+    public static final ThreadingConfig SINGLE_STRIP = new ThreadingConfig(0, 0, 0, false);
+    /** Upper bound on strips per frame (mirrors kMaxStrips); also the size of the strip timings. */
+    public static final int MAX_STRIPS = 32;
+
+    private final int threadCount;
+    private final int stripHeight;
+    private final int halo;
+    private final boolean splitStrips;
+
+    public ThreadingConfig(int threadCount, int stripHeight, int halo, boolean splitStrips) {
+        if (threadCount < 0 || stripHeight < 0 || halo < 0) {
+            throw new IllegalArgumentException("Invalid threading config: threads=" + threadCount
+                    + ", strip=" + stripHeight + ", halo=" + halo);
+        }
+        this.threadCount = threadCount;
+        this.stripHeight = stripHeight;
+        this.halo = halo;
+        this.splitStrips = splitStrips;
+    }
+
+    public int threadCount() {
+        return threadCount;
+    }
+
+    public int stripHeight() {
+        return stripHeight;
+    }
+
+    public int halo() {
+        return halo;
+    }
+
+    public boolean splitStrips() {
+        return splitStrips;
+    }
+
+    /** Number of strips a frame of {@code height} rows is split into with {@code cores} cores. */
+    public int stripCount(int height, int cores) {
+        if (!splitStrips || height <= 0) {
+            return 1;
+        }
+        int threads = threadCount > 0 ? threadCount : Math.max(1, cores);
+        int rows = stripHeight > 0 ? stripHeight : (height + threads - 1) / threads;
+        // Past MAX_STRIPS the strips grow instead of multiplying.
+        rows = Math.max(rows, (height + MAX_STRIPS - 1) / MAX_STRIPS);
+        return (height + rows - 1) / rows;
+    }
+
+    @Override
+    public String toString() {
+        return "ThreadingConfig{threads=" + threadCount + ", strip=" + stripHeight + ", halo=" + halo
+                + ", split=" + splitStrips + "}";
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.edgeview.processing;
+
+import java.util.Arrays;
+
+/**
+ * Finds tiles whose content changed since they were last recomputed, by comparing luma sampled
+ * every {@link TileConfig#sampleStep()} pixels with a per-tile reference. The reference of a
+ * tile is only refreshed when the tile is reported dirty, so slow drift is caught once it adds
+ * up rather than being lost frame by frame. Border tiles too small to hold a sample are dirty on
+ * every frame.
+ */
+public final class TileChangeDetector {
+    private final TileConfig config;
+
+    private int width;
+    private int height;
+    private int columns;
+    private int rows;
+    private byte[] reference = new byte[0]; // sampled luma, (width / step) x (height / step)
+    private boolean[] dirty = new boolean[0];
+    private boolean valid;
+
+    public TileChangeDetector(TileConfig config) {
+        this.config = config;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int tileCount() {
+        return columns * rows;
+    }
+
+    public boolean isDirty(int tileIndex) {
+        return dirty[tileIndex];
+    }
+
+    /** Marks every tile dirty on the next call, e.g. after the cached output went stale. */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Compares a {@code width x height} luma frame against the references and returns the number
+     * of dirty tiles. The references of dirty tiles are updated, so the caller is expected to
+     * recompute exactly those tiles.
+     */
+    public int detect(byte[] gray, int width, int height) {
+        int step = config.sampleStep();
+        if (width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            int tile = config.tileSize();
+            columns = (width + tile - 1) / tile;
+            rows = (height + tile - 1) / tile;
+            reference = new byte[(width / step) * (height / step)];
+            dirty = new boolean[columns * rows];
+            valid = false;
+        }
+        if (!valid) {
+            Arrays.fill(dirty, true);
+            sample(gray, 0, 0, width, height);
+            valid = true;
+            return dirty.length;
+        }
+        int tile = config.tileSize();
+        int count = 0;
+        for (int ty = 0; ty < rows; ty++) {
+            for (int tx = 0; tx < columns; tx++) {
+                int x0 = tx * tile;
+                int y0 = ty * tile;
+                int x1 = Math.min(x0 + tile, width);
+                int y1 = Math.min(y0 + tile, height);
+                boolean changed = changed(gray, x0, y0, x1, y1);
+                if (changed) {
+                    sample(gray, x0, y0, x1, y1);
+                    count++;
+                }
+                dirty[ty * columns + tx] = changed;
+            }
+        }
+        return count;
+    }
+
+    private boolean changed(byte[] gray, int x0, int y0, int x1, int y1) {
+        int step = config.sampleStep();
+        int sampledWidth = width / step;
+        int sampledHeight = height / step;
+        long diff = 0;
+        int samples = 0;
+        for (int sy = y0 / step; sy < Math.min(y1 / step, sampledHeight); sy++) {
+            for (int sx = x0 / step; sx < Math.min(x1 / step, sampledWidth); sx++) {
+                int current = gray[sy * step * width + sx * step] & 0xff;
+                diff += Math.abs(current - (reference[sy * sampledWidth + sx] & 0xff));
+                samples++;
+            }
+        }
+        // A border tile narrower or shorter than the sample step has no samples and is always
+        // recomputed; otherwise changes within it would never be seen.
+        return samples == 0 || diff > (long) config.changeThreshold() * samples;
+    }
+
+    private void sample(byte[] gray, int x0, int y0, int x1, int y1) {
+        int step = config.sampleStep();
+        int sampledWidth = width / step;
+        int sampledHeight = height / step;
+        for (int sy = y0 / step; sy < Math.min(y1 / step, sampledHeight); sy++) {
+            for (int sx = x0 / step; sx < Math.min(x1 / step, sampledWidth); sx++) {
+                reference[sy * sampledWidth + sx] = gray[sy * step * width + sx * step];
+            }
+        }
+    }
+}
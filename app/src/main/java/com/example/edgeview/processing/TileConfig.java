@@ -0,0 +1,57 @@
+package com.example.edgeview.processing;
+
+/**
+ * Tiling parameters for incremental edge detection. A tile is re-detected when the mean absolute
+ * difference of its luma, sampled every {@code sampleStep} pixels, exceeds {@code changeThreshold}
+ * since the tile was last computed. Re-detection covers the tile plus {@code halo} pixels on
+ * each side so that blur, gradients and suppression see the same neighbourhood as in a
+ * full-frame run.
+ */
+public final class TileConfig {
+    public static final TileConfig DEFAULT = new TileConfig(64, 8, 4, 6);
+
+    private final int tileSize;
+    private final int halo;
+    private final int sampleStep;
+    private final int changeThreshold;
+
+    public TileConfig(int tileSize, int halo, int sampleStep, int changeThreshold) {
+        if (tileSize <= 0 || halo < 0 || sampleStep <= 0 || changeThreshold < 0) {
+            throw new IllegalArgumentException("Invalid tile config");
+        }
+        if (tileSize % sampleStep != 0) {
+            throw new IllegalArgumentException("tileSize must be a multiple of sampleStep");
+        }
+        this.tileSize = tileSize;
+        this.halo = halo;
+        this.sampleStep = sampleStep;
+        this.changeThreshold = changeThreshold;
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    public int halo() {
+        return halo;
+    }
+
+    public int sampleStep() {
+        return sampleStep;
+    }
+
+    public int changeThreshold() {
+        return changeThreshold;
+    }
+
+    /** Side of the square region detected for one tile. */
+    public int boxSize() {
+        return tileSize + 2 * halo;
+    }
+
+    @Override
+    public String toString() {
+        return "TileConfig{tile=" + tileSize + ", halo=" + halo + ", step=" + sampleStep
+                + ", threshold=" + changeThreshold + "}";
+    }
+}
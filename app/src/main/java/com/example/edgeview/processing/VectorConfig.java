@@ -0,0 +1,77 @@
+package com.example.edgeview.processing;
+
+import java.util.Locale;
+
+/**
+ * How an edge map is reduced to line segments (see {@code NativeLib.vectorize}).
+ * <p>
+ * {@link Mode#CONTOURS} traces the edge pixels into contours and simplifies each one with
+ * Douglas-Peucker to within {@code tolerance} pixels; every edge of the resulting polylines is one
+ * segment. The contour follower goes along both sides of a one-pixel-wide edge, but pixels it has
+ * already passed are skipped, so each edge comes out once. {@link Mode#LINES} runs a probabilistic
+ * Hough transform and keeps straight runs at least {@code minLength} pixels long, bridging gaps of
+ * up to {@code tolerance} pixels. In both modes shorter pieces are dropped as noise.
+ */
+public final class VectorConfig {
+    public static final VectorConfig CONTOURS = new VectorConfig(Mode.CONTOURS, 2, 8);
+    public static final VectorConfig LINES = new VectorConfig(Mode.LINES, 4, 24);
+
+    /** Extraction methods; codes are shared with the native vectorizer. */
+    public enum Mode {
+        CONTOURS(0),
+        LINES(1);
+
+        final int code;
+
+        Mode(int code) {
+            this.code = code;
+        }
+
+        public int code() {
+            return code;
+        }
+    }
+
+    private final Mode mode;
+    private final double tolerance;
+    private final double minLength;
+
+    public VectorConfig(Mode mode, double tolerance, double minLength) {
+        if (mode == null || !(tolerance > 0) || minLength < 0) {
+            throw new IllegalArgumentException("Invalid vector config");
+        }
+        this.mode = mode;
+        this.tolerance = tolerance;
+        this.minLength = minLength;
+    }
+
+    /** The default config for {@code "contours"} or {@code "lines"}. */
+    public static VectorConfig forName(String name) {
+        switch (name.trim().toLowerCase(Locale.US)) {
+            case "contours":
+                return CONTOURS;
+            case "lines":
+                return LINES;
+            default:
+                throw new IllegalArgumentException("Unknown vector mode: " + name);
+        }
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public double tolerance() {
+        return tolerance;
+    }
+
+    public double minLength() {
+        return minLength;
+    }
+
+    @Override
+    public String toString() {
+        return "VectorConfig{mode=" + mode + ", tolerance=" + tolerance
+                + ", minLength=" + minLength + "}";
+    }
+}
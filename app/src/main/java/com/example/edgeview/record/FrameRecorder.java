@@ -0,0 +1,166 @@
+package com.example.edgeview.record;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameView;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.source.FrameCallback;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends frames to a recording (see {@link RecordingFormat}) through memory-mapped windows of
+ * the file, so recording a frame is one copy into the page cache with no write() per frame.
+ * Windows are mapped {@link #DEFAULT_WINDOW_SIZE} bytes at a time and a frame that does not fit
+ * the rest of the current window starts a new one. {@link #close()} appends the index and trims
+ * the file to its used length.
+ * <p>
+ * As a {@link FrameCallback} it records every frame it is handed, on the calling thread; chain it
+ * in front of the pipeline's own callback. If the disk fills up, recording stops and
+ * {@link #failed()} turns true; frames keep flowing to the rest of the chain either way.
+ * {@link #record(FrameView)} does the same for a shared frame, e.g. as a frame bus subscriber.
+ */
+public final class FrameRecorder implements FrameCallback, Closeable {
+    public static final long DEFAULT_WINDOW_SIZE = 64L << 20;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position = RecordingFormat.FILE_HEADER_SIZE;
+    // Record offsets, written out as the index on close.
+    private long[] offsets = new long[256];
+    private int frameCount;
+    private boolean failed;
+    private boolean closed;
+
+    public FrameRecorder(File output) throws IOException {
+        this(output, DEFAULT_WINDOW_SIZE);
+    }
+
+    public FrameRecorder(File output, long windowSize) throws IOException {
+        if (windowSize < RecordingFormat.FILE_HEADER_SIZE) {
+            throw new IllegalArgumentException("Window too small: " + windowSize);
+        }
+        this.windowSize = windowSize;
+        this.file = new RandomAccessFile(output, "rw");
+        this.channel = file.getChannel();
+        channel.truncate(0);
+        map(0, RecordingFormat.FILE_HEADER_SIZE);
+        window.put(RecordingFormat.MAGIC);
+        window.putInt(RecordingFormat.VERSION);
+    }
+
+    @Override
+    public synchronized void onFrame(FrameBuffer frame, int width, int height) {
+        if (closed || failed || frame.format() == null) {
+            return;
+        }
+        try {
+            append(frame.format(), width, height, frame.timestampNanos(), frame.buffer());
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    /** Records a shared frame at its own dimensions; see {@link #onFrame}. */
+    public synchronized void record(FrameView frame) {
+        if (closed || failed || frame.format() == null) {
+            return;
+        }
+        try {
+            append(frame.format(), frame.width(), frame.height(), frame.timestampNanos(), frame.pixels());
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    /** Frames recorded so far. */
+    public synchronized int frameCount() {
+        return frameCount;
+    }
+
+    /** True once a write failed; the frames recorded before it remain readable after close. */
+    public synchronized boolean failed() {
+        return failed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // The index and header are small: plain positional writes, no new mapping.
+            long indexOffset = position;
+            ByteBuffer index = ByteBuffer.allocate(frameCount * 8).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < frameCount; i++) {
+                index.putLong(offsets[i]);
+            }
+            index.flip();
+            writeFully(index, indexOffset);
+            ByteBuffer counts = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            counts.putLong(frameCount).putLong(indexOffset).flip();
+            writeFully(counts, RecordingFormat.FRAME_COUNT_OFFSET);
+            window = null;
+            channel.truncate(indexOffset + (long) frameCount * 8);
+            channel.force(false);
+        } finally {
+            channel.close();
+            file.close();
+        }
+    }
+
+    private void append(PixelFormat format, int width, int height, long timestampNanos, ByteBuffer source)
+            throws IOException {
+        int payload = format.frameSize(width, height);
+        long recordSize = RecordingFormat.RECORD_HEADER_SIZE + (long) payload;
+        map(position, recordSize);
+        window.putInt(RecordingFormat.RECORD_MAGIC);
+        window.putInt(RecordingFormat.formatCode(format));
+        window.putInt(width);
+        window.putInt(height);
+        window.putInt(payload);
+        window.putInt(0);
+        window.putLong(timestampNanos);
+        // Bulk copy from a duplicate: the shared frame buffer's position stays untouched.
+        ByteBuffer pixels = source.duplicate();
+        pixels.clear().limit(payload);
+        window.put(pixels);
+
+        if (frameCount == offsets.length) {
+            long[] grown = new long[offsets.length * 2];
+            System.arraycopy(offsets, 0, grown, 0, frameCount);
+            offsets = grown;
+        }
+        offsets[frameCount++] = position;
+        position += recordSize;
+    }
+
+    private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+
+    // Makes window cover [offset, offset + size), mapping a new window from offset if needed.
+    private void map(long offset, long size) throws IOException {
+        if (window != null && offset >= windowStart
+                && offset + size <= windowStart + window.capacity()) {
+            window.position((int) (offset - windowStart));
+            return;
+        }
+        long length = Math.max(size, windowSize);
+        window = channel.map(FileChannel.MapMode.READ_WRITE, offset, length);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = offset;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.edgeview.record;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only, memory-mapped view of a recording written by {@link FrameRecorder}. Frame pixels are
+ * handed out as slices of the mapping, so reading a frame copies nothing until the caller does.
+ * Large files are mapped in segments of at most {@link #MAX_SEGMENT_SIZE} bytes, each holding
+ * whole records. Recordings that were never closed are recovered by scanning their records.
+ * Safe to read from several threads once opened.
+ */
+public final class FrameRecording implements Closeable {
+    static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    private final RandomAccessFile file;
+    private final long[] offsets;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final long[] segmentStarts;
+    private final int[] segmentOfFrame;
+
+    private FrameRecording(RandomAccessFile file, long[] offsets) throws IOException {
+        this.file = file;
+        this.offsets = offsets;
+        this.segmentOfFrame = new int[offsets.length];
+        FileChannel channel = file.getChannel();
+        List<Long> starts = new ArrayList<>();
+        int frame = 0;
+        while (frame < offsets.length) {
+            long start = offsets[frame];
+            long end = recordEnd(channel, start);
+            int first = frame;
+            frame++;
+            while (frame < offsets.length) {
+                long next = recordEnd(channel, offsets[frame]);
+                if (next - start > MAX_SEGMENT_SIZE) {
+                    break;
+                }
+                end = next;
+                frame++;
+            }
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            Arrays.fill(segmentOfFrame, first, frame, segments.size());
+            segments.add(segment);
+            starts.add(start);
+        }
+        segmentStarts = new long[starts.size()];
+        for (int i = 0; i < segmentStarts.length; i++) {
+            segmentStarts[i] = starts.get(i);
+        }
+    }
+
+    public static FrameRecording open(File input) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(input, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = readAt(channel, 0, RecordingFormat.FILE_HEADER_SIZE);
+            byte[] magic = new byte[RecordingFormat.MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, RecordingFormat.MAGIC) || header.getInt() != RecordingFormat.VERSION) {
+                throw new IOException("Not a frame recording: " + input);
+            }
+            long frameCount = header.getLong(RecordingFormat.FRAME_COUNT_OFFSET);
+            long indexOffset = header.getLong(RecordingFormat.INDEX_OFFSET_OFFSET);
+            long[] offsets = indexOffset > 0
+                    ? readIndex(channel, indexOffset, frameCount)
+                    : scanRecords(channel);
+            return new FrameRecording(file, offsets);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int frameCount() {
+        return offsets.length;
+    }
+
+    public PixelFormat format(int frame) {
+        return RecordingFormat.formatFor(record(frame).getInt(4));
+    }
+
+    public int width(int frame) {
+        return record(frame).getInt(8);
+    }
+
+    public int height(int frame) {
+        return record(frame).getInt(12);
+    }
+
+    /** Capture time on the recording device's {@link System#nanoTime()} clock; 0 if unknown. */
+    public long timestampNanos(int frame) {
+        return record(frame).getLong(24);
+    }
+
+    /** The frame's pixels as a read-only slice of the mapping; position 0, limit the payload size. */
+    public ByteBuffer pixels(int frame) {
+        ByteBuffer record = record(frame);
+        int length = record.getInt(16);
+        record.position(RecordingFormat.RECORD_HEADER_SIZE).limit(RecordingFormat.RECORD_HEADER_SIZE + length);
+        return record.slice();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Mappings stay valid until collected; closing only releases the file descriptor.
+        file.close();
+    }
+
+    // Read-only duplicate positioned at the start of the frame's record.
+    private ByteBuffer record(int frame) {
+        int segment = segmentOfFrame[frame];
+        ByteBuffer record = segments.get(segment).asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        record.position((int) (offsets[frame] - segmentStarts[segment]));
+        return record.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long recordEnd(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = readAt(channel, offset, RecordingFormat.RECORD_HEADER_SIZE);
+        if (header.getInt(0) != RecordingFormat.RECORD_MAGIC) {
+            throw new IOException("Corrupt record at " + offset);
+        }
+        return offset + RecordingFormat.RECORD_HEADER_SIZE + header.getInt(16);
+    }
+
+    private static long[] readIndex(FileChannel channel, long indexOffset, long frameCount) throws IOException {
+        if (frameCount < 0 || frameCount > Integer.MAX_VALUE / 8) {
+            throw new IOException("Bad frame count " + frameCount);
+        }
+        ByteBuffer index = readAt(channel, indexOffset, (int) frameCount * 8);
+        long[] offsets = new long[(int) frameCount];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = index.getLong();
+        }
+        return offsets;
+    }
+
+    // Recovers the record offsets of an unclosed recording; stops at the first invalid record.
+    private static long[] scanRecords(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long offset = RecordingFormat.FILE_HEADER_SIZE;
+        long[] offsets = new long[256];
+        int count = 0;
+        while (offset + RecordingFormat.RECORD_HEADER_SIZE <= size) {
+            ByteBuffer header = readAt(channel, offset, RecordingFormat.RECORD_HEADER_SIZE);
+            int length = header.getInt(16);
+            if (header.getInt(0) != RecordingFormat.RECORD_MAGIC || length < 0
+                    || RecordingFormat.formatFor(header.getInt(4)) == null
+                    || offset + RecordingFormat.RECORD_HEADER_SIZE + length > size) {
+                break;
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+            offset += RecordingFormat.RECORD_HEADER_SIZE + length;
+        }
+        return Arrays.copyOf(offsets, count);
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of recording at " + (offset + buffer.position()));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.edgeview.record;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+/**
+ * Layout of a frame recording. All integers are little-endian.
+ * <pre>
+ * file header (64 bytes)
+ *   0  u8[8] magic "EVREC\0\0\1"
+ *   8  i32   version (1)
+ *  12  i32   reserved
+ *  16  i64   frame count, 0 until the recording is closed
+ *  24  i64   offset of the index, 0 until the recording is closed
+ *  32  ...   reserved
+ * frame record (32-byte header, then the pixels)
+ *   0  i32   record magic 0x45564652 ("EVFR")
+ *   4  i32   pixel format code, see formatCode()
+ *   8  i32   width
+ *  12  i32   height
+ *  16  i32   payload length
+ *  20  i32   reserved
+ *  24  i64   capture timestamp, System.nanoTime() clock of the recording device
+ * index (at the end)
+ *   frame count * i64 record offsets
+ * </pre>
+ * A recording that was not closed (app killed) has no index; readers then scan the records.
+ */
+final class RecordingFormat {
+    static final byte[] MAGIC = {'E', 'V', 'R', 'E', 'C', 0, 0, 1};
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 64;
+    static final int FRAME_COUNT_OFFSET = 16;
+    static final int INDEX_OFFSET_OFFSET = 24;
+
+    static final int RECORD_MAGIC = 0x45564652;
+    static final int RECORD_HEADER_SIZE = 32;
+
+    private RecordingFormat() {}
+
+    static int formatCode(PixelFormat format) {
+        return format.ordinal() + 1;
+    }
+
+    /** Returns the format for a code, or null for an unknown code. */
+    static PixelFormat formatFor(int code) {
+        PixelFormat[] formats = PixelFormat.values();
+        return code >= 1 && code <= formats.length ? formats[code - 1] : null;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.edgeview.record;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.source.FrameCallback;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a {@link FrameRecording} to a {@link FrameCallback} exactly as the camera would: each
+ * frame arrives in a pooled direct buffer that is valid until {@code onFrame} returns, with its
+ * capture timestamp moved onto this run's {@link System#nanoTime()} clock (so frame ages stay
+ * meaningful). Frames are always delivered in recorded order with identical contents; only the
+ * pacing differs between {@link Pacing#ORIGINAL} and {@link Pacing#AS_FAST_AS_POSSIBLE}.
+ */
+public final class ReplayFrameSource {
+
+    public enum Pacing {
+        /** Each frame is delivered when its recorded time offset from the first frame is reached. */
+        ORIGINAL,
+        /** Frames are delivered back to back; throughput is bounded only by the callback. */
+        AS_FAST_AS_POSSIBLE
+    }
+
+    private final FrameRecording recording;
+    private final FrameBufferPool pool;
+    private final Pacing pacing;
+    private final int loops;
+    private volatile boolean running;
+    private Thread thread;
+
+    /** @param loops how many times to play the recording; 0 repeats until {@link #stop()} */
+    public ReplayFrameSource(FrameRecording recording, FrameBufferPool pool, Pacing pacing, int loops) {
+        if (loops < 0) {
+            throw new IllegalArgumentException("loops must not be negative: " + loops);
+        }
+        this.recording = recording;
+        this.pool = pool;
+        this.pacing = pacing;
+        this.loops = loops;
+    }
+
+    /** Plays the recording on a thread of its own, like the camera's analyzer thread. */
+    public synchronized void start(FrameCallback callback) {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(() -> play(callback), "ReplayFrameSource");
+        thread.start();
+    }
+
+    /** Stops after the frame being delivered, if any, and waits for the replay thread. */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+        }
+    }
+
+    /** Waits for a finite replay started with {@link #start} to deliver its last frame. */
+    public void awaitCompletion() throws InterruptedException {
+        Thread playing;
+        synchronized (this) {
+            playing = thread;
+        }
+        if (playing != null) {
+            playing.join();
+        }
+    }
+
+    /**
+     * Plays the recording on the calling thread and returns the number of frames delivered.
+     * Meant for tests and benchmarks; {@code loops} must be positive.
+     */
+    public long run(FrameCallback callback) {
+        if (loops == 0) {
+            throw new IllegalStateException("run() needs a finite number of loops");
+        }
+        running = true;
+        return play(callback);
+    }
+
+    private long play(FrameCallback callback) {
+        int count = recording.frameCount();
+        long delivered = 0;
+        if (count == 0) {
+            running = false;
+            return 0;
+        }
+        long firstTimestamp = recording.timestampNanos(0);
+        long loopStart = System.nanoTime();
+        long loopLength = recording.timestampNanos(count - 1) - firstTimestamp;
+        for (int loop = 0; running && (loops == 0 || loop < loops); loop++) {
+            for (int i = 0; i < count && running; i++) {
+                long offset = Math.max(0, recording.timestampNanos(i) - firstTimestamp);
+                long due = loopStart + offset;
+                if (pacing == Pacing.ORIGINAL) {
+                    long wait;
+                    while (running && (wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(this, wait);
+                    }
+                }
+                deliver(i, pacing == Pacing.ORIGINAL ? due : System.nanoTime(), callback);
+                delivered++;
+            }
+            // Next loop starts one average frame interval after this loop's last frame.
+            loopStart += loopLength + (count > 1 ? loopLength / (count - 1) : 0);
+            if (pacing != Pacing.ORIGINAL) {
+                loopStart = System.nanoTime();
+            }
+        }
+        running = false;
+        return delivered;
+    }
+
+    private void deliver(int index, long timestampNanos, FrameCallback callback) {
+        PixelFormat format = recording.format(index);
+        int width = recording.width(index);
+        int height = recording.height(index);
+        FrameBuffer frame = pool.acquireDirect(format.frameSize(width, height));
+        try {
+            frame.setDimensions(width, height);
+            frame.setFormat(format);
+            frame.setTimestampNanos(timestampNanos);
+            frame.buffer().clear();
+            frame.buffer().put(recording.pixels(index));
+            frame.buffer().clear();
+            callback.onFrame(frame, width, height);
+        } finally {
+            // As with the camera, consumers that keep the frame retain it themselves.
+            frame.release();
+        }
+    }
+}
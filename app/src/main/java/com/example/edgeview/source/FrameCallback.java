@@ -0,0 +1,13 @@
+package com.example.edgeview.source;
+
+import com.example.edgeview.buffer.FrameBuffer;
+
+/**
+ * Receives each frame from a frame source (the camera, or a replayed recording), either RGBA or
+ * luma-only GRAY8; check {@link FrameBuffer#format()}. The buffer is only guaranteed to be valid
+ * until {@code onFrame} returns; a consumer that hands it to another thread must
+ * {@link FrameBuffer#retain()} it first and {@link FrameBuffer#release()} it when done.
+ */
+public interface FrameCallback {
+    void onFrame(FrameBuffer frame, int width, int height);
+}
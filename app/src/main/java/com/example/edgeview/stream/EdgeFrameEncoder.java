@@ -0,0 +1,29 @@
+package com.example.edgeview.stream;
+
+import com.example.edgeview.buffer.FrameView;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.codec.EdgeMapEncoder;
+
+/**
+ * Sends GRAY8 edge frames as 1-bit, run-length coded edge maps and everything else (the raw RGBA
+ * preview) as {@link RawFrameEncoder} does. A typical 1280x720 edge map shrinks from 900 KB to
+ * under 20 KB. Deltas are not used because clients drop frames and join mid-stream.
+ */
+public final class EdgeFrameEncoder implements FrameEncoder {
+    private final EdgeMapEncoder edges = new EdgeMapEncoder();
+    private final RawFrameEncoder raw = new RawFrameEncoder();
+
+    @Override
+    public void encode(FrameView frame, int sequence, EncodedFrame out) {
+        if (frame.format() != PixelFormat.GRAY8) {
+            raw.encode(frame, sequence, out);
+            return;
+        }
+        int width = frame.width();
+        int height = frame.height();
+        byte[] data = out.ensureCapacity(StreamMessage.HEADER_SIZE + EdgeMapEncoder.maxEncodedSize(width, height));
+        StreamMessage.writeHeader(data, StreamMessage.CODEC_EDGE_BITS, width, height, sequence);
+        int size = edges.encode(frame.pixels(), width, height, data, StreamMessage.HEADER_SIZE);
+        out.setLength(StreamMessage.HEADER_SIZE + size);
+    }
+}
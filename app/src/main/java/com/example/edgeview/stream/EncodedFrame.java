@@ -0,0 +1,65 @@
+package com.example.edgeview.stream;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One encoded stream message, shared by every client it is queued for. Like
+ * {@link com.example.edgeview.buffer.FrameBuffer} it is reference counted: the server holds one
+ * reference while fanning out, each client queue one more, and the message goes back to the
+ * server's free list when the last is released. The byte array grows on demand and is reused.
+ */
+public final class EncodedFrame {
+    private final FrameStreamServer owner;
+    private final AtomicInteger refCount = new AtomicInteger();
+    private byte[] data = new byte[0];
+    private int length;
+
+    EncodedFrame(FrameStreamServer owner) {
+        this.owner = owner;
+    }
+
+    /** Returns a backing array of at least {@code capacity} bytes; earlier contents are not kept. */
+    public byte[] ensureCapacity(int capacity) {
+        if (data.length < capacity) {
+            data = new byte[capacity];
+        }
+        return data;
+    }
+
+    public byte[] data() {
+        return data;
+    }
+
+    /** Number of valid bytes in {@link #data()}. */
+    public int length() {
+        return length;
+    }
+
+    public void setLength(int length) {
+        if (length < 0 || length > data.length) {
+            throw new IllegalArgumentException("length " + length + " outside capacity " + data.length);
+        }
+        this.length = length;
+    }
+
+    EncodedFrame retain() {
+        refCount.incrementAndGet();
+        return this;
+    }
+
+    void release() {
+        int count = refCount.decrementAndGet();
+        if (count == 0) {
+            owner.recycle(this);
+        } else if (count < 0) {
+            refCount.incrementAndGet();
+            throw new IllegalStateException("release() on a released EncodedFrame");
+        }
+    }
+
+    // Called by the server when the message is taken from the free list.
+    void onAcquire() {
+        length = 0;
+        refCount.set(1);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.edgeview.stream;
+
+import com.example.edgeview.buffer.FrameView;
+
+/**
+ * Turns a processed frame into the payload of one binary stream message. Called on the server's
+ * encoder thread only, once per streamed frame regardless of the number of clients, so an
+ * encoder may keep scratch state between calls.
+ */
+public interface FrameEncoder {
+    /**
+     * Writes the complete message, header included (see {@link StreamMessage}), into {@code out}
+     * and sets its length.
+     */
+    void encode(FrameView frame, int sequence, EncodedFrame out);
+}
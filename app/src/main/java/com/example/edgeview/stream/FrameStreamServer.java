@@ -0,0 +1,448 @@
+package com.example.edgeview.stream;
+
+import com.example.edgeview.buffer.FrameView;
+import com.example.edgeview.pipeline.SpscRing;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams processed frames to web viewers as binary WebSocket messages (see {@link StreamMessage}).
+ * <p>
+ * {@link #publish(FrameView)} never blocks the pipeline: it retains the frame and leaves it in
+ * a one-slot mailbox for the encoder thread, replacing (and counting as skipped) any frame the
+ * encoder has not picked up yet. With no clients connected nothing is retained or encoded. The
+ * encoder turns each frame into one {@link EncodedFrame}, however many clients there are, and
+ * offers it to every client's bounded queue. A client that cannot keep up loses its oldest
+ * queued messages, so slow viewers only ever hurt themselves.
+ * <p>
+ * Binds to loopback by default; use {@code adb forward tcp:PORT tcp:PORT} to view from a desktop.
+ */
+public final class FrameStreamServer {
+    public static final int DEFAULT_PORT = 8088;
+    public static final int DEFAULT_QUEUE_CAPACITY = 2;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    // Free messages kept for reuse: enough for every queue slot of a few clients.
+    private static final int MAX_FREE_MESSAGES = 8;
+    // A connection that has not completed its handshake by then is dropped, ending its thread.
+    static final int HANDSHAKE_TIMEOUT_MILLIS = 2000;
+
+    private final InetAddress bindAddress;
+    private final int requestedPort;
+    private final int queueCapacity;
+    private final FrameEncoder encoder;
+
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    // Accepted connections still in the handshake; not counted as clients yet.
+    private final Set<Client> handshaking =
+            Collections.newSetFromMap(new ConcurrentHashMap<Client, Boolean>());
+    private final AtomicReference<FrameView> mailbox = new AtomicReference<>();
+    private final ConcurrentLinkedQueue<EncodedFrame> freeMessages = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong encoded = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong encodeNanos = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private Thread encoderThread;
+    private int sequence;
+
+    public FrameStreamServer(FrameEncoder encoder) {
+        this(InetAddress.getLoopbackAddress(), DEFAULT_PORT, DEFAULT_QUEUE_CAPACITY, encoder);
+    }
+
+    /** {@code port} 0 picks a free port; see {@link #port()}. */
+    public FrameStreamServer(InetAddress bindAddress, int port, int queueCapacity, FrameEncoder encoder) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        this.bindAddress = bindAddress;
+        this.requestedPort = port;
+        this.queueCapacity = queueCapacity;
+        this.encoder = encoder;
+    }
+
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(bindAddress, requestedPort));
+        running = true;
+        acceptThread = new Thread(this::acceptLoop, "FrameStream-accept");
+        encoderThread = new Thread(this::encodeLoop, "FrameStream-encode");
+        acceptThread.start();
+        encoderThread.start();
+    }
+
+    /** Closes the listening socket and every client, and waits for the server threads to exit. */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        closeQuietly(serverSocket);
+        encoderThread.interrupt();
+        try {
+            // No new connections after this, so every one is closed below.
+            acceptThread.join();
+            for (Client client : handshaking) {
+                client.close();
+            }
+            for (Client client : clients) {
+                client.close();
+            }
+            encoderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        FrameView pending = mailbox.getAndSet(null);
+        if (pending != null) {
+            pending.release();
+        }
+    }
+
+    /** Port the server listens on, or -1 when it is not running. */
+    public int port() {
+        ServerSocket socket = serverSocket;
+        return running && socket != null ? socket.getLocalPort() : -1;
+    }
+
+    public int clientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Offers a processed frame for streaming. Takes its own reference; the caller keeps its own.
+     * Returns immediately and may be called from any thread, though frames from several threads
+     * are streamed in no particular order.
+     */
+    public void publish(FrameView frame) {
+        if (!running || clients.isEmpty() || frame.format() == null) {
+            return;
+        }
+        published.incrementAndGet();
+        FrameView replaced = mailbox.getAndSet(frame.retain());
+        if (replaced != null) {
+            skipped.incrementAndGet();
+            replaced.release();
+        }
+        if (!running) {
+            // stop() may have drained the mailbox between the check above and the swap.
+            FrameView pending = mailbox.getAndSet(null);
+            if (pending != null) {
+                pending.release();
+            }
+            return;
+        }
+        LockSupport.unpark(encoderThread);
+    }
+
+    public Stats stats() {
+        return new Stats(clients.size(), published.get(), skipped.get(), encoded.get(), failed.get(),
+                sent.get(), dropped.get(), bytesSent.get(), encodeNanos.get(), rejected.get());
+    }
+
+    /**
+     * Point-in-time counters. {@code skipped} frames were replaced in the mailbox before the
+     * encoder got to them, {@code dropped} messages were evicted from a client queue and
+     * {@code rejected} connections failed the WebSocket handshake or timed out during it.
+     */
+    public static final class Stats {
+        public final int clients;
+        public final long published;
+        public final long skipped;
+        public final long encoded;
+        public final long failed;
+        public final long sent;
+        public final long dropped;
+        public final long bytesSent;
+        public final long encodeNanos;
+        public final long rejected;
+
+        Stats(int clients, long published, long skipped, long encoded, long failed, long sent,
+              long dropped, long bytesSent, long encodeNanos, long rejected) {
+            this.clients = clients;
+            this.published = published;
+            this.skipped = skipped;
+            this.encoded = encoded;
+            this.failed = failed;
+            this.sent = sent;
+            this.dropped = dropped;
+            this.bytesSent = bytesSent;
+            this.encodeNanos = encodeNanos;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{clients=" + clients + ", published=" + published + ", skipped=" + skipped
+                    + ", encoded=" + encoded + ", failed=" + failed + ", sent=" + sent + ", dropped=" + dropped
+                    + ", bytesSent=" + bytesSent + ", encodeUs="
+                    + (encoded > 0 ? encodeNanos / encoded / 1000 : 0) + "}";
+        }
+    }
+
+    void recycle(EncodedFrame message) {
+        if (freeCount.incrementAndGet() <= MAX_FREE_MESSAGES) {
+            freeMessages.offer(message);
+        } else {
+            freeCount.decrementAndGet();
+        }
+    }
+
+    private EncodedFrame acquireMessage() {
+        EncodedFrame message = freeMessages.poll();
+        if (message != null) {
+            freeCount.decrementAndGet();
+        } else {
+            message = new EncodedFrame(this);
+        }
+        message.onAcquire();
+        return message;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // Closed by stop(), or a transient accept error.
+                continue;
+            }
+            try {
+                socket.setTcpNoDelay(true);
+                // The handshake runs on the client's reader thread, so a connection that never
+                // sends its request does not hold up the ones accepted after it.
+                Client client = new Client(socket);
+                handshaking.add(client);
+                client.start();
+            } catch (IOException e) {
+                rejected.incrementAndGet();
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void encodeLoop() {
+        while (running) {
+            FrameView frame = mailbox.getAndSet(null);
+            if (frame == null) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            EncodedFrame message = acquireMessage();
+            long start = System.nanoTime();
+            try {
+                encoder.encode(frame, sequence++, message);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+                message.release();
+                continue;
+            } finally {
+                frame.release();
+            }
+            encodeNanos.addAndGet(System.nanoTime() - start);
+            encoded.incrementAndGet();
+            for (Client client : clients) {
+                client.enqueue(message);
+            }
+            message.release();
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Already closed or broken; nothing left to do.
+        }
+    }
+
+    /**
+     * One connected viewer. The reader thread does the WebSocket handshake, then answers pings and
+     * notices the client going away. The encoder thread is the only producer of its queue; the
+     * writer thread, started after the handshake, drains it.
+     */
+    private final class Client {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private final SpscRing<EncodedFrame> queue = new SpscRing<>(queueCapacity);
+        private final byte[] header = new byte[10];
+        private final Thread writer;
+        private final Thread reader;
+        private volatile boolean open = true;
+
+        Client(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = socket.getOutputStream();
+            String name = "FrameStream-" + socket.getPort();
+            this.writer = new Thread(this::writeLoop, name + "-write");
+            this.reader = new Thread(this::readLoop, name + "-read");
+        }
+
+        void start() {
+            reader.start();
+        }
+
+        // Reader thread. Returns false, with the connection closed, if the handshake failed.
+        private boolean handshake() {
+            try {
+                socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+                String key = WebSocketCodec.readHandshakeKey(in);
+                if (key == null) {
+                    rejected.incrementAndGet();
+                    WebSocketCodec.writeBadRequest(out);
+                    close();
+                    return false;
+                }
+                WebSocketCodec.writeHandshakeResponse(out, key);
+                // Clients may stay silent for as long as they like once connected.
+                socket.setSoTimeout(0);
+            } catch (IOException e) {
+                rejected.incrementAndGet();
+                close();
+                return false;
+            }
+            clients.add(this);
+            handshaking.remove(this);
+            // Started even if closed meanwhile, so anything the encoder queued is released.
+            writer.start();
+            if (!running) {
+                // Stopped during the handshake: stop() may have missed this client.
+                close();
+                return false;
+            }
+            return open;
+        }
+
+        // Encoder thread only: drop-oldest, as for the pipeline's present stage.
+        void enqueue(EncodedFrame message) {
+            if (!open) {
+                return;
+            }
+            message.retain();
+            if (queue.offer(message)) {
+                LockSupport.unpark(writer);
+                return;
+            }
+            EncodedFrame oldest = queue.poll();
+            if (oldest != null) {
+                dropped.incrementAndGet();
+                oldest.release();
+            }
+            if (!queue.offer(message)) {
+                dropped.incrementAndGet();
+                message.release();
+                return;
+            }
+            LockSupport.unpark(writer);
+        }
+
+        private void writeLoop() {
+            try {
+                while (open) {
+                    EncodedFrame message = queue.poll();
+                    if (message == null) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                        continue;
+                    }
+                    try {
+                        send(WebSocketCodec.OPCODE_BINARY, message.data(), message.length());
+                        sent.incrementAndGet();
+                    } finally {
+                        message.release();
+                    }
+                }
+            } catch (IOException e) {
+                // Viewer went away or the server is stopping.
+            } finally {
+                close();
+                EncodedFrame message;
+                while ((message = queue.poll()) != null) {
+                    message.release();
+                }
+            }
+        }
+
+        private void readLoop() {
+            if (!handshake()) {
+                return;
+            }
+            try {
+                WebSocketCodec.ClientFrame frame;
+                while (open && (frame = WebSocketCodec.readClientFrame(in)) != null) {
+                    if (frame.opcode == WebSocketCodec.OPCODE_CLOSE) {
+                        send(WebSocketCodec.OPCODE_CLOSE, frame.payload, Math.min(frame.payload.length, 2));
+                        break;
+                    }
+                    if (frame.opcode == WebSocketCodec.OPCODE_PING) {
+                        send(WebSocketCodec.OPCODE_PONG, frame.payload, frame.payload.length);
+                    }
+                }
+            } catch (IOException e) {
+                // Broken connection; handled like a close.
+            } finally {
+                close();
+            }
+        }
+
+        // Writer and reader both send, so whole frames are written under the stream's lock.
+        private void send(int opcode, byte[] payload, int length) throws IOException {
+            int headerLength;
+            synchronized (out) {
+                headerLength = WebSocketCodec.frameHeader(header, opcode, length);
+                out.write(header, 0, headerLength);
+                out.write(payload, 0, length);
+                out.flush();
+            }
+            bytesSent.addAndGet(headerLength + length);
+        }
+
+        void close() {
+            handshaking.remove(this);
+            clients.remove(this);
+            if (!open) {
+                return;
+            }
+            open = false;
+            closeQuietly(socket);
+            LockSupport.unpark(writer);
+        }
+    }
+}
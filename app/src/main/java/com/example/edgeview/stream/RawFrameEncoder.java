@@ -0,0 +1,21 @@
+package com.example.edgeview.stream;
+
+import com.example.edgeview.buffer.FrameView;
+
+import java.nio.ByteBuffer;
+
+/** Sends the frame's pixels as they are: GRAY8 frames as luma bytes, everything else as RGBA. */
+public final class RawFrameEncoder implements FrameEncoder {
+    @Override
+    public void encode(FrameView frame, int sequence, EncodedFrame out) {
+        int size = frame.format().frameSize(frame.width(), frame.height());
+        byte[] data = out.ensureCapacity(StreamMessage.HEADER_SIZE + size);
+        StreamMessage.writeHeader(data, StreamMessage.rawCodecFor(frame.format()),
+                frame.width(), frame.height(), sequence);
+        // Absolute bulk copy through a duplicate: the shared buffer's position is left alone.
+        ByteBuffer pixels = frame.pixels().duplicate();
+        pixels.clear();
+        pixels.get(data, StreamMessage.HEADER_SIZE, size);
+        out.setLength(StreamMessage.HEADER_SIZE + size);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.edgeview.stream;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+/**
+ * Layout of the binary messages sent to web viewers (mirrored in web/main.ts). All integers are
+ * big-endian:
+ * <pre>
+ *   0  u8[2]  magic 'E' 'V'
+ *   2  u8     version (1)
+ *   3  u8     codec, one of the CODEC_* constants
+ *   4  u32    width
+ *   8  u32    height
+ *  12  u32    sequence number, incremented per streamed frame (gaps mean skipped frames)
+ *  16  ...    payload
+ * </pre>
+ */
+public final class StreamMessage {
+    public static final int HEADER_SIZE = 16;
+    public static final int VERSION = 1;
+
+    /** Payload is width * height luma/edge bytes. */
+    public static final int CODEC_RAW_GRAY8 = 0;
+    /** Payload is width * height * 4 RGBA bytes. */
+    public static final int CODEC_RAW_RGBA = 1;
+    /** Payload is a binary edge map in the EdgeMapEncoder format, without deltas. */
+    public static final int CODEC_EDGE_BITS = 2;
+
+    private StreamMessage() {}
+
+    public static int rawCodecFor(PixelFormat format) {
+        return format == PixelFormat.GRAY8 ? CODEC_RAW_GRAY8 : CODEC_RAW_RGBA;
+    }
+
+    public static void writeHeader(byte[] out, int codec, int width, int height, int sequence) {
+        out[0] = 'E';
+        out[1] = 'V';
+        out[2] = (byte) VERSION;
+        out[3] = (byte) codec;
+        putInt(out, 4, width);
+        putInt(out, 8, height);
+        putInt(out, 12, sequence);
+    }
+
+    public static int codec(byte[] message) {
+        return message[3] & 0xff;
+    }
+
+    public static int width(byte[] message) {
+        return getInt(message, 4);
+    }
+
+    public static int height(byte[] message) {
+        return getInt(message, 8);
+    }
+
+    public static int sequence(byte[] message) {
+        return getInt(message, 12);
+    }
+
+    static void putInt(byte[] out, int offset, int value) {
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+    }
+
+    static int getInt(byte[] in, int offset) {
+        return (in[offset] & 0xff) << 24 | (in[offset + 1] & 0xff) << 16
+                | (in[offset + 2] & 0xff) << 8 | (in[offset + 3] & 0xff);
+    }
+}
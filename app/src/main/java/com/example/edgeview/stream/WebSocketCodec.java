@@ -0,0 +1,222 @@
+package com.example.edgeview.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+
+/**
+ * The small part of RFC 6455 the stream server needs: the opening handshake, unmasked server
+ * frames and masked client frames. No extensions, no fragmentation of outgoing messages.
+ */
+final class WebSocketCodec {
+    static final int OPCODE_TEXT = 0x1;
+    static final int OPCODE_BINARY = 0x2;
+    static final int OPCODE_CLOSE = 0x8;
+    static final int OPCODE_PING = 0x9;
+    static final int OPCODE_PONG = 0xA;
+
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int MAX_HEADER_BYTES = 8192;
+    // Clients only send control frames and the odd text message; anything larger is refused.
+    private static final int MAX_CLIENT_PAYLOAD = 64 * 1024;
+    private static final char[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+    private WebSocketCodec() {}
+
+    /** A frame received from a client, with its payload already unmasked. */
+    static final class ClientFrame {
+        final int opcode;
+        final byte[] payload;
+
+        ClientFrame(int opcode, byte[] payload) {
+            this.opcode = opcode;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Reads the HTTP upgrade request and returns its Sec-WebSocket-Key, or null when the request
+     * is not a WebSocket upgrade.
+     */
+    static String readHandshakeKey(InputStream in) throws IOException {
+        String key = null;
+        boolean upgrade = false;
+        boolean firstLine = true;
+        int total = 0;
+        String line;
+        while ((line = readLine(in)) != null) {
+            total += line.length() + 2;
+            if (total > MAX_HEADER_BYTES) {
+                return null;
+            }
+            if (line.isEmpty()) {
+                return upgrade ? key : null;
+            }
+            if (firstLine) {
+                firstLine = false;
+                if (!line.startsWith("GET ")) {
+                    return null;
+                }
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.US);
+            String value = line.substring(colon + 1).trim();
+            if (name.equals("sec-websocket-key")) {
+                key = value;
+            } else if (name.equals("upgrade")) {
+                upgrade = value.equalsIgnoreCase("websocket");
+            }
+        }
+        return null;
+    }
+
+    static void writeHandshakeResponse(OutputStream out, String key) throws IOException {
+        String response = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n";
+        out.write(response.getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    static void writeBadRequest(OutputStream out) throws IOException {
+        out.write("HTTP/1.1 400 Bad Request\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return base64(sha1.digest((key + GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 unavailable", e);
+        }
+    }
+
+    /**
+     * Writes the header of an unmasked, unfragmented server frame into {@code header} (at least
+     * 10 bytes) and returns its length.
+     */
+    static int frameHeader(byte[] header, int opcode, int payloadLength) {
+        header[0] = (byte) (0x80 | opcode);
+        if (payloadLength < 126) {
+            header[1] = (byte) payloadLength;
+            return 2;
+        }
+        if (payloadLength <= 0xffff) {
+            header[1] = 126;
+            header[2] = (byte) (payloadLength >>> 8);
+            header[3] = (byte) payloadLength;
+            return 4;
+        }
+        header[1] = 127;
+        header[2] = 0;
+        header[3] = 0;
+        header[4] = 0;
+        header[5] = 0;
+        StreamMessage.putInt(header, 6, payloadLength);
+        return 10;
+    }
+
+    /** Reads one client frame; client frames must be masked. Returns null at end of stream. */
+    static ClientFrame readClientFrame(InputStream in) throws IOException {
+        int b0 = in.read();
+        if (b0 < 0) {
+            return null;
+        }
+        int b1 = readByte(in);
+        if ((b1 & 0x80) == 0) {
+            throw new IOException("Unmasked client frame");
+        }
+        long length = b1 & 0x7f;
+        if (length == 126) {
+            length = readByte(in) << 8 | readByte(in);
+        } else if (length == 127) {
+            length = 0;
+            for (int i = 0; i < 8; i++) {
+                length = length << 8 | readByte(in);
+            }
+            if (length < 0) {
+                // RFC 6455: the most significant bit of a 64-bit length must be 0.
+                throw new IOException("Invalid client frame length");
+            }
+        }
+        if (length > MAX_CLIENT_PAYLOAD) {
+            throw new IOException("Client frame too large: " + length);
+        }
+        byte[] mask = new byte[4];
+        readFully(in, mask);
+        byte[] payload = new byte[(int) length];
+        readFully(in, payload);
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] ^= mask[i & 3];
+        }
+        return new ClientFrame(b0 & 0x0f, payload);
+    }
+
+    static String base64(byte[] bytes) {
+        StringBuilder out = new StringBuilder((bytes.length + 2) / 3 * 4);
+        for (int i = 0; i < bytes.length; i += 3) {
+            int n = (bytes[i] & 0xff) << 16;
+            int remaining = bytes.length - i;
+            if (remaining > 1) {
+                n |= (bytes[i + 1] & 0xff) << 8;
+            }
+            if (remaining > 2) {
+                n |= bytes[i + 2] & 0xff;
+            }
+            out.append(BASE64[n >>> 18 & 0x3f]).append(BASE64[n >>> 12 & 0x3f]);
+            out.append(remaining > 1 ? BASE64[n >>> 6 & 0x3f] : '=');
+            out.append(remaining > 2 ? BASE64[n & 0x3f] : '=');
+        }
+        return out.toString();
+    }
+
+    // Reads one CRLF-terminated ASCII line without buffering past it; null at end of stream.
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        int b;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                byte[] bytes = line.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+            }
+            if (line.size() >= MAX_HEADER_BYTES) {
+                throw new IOException("Header line too long");
+            }
+            line.write(b);
+        }
+        return null;
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] out) throws IOException {
+        int offset = 0;
+        while (offset < out.length) {
+            int n = in.read(out, offset, out.length - offset);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            offset += n;
+        }
+    }
+}
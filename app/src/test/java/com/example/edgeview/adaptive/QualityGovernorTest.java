@@ -0,0 +1,82 @@
+package com.example.edgeview.adaptive;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class QualityGovernorTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void staysAtFullQualityWithinBudget() {
+        QualityGovernor governor = new QualityGovernor(30);
+        for (int i = 0; i < 500; i++) {
+            assertTrue(governor.shouldProcess());
+            assertFalse(governor.onFrameProcessed(20 * MS));
+        }
+        assertEquals(0, governor.levelIndex());
+    }
+
+    @Test
+    public void degradesAfterSustainedOverload() {
+        QualityGovernor governor = new QualityGovernor(30, QualityGovernor.DEFAULT_LEVELS, 8, 90);
+        int changedAt = -1;
+        for (int i = 0; i < 20 && changedAt < 0; i++) {
+            if (governor.onFrameProcessed(60 * MS)) {
+                changedAt = i;
+            }
+        }
+        assertEquals(7, changedAt);
+        assertEquals(2, governor.level().downscale());
+    }
+
+    @Test
+    public void singleSpikeDoesNotDegrade() {
+        QualityGovernor governor = new QualityGovernor(30);
+        for (int i = 0; i < 100; i++) {
+            governor.onFrameProcessed(i % 50 == 25 ? 200 * MS : 10 * MS);
+        }
+        assertEquals(0, governor.levelIndex());
+    }
+
+    @Test
+    public void recoversOnlyWithHeadroomAndDoesNotOscillate() {
+        QualityGovernor governor = new QualityGovernor(30, QualityGovernor.DEFAULT_LEVELS, 4, 30);
+        // Full resolution costs 40 ms on this "device", so level 1 (a quarter of the pixels) costs 10 ms.
+        for (int i = 0; i < 20; i++) {
+            governor.onFrameProcessed(cost(governor, 40 * MS));
+        }
+        assertEquals(1, governor.levelIndex());
+
+        // Level 0 would need 40 ms > 33 ms: the governor must stay put for good.
+        for (int i = 0; i < 1000; i++) {
+            governor.onFrameProcessed(cost(governor, 40 * MS));
+        }
+        assertEquals(1, governor.levelIndex());
+        assertEquals(1, governor.changes());
+
+        // The device speeds up (e.g. thermal throttling ends): full resolution now 12 ms.
+        for (int i = 0; i < 200; i++) {
+            governor.onFrameProcessed(cost(governor, 12 * MS));
+        }
+        assertEquals(0, governor.levelIndex());
+    }
+
+    @Test
+    public void frameSkippingFollowsInterval() {
+        QualityGovernor governor = new QualityGovernor(30, Collections.singletonList(new QualityLevel(1, 3)), 1, 1);
+        int processed = 0;
+        for (int i = 0; i < 9; i++) {
+            if (governor.shouldProcess()) {
+                processed++;
+            }
+        }
+        assertEquals(3, processed);
+    }
+
+    private static long cost(QualityGovernor governor, long fullResolutionNanos) {
+        return (long) (fullResolutionNanos * governor.level().relativeCost());
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.edgeview.batch;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.processing.JavaCannyDetector;
+import com.example.edgeview.record.FrameRecorder;
+import com.example.edgeview.record.FrameRecording;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BatchEngineTest {
+    private static final EdgeConfig CONFIG = new EdgeConfig(50, 150, 3);
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("batch").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(dir);
+    }
+
+    @Test
+    public void imageSetMatchesSingleThreadedDetector() throws Exception {
+        File images = new File(dir, "images");
+        assertTrue(images.mkdir());
+        byte[][] pixels = new byte[6][];
+        for (int i = 0; i < pixels.length; i++) {
+            boolean color = i % 2 == 1;
+            pixels[i] = noise((color ? 3 : 1) * 48 * 32, i);
+            writeNetpbm(new File(images, "frame" + i + (color ? ".ppm" : ".pgm")), color, 48, 32, pixels[i]);
+        }
+        File out = new File(dir, "out");
+
+        BatchReport report = new BatchEngine(CONFIG, 3, 4)
+                .run(ImageSetInput.fromDirectory(images), new PgmDirectorySink(out));
+
+        assertEquals(6, report.processed);
+        assertEquals(0, report.failed);
+        assertEquals(6, report.total.count);
+        for (int i = 0; i < pixels.length; i++) {
+            boolean color = i % 2 == 1;
+            byte[] expected = detect(color ? rgba(pixels[i]) : pixels[i], color ? PixelFormat.RGBA : PixelFormat.GRAY8,
+                    48, 32);
+            byte[] written = Files.readAllBytes(new File(out, "frame" + i + ".pgm").toPath());
+            byte[] edges = Arrays.copyOfRange(written, written.length - 48 * 32, written.length);
+            assertArrayEquals("frame " + i, expected, edges);
+        }
+    }
+
+    @Test
+    public void imagesDifferingOnlyInExtensionGetSeparateResults() throws Exception {
+        File images = new File(dir, "images");
+        assertTrue(images.mkdir());
+        writeNetpbm(new File(images, "a.pgm"), false, 48, 32, noise(48 * 32, 1));
+        writeNetpbm(new File(images, "a.ppm"), true, 48, 32, noise(3 * 48 * 32, 2));
+        writeNetpbm(new File(images, "b.pgm"), false, 48, 32, noise(48 * 32, 3));
+        File out = new File(dir, "out");
+
+        ImageSetInput input = ImageSetInput.fromDirectory(images);
+        assertEquals("a.pgm", input.name(0));
+        assertEquals("a.ppm", input.name(1));
+        assertEquals("b", input.name(2));
+        BatchReport report = new BatchEngine(CONFIG, 2, 2).run(input, new PgmDirectorySink(out));
+
+        assertEquals(3, report.processed);
+        String[] written = out.list();
+        Arrays.sort(written);
+        assertEquals("[a.pgm.pgm, a.ppm.pgm, b.pgm]", Arrays.toString(written));
+    }
+
+    @Test
+    public void recordingFramesAreProcessedWithBoundedBuffers() throws Exception {
+        File file = new File(dir, "session.evrec");
+        FrameBufferPool pool = new FrameBufferPool(1, 0);
+        byte[][] pixels = new byte[40][];
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = noise(64 * 48, 100 + i);
+                FrameBuffer frame = pool.acquire(64 * 48);
+                frame.setDimensions(64, 48);
+                frame.setFormat(PixelFormat.GRAY8);
+                frame.setTimestampNanos(i);
+                frame.buffer().put(pixels[i]).clear();
+                recorder.onFrame(frame, 64, 48);
+                frame.release();
+            }
+        }
+        Map<Integer, byte[]> results = new ConcurrentHashMap<>();
+        BatchReport report;
+        try (FrameRecording recording = FrameRecording.open(file)) {
+            report = new BatchEngine(CONFIG, 2, 3).run(new RecordingInput(recording, "session"),
+                    (index, name, edges) -> {
+                        assertEquals(String.format("session-%06d", index), name);
+                        assertEquals(index, edges.timestampNanos());
+                        byte[] copy = new byte[64 * 48];
+                        edges.buffer().duplicate().get(copy);
+                        results.put(index, copy);
+                    });
+        }
+
+        assertEquals(40, report.processed);
+        for (int i = 0; i < pixels.length; i++) {
+            assertArrayEquals("frame " + i, detect(pixels[i], PixelFormat.GRAY8, 64, 48), results.get(i));
+        }
+        // One input and one output buffer per worker, however many frames went through.
+        assertTrue(report.allocatedBytes + " bytes", report.allocatedBytes <= 2 * 2 * 64 * 48);
+    }
+
+    @Test
+    public void failedFramesAreCountedAndSkipped() throws Exception {
+        File images = new File(dir, "images");
+        assertTrue(images.mkdir());
+        writeNetpbm(new File(images, "a.pgm"), false, 16, 16, noise(256, 1));
+        try (OutputStream out = new FileOutputStream(new File(images, "b.pgm"))) {
+            out.write("P5\n16 16\n255\n".getBytes("US-ASCII"));
+            out.write(new byte[100]); // truncated
+        }
+        writeNetpbm(new File(images, "c.pgm"), false, 16, 16, noise(256, 2));
+        AtomicInteger written = new AtomicInteger();
+
+        BatchReport report = new BatchEngine(CONFIG, 2, 0)
+                .run(ImageSetInput.fromDirectory(images), (index, name, edges) -> written.incrementAndGet());
+
+        assertEquals(3, report.inputs);
+        assertEquals(2, report.processed);
+        assertEquals(1, report.failed);
+        assertEquals(2, written.get());
+        assertTrue(report.firstFailure, report.firstFailure.startsWith("b: "));
+    }
+
+    @Test
+    public void inFlightIsAtLeastTheWorkerCount() {
+        BatchEngine engine = new BatchEngine(CONFIG, 4, 1);
+        assertEquals(4, engine.workers());
+        assertEquals(4, engine.maxInFlight());
+        assertEquals(8, new BatchEngine(CONFIG, 4, 0).maxInFlight());
+    }
+
+    private static byte[] detect(byte[] input, PixelFormat format, int width, int height) {
+        byte[] output = new byte[width * height];
+        new JavaCannyDetector(CONFIG).detect(input, format, output, PixelFormat.GRAY8, width, height);
+        return output;
+    }
+
+    private static byte[] rgba(byte[] rgb) {
+        byte[] rgba = new byte[rgb.length / 3 * 4];
+        for (int i = 0, j = 0; i < rgb.length; i += 3, j += 4) {
+            rgba[j] = rgb[i];
+            rgba[j + 1] = rgb[i + 1];
+            rgba[j + 2] = rgb[i + 2];
+            rgba[j + 3] = (byte) 0xFF;
+        }
+        return rgba;
+    }
+
+    // Blocky noise, so there are edges for the detector to find.
+    private static byte[] noise(int length, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i += 8) {
+            Arrays.fill(data, i, Math.min(length, i + 8), (byte) random.nextInt(256));
+        }
+        return data;
+    }
+
+    private static void writeNetpbm(File file, boolean color, int width, int height, byte[] pixels)
+            throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(((color ? "P6" : "P5") + "\n# test image\n" + width + " " + height + "\n255\n")
+                    .getBytes("US-ASCII"));
+            out.write(pixels);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.edgeview.buffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameBufferPoolTest {
+    @Test
+    public void releasedBufferIsReusedForSameSize() {
+        FrameBufferPool pool = new FrameBufferPool(2, 1024);
+        FrameBuffer first = pool.acquire(100);
+        first.release();
+
+        FrameBuffer second = pool.acquire(100);
+        assertSame(first, second);
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+        assertEquals(100, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void differentSizesDoNotShareBuffers() {
+        FrameBufferPool pool = new FrameBufferPool(2, 1024);
+        FrameBuffer small = pool.acquire(100);
+        small.release();
+
+        FrameBuffer large = pool.acquire(200);
+        assertNotSame(small, large);
+        assertEquals(200, large.capacity());
+        assertEquals(0, pool.getHits());
+    }
+
+    @Test
+    public void directAndHeapBuffersAreKeptApart() {
+        FrameBufferPool pool = new FrameBufferPool(2, 1024);
+        FrameBuffer heap = pool.acquire(100);
+        heap.release();
+
+        FrameBuffer direct = pool.acquireDirect(100);
+        assertTrue(direct.isDirect());
+        assertTrue(direct.buffer().isDirect());
+        assertNotSame(heap, direct);
+        direct.release();
+        assertSame(direct, pool.acquireDirect(100));
+    }
+
+    @Test
+    public void bufferReturnsOnlyAfterLastRelease() {
+        FrameBufferPool pool = new FrameBufferPool(2, 1024);
+        FrameBuffer buffer = pool.acquire(100);
+        buffer.retain();
+
+        buffer.release();
+        assertEquals(0, pool.getRetainedBytes());
+        buffer.release();
+        assertEquals(100, pool.getRetainedBytes());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releasingTwiceFails() {
+        FrameBuffer buffer = new FrameBufferPool(2, 1024).acquire(100);
+        buffer.release();
+        buffer.release();
+    }
+
+    @Test
+    public void poolIsBoundedPerSizeAndInBytes() {
+        FrameBufferPool pool = new FrameBufferPool(2, 250);
+        FrameBuffer a = pool.acquire(100);
+        FrameBuffer b = pool.acquire(100);
+        FrameBuffer c = pool.acquire(100);
+        a.release();
+        b.release();
+        c.release();
+
+        assertEquals(200, pool.getRetainedBytes());
+        assertEquals(1, pool.getDiscarded());
+    }
+
+    @Test
+    public void trimDropsIdleBuffers() {
+        FrameBufferPool pool = new FrameBufferPool(4, 1024);
+        FrameBuffer a = pool.acquire(100);
+        FrameBuffer b = pool.acquire(100);
+        a.release();
+        b.release();
+
+        pool.trimTo(1);
+        assertEquals(100, pool.getRetainedBytes());
+        pool.clear();
+        assertEquals(0, pool.getRetainedBytes());
+    }
+}
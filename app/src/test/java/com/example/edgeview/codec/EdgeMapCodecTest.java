@@ -0,0 +1,129 @@
+package com.example.edgeview.codec;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class EdgeMapCodecTest {
+    // Deliberately not a multiple of 8, so rows end in a partial byte.
+    private static final int WIDTH = 101;
+    private static final int HEIGHT = 37;
+
+    @Test
+    public void keyframesRoundTrip() {
+        EdgeMapEncoder encoder = new EdgeMapEncoder();
+        EdgeMapDecoder decoder = new EdgeMapDecoder();
+        for (long seed = 0; seed < 5; seed++) {
+            byte[] frame = edgeMap(WIDTH, HEIGHT, seed, 0.05);
+            assertArrayEquals(frame, roundTrip(encoder, decoder, frame, WIDTH, HEIGHT));
+        }
+    }
+
+    @Test
+    public void deltaFramesRoundTrip() {
+        EdgeMapEncoder encoder = new EdgeMapEncoder(30);
+        EdgeMapDecoder decoder = new EdgeMapDecoder();
+        byte[] frame = edgeMap(WIDTH, HEIGHT, 1, 0.05);
+        Random random = new Random(2);
+        for (int i = 0; i < 10; i++) {
+            // Flip a few pixels per frame, like a mostly static scene.
+            for (int j = 0; j < 20; j++) {
+                int p = random.nextInt(frame.length);
+                frame[p] = (byte) ~frame[p];
+            }
+            assertArrayEquals(frame, roundTrip(encoder, decoder, frame, WIDTH, HEIGHT));
+        }
+    }
+
+    @Test
+    public void resolutionChangeToWiderShorterFrames() {
+        EdgeMapEncoder encoder = new EdgeMapEncoder(30);
+        EdgeMapDecoder decoder = new EdgeMapDecoder();
+        byte[] first = edgeMap(640, 480, 6, 0.05);
+        assertArrayEquals(first, roundTrip(encoder, decoder, first, 640, 480));
+        // Fits the frame arrays sized for 640x480, but its rows are longer; the second is a delta.
+        byte[] wide = edgeMap(1280, 240, 7, 0.05);
+        assertArrayEquals(wide, roundTrip(encoder, decoder, wide, 1280, 240));
+        assertArrayEquals(wide, roundTrip(encoder, decoder, wide, 1280, 240));
+    }
+
+    @Test
+    public void denseNoiseFallsBackToPackedRows() {
+        byte[] frame = edgeMap(WIDTH, HEIGHT, 3, 0.5);
+        byte[] encoded = new byte[EdgeMapEncoder.maxEncodedSize(WIDTH, HEIGHT)];
+        int size = new EdgeMapEncoder().encode(ByteBuffer.wrap(frame), WIDTH, HEIGHT, encoded, 0);
+        assertTrue(size <= EdgeMapEncoder.maxEncodedSize(WIDTH, HEIGHT));
+        assertArrayEquals(frame, decode(new EdgeMapDecoder(), encoded, size, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void sparseAndStaticFramesAreSmall() {
+        int width = 1280;
+        int height = 720;
+        byte[] frame = new byte[width * height];
+        for (int y = 100; y < 600; y++) {
+            frame[y * width + 200] = (byte) 255;
+            frame[y * width + 900] = (byte) 255;
+        }
+        EdgeMapEncoder encoder = new EdgeMapEncoder(30);
+        byte[] encoded = new byte[EdgeMapEncoder.maxEncodedSize(width, height)];
+        int keyframe = encoder.encode(ByteBuffer.wrap(frame), width, height, encoded, 0);
+        // Two vertical lines: at most five one-byte or two-byte runs per row.
+        assertTrue("keyframe " + keyframe, keyframe < height * 8);
+        int delta = encoder.encode(ByteBuffer.wrap(frame), width, height, encoded, 0);
+        // Unchanged frame: a tag and one run per row.
+        assertEquals(1 + height * 3, delta);
+    }
+
+    @Test
+    public void decodesToRgba() {
+        byte[] frame = edgeMap(WIDTH, HEIGHT, 4, 0.1);
+        byte[] encoded = new byte[EdgeMapEncoder.maxEncodedSize(WIDTH, HEIGHT)];
+        int size = new EdgeMapEncoder().encode(ByteBuffer.wrap(frame), WIDTH, HEIGHT, encoded, 0);
+        byte[] rgba = new byte[WIDTH * HEIGHT * 4];
+        new EdgeMapDecoder().decode(encoded, 0, size, rgba, PixelFormat.RGBA, WIDTH, HEIGHT);
+        for (int i = 0; i < frame.length; i++) {
+            assertEquals(frame[i], rgba[i * 4]);
+            assertEquals((byte) 0xff, rgba[i * 4 + 3]);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deltaWithoutReferenceIsRejected() {
+        EdgeMapEncoder encoder = new EdgeMapEncoder(30);
+        byte[] frame = edgeMap(WIDTH, HEIGHT, 5, 0.05);
+        byte[] encoded = new byte[EdgeMapEncoder.maxEncodedSize(WIDTH, HEIGHT)];
+        encoder.encode(ByteBuffer.wrap(frame), WIDTH, HEIGHT, encoded, 0);
+        int size = encoder.encode(ByteBuffer.wrap(frame), WIDTH, HEIGHT, encoded, 0);
+        decode(new EdgeMapDecoder(), encoded, size, WIDTH, HEIGHT);
+    }
+
+    private static byte[] roundTrip(EdgeMapEncoder encoder, EdgeMapDecoder decoder, byte[] frame,
+                                    int width, int height) {
+        byte[] encoded = new byte[EdgeMapEncoder.maxEncodedSize(width, height) + 3];
+        int size = encoder.encode(ByteBuffer.wrap(frame), width, height, encoded, 3);
+        byte[] decoded = new byte[width * height];
+        decoder.decode(encoded, 3, size, decoded, PixelFormat.GRAY8, width, height);
+        return decoded;
+    }
+
+    private static byte[] decode(EdgeMapDecoder decoder, byte[] encoded, int size, int width, int height) {
+        byte[] decoded = new byte[width * height];
+        decoder.decode(encoded, 0, size, decoded, PixelFormat.GRAY8, width, height);
+        return decoded;
+    }
+
+    private static byte[] edgeMap(int width, int height, long seed, double density) {
+        Random random = new Random(seed);
+        byte[] frame = new byte[width * height];
+        for (int i = 0; i < frame.length; i++) {
+            frame[i] = random.nextDouble() < density ? (byte) 255 : 0;
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.edgeview.convert;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class LumaExtractorTest {
+    private static final int WIDTH = 5;
+    private static final int HEIGHT = 3;
+
+    @Test
+    public void dropsRowPadding() {
+        int rowStride = 8;
+        ByteBuffer plane = plane(rowStride, 1);
+
+        ByteBuffer luma = ByteBuffer.allocateDirect(WIDTH * HEIGHT);
+        LumaExtractor.copyLuma(plane, rowStride, 1, WIDTH, HEIGHT, luma);
+
+        assertPacked(luma);
+        assertEquals(0, plane.position());
+        assertEquals(plane.capacity(), plane.limit());
+    }
+
+    @Test
+    public void copiesTightPlaneInOneTransfer() {
+        ByteBuffer plane = plane(WIDTH, 1);
+        ByteBuffer luma = ByteBuffer.allocate(WIDTH * HEIGHT);
+        LumaExtractor.copyLuma(plane, WIDTH, 1, WIDTH, HEIGHT, luma);
+        assertPacked(luma);
+    }
+
+    @Test
+    public void handlesPixelStride() {
+        int rowStride = WIDTH * 2;
+        ByteBuffer plane = plane(rowStride, 2);
+        ByteBuffer luma = ByteBuffer.allocate(WIDTH * HEIGHT);
+        LumaExtractor.copyLuma(plane, rowStride, 2, WIDTH, HEIGHT, luma);
+        assertPacked(luma);
+    }
+
+    private static ByteBuffer plane(int rowStride, int pixelStride) {
+        ByteBuffer plane = ByteBuffer.allocateDirect(rowStride * HEIGHT);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                plane.put(row * rowStride + col * pixelStride, (byte) (row * 10 + col));
+            }
+        }
+        return plane;
+    }
+
+    private static void assertPacked(ByteBuffer luma) {
+        assertEquals(0, luma.position());
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                assertEquals(row * 10 + col, luma.get(row * WIDTH + col));
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.edgeview.convert;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ParallelNv21ConverterTest {
+    private final Random random = new Random(7);
+    private final List<ForkJoinPool> pools = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (ForkJoinPool pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void matchesReferenceOnRandomFrames() {
+        ParallelNv21Converter converter = converter(4, 8);
+        int[][] sizes = {{2, 2}, {64, 48}, {320, 240}, {642, 362}, {1280, 720}};
+        for (int[] size : sizes) {
+            assertMatchesReference(converter, size[0], size[1]);
+        }
+    }
+
+    @Test
+    public void matchesReferenceAtClampingExtremes() {
+        ParallelNv21Converter converter = converter(2, 3);
+        int width = 16;
+        int height = 16;
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        // Every combination of extreme luma and chroma values.
+        byte[] extremes = {0, 15, 16, (byte) 128, (byte) 235, (byte) 240, (byte) 255};
+        for (int i = 0; i < nv21.length; i++) {
+            nv21[i] = extremes[(i * 5 + i / 7) % extremes.length];
+        }
+        assertSameOutput(converter, nv21, width, height);
+    }
+
+    @Test
+    public void moreBandsThanRowsStillConvertsEveryRow() {
+        ParallelNv21Converter converter = converter(2, 64);
+        assertMatchesReference(converter, 8, 4);
+    }
+
+    @Test
+    public void writesAtOffsetWithoutTouchingPrefix() {
+        ParallelNv21Converter converter = converter(2, 4);
+        int width = 8;
+        int height = 8;
+        byte[] nv21 = randomNv21(width, height);
+        byte[] rgba = new byte[16 + width * height * 4];
+        Arrays.fill(rgba, 0, 16, (byte) 0x5a);
+
+        converter.convert(nv21, rgba, 16, width, height);
+
+        byte[] expected = new byte[width * height * 4];
+        ReferenceYuvConverter.nv21ToRgba(nv21, expected, 0, 0, height, width, height);
+        assertArrayEquals(expected, Arrays.copyOfRange(rgba, 16, rgba.length));
+        for (int i = 0; i < 16; i++) {
+            assertEquals(0x5a, rgba[i]);
+        }
+    }
+
+    @Test
+    public void directBufferWithoutArrayMatchesReference() {
+        ParallelNv21Converter converter = converter(2, 4);
+        int width = 32;
+        int height = 24;
+        byte[] nv21 = randomNv21(width, height);
+        ByteBuffer rgba = ByteBuffer.allocateDirect(width * height * 4);
+        converter.convert(nv21, rgba, width, height);
+
+        byte[] expected = new byte[width * height * 4];
+        ReferenceYuvConverter.nv21ToRgba(nv21, expected, 0, 0, height, width, height);
+        assertEquals(ByteBuffer.wrap(expected), rgba);
+    }
+
+    private ParallelNv21Converter converter(int parallelism, int bands) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pools.add(pool);
+        return new ParallelNv21Converter(pool, bands);
+    }
+
+    private void assertMatchesReference(ParallelNv21Converter converter, int width, int height) {
+        assertSameOutput(converter, randomNv21(width, height), width, height);
+    }
+
+    private static void assertSameOutput(ParallelNv21Converter converter, byte[] nv21, int width, int height) {
+        byte[] expected = new byte[width * height * 4];
+        ReferenceYuvConverter.nv21ToRgba(nv21, expected, 0, 0, height, width, height);
+        byte[] actual = new byte[width * height * 4];
+        converter.convert(nv21, actual, 0, width, height);
+        assertArrayEquals(width + "x" + height, expected, actual);
+    }
+
+    private byte[] randomNv21(int width, int height) {
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        random.nextBytes(nv21);
+        return nv21;
+    }
+}
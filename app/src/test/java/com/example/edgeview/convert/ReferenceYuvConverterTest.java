@@ -0,0 +1,79 @@
+package com.example.edgeview.convert;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ReferenceYuvConverterTest {
+    private static final int WIDTH = 6;
+    private static final int HEIGHT = 4;
+
+    @Test
+    public void repacksPaddedSemiPlanarPlanes() {
+        // Row strides wider than the image and U/V interleaved with a pixel stride of 2.
+        int yRowStride = 8;
+        int uvRowStride = 8;
+        ByteBuffer y = ByteBuffer.allocateDirect(yRowStride * HEIGHT);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                y.put(row * yRowStride + col, (byte) (row * 10 + col));
+            }
+        }
+        ByteBuffer vu = ByteBuffer.allocateDirect(uvRowStride * HEIGHT / 2);
+        for (int row = 0; row < HEIGHT / 2; row++) {
+            for (int col = 0; col < WIDTH / 2; col++) {
+                vu.put(row * uvRowStride + col * 2, (byte) (100 + row * 10 + col));
+                vu.put(row * uvRowStride + col * 2 + 1, (byte) (200 + row * 10 + col));
+            }
+        }
+        ByteBuffer v = vu.duplicate();
+        vu.position(1);
+        ByteBuffer u = vu.slice();
+
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        ReferenceYuvConverter.planesToNv21(y, yRowStride, 1, u, uvRowStride, v, uvRowStride, 2,
+                WIDTH, HEIGHT, nv21);
+
+        assertEquals(0, nv21[0]);
+        assertEquals(35, nv21[3 * WIDTH + 5]);
+        int uvStart = WIDTH * HEIGHT;
+        assertEquals((byte) 100, nv21[uvStart]);
+        assertEquals((byte) 200, nv21[uvStart + 1]);
+        assertEquals((byte) 112, nv21[uvStart + WIDTH + 4]);
+        assertEquals((byte) 212, nv21[uvStart + WIDTH + 5]);
+    }
+
+    @Test
+    public void convertsBlackNv21ToOpaqueBlack() {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        Arrays.fill(nv21, 0, WIDTH * HEIGHT, (byte) 16);
+        Arrays.fill(nv21, WIDTH * HEIGHT, nv21.length, (byte) 128);
+
+        ByteBuffer rgba = ByteBuffer.allocate(WIDTH * HEIGHT * 4);
+        ReferenceYuvConverter.nv21ToRgba(nv21, rgba, WIDTH, HEIGHT);
+
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            assertEquals(0, rgba.get(i * 4));
+            assertEquals(0, rgba.get(i * 4 + 1));
+            assertEquals(0, rgba.get(i * 4 + 2));
+            assertEquals((byte) 255, rgba.get(i * 4 + 3));
+        }
+    }
+
+    @Test
+    public void directAndHeapOutputsMatch() {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        for (int i = 0; i < nv21.length; i++) {
+            nv21[i] = (byte) (i * 37);
+        }
+        ByteBuffer heap = ByteBuffer.allocate(WIDTH * HEIGHT * 4);
+        ByteBuffer direct = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4);
+        ReferenceYuvConverter.nv21ToRgba(nv21, heap, WIDTH, HEIGHT);
+        ReferenceYuvConverter.nv21ToRgba(nv21, direct, WIDTH, HEIGHT);
+
+        assertEquals(heap, direct);
+    }
+}
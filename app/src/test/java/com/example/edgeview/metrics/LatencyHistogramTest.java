@@ -0,0 +1,61 @@
+package com.example.edgeview.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void bucketsCoverValuesInOrder() {
+        int previous = -1;
+        for (long micros = 0; micros < 1_000_000; micros = micros * 5 / 4 + 1) {
+            int bucket = LatencyHistogram.bucketFor(micros);
+            assertTrue(bucket >= previous);
+            assertTrue(micros <= LatencyHistogram.upperBoundMicros(bucket));
+            if (bucket > 0) {
+                assertTrue(micros > LatencyHistogram.upperBoundMicros(bucket - 1));
+            }
+            previous = bucket;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketFor(Long.MAX_VALUE / 1000));
+    }
+
+    @Test
+    public void percentilesAreWithinOneBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int ms = 1; ms <= 100; ms++) {
+            histogram.recordNanos(ms * 1_000_000L);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100, snapshot.count);
+        assertEquals(50.5, snapshot.meanMillis(), 1e-9);
+        assertEquals(100, snapshot.maxMillis(), 1e-9);
+        assertEquals(50, snapshot.percentileMillis(0.5), 50 * 0.25);
+        assertEquals(95, snapshot.percentileMillis(0.95), 95 * 0.25);
+        assertTrue(snapshot.percentileMillis(0.99) <= 100);
+    }
+
+    @Test
+    public void negativeDurationsAreIgnored() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-1);
+        assertEquals(0, histogram.snapshot().count);
+    }
+
+    @Test
+    public void pipelineSnapshotListsRecordedStagesAndCounters() {
+        PipelineMetrics metrics = new PipelineMetrics();
+        metrics.record(PipelineMetrics.Stage.GL_UPLOAD, 2_000_000);
+        metrics.frameProduced();
+        metrics.frameProduced();
+        metrics.frameDropped();
+
+        PipelineMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.produced);
+        assertEquals(1, snapshot.dropped);
+        assertEquals(1, snapshot.stage(PipelineMetrics.Stage.GL_UPLOAD).count);
+        assertTrue(snapshot.toString().contains("GL_UPLOAD"));
+        assertFalse(snapshot.toString().contains("FRAME_AGE"));
+    }
+}
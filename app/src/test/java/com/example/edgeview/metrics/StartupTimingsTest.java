@@ -0,0 +1,58 @@
+package com.example.edgeview.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StartupTimingsTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void phasesAreMeasuredFromTheirOwnStart() {
+        StartupTimings timings = new StartupTimings(1000 * MS);
+        timings.begin(StartupTimings.Phase.WARM_UP, 1010 * MS);
+        timings.end(StartupTimings.Phase.WARM_UP, 1090 * MS);
+
+        assertTrue(timings.isDone(StartupTimings.Phase.WARM_UP));
+        assertEquals(80 * MS, timings.durationNanos(StartupTimings.Phase.WARM_UP));
+        assertEquals(90 * MS, timings.completedAtNanos(StartupTimings.Phase.WARM_UP));
+    }
+
+    @Test
+    public void phaseWithoutBeginCountsFromTheOrigin() {
+        StartupTimings timings = new StartupTimings(1000 * MS);
+        timings.end(StartupTimings.Phase.FIRST_FRAME, 1400 * MS);
+
+        assertEquals(400 * MS, timings.durationNanos(StartupTimings.Phase.FIRST_FRAME));
+    }
+
+    @Test
+    public void onlyTheFirstEndCounts() {
+        StartupTimings timings = new StartupTimings(0);
+        timings.end(StartupTimings.Phase.FIRST_FRAME, 300 * MS);
+        timings.end(StartupTimings.Phase.FIRST_FRAME, 500 * MS);
+        timings.begin(StartupTimings.Phase.FIRST_FRAME, 200 * MS);
+
+        assertEquals(300 * MS, timings.durationNanos(StartupTimings.Phase.FIRST_FRAME));
+    }
+
+    @Test
+    public void pendingPhasesReportMinusOne() {
+        StartupTimings timings = new StartupTimings(0);
+        timings.begin(StartupTimings.Phase.CAMERA_BIND, 5 * MS);
+
+        assertFalse(timings.isDone(StartupTimings.Phase.CAMERA_BIND));
+        assertEquals(-1, timings.durationNanos(StartupTimings.Phase.CAMERA_BIND));
+        assertEquals(-1, timings.completedAtNanos(StartupTimings.Phase.CAMERA_BIND));
+        assertTrue(timings.toString(), timings.toString().contains("CAMERA_BIND=pending"));
+    }
+
+    @Test
+    public void toStringShowsDurationAndCompletion() {
+        StartupTimings timings = new StartupTimings(0);
+        timings.begin(StartupTimings.Phase.LIBRARY_LOAD, 3 * MS);
+        timings.end(StartupTimings.Phase.LIBRARY_LOAD, 21 * MS);
+
+        assertTrue(timings.toString(), timings.toString().contains("LIBRARY_LOAD=18.0ms@21.0ms"));
+    }
+}
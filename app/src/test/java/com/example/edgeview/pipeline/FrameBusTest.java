@@ -0,0 +1,153 @@
+package com.example.edgeview.pipeline;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.FrameView;
+import com.example.edgeview.buffer.PixelFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class FrameBusTest {
+    private final FrameBufferPool pool = new FrameBufferPool(2, 1 << 20);
+
+    private FrameBuffer frame() {
+        FrameBuffer frame = pool.acquire(16);
+        frame.setDimensions(4, 4);
+        frame.setFormat(PixelFormat.GRAY8);
+        return frame;
+    }
+
+    @Test
+    public void subscribersShareOneBufferUntilTheLastRelease() throws InterruptedException {
+        FrameBus bus = new FrameBus();
+        final ConcurrentLinkedQueue<FrameView> held = new ConcurrentLinkedQueue<>();
+        final CountDownLatch queued = new CountDownLatch(1);
+        bus.subscribeInline("inline", view -> held.add(view.retain()));
+        bus.subscribe("queued", 2, BackpressurePolicy.DROP_OLDEST, view -> {
+            held.add(view.retain());
+            queued.countDown();
+        });
+
+        FrameBuffer frame = frame();
+        bus.publish(frame);
+        frame.release();
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        bus.close();
+
+        assertEquals(2, held.size());
+        for (FrameView view : held) {
+            assertSame(frame.view(), view);
+        }
+        held.poll().release();
+        assertNotSame(frame, pool.acquire(16));
+        held.poll().release();
+        assertEquals(0, frame.refCount());
+        assertSame(frame, pool.acquire(16));
+    }
+
+    @Test
+    public void viewsAreReadOnly() {
+        FrameBus bus = new FrameBus();
+        final ByteBuffer[] pixels = new ByteBuffer[1];
+        bus.subscribeInline("inline", view -> pixels[0] = view.pixels());
+        FrameBuffer frame = frame();
+        bus.publish(frame);
+        frame.release();
+
+        assertTrue(pixels[0].isReadOnly());
+        assertEquals(16, pixels[0].capacity());
+    }
+
+    @Test
+    public void slowSubscriberDropsWithoutStallingThePublisher() throws InterruptedException {
+        FrameBus bus = new FrameBus();
+        final CountDownLatch gate = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<Long> fastSeen = new ConcurrentLinkedQueue<>();
+        bus.subscribe("slow", 2, BackpressurePolicy.DROP_OLDEST, view -> gate.await());
+        bus.subscribeInline("fast", view -> fastSeen.add(view.timestampNanos()));
+
+        long start = System.nanoTime();
+        for (int i = 1; i <= 100; i++) {
+            FrameBuffer frame = frame();
+            frame.setTimestampNanos(i);
+            bus.publish(frame);
+            frame.release();
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(100, fastSeen.size());
+
+        FrameBus.SubscriberStats slow = bus.stats().get(0);
+        assertEquals("slow", slow.name);
+        // One frame is stuck in the subscriber, at most two wait in its queue.
+        assertTrue(slow.toString(), slow.dropped >= 97);
+        assertTrue(slow.queued <= 2);
+        gate.countDown();
+        bus.close();
+    }
+
+    @Test
+    public void dropNewestKeepsTheQueuedFrames() throws InterruptedException {
+        FrameBus bus = new FrameBus();
+        final CountDownLatch gate = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<Long> seen = new ConcurrentLinkedQueue<>();
+        bus.subscribe("slow", 2, BackpressurePolicy.DROP_NEWEST, view -> {
+            seen.add(view.timestampNanos());
+            started.countDown();
+            gate.await();
+        });
+
+        publishAt(bus, 1);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 2; i <= 10; i++) {
+            publishAt(bus, i);
+        }
+        gate.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (seen.size() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(7, bus.stats().get(0).dropped);
+        bus.close();
+
+        assertArrayEquals(new Long[] {1L, 2L, 3L}, seen.toArray(new Long[0]));
+    }
+
+    @Test
+    public void unsubscribeReleasesQueuedFrames() throws InterruptedException {
+        FrameBus bus = new FrameBus();
+        final CountDownLatch started = new CountDownLatch(1);
+        FrameBus.Subscription subscription = bus.subscribe("blocked", 4, BackpressurePolicy.DROP_OLDEST, view -> {
+            started.countDown();
+            Thread.sleep(Long.MAX_VALUE);
+        });
+        FrameBuffer first = frame();
+        bus.publish(first);
+        first.release();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        FrameBuffer second = frame();
+        bus.publish(second);
+        second.release();
+        assertEquals(1, second.refCount());
+
+        bus.unsubscribe(subscription);
+        assertEquals(0, first.refCount());
+        assertEquals(0, second.refCount());
+        assertEquals(1, subscription.stats().failed);
+        assertTrue(bus.stats().isEmpty());
+    }
+
+    private void publishAt(FrameBus bus, long timestamp) {
+        FrameBuffer frame = frame();
+        frame.setTimestampNanos(timestamp);
+        bus.publish(frame);
+        frame.release();
+    }
+}
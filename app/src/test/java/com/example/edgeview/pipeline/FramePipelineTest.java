@@ -0,0 +1,283 @@
+package com.example.edgeview.pipeline;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class FramePipelineTest {
+    // Any positive time: frames with a capture time of 0 or less never expire.
+    private static final long START_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void framesFlowThroughAllStagesInOrder() throws InterruptedException {
+        final int count = 100;
+        final ConcurrentLinkedQueue<Integer> presented = new ConcurrentLinkedQueue<>();
+        final CountDownLatch done = new CountDownLatch(count);
+        FramePipeline<Integer> pipeline = new FramePipeline.Builder<Integer>()
+                .addStage("double", count, BackpressurePolicy.DROP_NEWEST, frame -> frame * 2)
+                .addStage("present", count, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    presented.add(frame);
+                    done.countDown();
+                    return null;
+                })
+                .build();
+        pipeline.start();
+        for (int i = 0; i < count; i++) {
+            assertTrue(pipeline.submit(i));
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pipeline.stop();
+
+        int expected = 0;
+        for (Integer value : presented) {
+            assertEquals(expected, value.intValue());
+            expected += 2;
+        }
+        assertEquals(count, pipeline.stats().get(1).processed);
+    }
+
+    @Test
+    public void dropOldestKeepsNewestFrame() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<Integer> dropped = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Integer> processed = new ConcurrentLinkedQueue<>();
+        FramePipeline<Integer> pipeline = new FramePipeline.Builder<Integer>()
+                .onDrop(dropped::add)
+                .addStage("slow", 1, BackpressurePolicy.DROP_OLDEST, frame -> {
+                    blocked.countDown();
+                    unblock.await();
+                    processed.add(frame);
+                    return null;
+                })
+                .build();
+        pipeline.start();
+        pipeline.submit(0);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        // The stage is busy with frame 0; the queue holds one frame, so 1 and 2 get evicted.
+        pipeline.submit(1);
+        pipeline.submit(2);
+        pipeline.submit(3);
+        unblock.countDown();
+        waitFor(() -> processed.size() == 2);
+        pipeline.stop();
+
+        assertEquals("[0, 3]", processed.toString());
+        assertEquals("[1, 2]", dropped.toString());
+        assertEquals(2, pipeline.stats().get(0).dropped);
+    }
+
+    @Test
+    public void dropNewestKeepsQueuedFrame() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<Integer> processed = new ConcurrentLinkedQueue<>();
+        FramePipeline<Integer> pipeline = new FramePipeline.Builder<Integer>()
+                .addStage("slow", 1, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    blocked.countDown();
+                    unblock.await();
+                    processed.add(frame);
+                    return null;
+                })
+                .build();
+        pipeline.start();
+        pipeline.submit(0);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        assertTrue(pipeline.submit(1));
+        assertFalse(pipeline.submit(2));
+        unblock.countDown();
+        waitFor(() -> processed.size() == 2);
+        pipeline.stop();
+
+        assertEquals("[0, 1]", processed.toString());
+    }
+
+    @Test
+    public void stopDropsQueuedFrames() {
+        final ConcurrentLinkedQueue<Integer> dropped = new ConcurrentLinkedQueue<>();
+        FramePipeline<Integer> pipeline = new FramePipeline.Builder<Integer>()
+                .onDrop(dropped::add)
+                .addStage("idle", 4, BackpressurePolicy.DROP_NEWEST, frame -> frame)
+                .build();
+        pipeline.stop();
+        assertFalse(pipeline.submit(7));
+        assertEquals("[7]", dropped.toString());
+        List<FramePipeline.StageStats> stats = pipeline.stats();
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    public void staleFramesExpireWithoutBeingProcessed() throws InterruptedException {
+        final ConcurrentLinkedQueue<Long> processed = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Long> expired = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Long> dropped = new ConcurrentLinkedQueue<>();
+        // Frames are their own capture timestamps.
+        FramePipeline<Long> pipeline = new FramePipeline.Builder<Long>()
+                .onDrop(dropped::add)
+                .onExpire(expired::add)
+                .deadline(TimeUnit.MILLISECONDS.toNanos(100), frame -> frame)
+                .addStage("process", 4, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    processed.add(frame);
+                    return null;
+                })
+                .build();
+        pipeline.start();
+        long stale = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+        long fresh = System.nanoTime();
+        pipeline.submit(stale);
+        pipeline.submit(fresh);
+        pipeline.submit(0L); // no capture time: never expires
+        waitFor(() -> processed.size() == 2);
+        pipeline.stop();
+
+        assertEquals("[" + fresh + ", 0]", processed.toString());
+        assertEquals("[" + stale + "]", expired.toString());
+        assertTrue(dropped.isEmpty());
+        assertEquals(1, pipeline.stats().get(0).expired);
+    }
+
+    @Test
+    public void framesThatWouldFinishLateExpireAtTheFirstStage() throws InterruptedException {
+        final AtomicLong now = new AtomicLong(START_NANOS);
+        final ConcurrentLinkedQueue<Long> presented = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Long> expired = new ConcurrentLinkedQueue<>();
+        FramePipeline<Long> pipeline = new FramePipeline.Builder<Long>()
+                .ticker(now::get)
+                .onExpire(expired::add)
+                .deadline(millis(60), frame -> frame)
+                .addStage("slow", 4, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    now.addAndGet(millis(40));
+                    return frame;
+                })
+                .addStage("present", 4, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    presented.add(frame);
+                    return null;
+                })
+                .build();
+        pipeline.start();
+        // Teaches the pipeline that "slow" takes 40 ms.
+        pipeline.submit(now.get());
+        waitFor(() -> presented.size() == 1);
+        // 35 ms old: not stale yet, but would be after another 40 ms.
+        long late = now.get() - millis(35);
+        pipeline.submit(late);
+        waitFor(() -> expired.size() == 1);
+        long fresh = now.get();
+        pipeline.submit(fresh);
+        waitFor(() -> presented.size() == 2);
+        pipeline.stop();
+
+        assertEquals("[" + late + "]", expired.toString());
+        assertEquals(fresh, presented.toArray()[1]);
+        assertEquals(1, pipeline.stats().get(0).expired);
+        assertEquals(0, pipeline.stats().get(1).expired);
+        assertEquals(millis(40), pipeline.estimatedLatencyNanos());
+    }
+
+    @Test
+    public void unreachableDeadlineExpiresNothing() throws InterruptedException {
+        final AtomicLong now = new AtomicLong(START_NANOS);
+        final ConcurrentLinkedQueue<Long> processed = new ConcurrentLinkedQueue<>();
+        FramePipeline<Long> pipeline = new FramePipeline.Builder<Long>()
+                .ticker(now::get)
+                .deadline(millis(5), frame -> frame)
+                .addStage("slow", 4, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    now.addAndGet(millis(20));
+                    processed.add(frame);
+                    return null;
+                })
+                .build();
+        pipeline.start();
+        pipeline.submit(now.get());
+        waitFor(() -> processed.size() == 1);
+        // No frame can be done within 5 ms, so late ones are still shown rather than none.
+        pipeline.submit(now.get() - millis(10));
+        waitFor(() -> processed.size() == 2);
+        pipeline.stop();
+
+        assertEquals(0, pipeline.stats().get(0).expired);
+    }
+
+    @Test
+    public void reachableDeadlineStillLetsFramesThroughWhenEveryFrameIsLate() throws InterruptedException {
+        final AtomicLong now = new AtomicLong(START_NANOS);
+        final ConcurrentLinkedQueue<Long> processed = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Long> expired = new ConcurrentLinkedQueue<>();
+        // The stage fits the 50 ms budget, but not on top of the 30 ms every frame has already aged.
+        FramePipeline<Long> pipeline = new FramePipeline.Builder<Long>()
+                .ticker(now::get)
+                .onExpire(expired::add)
+                .deadline(millis(50), frame -> frame)
+                .addStage("slow", 4, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    now.addAndGet(millis(30));
+                    processed.add(frame);
+                    return null;
+                })
+                .build();
+        pipeline.start();
+        final int frames = 2 * (FramePipeline.MAX_EXPIRED_IN_A_ROW + 1) + 1;
+        for (int i = 0; i < frames; i++) {
+            final int handled = i + 1;
+            pipeline.submit(now.get() - millis(30));
+            waitFor(() -> processed.size() + expired.size() == handled);
+        }
+        pipeline.stop();
+
+        // The first frame teaches the 30 ms cost; after that a frame gets through after each run
+        // of MAX_EXPIRED_IN_A_ROW expiries.
+        assertEquals(3, processed.size());
+        assertEquals(2 * FramePipeline.MAX_EXPIRED_IN_A_ROW, expired.size());
+    }
+
+    @Test
+    public void sourcesExpireEarlyByTheSameRules() throws InterruptedException {
+        final AtomicLong now = new AtomicLong(START_NANOS);
+        FramePipeline<Long> pipeline = new FramePipeline.Builder<Long>()
+                .ticker(now::get)
+                .deadline(millis(50), frame -> frame)
+                .addStage("slow", 4, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    now.addAndGet(millis(30));
+                    return null;
+                })
+                .build();
+        pipeline.start();
+        pipeline.submit(now.get());
+        // Counted only once the stage's cost has been updated.
+        waitFor(() -> pipeline.stats().get(0).processed == 1);
+
+        assertFalse(pipeline.expireEarly(now.get()));
+        assertFalse(pipeline.expireEarly(0));
+        long aged = now.get() - millis(30);
+        for (int i = 0; i < FramePipeline.MAX_EXPIRED_IN_A_ROW; i++) {
+            assertTrue(pipeline.expireEarly(aged));
+        }
+        // Too many in a row: the next frame goes through, and resets the count once processed.
+        assertFalse(pipeline.expireEarly(aged));
+        pipeline.submit(aged);
+        waitFor(() -> pipeline.stats().get(0).processed == 2);
+        assertTrue(pipeline.expireEarly(now.get() - millis(30)));
+        pipeline.stop();
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.met()) {
+            assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.edgeview.pipeline;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpscRingTest {
+    @Test
+    public void keepsFifoOrderAndCapacity() {
+        SpscRing<Integer> ring = new SpscRing<>(3);
+        assertTrue(ring.offer(1));
+        assertTrue(ring.offer(2));
+        assertTrue(ring.offer(3));
+        assertFalse(ring.offer(4));
+        assertEquals(3, ring.size());
+
+        assertEquals(Integer.valueOf(1), ring.poll());
+        assertTrue(ring.offer(4));
+        assertEquals(Integer.valueOf(2), ring.poll());
+        assertEquals(Integer.valueOf(3), ring.poll());
+        assertEquals(Integer.valueOf(4), ring.poll());
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void transfersEveryElementAcrossThreads() throws InterruptedException {
+        final int count = 200_000;
+        final SpscRing<Integer> ring = new SpscRing<>(64);
+        final long[] sum = new long[1];
+        final boolean[] ordered = {true};
+
+        Thread consumer = new Thread(() -> {
+            int expected = 0;
+            while (expected < count) {
+                Integer value = ring.poll();
+                if (value == null) {
+                    Thread.yield();
+                    continue;
+                }
+                if (value != expected) {
+                    ordered[0] = false;
+                }
+                sum[0] += value;
+                expected++;
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < count; i++) {
+            while (!ring.offer(i)) {
+                Thread.yield();
+            }
+        }
+        consumer.join();
+
+        assertTrue(ordered[0]);
+        assertEquals((long) count * (count - 1) / 2, sum[0]);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.edgeview.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class StreamEngineTest {
+    @Test
+    public void eachStreamKeepsItsOrderAcrossStages() throws InterruptedException {
+        final int streams = 3;
+        final int count = 500;
+        final CountDownLatch done = new CountDownLatch(streams * count);
+        StreamEngine<Integer> engine = new StreamEngine<>(4, frame -> { }, null);
+        List<List<Integer>> outputs = new ArrayList<>();
+        List<StreamEngine.FrameStream<Integer>> handles = new ArrayList<>();
+        for (int s = 0; s < streams; s++) {
+            final List<Integer> output = new ArrayList<>();
+            outputs.add(output);
+            handles.add(engine.newStream("stream" + s)
+                    .addStage(count, BackpressurePolicy.DROP_NEWEST, frame -> frame * 2)
+                    .addStage(count, BackpressurePolicy.DROP_NEWEST, frame -> frame + 1)
+                    .addStage(count, BackpressurePolicy.DROP_NEWEST, frame -> {
+                        // Only ever on one worker at a time, so no locking.
+                        output.add(frame);
+                        done.countDown();
+                        return null;
+                    })
+                    .build());
+        }
+        for (int i = 0; i < count; i++) {
+            for (StreamEngine.FrameStream<Integer> stream : handles) {
+                assertTrue(stream.submit(i));
+            }
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // Waits for the last stage to finish counting its final frames.
+        engine.shutdown();
+
+        for (List<Integer> output : outputs) {
+            assertEquals(count, output.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(i * 2 + 1, output.get(i).intValue());
+            }
+        }
+        for (StreamEngine.FrameStream<Integer> handle : handles) {
+            StreamEngine.StreamStats stream = handle.stats();
+            assertEquals(count, stream.submitted);
+            assertEquals(count, stream.completed);
+            assertEquals(0, stream.queued);
+        }
+    }
+
+    @Test
+    public void weightsSetTheShareOfTheWorkers() throws InterruptedException {
+        final int count = 40;
+        final AtomicBoolean hold = new AtomicBoolean(true);
+        final ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>();
+        StreamEngine<String> engine = new StreamEngine<>(1, frame -> { }, null);
+        StreamEngine.FrameStream<String> blocker = engine.newStream("blocker")
+                .addStage(1, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    while (hold.get()) {
+                        Thread.yield();
+                    }
+                    return null;
+                })
+                .build();
+        StreamEngine.FrameStream<String> heavy = engine.newStream("heavy").weight(3)
+                .addStage(count, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    order.add(frame);
+                    return null;
+                })
+                .build();
+        StreamEngine.FrameStream<String> light = engine.newStream("light")
+                .addStage(count, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    order.add(frame);
+                    return null;
+                })
+                .build();
+        // Occupy the only worker so both streams are fully queued before either runs.
+        blocker.submit("block");
+        for (int i = 0; i < count; i++) {
+            heavy.submit("heavy");
+            light.submit("light");
+        }
+        hold.set(false);
+        waitFor(() -> order.size() == 2 * count);
+        engine.shutdown();
+
+        int heavyFrames = 0;
+        int seen = 0;
+        for (String frame : order) {
+            if (seen++ == count) {
+                break;
+            }
+            if (frame.equals("heavy")) {
+                heavyFrames++;
+            }
+        }
+        // Three heavy frames per light one while both have frames queued.
+        assertTrue("heavy " + heavyFrames, heavyFrames >= 27 && heavyFrames <= 33);
+    }
+
+    @Test
+    public void dropNewestRejectsFramesWhileTheStageIsBusy() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<Integer> processed = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Integer> dropped = new ConcurrentLinkedQueue<>();
+        StreamEngine<Integer> engine = new StreamEngine<>(2, dropped::add, null);
+        StreamEngine.FrameStream<Integer> stream = engine.newStream("slow")
+                .addStage(1, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    blocked.countDown();
+                    unblock.await();
+                    processed.add(frame);
+                    return null;
+                })
+                .build();
+        assertTrue(stream.submit(0));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        assertTrue(stream.submit(1));
+        assertFalse(stream.submit(2));
+        unblock.countDown();
+        waitFor(() -> processed.size() == 2);
+        engine.shutdown();
+
+        assertEquals("[0, 1]", processed.toString());
+        assertEquals("[2]", dropped.toString());
+        assertEquals(1, stream.stats().dropped);
+    }
+
+    @Test
+    public void recordsLatencyFromTheCaptureClock() throws InterruptedException {
+        final int count = 10;
+        final CountDownLatch done = new CountDownLatch(count);
+        // Frames carry their own capture time.
+        StreamEngine<Long> engine = new StreamEngine<>(2, frame -> { }, frame -> frame);
+        StreamEngine.FrameStream<Long> stream = engine.newStream("timed")
+                .addStage(count, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    Thread.sleep(2);
+                    return frame;
+                })
+                .addStage(count, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    done.countDown();
+                    return null;
+                })
+                .build();
+        for (int i = 0; i < count; i++) {
+            stream.submit(System.nanoTime());
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        waitFor(() -> stream.stats().latency.count == count);
+        engine.shutdown();
+
+        StreamEngine.StreamStats stats = stream.stats();
+        assertTrue(stats.latency.maxMillis() >= 2);
+        assertTrue(stats.busyNanos >= TimeUnit.MILLISECONDS.toNanos(2 * count));
+    }
+
+    @Test
+    public void removeHandsQueuedFramesToTheDropHandler() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch unblock = new CountDownLatch(1);
+        final ConcurrentLinkedQueue<Integer> dropped = new ConcurrentLinkedQueue<>();
+        StreamEngine<Integer> engine = new StreamEngine<>(2, dropped::add, null);
+        StreamEngine.FrameStream<Integer> stream = engine.newStream("removed")
+                .addStage(8, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    blocked.countDown();
+                    unblock.await();
+                    return null;
+                })
+                .build();
+        stream.submit(0);
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        stream.submit(1);
+        stream.submit(2);
+        engine.remove(stream);
+        assertEquals("[1, 2]", dropped.toString());
+        assertFalse(stream.submit(3));
+        assertEquals("[1, 2, 3]", dropped.toString());
+        assertTrue(engine.stats().isEmpty());
+
+        unblock.countDown();
+        engine.shutdown();
+    }
+
+    @Test
+    public void failedFramesAreCountedAndDropped() throws InterruptedException {
+        final int count = 20;
+        final CountDownLatch done = new CountDownLatch(count / 2);
+        final ConcurrentLinkedQueue<Integer> dropped = new ConcurrentLinkedQueue<>();
+        StreamEngine<Integer> engine = new StreamEngine<>(2, dropped::add, null);
+        StreamEngine.FrameStream<Integer> stream = engine.newStream("flaky")
+                .addStage(count, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    if (frame % 2 == 1) {
+                        throw new IllegalStateException("odd frame " + frame);
+                    }
+                    return frame;
+                })
+                .addStage(count, BackpressurePolicy.DROP_NEWEST, frame -> {
+                    done.countDown();
+                    return null;
+                })
+                .build();
+        for (int i = 0; i < count; i++) {
+            stream.submit(i);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // The last odd frame may still be queued in the first stage.
+        waitFor(() -> stream.stats().failed == count / 2);
+        engine.shutdown();
+
+        StreamEngine.StreamStats stats = stream.stats();
+        assertEquals(count / 2, stats.completed);
+        assertEquals(count / 2, dropped.size());
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.met()) {
+            assertTrue("timed out", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.edgeview.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class TripleBufferTest {
+    @Test
+    public void consumerSeesNewestFrameOnly() {
+        List<Integer> recycled = new ArrayList<>();
+        TripleBuffer<Integer> exchanger = new TripleBuffer<>(recycled::add);
+        assertNull(exchanger.acquireLatest());
+
+        exchanger.publish(1);
+        exchanger.publish(2);
+        exchanger.publish(3);
+        assertEquals(Integer.valueOf(3), exchanger.acquireLatest());
+        assertNull(exchanger.acquireLatest());
+
+        assertEquals(3, exchanger.getProduced());
+        assertEquals(1, exchanger.getPresented());
+        assertEquals(2, exchanger.getSkipped());
+        assertEquals("[1, 2]", recycled.toString());
+    }
+
+    @Test
+    public void presentedFramesAreRecycledAfterConsumerMovesOn() {
+        List<Integer> recycled = new ArrayList<>();
+        TripleBuffer<Integer> exchanger = new TripleBuffer<>(recycled::add);
+
+        exchanger.publish(1);
+        assertEquals(Integer.valueOf(1), exchanger.acquireLatest());
+        exchanger.publish(2);
+        assertEquals(Integer.valueOf(2), exchanger.acquireLatest());
+        // Frame 1 went back to the middle slot and is recycled by the next publish.
+        exchanger.publish(3);
+        assertEquals("[1]", recycled.toString());
+        assertEquals(0, exchanger.getSkipped());
+    }
+
+    @Test
+    public void concurrentExchangeIsMonotonicAndLosesNothing() throws InterruptedException {
+        final int count = 200_000;
+        final AtomicLong recycledCount = new AtomicLong();
+        final TripleBuffer<Integer> exchanger = new TripleBuffer<>(frame -> recycledCount.incrementAndGet());
+        final AtomicInteger lastSeen = new AtomicInteger(-1);
+        final boolean[] monotonic = {true};
+        final boolean[] done = {false};
+
+        Thread consumer = new Thread(() -> {
+            while (true) {
+                boolean finished;
+                synchronized (done) {
+                    finished = done[0];
+                }
+                Integer frame = exchanger.acquireLatest();
+                if (frame != null) {
+                    if (frame <= lastSeen.get()) {
+                        monotonic[0] = false;
+                    }
+                    lastSeen.set(frame);
+                } else if (finished) {
+                    return;
+                }
+            }
+        });
+        consumer.start();
+        for (int i = 0; i < count; i++) {
+            exchanger.publish(i);
+        }
+        synchronized (done) {
+            done[0] = true;
+        }
+        consumer.join();
+
+        assertTrue(monotonic[0]);
+        assertEquals(count - 1, lastSeen.get());
+        assertEquals(count, exchanger.getProduced());
+        assertEquals(count, exchanger.getPresented() + exchanger.getSkipped());
+        // Everything except the frames still sitting in the front and middle slots came back.
+        assertTrue(recycledCount.get() >= count - 2);
+    }
+}
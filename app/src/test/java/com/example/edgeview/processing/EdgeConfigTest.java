@@ -0,0 +1,24 @@
+package com.example.edgeview.processing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EdgeConfigTest {
+    @Test
+    public void defaultMatchesLegacyThresholds() {
+        assertEquals(50, EdgeConfig.DEFAULT.lowThreshold(), 0);
+        assertEquals(150, EdgeConfig.DEFAULT.highThreshold(), 0);
+        assertEquals(0, EdgeConfig.DEFAULT.blurKernelSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void evenBlurKernelIsRejected() {
+        new EdgeConfig(50, 150, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invertedThresholdsAreRejected() {
+        new EdgeConfig(150, 50, 0);
+    }
+}
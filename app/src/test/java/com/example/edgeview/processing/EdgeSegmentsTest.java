@@ -0,0 +1,62 @@
+package com.example.edgeview.processing;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+
+import static org.junit.Assert.*;
+
+public class EdgeSegmentsTest {
+    @Test
+    public void growingKeepsExistingSegments() {
+        EdgeSegments segments = new EdgeSegments(1);
+        segments.reset(100, 50, 7);
+        segments.add(0, 0, 3, 4);
+        segments.add(10, 10, 10, 20);
+        segments.add(1, 1, 2, 1);
+
+        assertEquals(3, segments.count());
+        assertTrue(segments.capacity() >= 3);
+        assertEquals(10, segments.coords()[4], 0);
+        assertEquals(16, segments.totalLength(), 1e-6);
+        assertEquals(7, segments.timestampNanos());
+    }
+
+    @Test
+    public void reuseDoesNotReallocate() {
+        EdgeSegments segments = new EdgeSegments(4);
+        float[] coords = segments.ensureCapacity(4);
+        segments.setCount(4);
+        segments.reset(10, 10, 0);
+        assertEquals(0, segments.count());
+        assertSame(coords, segments.ensureCapacity(4));
+    }
+
+    @Test
+    public void clipSpaceMapsCornersAndFlipsY() {
+        EdgeSegments segments = new EdgeSegments();
+        segments.reset(200, 100, 0);
+        segments.add(0, 0, 200, 100);
+        segments.add(100, 50, 100, 50);
+        FloatBuffer out = FloatBuffer.allocate(8);
+
+        assertEquals(4, segments.writeClipSpace(out));
+        assertArrayEquals(new float[] {-1, 1, 1, -1, 0, 0, 0, 0}, out.array(), 1e-6f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void countBeyondCapacityIsRejected() {
+        new EdgeSegments(2).setCount(3);
+    }
+
+    @Test
+    public void vectorConfigNamesMapToDefaults() {
+        assertSame(VectorConfig.CONTOURS, VectorConfig.forName("contours"));
+        assertSame(VectorConfig.LINES, VectorConfig.forName(" Lines "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void vectorConfigRejectsZeroTolerance() {
+        new VectorConfig(VectorConfig.Mode.LINES, 0, 10);
+    }
+}
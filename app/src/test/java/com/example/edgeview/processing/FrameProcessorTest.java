@@ -0,0 +1,76 @@
+package com.example.edgeview.processing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameProcessorTest {
+    @Test
+    public void textFormRoundTrips() {
+        FrameProcessor processor = new FrameProcessor.Builder()
+                .blur(5)
+                .canny(40, 120)
+                .dilate(3, 2)
+                .threshold(127.5, true)
+                .sobel()
+                .build();
+        assertEquals("blur:5:0,canny:40:120,dilate:3:2,threshold:127.5:1,sobel:3:1", processor.toString());
+        assertEquals(processor, FrameProcessor.parse(processor.toString()));
+    }
+
+    @Test
+    public void omittedParametersTakeDefaults() {
+        FrameProcessor parsed = FrameProcessor.parse(" Blur , canny:30 ,erode");
+        assertEquals(new FrameProcessor.Builder().blur(5).canny(30, 150).erode(3).build(), parsed);
+        assertTrue(FrameProcessor.parse("").isEmpty());
+        assertEquals(FrameProcessor.RAW, FrameProcessor.parse(" , "));
+    }
+
+    @Test
+    public void flatLayoutHasOneCodeAndTwoParamsPerNode() {
+        FrameProcessor processor = FrameProcessor.parse("sobel:5:2,threshold:60");
+        assertArrayEquals(new int[] {FrameProcessor.Op.SOBEL.code(), FrameProcessor.Op.THRESHOLD.code()},
+                processor.opCodes());
+        assertArrayEquals(new double[] {5, 2, 60, 0}, processor.params(), 0);
+    }
+
+    @Test
+    public void onlyBlurAndCannyMapToASessionConfig() {
+        EdgeConfig plain = FrameProcessor.EDGES.edgeConfig();
+        assertEquals(50, plain.lowThreshold(), 0);
+        assertEquals(150, plain.highThreshold(), 0);
+        assertEquals(0, plain.blurKernelSize());
+        EdgeConfig blurred = FrameProcessor.parse("blur:7,canny:20:60").edgeConfig();
+        assertEquals(7, blurred.blurKernelSize());
+        assertEquals(20, blurred.lowThreshold(), 0);
+
+        assertNull(FrameProcessor.RAW.edgeConfig());
+        assertNull(FrameProcessor.parse("blur:7:2,canny").edgeConfig()); // explicit sigma
+        assertNull(FrameProcessor.parse("canny,dilate").edgeConfig());
+        assertNull(FrameProcessor.parse("sobel").edgeConfig());
+    }
+
+    @Test
+    public void invalidDescriptionsAreRejected() {
+        String[] invalid = {
+                "median:3", "blur:4", "blur:2.5", "canny:150:50", "threshold:300", "dilate:0",
+                "erode:3:0", "sobel:4", "sobel:3:0", "canny:a:b", "canny:1:2:3"
+        };
+        for (String spec : invalid) {
+            try {
+                FrameProcessor.parse(spec);
+                fail("accepted " + spec);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nodeCountIsBounded() {
+        FrameProcessor.Builder builder = new FrameProcessor.Builder();
+        for (int i = 0; i <= FrameProcessor.MAX_NODES; i++) {
+            builder.dilate(3);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.edgeview.processing;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class IncrementalEdgeDetectorTest {
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 96;
+    private static final TileConfig TILES = new TileConfig(32, 8, 4, 6);
+
+    @Test
+    public void firstFrameMatchesFullFrameDetection() {
+        byte[] frame = scene(40, 20);
+        byte[] expected = new byte[WIDTH * HEIGHT];
+        byte[] actual = new byte[WIDTH * HEIGHT];
+
+        new JavaCannyDetector(EdgeConfig.DEFAULT).detect(frame, PixelFormat.GRAY8, expected, PixelFormat.GRAY8,
+                WIDTH, HEIGHT);
+        IncrementalEdgeDetector incremental = new IncrementalEdgeDetector(EdgeConfig.DEFAULT, TILES);
+        int recomputed = incremental.detect(frame, PixelFormat.GRAY8, actual, PixelFormat.GRAY8, WIDTH, HEIGHT);
+
+        assertEquals(15, recomputed);
+        assertEquals(1.0, incremental.lastRecomputedFraction(), 0);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void staticSceneReusesCachedTiles() {
+        IncrementalEdgeDetector incremental = new IncrementalEdgeDetector(EdgeConfig.DEFAULT, TILES);
+        byte[] first = new byte[WIDTH * HEIGHT];
+        byte[] second = new byte[WIDTH * HEIGHT];
+        incremental.detect(scene(40, 20), PixelFormat.GRAY8, first, PixelFormat.GRAY8, WIDTH, HEIGHT);
+
+        assertEquals(0, incremental.detect(scene(40, 20), PixelFormat.GRAY8, second, PixelFormat.GRAY8,
+                WIDTH, HEIGHT));
+        assertEquals(0.0, incremental.lastRecomputedFraction(), 0);
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    public void movingObjectOnlyRecomputesTouchedTiles() {
+        IncrementalEdgeDetector incremental = new IncrementalEdgeDetector(EdgeConfig.DEFAULT, TILES);
+        byte[] output = new byte[WIDTH * HEIGHT];
+        incremental.detect(scene(40, 20), PixelFormat.GRAY8, output, PixelFormat.GRAY8, WIDTH, HEIGHT);
+
+        // The square moves 4 px right, staying within tile columns 1 and 2, rows 0 and 1.
+        int recomputed = incremental.detect(scene(44, 20), PixelFormat.GRAY8, output, PixelFormat.GRAY8,
+                WIDTH, HEIGHT);
+        assertTrue("recomputed " + recomputed, recomputed > 0 && recomputed <= 4);
+
+        byte[] expected = new byte[WIDTH * HEIGHT];
+        new JavaCannyDetector(EdgeConfig.DEFAULT).detect(scene(44, 20), PixelFormat.GRAY8, expected,
+                PixelFormat.GRAY8, WIDTH, HEIGHT);
+        assertArrayEquals(expected, output);
+    }
+
+    @Test
+    public void tileChangeDetectorIgnoresNoiseBelowThreshold() {
+        TileChangeDetector detector = new TileChangeDetector(TILES);
+        byte[] frame = scene(40, 20);
+        assertEquals(15, detector.detect(frame, WIDTH, HEIGHT));
+
+        for (int i = 0; i < frame.length; i += 7) {
+            frame[i] += 3; // sensor noise
+        }
+        assertEquals(0, detector.detect(frame, WIDTH, HEIGHT));
+        detector.invalidate();
+        assertEquals(15, detector.detect(frame, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void borderTilesWithoutSamplesAreAlwaysRecomputed() {
+        // The last tile column is 2 px wide, narrower than the 4 px sample step.
+        int width = WIDTH + 2;
+        byte[] frame = new byte[width * HEIGHT];
+        Arrays.fill(frame, (byte) 60);
+        IncrementalEdgeDetector incremental = new IncrementalEdgeDetector(EdgeConfig.DEFAULT, TILES);
+        byte[] output = new byte[width * HEIGHT];
+        assertEquals(18, incremental.detect(frame, PixelFormat.GRAY8, output, PixelFormat.GRAY8, width, HEIGHT));
+
+        // A bright last column: only the 2 px border tiles see the new edge.
+        for (int row = 0; row < HEIGHT; row++) {
+            frame[row * width + width - 1] = (byte) 220;
+        }
+        assertEquals(3, incremental.detect(frame, PixelFormat.GRAY8, output, PixelFormat.GRAY8, width, HEIGHT));
+
+        byte[] expected = new byte[width * HEIGHT];
+        new JavaCannyDetector(EdgeConfig.DEFAULT).detect(frame, PixelFormat.GRAY8, expected, PixelFormat.GRAY8,
+                width, HEIGHT);
+        assertArrayEquals(expected, output);
+    }
+
+    // Mid-gray background with a bright 24 px square at (x, y).
+    private static byte[] scene(int x, int y) {
+        byte[] frame = new byte[WIDTH * HEIGHT];
+        Arrays.fill(frame, (byte) 60);
+        for (int row = y; row < y + 24; row++) {
+            for (int col = x; col < x + 24; col++) {
+                frame[row * WIDTH + col] = (byte) 220;
+            }
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.edgeview.processing;
+
+import com.example.edgeview.buffer.PixelFormat;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class JavaCannyDetectorTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    @Test
+    public void uniformFrameHasNoEdges() {
+        byte[] gray = new byte[WIDTH * HEIGHT];
+        Arrays.fill(gray, (byte) 120);
+        byte[] edges = new byte[WIDTH * HEIGHT];
+
+        new JavaCannyDetector(EdgeConfig.DEFAULT).detect(gray, PixelFormat.GRAY8, edges, PixelFormat.GRAY8,
+                WIDTH, HEIGHT);
+
+        for (byte b : edges) {
+            assertEquals(0, b);
+        }
+    }
+
+    @Test
+    public void verticalStepGivesOneEdgeColumn() {
+        byte[] gray = stepImage();
+        byte[] edges = new byte[WIDTH * HEIGHT];
+
+        new JavaCannyDetector(EdgeConfig.DEFAULT).detect(gray, PixelFormat.GRAY8, edges, PixelFormat.GRAY8,
+                WIDTH, HEIGHT);
+
+        for (int y = 1; y < HEIGHT - 1; y++) {
+            int count = 0;
+            for (int x = 0; x < WIDTH; x++) {
+                if (edges[y * WIDTH + x] != 0) {
+                    count++;
+                    assertTrue("edge at x=" + x, x == WIDTH / 2 - 1 || x == WIDTH / 2);
+                }
+            }
+            assertEquals("row " + y, 1, count);
+        }
+    }
+
+    @Test
+    public void bandCountDoesNotChangeResult() {
+        byte[] gray = new byte[WIDTH * HEIGHT];
+        new Random(7).nextBytes(gray);
+        EdgeConfig config = new EdgeConfig(40, 120, 5);
+        byte[] single = new byte[WIDTH * HEIGHT];
+        byte[] banded = new byte[WIDTH * HEIGHT];
+
+        new JavaCannyDetector(config, ForkJoinPool.commonPool(), 1)
+                .detect(gray, PixelFormat.GRAY8, single, PixelFormat.GRAY8, WIDTH, HEIGHT);
+        new JavaCannyDetector(config, new ForkJoinPool(4), 7)
+                .detect(gray, PixelFormat.GRAY8, banded, PixelFormat.GRAY8, WIDTH, HEIGHT);
+
+        assertArrayEquals(single, banded);
+    }
+
+    @Test
+    public void rgbaDirectBuffersMatchGrayArrays() {
+        byte[] gray = stepImage();
+        ByteBuffer rgba = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4);
+        for (byte g : gray) {
+            rgba.put(g).put(g).put(g).put((byte) 0xff);
+        }
+        ByteBuffer out = ByteBuffer.allocateDirect(WIDTH * HEIGHT * 4);
+        byte[] expected = new byte[WIDTH * HEIGHT];
+        JavaCannyDetector detector = new JavaCannyDetector(EdgeConfig.DEFAULT);
+
+        detector.detect(gray, PixelFormat.GRAY8, expected, PixelFormat.GRAY8, WIDTH, HEIGHT);
+        detector.detect(rgba, PixelFormat.RGBA, out, PixelFormat.RGBA, WIDTH, HEIGHT);
+
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], out.get(i * 4));
+            assertEquals(expected[i], out.get(i * 4 + 2));
+            assertEquals((byte) 0xff, out.get(i * 4 + 3));
+        }
+    }
+
+    @Test
+    public void downscaledDetectionFillsWholeFrame() {
+        int width = WIDTH + 1; // not a multiple of the scale
+        byte[] gray = new byte[width * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = width / 2; x < width; x++) {
+                gray[y * width + x] = (byte) 200;
+            }
+        }
+        ByteBuffer out = ByteBuffer.allocate(width * HEIGHT);
+
+        new JavaCannyDetector(EdgeConfig.DEFAULT).detect(ByteBuffer.wrap(gray), PixelFormat.GRAY8,
+                out, PixelFormat.GRAY8, width, HEIGHT, 2);
+
+        for (int y = 2; y < HEIGHT - 2; y++) {
+            int count = 0;
+            for (int x = 0; x < width; x++) {
+                if (out.get(y * width + x) != 0) {
+                    count++;
+                    assertTrue("edge at x=" + x, Math.abs(x - width / 2) <= 2);
+                }
+            }
+            assertEquals("row " + y, 2, count);
+        }
+    }
+
+    @Test
+    public void gaussianKernelIsNormalised() {
+        int sum = 0;
+        for (int w : JavaCannyDetector.gaussianKernel(5)) {
+            sum += w;
+        }
+        assertEquals(256, sum);
+    }
+
+    private static byte[] stepImage() {
+        byte[] gray = new byte[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = WIDTH / 2; x < WIDTH; x++) {
+                gray[y * WIDTH + x] = (byte) 200;
+            }
+        }
+        return gray;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.edgeview.processing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ThreadingConfigTest {
+    @Test
+    public void autoStripsMatchCoreCount() {
+        assertEquals(8, ThreadingConfig.DEFAULT.stripCount(720, 8));
+        assertEquals(1, ThreadingConfig.SINGLE_STRIP.stripCount(720, 8));
+    }
+
+    @Test
+    public void explicitStripHeightWins() {
+        ThreadingConfig config = new ThreadingConfig(4, 100, 8, true);
+        assertEquals(8, config.stripCount(720, 8));
+    }
+
+    @Test
+    public void stripCountIsCapped() {
+        ThreadingConfig config = new ThreadingConfig(0, 1, 8, true);
+        assertEquals(ThreadingConfig.MAX_STRIPS, config.stripCount(1080, 8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeHaloIsRejected() {
+        new ThreadingConfig(0, 0, -1, true);
+    }
+}
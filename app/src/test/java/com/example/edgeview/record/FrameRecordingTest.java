@@ -0,0 +1,104 @@
+package com.example.edgeview.record;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class FrameRecordingTest {
+    private final FrameBufferPool pool = new FrameBufferPool(4, 16L << 20);
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("frames", ".evrec");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void framesRoundTripAcrossWindows() throws IOException {
+        // A 4 KB window forces a new mapping for nearly every frame.
+        try (FrameRecorder recorder = new FrameRecorder(file, 4096)) {
+            for (int i = 0; i < 10; i++) {
+                record(recorder, i % 2 == 0 ? PixelFormat.GRAY8 : PixelFormat.RGBA, 40, 30, i);
+            }
+            assertEquals(10, recorder.frameCount());
+        }
+        try (FrameRecording recording = FrameRecording.open(file)) {
+            assertEquals(10, recording.frameCount());
+            for (int i = 0; i < 10; i++) {
+                assertFrame(recording, i, i % 2 == 0 ? PixelFormat.GRAY8 : PixelFormat.RGBA, 40, 30);
+            }
+        }
+    }
+
+    @Test
+    public void closedFileIsTrimmedToItsContents() throws IOException {
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            record(recorder, PixelFormat.GRAY8, 16, 8, 0);
+        }
+        long expected = RecordingFormat.FILE_HEADER_SIZE + RecordingFormat.RECORD_HEADER_SIZE + 16 * 8 + 8;
+        assertEquals(expected, file.length());
+    }
+
+    @Test
+    public void unclosedRecordingIsRecoveredByScanning() throws IOException {
+        FrameRecorder recorder = new FrameRecorder(file, 1 << 16);
+        for (int i = 0; i < 3; i++) {
+            record(recorder, PixelFormat.GRAY8, 32, 32, i);
+        }
+        // Not closed: no index, and the file still ends in the zeroed rest of the window.
+        try (FrameRecording recording = FrameRecording.open(file)) {
+            assertEquals(3, recording.frameCount());
+            assertFrame(recording, 2, PixelFormat.GRAY8, 32, 32);
+        } finally {
+            recorder.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.write(new byte[128]);
+        }
+        FrameRecording.open(file).close();
+    }
+
+    static void record(FrameRecorder recorder, PixelFormat format, int width, int height, int seed) {
+        FrameBuffer frame = new FrameBufferPool(1, 0).acquireDirect(format.frameSize(width, height));
+        frame.setDimensions(width, height);
+        frame.setFormat(format);
+        frame.setTimestampNanos(1_000_000_000L + seed * 10_000_000L);
+        for (int i = 0; i < format.frameSize(width, height); i++) {
+            frame.buffer().put(i, (byte) (i * 31 + seed));
+        }
+        recorder.onFrame(frame, width, height);
+        frame.release();
+    }
+
+    static void assertFrame(FrameRecording recording, int index, PixelFormat format, int width, int height) {
+        assertEquals(format, recording.format(index));
+        assertEquals(width, recording.width(index));
+        assertEquals(height, recording.height(index));
+        assertEquals(1_000_000_000L + index * 10_000_000L, recording.timestampNanos(index));
+        ByteBuffer pixels = recording.pixels(index);
+        assertEquals(format.frameSize(width, height), pixels.remaining());
+        for (int i = 0; i < pixels.remaining(); i++) {
+            assertEquals((byte) (i * 31 + index), pixels.get(i));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.edgeview.record;
+
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplayFrameSourceTest {
+    private static final int FRAMES = 6;
+
+    private final FrameBufferPool pool = new FrameBufferPool(4, 16L << 20);
+    private File file;
+    private FrameRecording recording;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("replay", ".evrec");
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            // Recorded 10 ms apart.
+            for (int i = 0; i < FRAMES; i++) {
+                FrameRecordingTest.record(recorder, PixelFormat.GRAY8, 24, 16, i);
+            }
+        }
+        recording = FrameRecording.open(file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        recording.close();
+        file.delete();
+    }
+
+    @Test
+    public void fastReplayDeliversFramesInOrderWithSameContents() {
+        List<Integer> firstBytes = new ArrayList<>();
+        ReplayFrameSource source = new ReplayFrameSource(recording, pool,
+                ReplayFrameSource.Pacing.AS_FAST_AS_POSSIBLE, 2);
+        long delivered = source.run((frame, width, height) -> {
+            assertEquals(24, width);
+            assertEquals(PixelFormat.GRAY8, frame.format());
+            firstBytes.add((int) frame.buffer().get(1));
+        });
+        assertEquals(2 * FRAMES, delivered);
+        for (int i = 0; i < firstBytes.size(); i++) {
+            assertEquals((byte) (31 + i % FRAMES), firstBytes.get(i).byteValue());
+        }
+        // Every buffer went back to the pool.
+        assertTrue(pool.getRetainedBytes() > 0);
+    }
+
+    @Test
+    public void originalPacingKeepsRecordedIntervals() {
+        List<Long> timestamps = new ArrayList<>();
+        long start = System.nanoTime();
+        new ReplayFrameSource(recording, pool, ReplayFrameSource.Pacing.ORIGINAL, 1)
+                .run((frame, width, height) -> timestamps.add(frame.timestampNanos()));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue("replay took " + elapsedMillis + " ms", elapsedMillis >= (FRAMES - 1) * 10 - 1);
+        for (int i = 1; i < timestamps.size(); i++) {
+            assertEquals(10_000_000L, timestamps.get(i) - timestamps.get(i - 1));
+        }
+    }
+
+    @Test
+    public void threadedReplayStopsOnRequest() throws InterruptedException {
+        ReplayFrameSource source = new ReplayFrameSource(recording, pool,
+                ReplayFrameSource.Pacing.ORIGINAL, 0);
+        List<Long> seen = new ArrayList<>();
+        source.start((frame, width, height) -> {
+            synchronized (seen) {
+                seen.add(frame.timestampNanos());
+            }
+        });
+        Thread.sleep(100);
+        source.stop();
+        int count;
+        synchronized (seen) {
+            count = seen.size();
+        }
+        assertTrue("frames " + count, count > FRAMES);
+        Thread.sleep(30);
+        synchronized (seen) {
+            assertEquals(count, seen.size());
+        }
+    }
+}
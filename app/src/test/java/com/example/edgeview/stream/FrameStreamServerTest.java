@@ -0,0 +1,202 @@
+package com.example.edgeview.stream;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class FrameStreamServerTest {
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    private final FrameBufferPool pool = new FrameBufferPool(8, 64L << 20);
+    private FrameStreamServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new FrameStreamServer(InetAddress.getLoopbackAddress(), 0, 2, new RawFrameEncoder());
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void loopbackClientReceivesBinaryFrame() throws Exception {
+        try (Socket socket = connect()) {
+            awaitClients(1);
+            FrameBuffer frame = grayFrame(7);
+            server.publish(frame.view());
+            frame.release();
+
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            byte[] message = readBinaryMessage(in);
+            assertEquals(StreamMessage.HEADER_SIZE + WIDTH * HEIGHT, message.length);
+            assertEquals(StreamMessage.CODEC_RAW_GRAY8, StreamMessage.codec(message));
+            assertEquals(WIDTH, StreamMessage.width(message));
+            assertEquals(HEIGHT, StreamMessage.height(message));
+            assertEquals(0, StreamMessage.sequence(message));
+            assertEquals(7, message[StreamMessage.HEADER_SIZE]);
+        }
+    }
+
+    @Test
+    public void frameIsEncodedOnceForAllClients() throws Exception {
+        try (Socket first = connect(); Socket second = connect()) {
+            awaitClients(2);
+            FrameBuffer frame = grayFrame(1);
+            server.publish(frame.view());
+            frame.release();
+
+            readBinaryMessage(new DataInputStream(first.getInputStream()));
+            readBinaryMessage(new DataInputStream(second.getInputStream()));
+            // The counter moves after the write returns, which can be after the client has read.
+            long deadline = System.currentTimeMillis() + 5000;
+            while (server.stats().sent < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            FrameStreamServer.Stats stats = server.stats();
+            assertEquals(1, stats.encoded);
+            assertEquals(2, stats.sent);
+        }
+    }
+
+    @Test
+    public void stalledClientDropsInsteadOfBlockingPublish() throws Exception {
+        try (Socket stalled = connect()) {
+            stalled.setReceiveBufferSize(4096);
+            awaitClients(1);
+            long start = System.nanoTime();
+            for (int i = 0; i < 2000; i++) {
+                FrameBuffer frame = grayFrame(i);
+                server.publish(frame.view());
+                frame.release();
+                Thread.sleep(0, 100_000);
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertTrue("publish blocked for " + elapsedMillis + " ms", elapsedMillis < 5000);
+
+            FrameStreamServer.Stats stats = server.stats();
+            assertEquals(2000, stats.published);
+            assertTrue(stats.toString(), stats.skipped + stats.dropped > 0);
+        }
+    }
+
+    @Test
+    public void nothingIsEncodedWithoutClients() {
+        FrameBuffer frame = grayFrame(3);
+        server.publish(frame.view());
+        assertEquals(1, frame.refCount());
+        frame.release();
+        assertEquals(0, server.stats().published);
+    }
+
+    @Test
+    public void plainHttpRequestIsRejected() throws Exception {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            socket.getOutputStream().write("GET / HTTP/1.1\r\nHost: x\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            String status = readLine(socket.getInputStream());
+            assertTrue(status, status.startsWith("HTTP/1.1 400"));
+        }
+    }
+
+    @Test
+    public void silentConnectionDoesNotBlockLaterViewers() throws Exception {
+        try (Socket silent = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            long start = System.nanoTime();
+            try (Socket viewer = connect()) {
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                assertTrue("handshake took " + elapsedMillis + " ms",
+                        elapsedMillis < FrameStreamServer.HANDSHAKE_TIMEOUT_MILLIS / 4);
+                awaitClients(1);
+                FrameBuffer frame = grayFrame(5);
+                server.publish(frame.view());
+                frame.release();
+                byte[] message = readBinaryMessage(new DataInputStream(viewer.getInputStream()));
+                assertEquals(5, message[StreamMessage.HEADER_SIZE]);
+                // The silent connection is still waiting out its handshake timeout.
+                assertFalse(silent.isClosed());
+                assertEquals(0, server.stats().rejected);
+            }
+        }
+    }
+
+    private FrameBuffer grayFrame(int value) {
+        FrameBuffer frame = pool.acquire(WIDTH * HEIGHT);
+        frame.setDimensions(WIDTH, HEIGHT);
+        frame.setFormat(PixelFormat.GRAY8);
+        for (int i = 0; i < WIDTH * HEIGHT; i++) {
+            frame.data()[i] = (byte) value;
+        }
+        return frame;
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+        socket.setSoTimeout(5000);
+        OutputStream out = socket.getOutputStream();
+        String key = "dGhlIHNhbXBsZSBub25jZQ==";
+        out.write(("GET / HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Key: " + key + "\r\nSec-WebSocket-Version: 13\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        InputStream in = socket.getInputStream();
+        assertEquals("HTTP/1.1 101 Switching Protocols", readLine(in));
+        boolean accepted = false;
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            accepted |= line.equals("Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=");
+        }
+        assertTrue(accepted);
+        return socket;
+    }
+
+    private void awaitClients(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.clientCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, server.clientCount());
+    }
+
+    private static byte[] readBinaryMessage(DataInputStream in) throws IOException {
+        int b0 = in.readUnsignedByte();
+        assertEquals(0x80 | WebSocketCodec.OPCODE_BINARY, b0);
+        int b1 = in.readUnsignedByte();
+        assertEquals("server frames are unmasked", 0, b1 & 0x80);
+        long length = b1;
+        if (length == 126) {
+            length = in.readUnsignedShort();
+        } else if (length == 127) {
+            length = in.readLong();
+        }
+        byte[] payload = new byte[(int) length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) >= 0 && b != '\n') {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
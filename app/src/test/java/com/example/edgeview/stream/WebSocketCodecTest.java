@@ -0,0 +1,65 @@
+package com.example.edgeview.stream;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class WebSocketCodecTest {
+    @Test
+    public void acceptKeyMatchesRfcExample() {
+        assertEquals("s3pPLMBiTxaQ9kYGzzhZRbK+xOo=", WebSocketCodec.acceptKey("dGhlIHNhbXBsZSBub25jZQ=="));
+    }
+
+    @Test
+    public void base64PadsPartialGroups() {
+        assertEquals("", WebSocketCodec.base64(new byte[0]));
+        assertEquals("Zg==", WebSocketCodec.base64("f".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("Zm8=", WebSocketCodec.base64("fo".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("Zm9vYmFy", WebSocketCodec.base64("foobar".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void frameHeaderUsesShortestLengthEncoding() {
+        byte[] header = new byte[10];
+        assertEquals(2, WebSocketCodec.frameHeader(header, WebSocketCodec.OPCODE_BINARY, 125));
+        assertEquals(4, WebSocketCodec.frameHeader(header, WebSocketCodec.OPCODE_BINARY, 65535));
+        assertEquals(10, WebSocketCodec.frameHeader(header, WebSocketCodec.OPCODE_BINARY, 65536));
+        assertEquals((byte) 0x82, header[0]);
+        assertEquals(127, header[1]);
+        assertEquals(1, header[7]);
+    }
+
+    @Test
+    public void maskedClientFrameIsUnmasked() throws IOException {
+        byte[] mask = {1, 2, 3, 4};
+        byte[] text = "ping".getBytes(StandardCharsets.US_ASCII);
+        byte[] wire = new byte[6 + text.length];
+        wire[0] = (byte) (0x80 | WebSocketCodec.OPCODE_PING);
+        wire[1] = (byte) (0x80 | text.length);
+        System.arraycopy(mask, 0, wire, 2, 4);
+        for (int i = 0; i < text.length; i++) {
+            wire[6 + i] = (byte) (text[i] ^ mask[i & 3]);
+        }
+        WebSocketCodec.ClientFrame frame = WebSocketCodec.readClientFrame(new ByteArrayInputStream(wire));
+        assertEquals(WebSocketCodec.OPCODE_PING, frame.opcode);
+        assertArrayEquals(text, frame.payload);
+    }
+
+    @Test
+    public void negativeLengthIsRejected() {
+        byte[] wire = new byte[14];
+        wire[0] = (byte) (0x80 | WebSocketCodec.OPCODE_BINARY);
+        wire[1] = (byte) (0x80 | 127);
+        wire[2] = (byte) 0x80; // most significant bit of the 64-bit length
+        try {
+            WebSocketCodec.readClientFrame(new ByteArrayInputStream(wire));
+            fail("expected IOException");
+        } catch (IOException expected) {
+            // The reader closes the connection instead of failing the app.
+        }
+    }
+}
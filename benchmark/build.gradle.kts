@@ -0,0 +1,53 @@
+// JVM-only JMH benchmarks for the Java hot paths of :app (conversion, handoff, fallback
+// processing, edge map coding), plus the headless batch runner. Runs on any desktop JDK:
+// ./gradlew :benchmark:jmh
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+// Compile the Android-free packages of the app straight from its source tree, so the
+// benchmarks always measure the code that ships.
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/edgeview/batch/**",
+                "com/example/edgeview/buffer/**",
+                "com/example/edgeview/codec/**",
+                "com/example/edgeview/convert/**",
+                "com/example/edgeview/metrics/**",
+                "com/example/edgeview/pipeline/**",
+                "com/example/edgeview/processing/**",
+                "com/example/edgeview/record/**",
+                "com/example/edgeview/source/**"
+            )
+        }
+    }
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmhCore)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    // Allocation rate per operation next to throughput; steady-state paths should report ~0 B/op.
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    // Narrow a run with -Pjmh.includes=<regex>, e.g. -Pjmh.includes=Nv21
+    (project.findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
+
+// Headless batch edge detection over image directories and recordings, e.g.
+// ./gradlew :benchmark:batch --args="--workers 8 --out build/edges /path/to/images"
+tasks.register<JavaExec>("batch") {
+    description = "Runs the edge pipeline over image sets or recordings without a device."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("com.example.edgeview.batch.BatchRunner")
+}
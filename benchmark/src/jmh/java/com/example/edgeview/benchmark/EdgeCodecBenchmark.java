@@ -0,0 +1,189 @@
+package com.example.edgeview.benchmark;
+
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.codec.EdgeMapDecoder;
+import com.example.edgeview.codec.EdgeMapEncoder;
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.processing.JavaCannyDetector;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * The 1-bit edge map codec against JPEG (ImageIO, quality 0.8) on Canny output of a synthetic
+ * scene. The {@code encodedBytes} counter reports the size of one encoded frame. Delta frames are
+ * measured on a static scene (the fixed-camera case they are meant for) and on a scene
+ * alternating with a copy shifted by one pixel, where moving edges make deltas larger than
+ * keyframes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class EdgeCodecBenchmark {
+
+    @Param({Frames.VGA, Frames.HD, Frames.FULL_HD})
+    public String resolution;
+
+    private int width;
+    private int height;
+    private ByteBuffer edges;
+    private ByteBuffer shiftedEdges;
+    private byte[] encoded;
+    private int encodedSize;
+    private byte[] decoded;
+    private EdgeMapEncoder keyframeEncoder;
+    private EdgeMapEncoder deltaEncoder;
+    private EdgeMapEncoder staticEncoder;
+    private EdgeMapDecoder decoder;
+    private BufferedImage image;
+    private ImageWriter jpegWriter;
+    private ImageWriteParam jpegParam;
+    private ByteArrayOutputStream jpegOut;
+    private byte[] jpeg;
+    private boolean shifted;
+
+    /** Size of the last encoded frame, reported next to the throughput. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+        public long encodedBytes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            encodedBytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        width = Frames.width(resolution);
+        height = Frames.height(resolution);
+        edges = detectEdges(scene(width, height, 0));
+        shiftedEdges = detectEdges(scene(width, height, 1));
+        encoded = new byte[EdgeMapEncoder.maxEncodedSize(width, height)];
+        decoded = new byte[width * height];
+        keyframeEncoder = new EdgeMapEncoder();
+        deltaEncoder = new EdgeMapEncoder(Integer.MAX_VALUE);
+        staticEncoder = new EdgeMapEncoder(Integer.MAX_VALUE);
+        decoder = new EdgeMapDecoder();
+        encodedSize = keyframeEncoder.encode(edges, width, height, encoded, 0);
+
+        image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        edges.get(pixels);
+        edges.clear();
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        jpegWriter = writers.next();
+        jpegParam = jpegWriter.getDefaultWriteParam();
+        jpegParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        jpegParam.setCompressionQuality(0.8f);
+        jpegOut = new ByteArrayOutputStream(width * height);
+        jpeg = encodeJpeg();
+    }
+
+    @Benchmark
+    public int encodeKeyframe(Size size) {
+        int bytes = keyframeEncoder.encode(edges, width, height, encoded, 0);
+        size.encodedBytes = bytes;
+        return bytes;
+    }
+
+    @Benchmark
+    public int encodeDeltaStatic(Size size) {
+        int bytes = staticEncoder.encode(edges, width, height, encoded, 0);
+        size.encodedBytes = bytes;
+        return bytes;
+    }
+
+    @Benchmark
+    public int encodeDeltaPanning(Size size) {
+        shifted = !shifted;
+        int bytes = deltaEncoder.encode(shifted ? shiftedEdges : edges, width, height, encoded, 0);
+        size.encodedBytes = bytes;
+        return bytes;
+    }
+
+    @Benchmark
+    public byte[] decodeKeyframe() {
+        decoder.decode(encoded, 0, encodedSize, decoded, PixelFormat.GRAY8, width, height);
+        return decoded;
+    }
+
+    @Benchmark
+    public int encodeJpeg(Size size) throws IOException {
+        int bytes = encodeJpeg().length;
+        size.encodedBytes = bytes;
+        return bytes;
+    }
+
+    @Benchmark
+    public BufferedImage decodeJpeg() throws IOException {
+        return ImageIO.read(new ByteArrayInputStream(jpeg));
+    }
+
+    private byte[] encodeJpeg() throws IOException {
+        jpegOut.reset();
+        try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(jpegOut)) {
+            jpegWriter.setOutput(out);
+            jpegWriter.write(null, new IIOImage(image, null, null), jpegParam);
+        }
+        return jpegOut.toByteArray();
+    }
+
+    private ByteBuffer detectEdges(byte[] luma) {
+        ByteBuffer output = ByteBuffer.allocate(width * height);
+        new JavaCannyDetector(EdgeConfig.DEFAULT).detect(ByteBuffer.wrap(luma), PixelFormat.GRAY8, output,
+                PixelFormat.GRAY8, width, height);
+        return output;
+    }
+
+    // Flat shaded rectangles and discs on a smooth gradient, offset by dx pixels.
+    private static byte[] scene(int width, int height, int dx) {
+        byte[] luma = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                luma[y * width + x] = (byte) (64 + (x + y) * 64 / (width + height));
+            }
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 40; i++) {
+            int cx = random.nextInt(width) + dx;
+            int cy = random.nextInt(height);
+            int r = 10 + random.nextInt(height / 8);
+            byte shade = (byte) (random.nextInt(2) == 0 ? 30 + random.nextInt(40) : 180 + random.nextInt(60));
+            boolean disc = random.nextBoolean();
+            for (int y = Math.max(0, cy - r); y < Math.min(height, cy + r); y++) {
+                for (int x = Math.max(0, cx - r); x < Math.min(width, cx + r); x++) {
+                    if (!disc || (x - cx) * (x - cx) + (y - cy) * (y - cy) < r * r) {
+                        luma[y * width + x] = shade;
+                    }
+                }
+            }
+        }
+        return luma;
+    }
+}
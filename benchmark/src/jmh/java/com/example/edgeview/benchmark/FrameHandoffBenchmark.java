@@ -0,0 +1,88 @@
+package com.example.edgeview.benchmark;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.pipeline.SpscRing;
+import com.example.edgeview.pipeline.TripleBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costs of moving a frame between threads: pooled buffer acquire/release, the SPSC ring between
+ * pipeline stages and the triple buffer in front of the renderer. Grouped benchmarks run one
+ * producer and one consumer thread, as in the app.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FrameHandoffBenchmark {
+
+    @State(Scope.Thread)
+    public static class PoolState {
+        @Param({Frames.VGA, Frames.HD, Frames.FULL_HD})
+        public String resolution;
+
+        FrameBufferPool pool;
+        int size;
+
+        @Setup
+        public void setUp() {
+            pool = new FrameBufferPool(4, 64L * 1024 * 1024);
+            size = Frames.width(resolution) * Frames.height(resolution) * 4;
+        }
+    }
+
+    @Benchmark
+    public FrameBuffer poolAcquireRelease(PoolState state) {
+        FrameBuffer frame = state.pool.acquireDirect(state.size);
+        frame.retain();
+        frame.release();
+        frame.release();
+        return frame;
+    }
+
+    @State(Scope.Group)
+    public static class RingState {
+        final SpscRing<Integer> ring = new SpscRing<>(4);
+        final Integer frame = 1;
+    }
+
+    @Benchmark
+    @Group("spscRing")
+    public boolean ringOffer(RingState state) {
+        return state.ring.offer(state.frame);
+    }
+
+    @Benchmark
+    @Group("spscRing")
+    public Integer ringPoll(RingState state) {
+        return state.ring.poll();
+    }
+
+    @State(Scope.Group)
+    public static class TripleBufferState {
+        final TripleBuffer<Integer> frames = new TripleBuffer<>(frame -> { });
+        final Integer frame = 1;
+    }
+
+    @Benchmark
+    @Group("tripleBuffer")
+    public void triplePublish(TripleBufferState state) {
+        state.frames.publish(state.frame);
+    }
+
+    @Benchmark
+    @Group("tripleBuffer")
+    public Integer tripleAcquire(TripleBufferState state) {
+        return state.frames.acquireLatest();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.edgeview.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/** Synthetic camera frames shared by the benchmarks. Contents are fixed-seed noise. */
+final class Frames {
+    static final String VGA = "640x480";
+    static final String HD = "1280x720";
+    static final String FULL_HD = "1920x1080";
+
+    private Frames() {}
+
+    static int width(String resolution) {
+        return Integer.parseInt(resolution.substring(0, resolution.indexOf('x')));
+    }
+
+    static int height(String resolution) {
+        return Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+    }
+
+    static byte[] noise(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    static ByteBuffer directNoise(int size, long seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        buffer.put(noise(size, seed)).clear();
+        return buffer;
+    }
+
+    /** YUV_420_888 planes as direct buffers, laid out like an ImageProxy would expose them. */
+    static final class Planes {
+        final ByteBuffer y;
+        final ByteBuffer u;
+        final ByteBuffer v;
+        final int yRowStride;
+        final int uvRowStride;
+        final int uvPixelStride;
+
+        Planes(PlaneLayout layout, int width, int height) {
+            int chromaHeight = height / 2;
+            switch (layout) {
+                case PLANAR:
+                    yRowStride = width;
+                    uvRowStride = width / 2;
+                    uvPixelStride = 1;
+                    y = directNoise(yRowStride * height, 1);
+                    u = directNoise(uvRowStride * chromaHeight, 2);
+                    v = directNoise(uvRowStride * chromaHeight, 3);
+                    break;
+                case PADDED:
+                case SEMI_PLANAR:
+                default:
+                    yRowStride = layout == PlaneLayout.PADDED ? (width + 255) / 256 * 256 + 256 : width;
+                    uvRowStride = yRowStride;
+                    uvPixelStride = 2;
+                    y = directNoise(yRowStride * height, 1);
+                    // V and U alias one interleaved buffer, offset by a byte, as on real devices.
+                    ByteBuffer vu = directNoise(uvRowStride * chromaHeight, 2);
+                    v = vu.duplicate();
+                    vu.position(1);
+                    u = vu.slice();
+                    break;
+            }
+        }
+    }
+}
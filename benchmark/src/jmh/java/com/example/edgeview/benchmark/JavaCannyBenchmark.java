@@ -0,0 +1,65 @@
+package com.example.edgeview.benchmark;
+
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.processing.JavaCannyDetector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/** The Java fallback edge detector on luma (edge mode) and RGBA input, into direct buffers. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JavaCannyBenchmark {
+
+    @Param({Frames.VGA, Frames.HD, Frames.FULL_HD})
+    public String resolution;
+
+    @Param({"0", "5"})
+    public int blurKernelSize;
+
+    @Param({"1", "0"})
+    public int bands; // 0 = two per pool thread
+
+    private int width;
+    private int height;
+    private ByteBuffer luma;
+    private ByteBuffer rgba;
+    private ByteBuffer output;
+    private JavaCannyDetector detector;
+
+    @Setup
+    public void setUp() {
+        width = Frames.width(resolution);
+        height = Frames.height(resolution);
+        luma = Frames.directNoise(width * height, 5);
+        rgba = Frames.directNoise(width * height * 4, 6);
+        output = ByteBuffer.allocateDirect(width * height);
+        EdgeConfig config = new EdgeConfig(50, 150, blurKernelSize);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        detector = bands > 0 ? new JavaCannyDetector(config, pool, bands) : new JavaCannyDetector(config, pool);
+    }
+
+    @Benchmark
+    public ByteBuffer luma() {
+        detector.detect(luma, PixelFormat.GRAY8, output, PixelFormat.GRAY8, width, height);
+        return output;
+    }
+
+    @Benchmark
+    public ByteBuffer rgba() {
+        detector.detect(rgba, PixelFormat.RGBA, output, PixelFormat.GRAY8, width, height);
+        return output;
+    }
+}
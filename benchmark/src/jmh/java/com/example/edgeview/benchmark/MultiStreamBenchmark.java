@@ -0,0 +1,115 @@
+package com.example.edgeview.benchmark;
+
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.pipeline.BackpressurePolicy;
+import com.example.edgeview.pipeline.FramePipeline;
+import com.example.edgeview.pipeline.StreamEngine;
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.processing.JavaCannyDetector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Several independent streams through the Java edge detector: on one {@link StreamEngine} with a
+ * worker per core, against a {@link FramePipeline} per stream with a thread per stage. One
+ * operation is a burst of frames on every stream, run to completion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MultiStreamBenchmark {
+    private static final int FRAMES_PER_STREAM = 8;
+
+    @Param({"2", "4", "8"})
+    public int streams;
+
+    @Param({Frames.VGA})
+    public String resolution;
+
+    private int width;
+    private int height;
+    private volatile CountDownLatch done;
+    private StreamEngine<Integer> engine;
+    private final List<StreamEngine.FrameStream<Integer>> engineStreams = new ArrayList<>();
+    private final List<FramePipeline<Integer>> pipelines = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        width = Frames.width(resolution);
+        height = Frames.height(resolution);
+        engine = new StreamEngine<>(frame -> { }, null);
+        for (int s = 0; s < streams; s++) {
+            engineStreams.add(engine.newStream("stream" + s)
+                    .addStage(FRAMES_PER_STREAM, BackpressurePolicy.DROP_NEWEST, detectStage(s))
+                    .addStage(FRAMES_PER_STREAM, BackpressurePolicy.DROP_NEWEST, this::finish)
+                    .build());
+            FramePipeline<Integer> pipeline = new FramePipeline.Builder<Integer>()
+                    .addStage("detect", FRAMES_PER_STREAM, BackpressurePolicy.DROP_NEWEST, detectStage(s))
+                    .addStage("finish", FRAMES_PER_STREAM, BackpressurePolicy.DROP_NEWEST, this::finish)
+                    .build();
+            pipeline.start();
+            pipelines.add(pipeline);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+        for (FramePipeline<Integer> pipeline : pipelines) {
+            pipeline.stop();
+        }
+    }
+
+    @Benchmark
+    public void sharedEngine() throws InterruptedException {
+        done = new CountDownLatch(streams * FRAMES_PER_STREAM);
+        for (int i = 0; i < FRAMES_PER_STREAM; i++) {
+            for (StreamEngine.FrameStream<Integer> stream : engineStreams) {
+                stream.submit(i);
+            }
+        }
+        done.await();
+    }
+
+    @Benchmark
+    public void threadPerStage() throws InterruptedException {
+        done = new CountDownLatch(streams * FRAMES_PER_STREAM);
+        for (int i = 0; i < FRAMES_PER_STREAM; i++) {
+            for (FramePipeline<Integer> pipeline : pipelines) {
+                pipeline.submit(i);
+            }
+        }
+        done.await();
+    }
+
+    // Each stream has its own detector and frames; one band, so a frame is one stage's work.
+    private FramePipeline.Stage<Integer> detectStage(int stream) {
+        final JavaCannyDetector detector = new JavaCannyDetector(EdgeConfig.DEFAULT, ForkJoinPool.commonPool(), 1);
+        final byte[] input = Frames.noise(width * height, stream);
+        final byte[] output = new byte[width * height];
+        return frame -> {
+            detector.detect(input, PixelFormat.GRAY8, output, PixelFormat.GRAY8, width, height);
+            return frame;
+        };
+    }
+
+    private Integer finish(Integer frame) {
+        done.countDown();
+        return null;
+    }
+}
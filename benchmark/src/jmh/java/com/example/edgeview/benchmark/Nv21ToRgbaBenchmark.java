@@ -0,0 +1,61 @@
+package com.example.edgeview.benchmark;
+
+import com.example.edgeview.convert.ParallelNv21Converter;
+import com.example.edgeview.convert.ReferenceYuvConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/** NV21 to RGBA on the Java path: the original per-pixel loop against the banded converter. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class Nv21ToRgbaBenchmark {
+
+    @Param({Frames.VGA, Frames.HD, Frames.FULL_HD})
+    public String resolution;
+
+    private int width;
+    private int height;
+    private byte[] nv21;
+    private byte[] rgba;
+    private ParallelNv21Converter parallel;
+    private ParallelNv21Converter singleBand;
+
+    @Setup
+    public void setUp() {
+        width = Frames.width(resolution);
+        height = Frames.height(resolution);
+        nv21 = Frames.noise(width * height * 3 / 2, 4);
+        rgba = new byte[width * height * 4];
+        parallel = new ParallelNv21Converter();
+        singleBand = new ParallelNv21Converter(ForkJoinPool.commonPool(), 1);
+    }
+
+    @Benchmark
+    public byte[] reference() {
+        ReferenceYuvConverter.nv21ToRgba(nv21, rgba, 0, 0, height, width, height);
+        return rgba;
+    }
+
+    @Benchmark
+    public byte[] tablesSingleBand() {
+        singleBand.convert(nv21, rgba, 0, width, height);
+        return rgba;
+    }
+
+    @Benchmark
+    public byte[] tablesParallel() {
+        parallel.convert(nv21, rgba, 0, width, height);
+        return rgba;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.edgeview.benchmark;
+
+/** Chroma plane layouts seen in CameraX YUV_420_888 images. */
+public enum PlaneLayout {
+    /** Interleaved VU with row stride == width (most devices). */
+    SEMI_PLANAR,
+    /** Interleaved VU with rows padded to a 256-byte boundary. */
+    PADDED,
+    /** Separate U and V planes with pixel stride 1. */
+    PLANAR
+}
@@ -0,0 +1,96 @@
+package com.example.edgeview.benchmark;
+
+import com.example.edgeview.buffer.FrameBuffer;
+import com.example.edgeview.buffer.FrameBufferPool;
+import com.example.edgeview.buffer.PixelFormat;
+import com.example.edgeview.processing.EdgeConfig;
+import com.example.edgeview.processing.JavaCannyDetector;
+import com.example.edgeview.record.FrameRecorder;
+import com.example.edgeview.record.FrameRecording;
+import com.example.edgeview.record.ReplayFrameSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a recorded session as fast as possible through the Java edge detector; one operation
+ * is one pass over the whole recording. Pass a recording pulled from a device with
+ * {@code -Dedgeview.recording=path} (e.g. through the jmh jvmArgs); without one, 120 synthetic
+ * 720p luma frames are recorded first.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReplayBenchmark {
+
+    private File syntheticFile;
+    private FrameRecording recording;
+    private ReplayFrameSource source;
+    private JavaCannyDetector detector;
+    private ByteBuffer output;
+
+    @Setup
+    public void setUp() throws IOException {
+        String path = System.getProperty("edgeview.recording");
+        File file;
+        if (path != null) {
+            file = new File(path);
+        } else {
+            syntheticFile = File.createTempFile("replay-benchmark", ".evrec");
+            recordSynthetic(syntheticFile, 1280, 720, 120);
+            file = syntheticFile;
+        }
+        recording = FrameRecording.open(file);
+        FrameBufferPool pool = new FrameBufferPool(4, 64L << 20);
+        source = new ReplayFrameSource(recording, pool, ReplayFrameSource.Pacing.AS_FAST_AS_POSSIBLE, 1);
+        detector = new JavaCannyDetector(EdgeConfig.DEFAULT);
+        output = ByteBuffer.allocateDirect(1920 * 1080);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        recording.close();
+        if (syntheticFile != null) {
+            syntheticFile.delete();
+        }
+    }
+
+    @Benchmark
+    public long replayThroughJavaCanny() {
+        return source.run((frame, width, height) -> {
+            if (output.capacity() < width * height) {
+                output = ByteBuffer.allocateDirect(width * height);
+            }
+            detector.detect(frame.buffer(), frame.format(), output, PixelFormat.GRAY8, width, height);
+        });
+    }
+
+    private static void recordSynthetic(File file, int width, int height, int frames) throws IOException {
+        FrameBufferPool pool = new FrameBufferPool(1, 0);
+        byte[] noise = Frames.noise(width * height, 9);
+        try (FrameRecorder recorder = new FrameRecorder(file)) {
+            for (int i = 0; i < frames; i++) {
+                FrameBuffer frame = pool.acquireDirect(width * height);
+                frame.setDimensions(width, height);
+                frame.setFormat(PixelFormat.GRAY8);
+                frame.setTimestampNanos(i * 33_333_333L);
+                // Rolling the noise by a row per frame keeps consecutive frames different.
+                int shift = (i * width) % noise.length;
+                frame.buffer().put(noise, shift, noise.length - shift).put(noise, 0, shift).clear();
+                recorder.onFrame(frame, width, height);
+                frame.release();
+            }
+        }
+    }
+}
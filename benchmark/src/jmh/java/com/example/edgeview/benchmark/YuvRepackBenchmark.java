@@ -0,0 +1,58 @@
+package com.example.edgeview.benchmark;
+
+import com.example.edgeview.convert.LumaExtractor;
+import com.example.edgeview.convert.ReferenceYuvConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/** Plane repacking done on the analyzer thread: YUV_420_888 to NV21, and the luma-only copy. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class YuvRepackBenchmark {
+
+    @Param({Frames.VGA, Frames.HD, Frames.FULL_HD})
+    public String resolution;
+
+    @Param({"SEMI_PLANAR", "PADDED", "PLANAR"})
+    public PlaneLayout layout;
+
+    private int width;
+    private int height;
+    private Frames.Planes planes;
+    private byte[] nv21;
+    private ByteBuffer luma;
+
+    @Setup
+    public void setUp() {
+        width = Frames.width(resolution);
+        height = Frames.height(resolution);
+        planes = new Frames.Planes(layout, width, height);
+        nv21 = new byte[width * height * 3 / 2];
+        luma = ByteBuffer.allocateDirect(width * height);
+    }
+
+    @Benchmark
+    public byte[] planesToNv21() {
+        ReferenceYuvConverter.planesToNv21(planes.y, planes.yRowStride, 1,
+                planes.u, planes.uvRowStride, planes.v, planes.uvRowStride, planes.uvPixelStride,
+                width, height, nv21);
+        return nv21;
+    }
+
+    @Benchmark
+    public ByteBuffer copyLuma() {
+        LumaExtractor.copyLuma(planes.y, planes.yRowStride, 1, width, height, luma);
+        return luma;
+    }
+}
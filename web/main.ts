@@ -1,48 +1,195 @@
-const frameElement = document.getElementById('frame') as HTMLImageElement;
+const canvas = document.getElementById('frame') as HTMLCanvasElement;
+const context = canvas.getContext('2d');
 const fpsElement = document.getElementById('fps');
 const resolutionElement = document.getElementById('resolution');
+const statusElement = document.getElementById('status');
 
-// A 1x1 transparent GIF to use as a placeholder
-const placeholderBase64 = 'R0lGODlhAQABAIAAAAAAAP///yH5BAEAAAAALAAAAAABAAEAAAIBRAA7';
+// Binary message layout written by FrameStreamServer (see StreamMessage.java). Big-endian.
+const HEADER_SIZE = 16;
+const VERSION = 1;
+const CODEC_RAW_GRAY8 = 0;
+const CODEC_RAW_RGBA = 1;
+const CODEC_EDGE_BITS = 2;
+
+// Edge map format (see EdgeMapFormat.java): flags byte, then per row a tag and packed bits or runs.
+const EDGE_FLAG_DELTA = 0x1;
+const EDGE_ROW_PACKED = 0;
+const EDGE_ROW_RUNS = 1;
+
+// ws://host:8088/ by default; override with ?ws=ws://host:port/ (e.g. after `adb forward tcp:8088 tcp:8088`).
+const DEFAULT_PORT = 8088;
+const RECONNECT_DELAY_MS = 1000;
 
 let frameCount = 0;
-const initialWidth = 640;
-const initialHeight = 480;
+let droppedCount = 0;
+let lastSequence = -1;
+// Reused while the frame size stays the same, so a frame costs no allocation here.
+let imageData: ImageData | null = null;
 
-// Set initial placeholder image and resolution text
-if (frameElement) {
-    frameElement.src = `data:image/gif;base64,${placeholderBase64}`;
-}
 if (resolutionElement) {
-    resolutionElement.textContent = `Resolution: ${initialWidth}x${initialHeight}`;
+    resolutionElement.textContent = 'Resolution: -';
 }
 
 // This function updates the FPS display once every second
 setInterval(() => {
     if (fpsElement) {
-        fpsElement.textContent = `FPS: ${frameCount}`;
+        fpsElement.textContent = `FPS: ${frameCount} (dropped ${droppedCount})`;
     }
     frameCount = 0; // Reset the counter for the next second
+    droppedCount = 0;
 }, 1000);
 
+function streamUrl(): string {
+    const override = new URLSearchParams(location.search).get('ws');
+    if (override) {
+        return override;
+    }
+    return `ws://${location.hostname || 'localhost'}:${DEFAULT_PORT}/`;
+}
+
+function setStatus(text: string) {
+    if (statusElement) {
+        statusElement.textContent = text;
+    }
+}
+
+/**
+ * Expands a 1-bit edge map into RGBA pixels, white edges on black. Returns false for malformed
+ * input. The stream never uses delta frames, so no previous frame is kept.
+ */
+function decodeEdgeMap(data: Uint8Array, width: number, height: number, pixels: Uint8ClampedArray): boolean {
+    if (data.length < 1 || (data[0] & EDGE_FLAG_DELTA) !== 0) {
+        return false;
+    }
+    const rowBytes = (width + 7) >> 3;
+    let pos = 1;
+    let p = 0;
+    for (let y = 0; y < height; y++) {
+        const tag = data[pos++];
+        if (tag === EDGE_ROW_PACKED) {
+            if (pos + rowBytes > data.length) {
+                return false;
+            }
+            for (let x = 0; x < width; x++, p += 4) {
+                const value = (data[pos + (x >> 3)] >> (7 - (x & 7))) & 1 ? 255 : 0;
+                pixels[p] = value;
+                pixels[p + 1] = value;
+                pixels[p + 2] = value;
+                pixels[p + 3] = 255;
+            }
+            pos += rowBytes;
+        } else if (tag === EDGE_ROW_RUNS) {
+            let x = 0;
+            let value = 0;
+            while (x < width) {
+                let run = 0;
+                let shift = 0;
+                let b: number;
+                do {
+                    if (pos >= data.length || shift > 28) {
+                        return false;
+                    }
+                    b = data[pos++];
+                    run |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while (b & 0x80);
+                if (run > width - x) {
+                    return false;
+                }
+                const end = p + run * 4;
+                for (; p < end; p += 4) {
+                    pixels[p] = value;
+                    pixels[p + 1] = value;
+                    pixels[p + 2] = value;
+                    pixels[p + 3] = 255;
+                }
+                x += run;
+                value ^= 255;
+            }
+        } else {
+            return false;
+        }
+    }
+    return true;
+}
+
 /**
- * This function should be called when a new frame is received (e.g., from a WebSocket).
- * It updates the image source and resolution display, and increments the frame counter.
- *
- * @param base64Image The base64 encoded image data (e.g., JPEG).
- * @param newWidth The width of the new image.
- * @param newHeight The height of the new image.
+ * Draws one binary frame message into the canvas and updates the counters.
+ * Gaps in the sequence number are frames the server skipped or dropped for this viewer.
  */
-function onNewFrame(base64Image: string, newWidth: number, newHeight: number) {
-    if (frameElement) {
-        frameElement.src = `data:image/jpeg;base64,${base64Image}`;
+function onNewFrame(message: ArrayBuffer) {
+    if (message.byteLength < HEADER_SIZE || !context) {
+        return;
+    }
+    const header = new DataView(message);
+    if (header.getUint8(0) !== 0x45 || header.getUint8(1) !== 0x56 || header.getUint8(2) !== VERSION) {
+        return;
     }
-    if (resolutionElement) {
-        resolutionElement.textContent = `Resolution: ${newWidth}x${newHeight}`;
+    const codec = header.getUint8(3);
+    const width = header.getUint32(4);
+    const height = header.getUint32(8);
+    const sequence = header.getUint32(12);
+    const payload = new Uint8Array(message, HEADER_SIZE);
+
+    if (!imageData || imageData.width !== width || imageData.height !== height) {
+        canvas.width = width;
+        canvas.height = height;
+        imageData = context.createImageData(width, height);
+        if (resolutionElement) {
+            resolutionElement.textContent = `Resolution: ${width}x${height}`;
+        }
     }
+    const pixels = imageData.data;
+    if (codec === CODEC_RAW_RGBA) {
+        if (payload.length < pixels.length) {
+            return;
+        }
+        pixels.set(payload.subarray(0, pixels.length));
+    } else if (codec === CODEC_RAW_GRAY8) {
+        const count = width * height;
+        if (payload.length < count) {
+            return;
+        }
+        for (let i = 0, p = 0; i < count; i++, p += 4) {
+            const value = payload[i];
+            pixels[p] = value;
+            pixels[p + 1] = value;
+            pixels[p + 2] = value;
+            pixels[p + 3] = 255;
+        }
+    } else if (codec === CODEC_EDGE_BITS) {
+        if (!decodeEdgeMap(payload, width, height, pixels)) {
+            return;
+        }
+    } else {
+        return;
+    }
+    context.putImageData(imageData, 0, 0);
+
+    if (lastSequence >= 0 && sequence > lastSequence + 1) {
+        droppedCount += sequence - lastSequence - 1;
+    }
+    lastSequence = sequence;
     frameCount++;
 }
 
-// --- Example Usage ---
-// To test this, you could simulate receiving frames by calling this from the browser console:
-// setInterval(() => onNewFrame(placeholderBase64, 1280, 720), 100);
+function connect() {
+    const url = streamUrl();
+    const socket = new WebSocket(url);
+    socket.binaryType = 'arraybuffer';
+    socket.onopen = () => {
+        lastSequence = -1;
+        setStatus(`Connected to ${url}`);
+    };
+    socket.onmessage = (event: MessageEvent) => {
+        if (event.data instanceof ArrayBuffer) {
+            onNewFrame(event.data);
+        }
+    };
+    socket.onclose = () => {
+        setStatus(`Disconnected from ${url}, retrying`);
+        setTimeout(connect, RECONNECT_DELAY_MS);
+    };
+}
+
+connect();